@@ -0,0 +1,144 @@
+package com.openclassroom.PayMyBuddy.config;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.servlet.FlashMap;
+import org.springframework.web.servlet.support.AbstractFlashMapManager;
+import org.springframework.web.util.UriUtils;
+import org.springframework.web.util.WebUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link org.springframework.web.servlet.FlashMapManager} keeping the flash attributes of a redirect in a signed
+ * cookie instead of the HTTP session.
+ *
+ * <p>With session tokens, no node holds any session: the message of a redirected POST request travels in a
+ * short-lived cookie, signed by the {@link TokenSigner} so that it cannot be forged, and is cleared by the
+ * request displaying it. Only text and boolean attributes are kept, which covers the {@code success} and
+ * {@code message} attributes of the application; other attributes are dropped.</p>
+ */
+public class CookieFlashMapManager extends AbstractFlashMapManager {
+    /**
+     * Name of the cookie holding the flash attributes.
+     */
+    public static final String COOKIE_NAME = "PMB_FLASH";
+
+    private static final String PATH = "path";
+    private static final String EXPIRES = "expires";
+    private static final String PARAM_PREFIX = "p.";
+    private static final String TEXT_PREFIX = "s.";
+    private static final String BOOLEAN_PREFIX = "b.";
+
+    private final TokenSigner tokenSigner;
+
+    private static final Logger logger = LoggerFactory.getLogger(CookieFlashMapManager.class);
+
+    /**
+     * Creates a manager signing its cookie with the given signer.
+     *
+     * @param tokenSigner the signer of the cookie
+     */
+    public CookieFlashMapManager(TokenSigner tokenSigner) {
+        this.tokenSigner = tokenSigner;
+    }
+
+    @Override
+    protected List<FlashMap> retrieveFlashMaps(HttpServletRequest request) {
+        Cookie cookie = WebUtils.getCookie(request, COOKIE_NAME);
+        String payload = cookie == null ? null : tokenSigner.verify(cookie.getValue());
+        if (payload == null) {
+            return null;
+        }
+        List<FlashMap> flashMaps = new ArrayList<>();
+        for (String line : payload.split("\n")) {
+            FlashMap flashMap = new FlashMap();
+            for (String pair : line.split("&")) {
+                int separator = pair.indexOf('=');
+                if (separator < 0) {
+                    continue;
+                }
+                String name = UriUtils.decode(pair.substring(0, separator), StandardCharsets.UTF_8);
+                String value = UriUtils.decode(pair.substring(separator + 1), StandardCharsets.UTF_8);
+                if (name.equals(PATH)) {
+                    flashMap.setTargetRequestPath(value);
+                } else if (name.equals(EXPIRES)) {
+                    flashMap.setExpirationTime(Long.parseLong(value));
+                } else if (name.startsWith(PARAM_PREFIX)) {
+                    flashMap.addTargetRequestParam(name.substring(PARAM_PREFIX.length()), value);
+                } else if (name.startsWith(TEXT_PREFIX)) {
+                    flashMap.put(name.substring(TEXT_PREFIX.length()), value);
+                } else if (name.startsWith(BOOLEAN_PREFIX)) {
+                    flashMap.put(name.substring(BOOLEAN_PREFIX.length()), Boolean.valueOf(value));
+                }
+            }
+            flashMaps.add(flashMap);
+        }
+        return flashMaps;
+    }
+
+    @Override
+    protected void updateFlashMaps(List<FlashMap> flashMaps, HttpServletRequest request, HttpServletResponse response) {
+        if (flashMaps.isEmpty()) {
+            if (WebUtils.getCookie(request, COOKIE_NAME) != null) {
+                writeCookie(request, response, "", 0);
+            }
+            return;
+        }
+        List<String> lines = new ArrayList<>();
+        for (FlashMap flashMap : flashMaps) {
+            StringBuilder line = new StringBuilder();
+            append(line, EXPIRES, Long.toString(flashMap.getExpirationTime()));
+            if (flashMap.getTargetRequestPath() != null) {
+                append(line, PATH, flashMap.getTargetRequestPath());
+            }
+            flashMap.getTargetRequestParams().forEach((name, values) -> values.forEach(value -> append(line, PARAM_PREFIX + name, value)));
+            for (Map.Entry<String, Object> attribute : flashMap.entrySet()) {
+                if (attribute.getValue() instanceof String text) {
+                    append(line, TEXT_PREFIX + attribute.getKey(), text);
+                } else if (attribute.getValue() instanceof Boolean bool) {
+                    append(line, BOOLEAN_PREFIX + attribute.getKey(), bool.toString());
+                } else {
+                    logger.warn("Flash attribute {} dropped, only text and booleans are kept", attribute.getKey());
+                }
+            }
+            lines.add(line.toString());
+        }
+        writeCookie(request, response, tokenSigner.sign(String.join("\n", lines)), -1);
+    }
+
+    /**
+     * Cookies need no lock: each request reads and writes its own copy.
+     *
+     * @param request the current request
+     * @return null
+     */
+    @Override
+    protected Object getFlashMapsMutex(HttpServletRequest request) {
+        return null;
+    }
+
+    private static void append(StringBuilder line, String name, String value) {
+        if (!line.isEmpty()) {
+            line.append('&');
+        }
+        line.append(UriUtils.encode(name, StandardCharsets.UTF_8)).append('=')
+                .append(UriUtils.encode(value, StandardCharsets.UTF_8));
+    }
+
+    private static void writeCookie(HttpServletRequest request, HttpServletResponse response, String value, int maxAge) {
+        Cookie cookie = new Cookie(COOKIE_NAME, value);
+        cookie.setPath(request.getContextPath().isEmpty() ? "/" : request.getContextPath());
+        cookie.setHttpOnly(true);
+        cookie.setSecure(request.isSecure());
+        cookie.setAttribute("SameSite", "Lax");
+        cookie.setMaxAge(maxAge);
+        response.addCookie(cookie);
+    }
+}
@@ -0,0 +1,67 @@
+package com.openclassroom.PayMyBuddy.config;
+
+import com.openclassroom.PayMyBuddy.entities.IdSequences;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Aligns the {@code id_sequences} table with the rows already stored in the database.
+ *
+ * <p>Tables created before the pooled identifier generators still hold identifiers issued by
+ * {@code AUTO_INCREMENT}. At startup, once the schema is up to date, each sequence is raised
+ * so that the next allocated block starts after the highest existing identifier. The update
+ * only ever raises a sequence, so several nodes can start at the same time.</p>
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class IdSequenceInitializer implements InitializingBean {
+    private static final Map<String, String> SEQUENCE_TABLES = Map.of(
+            IdSequences.TRANSACTIONS, "transactions",
+            IdSequences.RELATIONS, "relations");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    private static final Logger logger = LoggerFactory.getLogger(IdSequenceInitializer.class);
+
+    /**
+     * Raises every identifier sequence above the highest identifier of its table.
+     */
+    @Override
+    public void afterPropertiesSet() {
+        SEQUENCE_TABLES.forEach(this::alignSequence);
+    }
+
+    private void alignSequence(String sequence, String table) {
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+        long nextValue = (maxId == null ? 0 : maxId) + IdSequences.ALLOCATION_SIZE;
+
+        int updated = jdbcTemplate.update("UPDATE " + IdSequences.TABLE + " SET " + IdSequences.VALUE_COLUMN
+                        + " = ? WHERE " + IdSequences.SEGMENT_COLUMN + " = ? AND " + IdSequences.VALUE_COLUMN + " < ?",
+                nextValue, sequence, nextValue);
+        if (updated == 0 && !sequenceExists(sequence)) {
+            try {
+                jdbcTemplate.update("INSERT INTO " + IdSequences.TABLE + " (" + IdSequences.SEGMENT_COLUMN + ", "
+                        + IdSequences.VALUE_COLUMN + ") VALUES (?, ?)", sequence, nextValue);
+            } catch (DuplicateKeyException e) {
+                logger.info("Sequence {} created concurrently", sequence);
+                alignSequence(sequence, table);
+                return;
+            }
+        }
+        logger.info("Sequence {} aligned on {}", sequence, nextValue);
+    }
+
+    private boolean sequenceExists(String sequence) {
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + IdSequences.TABLE + " WHERE "
+                + IdSequences.SEGMENT_COLUMN + " = ?", Integer.class, sequence);
+        return count != null && count > 0;
+    }
+}
@@ -0,0 +1,68 @@
+package com.openclassroom.PayMyBuddy.config;
+
+import com.openclassroom.PayMyBuddy.services.AppUserService;
+import com.openclassroom.PayMyBuddy.services.LedgerVersionService;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.support.RequestContextUtils;
+import org.springframework.web.util.WebUtils;
+
+import java.util.Map;
+
+/**
+ * Interceptor answering the GET pages built from the ledger with a 304 when they have not changed.
+ *
+ * <p>The weak ETag of the page is computed from the ledger version of the connected user, before the
+ * controller runs: when it matches the {@code If-None-Match} header of the request, the response is a
+ * 304 and neither the user, the operations nor the template are loaded. Otherwise the page is rendered
+ * with the ETag and a {@code Cache-Control: private, no-cache} header, so that the browser keeps it and
+ * revalidates it on the next visit.</p>
+ *
+ * <p>The ETag also covers the session, or the session token in token mode, which both change at every
+ * login along with the CSRF token embedded in the forms.</p>
+ *
+ * <p>A page displaying the message of a redirected POST request is always rendered and never cached.</p>
+ */
+@Component
+public class LedgerETagInterceptor implements HandlerInterceptor {
+    @Autowired
+    AppUserService appUserService;
+    @Autowired
+    LedgerVersionService ledgerVersionService;
+
+    private static final String CACHE_CONTROL = CacheControl.noCache().cachePrivate().getHeaderValue();
+
+    private static final Logger logger = LoggerFactory.getLogger(LedgerETagInterceptor.class);
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!HttpMethod.GET.matches(request.getMethod())) {
+            return true;
+        }
+        Map<String, ?> flashAttributes = RequestContextUtils.getInputFlashMap(request);
+        if (flashAttributes != null && !flashAttributes.isEmpty()) {
+            return true;
+        }
+        HttpSession session = request.getSession(false);
+        Cookie token = WebUtils.getCookie(request, SignedTokenSecurityContextRepository.COOKIE_NAME);
+        String sessionKey = session != null ? session.getId() : token != null ? token.getValue() : null;
+        String eTag = ledgerVersionService.getETag(appUserService.getConnectedUserId(), sessionKey);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+        if (new ServletWebRequest(request, response).checkNotModified(eTag)) {
+            logger.info("Page not modified since version {}", eTag);
+            return false;
+        }
+        return true;
+    }
+}
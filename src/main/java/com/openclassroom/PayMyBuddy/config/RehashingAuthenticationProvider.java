@@ -0,0 +1,61 @@
+package com.openclassroom.PayMyBuddy.config;
+
+import com.openclassroom.PayMyBuddy.entities.AppUser;
+import com.openclassroom.PayMyBuddy.models.AuthenticatedUser;
+import com.openclassroom.PayMyBuddy.services.BoundedPasswordEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+/**
+ * Authentication provider recomputing outdated password hashes in the background after a successful login.
+ *
+ * <p>The principal of a successful authentication is the slim {@link AuthenticatedUser} built from the
+ * loaded {@link AppUser}, rather than the entity itself, so that the session never holds the password
+ * hash nor the balance of the user.</p>
+ *
+ * <p>A hash created with a lower strength than the current one still authenticates its user. The
+ * password presented at login is then hashed again on the password hashing pool, without delaying the
+ * login, and the new hash is stored through the {@link UserDetailsPasswordService}. When the pool is
+ * saturated, the hash is left as is and recomputed at a later login.</p>
+ */
+public class RehashingAuthenticationProvider extends DaoAuthenticationProvider {
+    private final BoundedPasswordEncoder passwordEncoder;
+    private final UserDetailsPasswordService userDetailsPasswordService;
+
+    private static final Logger logger = LoggerFactory.getLogger(RehashingAuthenticationProvider.class);
+
+    /**
+     * Creates a provider checking passwords against the users of the given service.
+     *
+     * @param userDetailsService the service loading the users
+     * @param passwordEncoder the encoder checking and recomputing the hashes
+     * @param userDetailsPasswordService the service storing the recomputed hashes
+     */
+    public RehashingAuthenticationProvider(UserDetailsService userDetailsService, BoundedPasswordEncoder passwordEncoder,
+                                           UserDetailsPasswordService userDetailsPasswordService) {
+        super(passwordEncoder);
+        setUserDetailsService(userDetailsService);
+        this.passwordEncoder = passwordEncoder;
+        this.userDetailsPasswordService = userDetailsPasswordService;
+    }
+
+    @Override
+    protected Authentication createSuccessAuthentication(Object principal, Authentication authentication, UserDetails user) {
+        if (passwordEncoder.upgradeEncoding(user.getPassword())) {
+            logger.info("Outdated password hash, recomputing it in the background");
+            passwordEncoder.encodeAsync(authentication.getCredentials().toString())
+                    .thenAccept(encodedPassword -> userDetailsPasswordService.updatePassword(user, encodedPassword))
+                    .exceptionally(e -> {
+                        logger.warn("Password hash not recomputed: {}", e.getMessage());
+                        return null;
+                    });
+        }
+        Object authenticatedUser = user instanceof AppUser appUser ? AuthenticatedUser.of(appUser) : principal;
+        return super.createSuccessAuthentication(authenticatedUser, authentication, user);
+    }
+}
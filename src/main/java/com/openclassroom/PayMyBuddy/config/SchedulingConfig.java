@@ -0,0 +1,17 @@
+package com.openclassroom.PayMyBuddy.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Configuration class enabling the background jobs of the application.
+ *
+ * <p>Jobs can be turned off with {@code paymybuddy.scheduling.enabled=false}, for instance
+ * in tests.</p>
+ */
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(name = "paymybuddy.scheduling.enabled", havingValue = "true", matchIfMissing = true)
+public class SchedulingConfig {
+}
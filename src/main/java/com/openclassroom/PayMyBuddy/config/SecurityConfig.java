@@ -1,14 +1,37 @@
 package com.openclassroom.PayMyBuddy.config;
 
+import com.openclassroom.PayMyBuddy.exceptions.PasswordHashingRejectedException;
+import com.openclassroom.PayMyBuddy.services.AppUserService;
+import com.openclassroom.PayMyBuddy.services.BCryptStrengthCalibrator;
+import com.openclassroom.PayMyBuddy.services.BoundedPasswordEncoder;
+import com.openclassroom.PayMyBuddy.services.DatabaseSessionRegistry;
+import com.openclassroom.PayMyBuddy.services.SessionGenerationService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.config.annotation.web.configuration.WebSecurityCustomizer;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.AuthenticationFailureHandler;
+import org.springframework.security.web.authentication.SimpleUrlAuthenticationFailureHandler;
+import org.springframework.security.web.context.SecurityContextHolderFilter;
+import org.springframework.security.web.csrf.CookieCsrfTokenRepository;
+import org.springframework.security.web.session.HttpSessionEventPublisher;
 import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 
+import java.time.Duration;
+
 /**
  * Security configuration class for the PayMyBuddy application.
  *
@@ -16,6 +39,10 @@ import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
  * authorization rules, login and logout behavior, and session management.</p>
  *
  * <p>It uses Spring Security to protect web resources and define security filters for incoming requests.</p>
+ *
+ * <p>With {@code paymybuddy.token-session.enabled=true}, the application keeps no HTTP session: the
+ * security context travels in a signed token cookie, the CSRF token in a cookie, and the flash messages
+ * in a signed cookie, so that any node may serve any request.</p>
  */
 @Configuration
 @EnableWebSecurity
@@ -23,20 +50,28 @@ public class SecurityConfig {
     /**
      * Configures the security filter chain for the application.
      *
+     * <p>A user may hold a single session. By default, the HTTP sessions are registered in the database by
+     * the {@link DatabaseSessionRegistry}, so that a login on any node expires the session opened on another.
+     * In token mode, the session is the token issued by the {@link SignedTokenSecurityContextRepository},
+     * and a login or logout ends the previous tokens of the user by incrementing their session generation.</p>
+     *
      * @param http the HttpSecurity object to be configured
+     * @param sessionRegistry the registry of the sessions shared by every node
+     * @param tokenRepositoryProvider the repository of the session tokens, available in token mode only
      * @return the configured SecurityFilterChain
      * @throws Exception if an error occurs during the configuration
      */
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
-        return http.authorizeHttpRequests(authorizeRequests -> authorizeRequests
-                        .requestMatchers("/registration", "styles/access.css", "styles/fragments/info.css", "js/access.js")
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, DatabaseSessionRegistry sessionRegistry,
+                                                   ObjectProvider<SignedTokenSecurityContextRepository> tokenRepositoryProvider) throws Exception {
+        http.authorizeHttpRequests(authorizeRequests -> authorizeRequests
+                        .requestMatchers("/registration")
                         .permitAll()
                         .anyRequest().hasRole("USER"))
                 .formLogin(formLogin -> formLogin
                         .loginPage("/login")
                         .usernameParameter("email")
-                        .failureUrl("/login?error=true")
+                        .failureHandler(loginFailureHandler())
                         .defaultSuccessUrl("/home", true)
                         .permitAll())
                 .logout(LogoutConfigurer -> LogoutConfigurer
@@ -45,23 +80,139 @@ public class SecurityConfig {
                         .invalidateHttpSession(true)
                         .deleteCookies("JSESSIONID")
                         .logoutRequestMatcher(new AntPathRequestMatcher("/logout", "GET"))
-                        .permitAll())
-                .sessionManagement(sessionManagement -> sessionManagement
-                        .maximumSessions(1)
-                        .expiredUrl("/login?sessionExpired=true"))
-                .build();
+                        .permitAll());
+        SignedTokenSecurityContextRepository tokenRepository = tokenRepositoryProvider.getIfAvailable();
+        if (tokenRepository == null) {
+            http.sessionManagement(sessionManagement -> sessionManagement
+                    .maximumSessions(1)
+                    .sessionRegistry(sessionRegistry)
+                    .expiredUrl("/login?sessionExpired=true"));
+        } else {
+            http.sessionManagement(sessionManagement -> sessionManagement
+                            .sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                    .securityContext(securityContext -> securityContext
+                            .securityContextRepository(tokenRepository))
+                    .csrf(csrf -> csrf
+                            .csrfTokenRepository(new CookieCsrfTokenRepository()))
+                    .logout(logout -> logout
+                            .addLogoutHandler(tokenRepository))
+                    .addFilterAfter((request, response, chain) -> {
+                        tokenRepository.renew((HttpServletRequest) request, (HttpServletResponse) response);
+                        chain.doFilter(request, response);
+                    }, SecurityContextHolderFilter.class);
+        }
+        return http.build();
+    }
+
+    /**
+     * Defines the signer of the session token and flash cookies, in token mode.
+     *
+     * <p>The application does not start without a secret, except with the {@code test} profile, which signs
+     * with a random secret valid on this node only.</p>
+     *
+     * @param secret the Base64 encoded secret shared by every node
+     * @param environment the environment, whose active profiles allow a random secret
+     * @return a TokenSigner instance
+     */
+    @Bean
+    @ConditionalOnProperty(name = "paymybuddy.token-session.enabled", havingValue = "true")
+    public TokenSigner tokenSigner(@Value("${paymybuddy.token-session.secret:}") String secret, Environment environment) {
+        return TokenSigner.of(secret, environment.acceptsProfiles(Profiles.of("test")));
+    }
+
+    /**
+     * Defines the repository keeping the security context in a signed token cookie, in token mode.
+     *
+     * @param tokenSigner the signer of the tokens
+     * @param sessionGenerationService the service holding the session generation of each user
+     * @param ttl the lifetime of a token without any request
+     * @return a SignedTokenSecurityContextRepository instance
+     */
+    @Bean
+    @ConditionalOnProperty(name = "paymybuddy.token-session.enabled", havingValue = "true")
+    public SignedTokenSecurityContextRepository tokenSecurityContextRepository(TokenSigner tokenSigner,
+                                                                               SessionGenerationService sessionGenerationService,
+                                                                               @Value("${paymybuddy.token-session.ttl:PT30M}") Duration ttl) {
+        return new SignedTokenSecurityContextRepository(tokenSigner, sessionGenerationService, ttl);
+    }
+
+    /**
+     * Publishes the creation, destruction and identifier changes of the HTTP sessions as Spring events,
+     * so that the session registry removes the sessions that are invalidated or time out.
+     *
+     * @return the HttpSessionEventPublisher listener
+     */
+    @Bean
+    public HttpSessionEventPublisher httpSessionEventPublisher() {
+        return new HttpSessionEventPublisher();
+    }
+
+    /**
+     * Excludes the stylesheets and scripts from the security filter chain.
+     *
+     * <p>Assets hold no user data and are served to anonymous visitors on the login page, so they skip
+     * the session, CSRF and authorization filters entirely.</p>
+     *
+     * @return the WebSecurityCustomizer ignoring the asset paths
+     */
+    @Bean
+    public WebSecurityCustomizer staticAssetsCustomizer() {
+        return web -> web.ignoring().requestMatchers("/styles/**", "/js/**");
     }
 
     /**
      * Defines a password encoder bean for encoding passwords.
      *
-     * <p>This method uses BCrypt for password encoding to ensure secure storage of user passwords.</p>
+     * <p>This method uses BCrypt for password encoding to ensure secure storage of user passwords.
+     * The strength of the hashes is chosen at startup by the {@link BCryptStrengthCalibrator}.
+     * The hashes run on a bounded pool, which rejects the requests it cannot queue: by default the pool
+     * uses half of the processors, so that a burst of logins never takes the whole machine.</p>
      *
+     * @param calibrator the calibrator choosing the BCrypt strength
+     * @param threads the number of hashes computed at once, 0 for half of the processors
+     * @param queueCapacity the number of hashes waiting for a thread before new ones are rejected
      * @return a PasswordEncoder instance
      */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public BoundedPasswordEncoder passwordEncoder(BCryptStrengthCalibrator calibrator,
+                                                  @Value("${paymybuddy.password-hashing.threads:0}") int threads,
+                                                  @Value("${paymybuddy.password-hashing.queue-capacity:64}") int queueCapacity) {
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(calibrator.calibrate()), poolSize, queueCapacity);
+    }
+
+    /**
+     * Defines the authentication provider of the login form.
+     *
+     * <p>It checks the password against the hash of the user loaded by the {@link AppUserService}, and
+     * recomputes outdated hashes in the background after a successful login.</p>
+     *
+     * @param appUserService the service loading and updating users
+     * @param passwordEncoder the password encoder
+     * @return a RehashingAuthenticationProvider instance
+     */
+    @Bean
+    public RehashingAuthenticationProvider authenticationProvider(AppUserService appUserService,
+                                                                  BoundedPasswordEncoder passwordEncoder) {
+        return new RehashingAuthenticationProvider(appUserService, passwordEncoder, appUserService);
+    }
+
+    /**
+     * Sends the user back to the login page after a failed login, or answers with a 503 when the
+     * password could not be verified because the password hashing pool is saturated.
+     *
+     * @return the AuthenticationFailureHandler of the login form
+     */
+    private AuthenticationFailureHandler loginFailureHandler() {
+        AuthenticationFailureHandler loginPage = new SimpleUrlAuthenticationFailureHandler("/login?error=true");
+        return (request, response, exception) -> {
+            if (exception instanceof PasswordHashingRejectedException) {
+                response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+                response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), exception.getMessage());
+                return;
+            }
+            loginPage.onAuthenticationFailure(request, response, exception);
+        };
     }
 
 }
@@ -0,0 +1,207 @@
+package com.openclassroom.PayMyBuddy.config;
+
+import com.openclassroom.PayMyBuddy.models.AuthenticatedUser;
+import com.openclassroom.PayMyBuddy.services.SessionGenerationService;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.authentication.logout.LogoutHandler;
+import org.springframework.security.web.context.HttpRequestResponseHolder;
+import org.springframework.security.web.context.SecurityContextRepository;
+import org.springframework.web.util.WebUtils;
+
+import java.time.Duration;
+
+/**
+ * {@link SecurityContextRepository} keeping the security context in a signed cookie instead of the HTTP session.
+ *
+ * <p>After a login, the user receives a token holding their id, email, roles, the expiry of the token and
+ * their session generation, signed by a {@link TokenSigner}. Every request rebuilds the
+ * {@link AuthenticatedUser} principal from the token, so that no node keeps any state for the user and
+ * any node may serve any request.</p>
+ *
+ * <p>A login increments the session generation of the user and a logout increments it again. A token is
+ * refused once the generation of its user has moved on, so a user keeps a single session and a logout
+ * ends the token everywhere, without any list of revoked tokens. The generation is read through the
+ * cache of the {@link SessionGenerationService}, so checking a token costs a signature and a map lookup.
+ * A token is renewed by {@link #renew(HttpServletRequest, HttpServletResponse)} once half of its lifetime
+ * has passed, so that an active user is never logged out.</p>
+ */
+public class SignedTokenSecurityContextRepository implements SecurityContextRepository, LogoutHandler {
+    /**
+     * Name of the cookie holding the session token.
+     */
+    public static final String COOKIE_NAME = "PMB_TOKEN";
+
+    private static final String TOKEN_ATTRIBUTE = SignedTokenSecurityContextRepository.class.getName() + ".TOKEN";
+
+    private final TokenSigner tokenSigner;
+    private final SessionGenerationService sessionGenerationService;
+    private final long ttlSeconds;
+
+    private static final Logger logger = LoggerFactory.getLogger(SignedTokenSecurityContextRepository.class);
+
+    /**
+     * Creates a repository issuing tokens valid for the given time.
+     *
+     * @param tokenSigner the signer of the tokens
+     * @param sessionGenerationService the service holding the session generation of each user
+     * @param ttl the lifetime of a token without any request
+     */
+    public SignedTokenSecurityContextRepository(TokenSigner tokenSigner, SessionGenerationService sessionGenerationService,
+                                                Duration ttl) {
+        if (ttl.getSeconds() < 2) {
+            throw new IllegalArgumentException("The token lifetime must be at least 2 seconds");
+        }
+        this.tokenSigner = tokenSigner;
+        this.sessionGenerationService = sessionGenerationService;
+        this.ttlSeconds = ttl.getSeconds();
+    }
+
+    @Override
+    @Deprecated
+    public SecurityContext loadContext(HttpRequestResponseHolder requestResponseHolder) {
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        SessionToken token = readToken(requestResponseHolder.getRequest());
+        if (token != null) {
+            AuthenticatedUser principal = token.principal();
+            context.setAuthentication(UsernamePasswordAuthenticationToken.authenticated(principal, null,
+                    principal.getAuthorities()));
+        }
+        return context;
+    }
+
+    /**
+     * Issues a token after a login, ending the previous tokens of the user, or clears the token when the
+     * context is emptied.
+     *
+     * @param context the security context
+     * @param request the current request
+     * @param response the current response
+     */
+    @Override
+    public void saveContext(SecurityContext context, HttpServletRequest request, HttpServletResponse response) {
+        Authentication authentication = context.getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser principal) {
+            int generation = sessionGenerationService.increment(principal.getId());
+            SessionToken token = new SessionToken(principal.getId(), principal.getRoles(), expiry(), generation,
+                    principal.getEmail());
+            writeCookie(request, response, tokenSigner.sign(token.payload()), -1);
+            request.setAttribute(TOKEN_ATTRIBUTE, token);
+            logger.info("Session token issued for user {}", principal.getId());
+        } else if (WebUtils.getCookie(request, COOKIE_NAME) != null) {
+            writeCookie(request, response, "", 0);
+            request.removeAttribute(TOKEN_ATTRIBUTE);
+        }
+    }
+
+    @Override
+    public boolean containsContext(HttpServletRequest request) {
+        return readToken(request) != null;
+    }
+
+    /**
+     * Ends every token of the user logging out, on every node. The cookie itself is cleared when the
+     * logout saves the emptied context.
+     *
+     * @param request the current request
+     * @param response the current response
+     * @param authentication the authentication of the user, may be null
+     */
+    @Override
+    public void logout(HttpServletRequest request, HttpServletResponse response, Authentication authentication) {
+        if (authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser principal) {
+            sessionGenerationService.increment(principal.getId());
+        }
+    }
+
+    /**
+     * Issues a new token, with the same generation, when half of the lifetime of the token of the request has passed.
+     *
+     * @param request the current request
+     * @param response the current response
+     */
+    public void renew(HttpServletRequest request, HttpServletResponse response) {
+        SessionToken token = readToken(request);
+        if (token == null || token.expiresAt - now() > ttlSeconds / 2) {
+            return;
+        }
+        SessionToken renewed = new SessionToken(token.userId, token.roles, expiry(), token.generation, token.email);
+        writeCookie(request, response, tokenSigner.sign(renewed.payload()), -1);
+        request.setAttribute(TOKEN_ATTRIBUTE, renewed);
+    }
+
+    /**
+     * Reads and checks the token of a request once, keeping the result for the rest of the request.
+     */
+    private SessionToken readToken(HttpServletRequest request) {
+        Object attribute = request.getAttribute(TOKEN_ATTRIBUTE);
+        if (attribute != null) {
+            return attribute instanceof SessionToken token ? token : null;
+        }
+        SessionToken token = parse(request);
+        request.setAttribute(TOKEN_ATTRIBUTE, token == null ? Boolean.FALSE : token);
+        return token;
+    }
+
+    private SessionToken parse(HttpServletRequest request) {
+        Cookie cookie = WebUtils.getCookie(request, COOKIE_NAME);
+        String payload = cookie == null ? null : tokenSigner.verify(cookie.getValue());
+        if (payload == null) {
+            return null;
+        }
+        String[] fields = payload.split(":", 5);
+        if (fields.length != 5) {
+            return null;
+        }
+        try {
+            SessionToken token = new SessionToken(Integer.parseInt(fields[0]), Integer.parseInt(fields[1]),
+                    Long.parseLong(fields[2]), Integer.parseInt(fields[3]), fields[4]);
+            if (token.expiresAt <= now()) {
+                logger.debug("Expired session token");
+                return null;
+            }
+            if (token.generation != sessionGenerationService.getGeneration(token.userId)) {
+                logger.debug("Session token ended by a later login or logout");
+                return null;
+            }
+            return token;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private long expiry() {
+        return now() + ttlSeconds;
+    }
+
+    private static long now() {
+        return System.currentTimeMillis() / 1000;
+    }
+
+    private static void writeCookie(HttpServletRequest request, HttpServletResponse response, String value, int maxAge) {
+        Cookie cookie = new Cookie(COOKIE_NAME, value);
+        cookie.setPath(request.getContextPath().isEmpty() ? "/" : request.getContextPath());
+        cookie.setHttpOnly(true);
+        cookie.setSecure(request.isSecure());
+        cookie.setAttribute("SameSite", "Lax");
+        cookie.setMaxAge(maxAge);
+        response.addCookie(cookie);
+    }
+
+    private record SessionToken(int userId, int roles, long expiresAt, int generation, String email) {
+        AuthenticatedUser principal() {
+            return new AuthenticatedUser(userId, email, roles);
+        }
+
+        String payload() {
+            return userId + ":" + roles + ":" + expiresAt + ":" + generation + ":" + email;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.openclassroom.PayMyBuddy.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Signs the values stored in cookies with HMAC-SHA256, so that the server can trust them when they come back.
+ *
+ * <p>A signed value is the URL-safe Base64 encoding of its payload, a dot, and the URL-safe Base64
+ * encoding of the signature of the encoded payload. Every node of the application must share the same
+ * secret to accept the values signed by the others.</p>
+ */
+public class TokenSigner {
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int MIN_SECRET_LENGTH = 32;
+
+    private final SecretKeySpec key;
+    private final ThreadLocal<Mac> macs;
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenSigner.class);
+
+    /**
+     * Creates a signer using the given secret.
+     *
+     * @param secret the secret key, at least 32 bytes long
+     */
+    public TokenSigner(byte[] secret) {
+        if (secret.length < MIN_SECRET_LENGTH) {
+            throw new IllegalArgumentException("The token secret must be at least " + MIN_SECRET_LENGTH + " bytes long");
+        }
+        key = new SecretKeySpec(secret, ALGORITHM);
+        macs = ThreadLocal.withInitial(this::newMac);
+    }
+
+    /**
+     * Creates a signer from a Base64 encoded secret, or from a random secret when none is configured and
+     * a random secret is allowed.
+     *
+     * <p>A random secret is only valid on this node and until it restarts: the values it signs are
+     * refused by every other node, and every token is lost on a restart. It is therefore only allowed
+     * for the tests.</p>
+     *
+     * @param base64Secret the Base64 encoded secret, at least 32 bytes long once decoded
+     * @param randomAllowed whether a blank secret is replaced by a random one
+     * @return a TokenSigner instance
+     * @throws IllegalStateException if no secret is configured and a random secret is not allowed
+     * @throws IllegalArgumentException if the secret is not valid Base64 or is too short
+     */
+    public static TokenSigner of(String base64Secret, boolean randomAllowed) {
+        if (base64Secret == null || base64Secret.isBlank()) {
+            if (!randomAllowed) {
+                throw new IllegalStateException("A token secret of at least " + MIN_SECRET_LENGTH
+                        + " bytes must be configured in paymybuddy.token-session.secret");
+            }
+            logger.warn("No token secret configured, using a random secret valid on this node only");
+            byte[] secret = new byte[MIN_SECRET_LENGTH];
+            new SecureRandom().nextBytes(secret);
+            return new TokenSigner(secret);
+        }
+        return new TokenSigner(Base64.getDecoder().decode(base64Secret.trim()));
+    }
+
+    /**
+     * Signs a payload.
+     *
+     * @param payload the payload to sign
+     * @return the signed value, safe to store in a cookie
+     */
+    public String sign(String payload) {
+        String encodedPayload = ENCODER.encodeToString(payload.getBytes(StandardCharsets.UTF_8));
+        return encodedPayload + "." + ENCODER.encodeToString(mac(encodedPayload));
+    }
+
+    /**
+     * Checks the signature of a signed value and extracts its payload.
+     *
+     * @param signedValue the signed value
+     * @return the payload, or null if the value is malformed or its signature is invalid
+     */
+    public String verify(String signedValue) {
+        int separator = signedValue == null ? -1 : signedValue.indexOf('.');
+        if (separator < 0) {
+            return null;
+        }
+        String encodedPayload = signedValue.substring(0, separator);
+        try {
+            byte[] signature = DECODER.decode(signedValue.substring(separator + 1));
+            if (!MessageDigest.isEqual(signature, mac(encodedPayload))) {
+                return null;
+            }
+            return new String(DECODER.decode(encodedPayload), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private byte[] mac(String encodedPayload) {
+        return macs.get().doFinal(encodedPayload.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
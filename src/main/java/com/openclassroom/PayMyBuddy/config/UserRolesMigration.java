@@ -0,0 +1,119 @@
+package com.openclassroom.PayMyBuddy.config;
+
+import com.openclassroom.PayMyBuddy.entities.Role;
+import com.openclassroom.PayMyBuddy.services.JobLockService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Moves the roles of the legacy {@code user_roles} table into the {@code roles} bitmask of the {@code users} table.
+ *
+ * <p>Roles used to be an eager collection stored one row per role. At startup, once the schema is up
+ * to date, the bit of each {@link Role} is set on every user holding it in {@code user_roles}, and the
+ * legacy table is then dropped, so the migration only runs once. A bit already set is left untouched,
+ * so an interrupted migration can safely run again.</p>
+ *
+ * <p>Rows holding a role that no {@link Role} maps to would be lost with the table. When any is found, the
+ * unmapped roles are logged with their row counts and the table is kept: the mapped roles are still
+ * migrated, and the migration runs again at the next startup, once the missing roles have been added
+ * to {@link Role} or the rows cleaned up.</p>
+ *
+ * <p>When several nodes start together, a single one migrates: the others wait for its
+ * {@link JobLockService} lock to be released, then find the legacy table dropped. The table is checked
+ * again once the lock is held, and only dropped if it still exists.</p>
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class UserRolesMigration implements InitializingBean {
+    private static final String LEGACY_TABLE = "user_roles";
+    static final String JOB_NAME = "user-roles-migration";
+    private static final long POLL_MILLIS = 1000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private JobLockService jobLockService;
+    @Value("${paymybuddy.migrations.lock-for:PT5M}")
+    private Duration lockFor = Duration.ofMinutes(5);
+    private static final Logger logger = LoggerFactory.getLogger(UserRolesMigration.class);
+
+    /**
+     * Migrates the legacy roles if the {@code user_roles} table still exists.
+     *
+     * @throws IllegalStateException if another node holds the migration lock for longer than its duration
+     * @throws InterruptedException if interrupted while waiting for another node
+     */
+    @Override
+    public void afterPropertiesSet() throws InterruptedException {
+        if (!legacyTableExists()) {
+            return;
+        }
+        long deadline = System.nanoTime() + lockFor.toNanos();
+        while (!jobLockService.tryLock(JOB_NAME, lockFor)) {
+            if (System.nanoTime() - deadline > 0) {
+                throw new IllegalStateException("The legacy roles are still being migrated by another node");
+            }
+            logger.info("Waiting for the legacy roles to be migrated by another node");
+            Thread.sleep(POLL_MILLIS);
+            if (!legacyTableExists()) {
+                return;
+            }
+        }
+        try {
+            if (legacyTableExists()) {
+                migrate();
+            }
+        } finally {
+            jobLockService.unlock(JOB_NAME, LocalDateTime.now());
+        }
+    }
+
+    private void migrate() {
+        for (Role role : Role.values()) {
+            int updated = jdbcTemplate.update("UPDATE users SET roles = roles + ? WHERE MOD(FLOOR(roles / ?), 2) = 0"
+                            + " AND id IN (SELECT user_id FROM " + LEGACY_TABLE + " WHERE role = ?)",
+                    role.mask(), role.mask(), role.getAuthority());
+            logger.info("Role {} migrated for {} users", role, updated);
+        }
+        List<String> unmappedRoles = findUnmappedRoles();
+        if (!unmappedRoles.isEmpty()) {
+            logger.error("Legacy table {} kept: roles {} are not mapped to any role", LEGACY_TABLE, unmappedRoles);
+            return;
+        }
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + LEGACY_TABLE);
+        logger.info("Legacy table {} dropped", LEGACY_TABLE);
+    }
+
+    private List<String> findUnmappedRoles() {
+        Role[] roles = Role.values();
+        Object[] authorities = Arrays.stream(roles).map(Role::getAuthority).toArray();
+        String placeholders = String.join(", ", Collections.nCopies(roles.length, "?"));
+        return jdbcTemplate.query("SELECT role, COUNT(*) FROM " + LEGACY_TABLE
+                        + " WHERE role IS NULL OR role NOT IN (" + placeholders + ") GROUP BY role",
+                (row, rowNum) -> row.getString(1) + " (" + row.getLong(2) + " rows)", authorities);
+    }
+
+    private boolean legacyTableExists() {
+        Boolean exists = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            try (ResultSet tables = connection.getMetaData()
+                    .getTables(connection.getCatalog(), null, LEGACY_TABLE, new String[]{"TABLE"})) {
+                return tables.next();
+            }
+        });
+        return Boolean.TRUE.equals(exists);
+    }
+}
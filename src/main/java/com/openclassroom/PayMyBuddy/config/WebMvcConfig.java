@@ -0,0 +1,68 @@
+package com.openclassroom.PayMyBuddy.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
+import org.springframework.web.servlet.resource.VersionResourceResolver;
+
+import java.time.Duration;
+
+/**
+ * Spring MVC configuration class for the PayMyBuddy application.
+ *
+ * <p>This class registers the {@link LedgerETagInterceptor} on the pages built from the ledger.</p>
+ *
+ * <p>It also serves the stylesheets and scripts under fingerprinted URLs: the content hash of each
+ * asset is added to its file name, and the links of the templates are rewritten to it. A new version
+ * of an asset therefore has a new URL, so assets are cached by browsers for a year without ever being
+ * revalidated. The gzip variants written by the {@link StaticAssetCompressor} are served to the
+ * browsers accepting them.</p>
+ *
+ * <p>In token mode, the flash attributes of the redirects are kept in a signed cookie by the
+ * {@link CookieFlashMapManager} rather than in the HTTP session.</p>
+ */
+@Configuration
+public class WebMvcConfig implements WebMvcConfigurer {
+    @Autowired
+    LedgerETagInterceptor ledgerETagInterceptor;
+    @Autowired
+    StaticAssetCompressor staticAssetCompressor;
+
+    private static final CacheControl ASSET_CACHE_CONTROL = CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable();
+
+    /**
+     * Defines the manager of the flash attributes in token mode, replacing the session-based default.
+     *
+     * @param tokenSigner the signer of the flash cookie
+     * @return a CookieFlashMapManager instance
+     */
+    @Bean
+    @ConditionalOnProperty(name = "paymybuddy.token-session.enabled", havingValue = "true")
+    public CookieFlashMapManager flashMapManager(TokenSigner tokenSigner) {
+        return new CookieFlashMapManager(tokenSigner);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(ledgerETagInterceptor).addPathPatterns("/home", "/transaction");
+    }
+
+    @Override
+    public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        for (String assetDirectory : StaticAssetCompressor.ASSET_DIRECTORIES) {
+            registry.addResourceHandler("/" + assetDirectory + "/**")
+                    .addResourceLocations(staticAssetCompressor.getLocation(assetDirectory),
+                            "classpath:/static/" + assetDirectory + "/")
+                    .setCacheControl(ASSET_CACHE_CONTROL)
+                    .resourceChain(true)
+                    .addResolver(new EncodedResourceResolver())
+                    .addResolver(new VersionResourceResolver().addContentVersionStrategy("/**"));
+        }
+    }
+}
@@ -2,6 +2,27 @@
  * Provides configuration classes for the PayMyBuddy application.
  *
  * <p>The {@link com.openclassroom.PayMyBuddy.config.SecurityConfig} class configures Spring Security
- * for protecting web resources and managing user sessions.</p>
+ * for protecting web resources and managing user sessions. Logins are checked by the
+ * {@link com.openclassroom.PayMyBuddy.config.RehashingAuthenticationProvider}, which recomputes
+ * outdated password hashes in the background, and the sessions are limited to one per user across every
+ * node through the {@link com.openclassroom.PayMyBuddy.services.DatabaseSessionRegistry}.</p>
+ *
+ * <p>In token mode, no HTTP session is kept: the
+ * {@link com.openclassroom.PayMyBuddy.config.SignedTokenSecurityContextRepository} keeps the security context
+ * in a cookie signed by the {@link com.openclassroom.PayMyBuddy.config.TokenSigner}, and the
+ * {@link com.openclassroom.PayMyBuddy.config.CookieFlashMapManager} keeps the flash attributes in a signed
+ * cookie.</p>
+ *
+ * <p>The {@link com.openclassroom.PayMyBuddy.config.IdSequenceInitializer} class aligns the pooled id
+ * sequences with the existing rows, and the {@link com.openclassroom.PayMyBuddy.config.SchedulingConfig}
+ * class enables the background jobs.</p>
+ *
+ * <p>The {@link com.openclassroom.PayMyBuddy.config.UserRolesMigration} class moves the legacy
+ * {@code user_roles} rows into the roles bitmask of the users table.</p>
+ *
+ * <p>The {@link com.openclassroom.PayMyBuddy.config.WebMvcConfig} class registers the
+ * {@link com.openclassroom.PayMyBuddy.config.LedgerETagInterceptor}, which answers unchanged pages with a 304,
+ * and serves the static assets under fingerprinted URLs with the gzip variants written by the
+ * {@link com.openclassroom.PayMyBuddy.config.StaticAssetCompressor}.</p>
  */
 package com.openclassroom.PayMyBuddy.config;
@@ -3,12 +3,16 @@ package com.openclassroom.PayMyBuddy.controllers;
 import com.openclassroom.PayMyBuddy.exceptions.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+
+import java.io.IOException;
 
 /**
  * The {@code ExceptionHandlerController} class is a global exception handler for the application.
@@ -20,21 +24,17 @@ import org.springframework.web.bind.annotation.ResponseStatus;
  *   <li>{@link ProfileUpdateException}</li>
  *   <li>{@link RelationException}</li>
  *   <li>{@link TransactionException}</li>
+ *   <li>{@link PasswordHashingRejectedException}</li>
  * </ul>
  * </p>
  *
- * <p>Each handler sets appropriate model attributes and redirects users to the relevant page.</p>
+ * <p>Each handler sets appropriate model attributes and redirects users to the relevant page.
+ * The rejections of a logged-in user's request answer with a redirection carrying the message as
+ * flash attributes, without loading the user, their operations or their relations: the page is
+ * only rendered if the browser follows the redirection.</p>
  */
 @ControllerAdvice
 public class ExceptionHandlerController {
-    @Autowired
-    private HomeController homeController;
-    @Autowired
-    private ProfileController profileController;
-    @Autowired
-    private RelationsController relationsController;
-    @Autowired
-    private TransactionController transactionController;
     private static final Logger logger = LoggerFactory.getLogger(AccessController.class);
 
     /**
@@ -61,84 +61,76 @@ public class ExceptionHandlerController {
     /**
      * Handles {@link BalanceException}.
      *
-     * @param e     the exception instance
-     * @param model the {@link Model} object to add attributes for the view
-     * @return the home view template
+     * @param e                  the exception instance
+     * @param redirectAttributes the {@link RedirectAttributes} holding the message for the home page
+     * @return a redirection to the home page
      */
     @ExceptionHandler(BalanceException.class)
-    @ResponseStatus(HttpStatus.BAD_REQUEST)
-    public String handleBalanceException(BalanceException e, Model model) {
+    public String handleBalanceException(BalanceException e, RedirectAttributes redirectAttributes) {
         logger.info("BalanceException thrown: {}", e.getMessage());
-
-        logger.info("Adding model attributes");
-        homeController.setAttributes(model);
-        model.addAttribute("message", e.getMessage());
-        model.addAttribute("success", false);
-
-        logger.info("Retrieving home page");
-        return "home";
+        return redirectWithMessage("/home", e, redirectAttributes);
     }
 
     /**
      * Handles {@link ProfileUpdateException}.
      *
-     * @param e     the exception instance
-     * @param model the {@link Model} object to add attributes for the view
-     * @return the profile view template
+     * @param e                  the exception instance
+     * @param redirectAttributes the {@link RedirectAttributes} holding the message for the profile page
+     * @return a redirection to the profile page
      */
     @ExceptionHandler(ProfileUpdateException.class)
-    @ResponseStatus(HttpStatus.BAD_REQUEST)
-    public String handleProfileUpdateException(ProfileUpdateException e, Model model) {
+    public String handleProfileUpdateException(ProfileUpdateException e, RedirectAttributes redirectAttributes) {
         logger.info("ProfileUpdateException thrown: {}", e.getMessage());
-
-        logger.info("Adding model attributes");
-        profileController.setAttributes(model);
-        model.addAttribute("message", e.getMessage());
-        model.addAttribute("success", false);
-
-        logger.info("Retrieving profile page");
-        return "profile";
+        return redirectWithMessage("/profile", e, redirectAttributes);
     }
 
     /**
      * Handles {@link RelationException}.
      *
-     * @param e     the exception instance
-     * @param model the {@link Model} object to add attributes for the view
-     * @return the relations view template
+     * @param e                  the exception instance
+     * @param redirectAttributes the {@link RedirectAttributes} holding the message for the relations page
+     * @return a redirection to the relations page
      */
     @ExceptionHandler(RelationException.class)
-    @ResponseStatus(HttpStatus.BAD_REQUEST)
-    public String handleNewRelationException(RelationException e, Model model) {
+    public String handleNewRelationException(RelationException e, RedirectAttributes redirectAttributes) {
         logger.info("RelationException thrown: {}", e.getMessage());
-
-        logger.info("Adding model attributes");
-        relationsController.setAttributes(model);
-        model.addAttribute("message", e.getMessage());
-        model.addAttribute("success", false);
-
-        logger.info("Retrieving relations page");
-        return "relations";
+        return redirectWithMessage("/relations", e, redirectAttributes);
     }
 
     /**
      * Handles {@link TransactionException}.
      *
-     * @param e     the exception instance
-     * @param model the {@link Model} object to add attributes for the view
-     * @return the transaction view template
+     * @param e                  the exception instance
+     * @param redirectAttributes the {@link RedirectAttributes} holding the message for the transaction page
+     * @return a redirection to the transaction page
      */
     @ExceptionHandler(TransactionException.class)
-    @ResponseStatus(HttpStatus.BAD_REQUEST)
-    public String handleTransactionException(TransactionException e, Model model) {
+    public String handleTransactionException(TransactionException e, RedirectAttributes redirectAttributes) {
         logger.info("TransactionException thrown: {}", e.getMessage());
+        return redirectWithMessage("/transaction", e, redirectAttributes);
+    }
 
-        logger.info("Adding model attributes");
-        transactionController.setAttributes(model);
-        model.addAttribute("message", e.getMessage());
-        model.addAttribute("success", false);
+    /**
+     * Handles {@link PasswordHashingRejectedException}.
+     *
+     * <p>The request is answered at once with a 503 asking the browser to retry a second later.</p>
+     *
+     * @param e        the exception instance
+     * @param response the {@link HttpServletResponse} the error is sent to
+     * @throws IOException if the error cannot be sent
+     */
+    @ExceptionHandler(PasswordHashingRejectedException.class)
+    public void handlePasswordHashingRejectedException(PasswordHashingRejectedException e, HttpServletResponse response) throws IOException {
+        logger.warn("PasswordHashingRejectedException thrown: {}", e.getMessage());
+        response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+        response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), e.getMessage());
+    }
+
+    private String redirectWithMessage(String page, BusinessException e, RedirectAttributes redirectAttributes) {
+        redirectAttributes.addFlashAttribute("message", e.getMessage());
+        redirectAttributes.addFlashAttribute("success", false);
 
-        logger.info("Retrieving transaction page");
-        return "transaction";
+        logger.info("Redirecting to {} page", page);
+        return "redirect:" + page;
     }
 }
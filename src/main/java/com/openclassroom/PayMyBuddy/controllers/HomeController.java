@@ -1,21 +1,29 @@
 package com.openclassroom.PayMyBuddy.controllers;
 
-import com.openclassroom.PayMyBuddy.entities.AppUser;
-import com.openclassroom.PayMyBuddy.entities.Transaction;
+import com.openclassroom.PayMyBuddy.models.BalanceAsOfDto;
 import com.openclassroom.PayMyBuddy.models.BalanceDto;
+import com.openclassroom.PayMyBuddy.models.LedgerSummaryView;
+import com.openclassroom.PayMyBuddy.models.OperationPageDto;
 import com.openclassroom.PayMyBuddy.services.AppUserService;
+import com.openclassroom.PayMyBuddy.services.FragmentRenderCache;
 import com.openclassroom.PayMyBuddy.services.HomeService;
+import com.openclassroom.PayMyBuddy.services.LedgerVersionService;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
-import java.util.List;
+import java.time.LocalDateTime;
+import java.util.Map;
 
 /**
  * The {@code HomeController} class is responsible for managing operations related to the user's home page.
@@ -23,15 +31,19 @@ import java.util.List;
  * <p>This controller handles:
  * <ul>
  *   <li>Displaying the home page</li>
+ *   <li>Loading older operations page by page</li>
  *   <li>Processing credit transactions</li>
  *   <li>Processing withdrawal transactions</li>
+ *   <li>Returning the balance at a past point in time</li>
  * </ul>
  * </p>
  *
  * <p>It interacts with :
  * <ul>
  *     <li>{@link AppUserService} to retrieve the connected user</li>
+ *     <li>{@link LedgerVersionService} to read the balance together with the ledger version</li>
  *     <li>{@link HomeService} to process balance-related operations</li>
+ *     <li>{@link FragmentRenderCache} to reuse the rendered operations of an unchanged ledger</li>
  * </ul>
  * </p>
  */
@@ -41,20 +53,39 @@ public class HomeController {
     private AppUserService appUserService;
     @Autowired
     private HomeService homeService;
+    @Autowired
+    private LedgerVersionService ledgerVersionService;
+    @Autowired
+    private FragmentRenderCache fragmentRenderCache;
     private static final Logger logger = LoggerFactory.getLogger(HomeController.class);
 
     /**
      * Sets common attributes for the model to be used in the home page view.
      *
+     * <p>The idempotency keys of the forms are left empty and drawn by the browser on
+     * submission, so that the page stays identical for its ETag while a form submitted twice
+     * still moves money only once. The operations are rendered as HTML through the
+     * {@link FragmentRenderCache}, and only queried when the ledger version of the user
+     * has changed since they were last rendered. The username and balance are read from the
+     * database in the same statement as that version, never from the user cache, so that the
+     * balance displayed always matches the operations and the ETag of the page.</p>
+     *
      * @param model the {@link Model} object to which attributes are added
      */
     public void setAttributes(Model model) {
-        AppUser appUser = appUserService.getConnectedUser();
-        List<Transaction> operations = homeService.getUserOperation();
-
-        model.addAttribute("username", appUser.getUsername());
-        model.addAttribute("balance", appUser.getBalance());
-        model.addAttribute("operations", operations);
+        int userId = appUserService.getConnectedUserId();
+        LedgerSummaryView summary = ledgerVersionService.getSummary(userId);
+        String operationsHtml = fragmentRenderCache.render(userId, summary.getLedgerVersion(), "home",
+                "fragments/operations :: operations", () -> {
+                    OperationPageDto operationPage = homeService.getUserOperations(null, null);
+                    return Map.of("title", "Opérations",
+                            "operations", operationPage.getOperations(),
+                            "operationPage", operationPage);
+                });
+
+        model.addAttribute("username", summary.getUsername());
+        model.addAttribute("balance", summary.getBalance());
+        model.addAttribute("operationsHtml", operationsHtml);
         model.addAttribute(new BalanceDto());
     }
 
@@ -76,48 +107,87 @@ public class HomeController {
     }
 
     /**
-     * Handles the POST request to credit the user's account balance.
+     * Handles the GET request returning the next page of the user's operations.
+     *
+     * <p>Only the operation rows are rendered, to be appended to the list already displayed.</p>
      *
      * @param model the {@link Model} object to hold attributes for the view
+     * @param beforeCreatedAt the creation time of the last operation already displayed
+     * @param beforeId the id of the last operation already displayed
+     * @return the operation rows fragment
+     */
+    @GetMapping("/home/operations")
+    public String getOperations(Model model,
+                                @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime beforeCreatedAt,
+                                @RequestParam int beforeId) {
+        logger.info("Processing GET /home/operations request");
+        OperationPageDto operationPage = homeService.getUserOperations(beforeCreatedAt, beforeId);
+
+        model.addAttribute("operations", operationPage.getOperations());
+        model.addAttribute("operationPage", operationPage);
+
+        logger.info("Retrieving html operations fragment");
+        return "fragments/operations :: items";
+    }
+
+    /**
+     * Handles the POST request to credit the user's account balance.
+     *
+     * <p>The request returns as soon as the balance is written: the home page is loaded
+     * by the redirected GET request, which displays the success message.</p>
+     *
      * @param balanceDto the {@link BalanceDto} object containing the credit amount
      * @param result the {@link BindingResult} object for validation results
-     * @return the name of the home page view template
+     * @param redirectAttributes the {@link RedirectAttributes} holding the message for the home page
+     * @return a redirection to the home page
      */
     @PostMapping("/home/credit")
-    public String creditBalance(Model model, @Valid BalanceDto balanceDto, BindingResult result) {
+    public String creditBalance(@Valid BalanceDto balanceDto, BindingResult result, RedirectAttributes redirectAttributes) {
         logger.info("Processing POST /home/credit request");
 
         homeService.creditBalance(balanceDto, result);
 
-        logger.info("Adding model attributes");
-        setAttributes(model);
-        model.addAttribute("success", true);
-        model.addAttribute("message", "Votre compte a bien été crédité");
+        redirectAttributes.addFlashAttribute("success", true);
+        redirectAttributes.addFlashAttribute("message", "Votre compte a bien été crédité");
 
-        logger.info("Retrieving html home page");
-        return "home";
+        logger.info("Redirecting to home page");
+        return "redirect:/home";
     }
 
     /**
      * Handles the POST request to withdraw funds from the user's account balance.
      *
-     * @param model the {@link Model} object to hold attributes for the view
+     * <p>The request returns as soon as the balance is written: the home page is loaded
+     * by the redirected GET request, which displays the success message.</p>
+     *
      * @param balanceDto the {@link BalanceDto} object containing the withdrawal amount
      * @param result the {@link BindingResult} object for validation results
-     * @return the name of the home page view template
+     * @param redirectAttributes the {@link RedirectAttributes} holding the message for the home page
+     * @return a redirection to the home page
      */
     @PostMapping("/home/withdraw")
-    public String withdrawBalance(Model model, @Valid BalanceDto balanceDto, BindingResult result) {
+    public String withdrawBalance(@Valid BalanceDto balanceDto, BindingResult result, RedirectAttributes redirectAttributes) {
         logger.info("Processing POST /home/withdraw request");
 
         homeService.withdrawBalance(balanceDto, result);
 
-        logger.info("Adding model attributes");
-        setAttributes(model);
-        model.addAttribute("success", true);
-        model.addAttribute("message", "Votre compte a bien été débité");
+        redirectAttributes.addFlashAttribute("success", true);
+        redirectAttributes.addFlashAttribute("message", "Votre compte a bien été débité");
 
-        logger.info("Retrieving html home page");
-        return "home";
+        logger.info("Redirecting to home page");
+        return "redirect:/home";
+    }
+
+    /**
+     * Handles the GET request returning the user's balance at a given point in time.
+     *
+     * @param at the point in time, in ISO-8601 format
+     * @return a {@link BalanceAsOfDto} holding the balance of the user at that time
+     */
+    @GetMapping("/home/balance")
+    @ResponseBody
+    public BalanceAsOfDto getBalanceAsOf(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
+        logger.info("Processing GET /home/balance request");
+        return homeService.getBalanceAsOf(at);
     }
 }
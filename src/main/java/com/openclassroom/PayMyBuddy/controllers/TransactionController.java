@@ -1,8 +1,12 @@
 package com.openclassroom.PayMyBuddy.controllers;
 
-import com.openclassroom.PayMyBuddy.entities.Transaction;
+import com.openclassroom.PayMyBuddy.models.BulkTransactionDto;
+import com.openclassroom.PayMyBuddy.models.OperationView;
 import com.openclassroom.PayMyBuddy.models.TransactionDto;
 import com.openclassroom.PayMyBuddy.models.UserProfileDto;
+import com.openclassroom.PayMyBuddy.services.AppUserService;
+import com.openclassroom.PayMyBuddy.services.FragmentRenderCache;
+import com.openclassroom.PayMyBuddy.services.LedgerVersionService;
 import com.openclassroom.PayMyBuddy.services.RelationsService;
 import com.openclassroom.PayMyBuddy.services.TransactionService;
 import jakarta.validation.Valid;
@@ -14,8 +18,10 @@ import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * The {@code TransactionController} class manages user transactions within the application.
@@ -24,6 +30,7 @@ import java.util.List;
  * <ul>
  *   <li>Displaying a list of the user's transactions</li>
  *   <li>Adding new transactions between users</li>
+ *   <li>Adding several transactions at once</li>
  * </ul>
  * </p>
  *
@@ -31,6 +38,7 @@ import java.util.List;
  * <ul>
  *   <li>{@link RelationsService} to fetch the user's relations</li>
  *   <li>{@link TransactionService} to handle transaction processing</li>
+ *   <li>{@link FragmentRenderCache} to reuse the rendered transactions of an unchanged ledger</li>
  * </ul>
  * </p>
  */
@@ -40,19 +48,37 @@ public class TransactionController {
     private RelationsService relationsService;
     @Autowired
     private TransactionService transactionService;
+    @Autowired
+    private AppUserService appUserService;
+    @Autowired
+    private LedgerVersionService ledgerVersionService;
+    @Autowired
+    private FragmentRenderCache fragmentRenderCache;
     private static final Logger logger = LoggerFactory.getLogger(TransactionController.class);
 
     /**
      * Sets common attributes for the model to be used in the transaction page view.
      *
+     * <p>The idempotency key of the transaction form is left empty and drawn by the browser
+     * on submission, so that the page stays identical for its ETag while a form submitted
+     * twice still moves money only once. The transactions are rendered as HTML through the
+     * {@link FragmentRenderCache}, and only queried when the ledger version of the user
+     * has changed since they were last rendered.</p>
+     *
      * @param model the {@link Model} object to which attributes are added
      */
     public void setAttributes(Model model) {
+        int userId = appUserService.getConnectedUserId();
+        long version = ledgerVersionService.getVersion(userId);
         List<UserProfileDto> relations = relationsService.getRelations();
-        List<Transaction> transactions = transactionService.getUserTransactions();
+        String transactionsHtml = fragmentRenderCache.render(userId, version, "transaction",
+                "fragments/operations :: operations", () -> {
+                    List<OperationView> transactions = transactionService.getUserTransactions();
+                    return Map.of("title", "Mes Transactions", "operations", transactions);
+                });
 
         model.addAttribute("relations", relations);
-        model.addAttribute("transactions", transactions);
+        model.addAttribute("transactionsHtml", transactionsHtml);
         model.addAttribute(new TransactionDto());
     }
 
@@ -77,25 +103,52 @@ public class TransactionController {
      * Handles the POST request to add a new transaction.
      *
      * <p>The transaction details are validated before processing. If validation fails,
-     * the errors are returned along with the updated transaction page.</p>
+     * the errors are returned along with the updated transaction page. Otherwise the request
+     * returns as soon as the transaction is written: the relations and the transactions are
+     * loaded by the redirected GET request, which displays the success message.</p>
      *
-     * @param model the {@link Model} object to hold attributes for the view
      * @param transactionDto the {@link TransactionDto} containing details of the transaction
      * @param result the {@link BindingResult} object to handle validation results
-     * @return the name of the transaction page view template
+     * @param redirectAttributes the {@link RedirectAttributes} holding the message for the transaction page
+     * @return a redirection to the transaction page
      */
     @PostMapping("/transaction")
-    public String postTransaction(Model model, @Valid TransactionDto transactionDto, BindingResult result) {
+    public String postTransaction(@Valid TransactionDto transactionDto, BindingResult result,
+                                  RedirectAttributes redirectAttributes) {
         logger.info("Processing POST /transaction request");
 
         transactionService.addTransaction(transactionDto, result);
 
-        logger.info("Adding model attributes");
-        setAttributes(model);
-        model.addAttribute("success", true);
-        model.addAttribute("message", "La transaction a bien été effectuée");
+        redirectAttributes.addFlashAttribute("success", true);
+        redirectAttributes.addFlashAttribute("message", "La transaction a bien été effectuée");
 
-        logger.info("Retrieving html transaction page");
-        return "transaction";
+        logger.info("Redirecting to transaction page");
+        return "redirect:/transaction";
+    }
+
+    /**
+     * Handles the POST request to add several transactions at once.
+     *
+     * <p>All the transactions are validated before processing and are applied together:
+     * if one of them is invalid, none is applied. The request then redirects to the
+     * transaction page, like {@link #postTransaction}.</p>
+     *
+     * @param bulkTransactionDto the {@link BulkTransactionDto} containing the details of the transactions
+     * @param result the {@link BindingResult} object to handle validation results
+     * @param redirectAttributes the {@link RedirectAttributes} holding the message for the transaction page
+     * @return a redirection to the transaction page
+     */
+    @PostMapping("/transaction/bulk")
+    public String postTransactions(@Valid BulkTransactionDto bulkTransactionDto, BindingResult result,
+                                   RedirectAttributes redirectAttributes) {
+        logger.info("Processing POST /transaction/bulk request");
+
+        transactionService.addTransactions(bulkTransactionDto, result);
+
+        redirectAttributes.addFlashAttribute("success", true);
+        redirectAttributes.addFlashAttribute("message", "Les transactions ont bien été effectuées");
+
+        logger.info("Redirecting to transaction page");
+        return "redirect:/transaction";
     }
 }
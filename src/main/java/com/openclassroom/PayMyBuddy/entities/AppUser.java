@@ -8,7 +8,7 @@ import org.springframework.security.core.userdetails.UserDetails;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.util.*;
+import java.util.Collection;
 
 
 /**
@@ -23,14 +23,17 @@ import java.util.*;
  *   <li>{@code username}: Unique username of the user.</li>
  *   <li>{@code email}: Unique email address of the user, validated for proper format.</li>
  *   <li>{@code password}: Encrypted password for user authentication.</li>
- *   <li>{@code balance}: Current account balance of the user.</li>
+ *   <li>{@code balance}: Current account balance of the user (non-updatable through the entity, written only by the ledger statements of {@code AppUserRepository}).</li>
  *   <li>{@code created_at}: Timestamp when the user account was created (non-updatable).</li>
  *   <li>{@code updated_at}: Timestamp when the user account was last updated.</li>
+ *   <li>{@code keys_updated_at}: Timestamp when the username or email was last set, indexed to find the recently renamed users.</li>
  *   <li>{@code accountNonExpired}: Indicates if the account is expired.</li>
  *   <li>{@code accountNonLocked}: Indicates if the account is locked.</li>
  *   <li>{@code credentialsNonExpired}: Indicates if the credentials are expired.</li>
  *   <li>{@code enabled}: Indicates if the account is active.</li>
- *   <li>{@code roles}: A collection of roles assigned to the user for authorization.</li>
+ *   <li>{@code roles}: A bitmask of the {@link Role} values assigned to the user for authorization.</li>
+ *   <li>{@code ledgerVersion}: Counter incremented by every change to the pages of the user (non-updatable through the entity).</li>
+ *   <li>{@code sessionGeneration}: Counter incremented by every login and logout of the user, invalidating their previous session tokens (non-updatable through the entity).</li>
  * </ul>
  *
  * <h2>Lifecycle Callbacks:</h2>
@@ -40,7 +43,7 @@ import java.util.*;
  * </ul>
  */
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = @Index(name = "idx_users_keys_updated", columnList = "keys_updated_at"))
 @Data
 public class AppUser implements UserDetails {
     @Id
@@ -57,7 +60,7 @@ public class AppUser implements UserDetails {
     @Column(nullable = false)
     private String password;
 
-    @Column(nullable = false)
+    @Column(nullable = false, updatable = false)
     private BigDecimal balance;
 
     @Temporal(TemporalType.TIMESTAMP)
@@ -67,6 +70,9 @@ public class AppUser implements UserDetails {
     @Temporal(TemporalType.TIMESTAMP)
     private LocalDateTime updated_at;
 
+    @Column(name = "keys_updated_at", updatable = false)
+    private LocalDateTime keysUpdatedAt;
+
     @Column(nullable = false)
     private boolean accountNonExpired;
 
@@ -79,21 +85,26 @@ public class AppUser implements UserDetails {
     @Column(nullable = false)
     private boolean enabled;
 
-    @ElementCollection(fetch = FetchType.EAGER)
-    @CollectionTable(name = "user_roles", joinColumns = @JoinColumn(name = "user_id"))
-    @Column(name = "role")
-    private Set<String> roles = new HashSet<>();
+    @Column(nullable = false)
+    private int roles;
+
+    @Column(name = "ledger_version", nullable = false, updatable = false)
+    private long ledgerVersion;
+
+    @Column(name = "session_generation", nullable = false, updatable = false)
+    private int sessionGeneration;
 
     @PrePersist
     protected void onCreate() {
         created_at = LocalDateTime.now();
         updated_at = LocalDateTime.now();
+        keysUpdatedAt = LocalDateTime.now();
         balance = BigDecimal.ZERO;
         accountNonExpired = true;
         accountNonLocked = true;
         credentialsNonExpired = true;
         enabled = true;
-        roles.add("ROLE_USER");
+        addRole(Role.USER);
     }
 
     @PreUpdate
@@ -101,11 +112,28 @@ public class AppUser implements UserDetails {
         updated_at = LocalDateTime.now();
     }
 
+    /**
+     * Grants a role to the user.
+     *
+     * @param role the role to grant
+     */
+    public void addRole(Role role) {
+        roles |= role.mask();
+    }
+
+    /**
+     * Checks whether the user has been granted a role.
+     *
+     * @param role the role to check
+     * @return true if the user has the role, false otherwise
+     */
+    public boolean hasRole(Role role) {
+        return (roles & role.mask()) != 0;
+    }
+
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
-        return roles.stream()
-                .map(role -> (GrantedAuthority) () -> role)
-                .toList();
+        return Role.authoritiesOf(roles);
     }
 
     @Override
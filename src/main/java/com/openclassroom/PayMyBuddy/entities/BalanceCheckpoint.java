@@ -0,0 +1,61 @@
+package com.openclassroom.PayMyBuddy.entities;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Represents the balance of a user at a given point in time in the PayMyBuddy application.
+ *
+ * <p>This entity maps to the {@code balance_checkpoints} table in the database. A checkpoint
+ * holds the sum of every {@link Transaction} of the user created up to {@code asOf}, so that a
+ * past balance is computed from the nearest checkpoint and the few transactions after it.</p>
+ *
+ * <h2>Fields:</h2>
+ * <ul>
+ *   <li>{@code id}: Unique identifier for the checkpoint.</li>
+ *   <li>{@code user}: The user whose balance is recorded.</li>
+ *   <li>{@code balance}: The balance of the user at {@code asOf}.</li>
+ *   <li>{@code lastTransactionId}: The highest transaction id included in the balance.</li>
+ *   <li>{@code asOf}: The point in time the balance refers to.</li>
+ *   <li>{@code created_at}: Timestamp indicating when the checkpoint was written.</li>
+ * </ul>
+ *
+ * <h2>Lifecycle Callbacks:</h2>
+ * <ul>
+ *   <li>{@code onCreate()}: Initializes the {@code created_at} field with the current timestamp
+ *   when the checkpoint is first persisted.</li>
+ * </ul>
+ */
+@Entity
+@Table(name = "balance_checkpoints", indexes = @Index(columnList = "user_id, as_of"))
+@Data
+public class BalanceCheckpoint {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private int id;
+
+    @ManyToOne
+    @JoinColumn(name = "user_id", nullable = false)
+    private AppUser user;
+
+    @Column(nullable = false)
+    private BigDecimal balance;
+
+    private Integer lastTransactionId;
+
+    @Column(name = "as_of", nullable = false)
+    @Temporal(TemporalType.TIMESTAMP)
+    private LocalDateTime asOf;
+
+    @Column(nullable = false)
+    @Temporal(TemporalType.TIMESTAMP)
+    private LocalDateTime created_at;
+
+    @PrePersist
+    protected void onCreate() {
+        created_at = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,21 @@
+package com.openclassroom.PayMyBuddy.entities;
+
+/**
+ * Names shared by the table-backed identifier generators.
+ *
+ * <p>{@link Transaction} and {@link Relation} draw their identifiers in blocks of
+ * {@link #ALLOCATION_SIZE} from the {@code id_sequences} table instead of relying on
+ * {@code AUTO_INCREMENT} columns, so that their inserts can be sent in JDBC batches.</p>
+ */
+public final class IdSequences {
+    public static final String TABLE = "id_sequences";
+    public static final String SEGMENT_COLUMN = "sequence_name";
+    public static final String VALUE_COLUMN = "next_val";
+    public static final int ALLOCATION_SIZE = 50;
+
+    public static final String TRANSACTIONS = "transactions";
+    public static final String RELATIONS = "relations";
+
+    private IdSequences() {
+    }
+}
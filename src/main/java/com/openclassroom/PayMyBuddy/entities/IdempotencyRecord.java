@@ -0,0 +1,57 @@
+package com.openclassroom.PayMyBuddy.entities;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Represents a money-moving request that has already been applied in the PayMyBuddy application.
+ *
+ * <p>This entity maps to the {@code idempotency_records} table in the database. The unique
+ * constraint on the user and the key guarantees that a request replayed with the same key
+ * is applied at most once.</p>
+ *
+ * <h2>Fields:</h2>
+ * <ul>
+ *   <li>{@code id}: Unique identifier for the record.</li>
+ *   <li>{@code user}: The user who sent the request.</li>
+ *   <li>{@code idempotencyKey}: The key sent with the request.</li>
+ *   <li>{@code operation}: The operation applied by the request.</li>
+ *   <li>{@code created_at}: Timestamp indicating when the request was applied.</li>
+ * </ul>
+ *
+ * <h2>Lifecycle Callbacks:</h2>
+ * <ul>
+ *   <li>{@code onCreate()}: Initializes the {@code created_at} field with the current timestamp
+ *   when the record is first persisted.</li>
+ * </ul>
+ */
+@Entity
+@Table(name = "idempotency_records",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "idempotency_key"}))
+@Data
+public class IdempotencyRecord {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private int id;
+
+    @ManyToOne
+    @JoinColumn(name = "user_id", nullable = false)
+    private AppUser user;
+
+    @Column(name = "idempotency_key", nullable = false, length = 64)
+    private String idempotencyKey;
+
+    @Column(nullable = false)
+    private String operation;
+
+    @Column(nullable = false)
+    @Temporal(TemporalType.TIMESTAMP)
+    private LocalDateTime created_at;
+
+    @PrePersist
+    protected void onCreate() {
+        created_at = LocalDateTime.now();
+    }
+}
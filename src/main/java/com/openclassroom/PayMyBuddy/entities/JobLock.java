@@ -0,0 +1,41 @@
+package com.openclassroom.PayMyBuddy.entities;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Represents the lock and progress of a background job shared by every node of the PayMyBuddy application.
+ *
+ * <p>This entity maps to the {@code job_locks} table in the database. A node runs a job only after
+ * moving {@code lockedUntil} forward with a conditional update, which a single node can win while the
+ * lock is held. A node stopping while holding the lock releases it when {@code lockedUntil} passes.</p>
+ *
+ * <h2>Fields:</h2>
+ * <ul>
+ *   <li>{@code name}: Unique name of the job.</li>
+ *   <li>{@code lockedUntil}: Time until which the lock is held.</li>
+ *   <li>{@code lockedBy}: Identifier of the node holding or last holding the lock.</li>
+ *   <li>{@code completedUntil}: Point in time up to which the job has completed its work, null if never run.</li>
+ * </ul>
+ */
+@Entity
+@Table(name = "job_locks")
+@Data
+public class JobLock {
+    @Id
+    @Column(length = 64)
+    private String name;
+
+    @Column(name = "locked_until", nullable = false)
+    @Temporal(TemporalType.TIMESTAMP)
+    private LocalDateTime lockedUntil;
+
+    @Column(name = "locked_by", length = 128)
+    private String lockedBy;
+
+    @Column(name = "completed_until")
+    @Temporal(TemporalType.TIMESTAMP)
+    private LocalDateTime completedUntil;
+}
@@ -14,7 +14,7 @@ import java.time.LocalDateTime;
  *
  * <h2>Fields:</h2>
  * <ul>
- *   <li>{@code id}: Unique identifier for the relation.</li>
+ *   <li>{@code id}: Unique identifier for the relation, allocated in blocks from {@link IdSequences}.</li>
  *   <li>{@code user}: The user who initiated or owns the relation.</li>
  *   <li>{@code relatedUser}: The user who is connected to the initiating user.</li>
  *   <li>{@code created_at}: Timestamp indicating when the relation was created.</li>
@@ -31,7 +31,10 @@ import java.time.LocalDateTime;
 @Data
 public class Relation {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "relation_id")
+    @TableGenerator(name = "relation_id", table = IdSequences.TABLE, pkColumnName = IdSequences.SEGMENT_COLUMN,
+            valueColumnName = IdSequences.VALUE_COLUMN, pkColumnValue = IdSequences.RELATIONS,
+            allocationSize = IdSequences.ALLOCATION_SIZE)
     private int id;
 
     @ManyToOne
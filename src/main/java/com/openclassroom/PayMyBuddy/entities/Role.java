@@ -0,0 +1,70 @@
+package com.openclassroom.PayMyBuddy.entities;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Roles that can be granted to an {@link AppUser}.
+ *
+ * <p>The roles of a user are stored as a bitmask in the {@code roles} column of the {@code users}
+ * table, each role owning the bit of its ordinal. New roles must therefore only be appended.
+ * The authorities of every possible combination of roles are computed once, so that users
+ * share the same immutable lists.</p>
+ */
+public enum Role {
+    USER("ROLE_USER");
+
+    private static final List<List<GrantedAuthority>> AUTHORITIES = computeAuthorities();
+
+    private final String authority;
+
+    Role(String authority) {
+        this.authority = authority;
+    }
+
+    /**
+     * Retrieves the name of the authority granted by this role.
+     *
+     * @return the authority name, such as {@code ROLE_USER}
+     */
+    public String getAuthority() {
+        return authority;
+    }
+
+    /**
+     * Retrieves the bit of this role in a roles bitmask.
+     *
+     * @return the bit of the role
+     */
+    public int mask() {
+        return 1 << ordinal();
+    }
+
+    /**
+     * Retrieves the authorities granted by a roles bitmask.
+     *
+     * @param roles the roles bitmask
+     * @return the shared immutable list of the granted authorities
+     */
+    public static List<GrantedAuthority> authoritiesOf(int roles) {
+        return AUTHORITIES.get(roles & (AUTHORITIES.size() - 1));
+    }
+
+    private static List<List<GrantedAuthority>> computeAuthorities() {
+        Role[] roles = values();
+        List<List<GrantedAuthority>> authorities = new ArrayList<>(1 << roles.length);
+        for (int mask = 0; mask < 1 << roles.length; mask++) {
+            List<GrantedAuthority> granted = new ArrayList<>();
+            for (Role role : roles) {
+                if ((mask & role.mask()) != 0) {
+                    granted.add(new SimpleGrantedAuthority(role.authority));
+                }
+            }
+            authorities.add(List.copyOf(granted));
+        }
+        return List.copyOf(authorities);
+    }
+}
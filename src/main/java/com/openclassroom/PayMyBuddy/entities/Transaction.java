@@ -10,11 +10,13 @@ import java.time.LocalDateTime;
  * Represents a financial transaction between users in the PayMyBuddy application.
  *
  * <p>This entity maps to the {@code transactions} table in the database and captures
- * the details of transactions.</p>
+ * the details of transactions. The sent and received transactions of a user are each
+ * indexed by creation time, so that a user's history is read as two ordered index ranges. The
+ * creation time alone is also indexed, to find the users with recent transactions.</p>
  *
  * <h2>Fields:</h2>
  * <ul>
- *   <li>{@code id}: Unique identifier for the transaction.</li>
+ *   <li>{@code id}: Unique identifier for the transaction, allocated in blocks from {@link IdSequences}.</li>
  *   <li>{@code user}: The user who initiated the transaction.</li>
  *   <li>{@code receiver}: The user who receives the transaction.</li>
  *   <li>{@code description}: A brief description of the transaction.</li>
@@ -29,11 +31,18 @@ import java.time.LocalDateTime;
  * </ul>
  */
 @Entity
-@Table(name = "transactions")
+@Table(name = "transactions", indexes = {
+        @Index(name = "idx_transactions_user_created", columnList = "user_id, created_at, id"),
+        @Index(name = "idx_transactions_receiver_created", columnList = "receiver_id, created_at, id"),
+        @Index(name = "idx_transactions_created", columnList = "created_at")
+})
 @Data
 public class Transaction {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "transaction_id")
+    @TableGenerator(name = "transaction_id", table = IdSequences.TABLE, pkColumnName = IdSequences.SEGMENT_COLUMN,
+            valueColumnName = IdSequences.VALUE_COLUMN, pkColumnValue = IdSequences.TRANSACTIONS,
+            allocationSize = IdSequences.ALLOCATION_SIZE)
     private int id;
 
     @ManyToOne
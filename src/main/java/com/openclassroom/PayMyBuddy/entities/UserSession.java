@@ -0,0 +1,49 @@
+package com.openclassroom.PayMyBuddy.entities;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Represents an authenticated HTTP session of a user in the PayMyBuddy application.
+ *
+ * <p>This entity maps to the {@code user_sessions} table in the database, shared by every node of
+ * the application, so that the number of sessions of a user is limited across the whole cluster.
+ * The user is referenced by id only: a session row never prevents a user from being deleted, and rows
+ * of deleted users are purged with the inactive sessions.</p>
+ *
+ * <h2>Fields:</h2>
+ * <ul>
+ *   <li>{@code sessionId}: Identifier of the HTTP session.</li>
+ *   <li>{@code userId}: Unique identifier of the user who logged in.</li>
+ *   <li>{@code email}: Email address the user logged in with.</li>
+ *   <li>{@code roles}: Roles bitmask of the user when they logged in.</li>
+ *   <li>{@code lastRequest}: Timestamp of the last recorded request of the session.</li>
+ *   <li>{@code expired}: Indicates if the session was superseded by a newer session of the user.</li>
+ * </ul>
+ */
+@Entity
+@Table(name = "user_sessions", indexes = {@Index(columnList = "user_id"), @Index(columnList = "last_request")})
+@Data
+public class UserSession {
+    @Id
+    @Column(name = "session_id", length = 128)
+    private String sessionId;
+
+    @Column(name = "user_id", nullable = false)
+    private int userId;
+
+    @Column(nullable = false)
+    private String email;
+
+    @Column(nullable = false)
+    private int roles;
+
+    @Column(name = "last_request", nullable = false)
+    @Temporal(TemporalType.TIMESTAMP)
+    private LocalDateTime lastRequest;
+
+    @Column(nullable = false)
+    private boolean expired;
+}
@@ -6,6 +6,11 @@
  *   <li>{@link com.openclassroom.PayMyBuddy.entities.AppUser} - Represents a user of the application.</li>
  *   <li>{@link com.openclassroom.PayMyBuddy.entities.Transaction} - Represents a financial transaction between users.</li>
  *   <li>{@link com.openclassroom.PayMyBuddy.entities.Relation} - Represents a relationship between users.</li>
+ *   <li>{@link com.openclassroom.PayMyBuddy.entities.Role} - Represents a role granted to users.</li>
+ *   <li>{@link com.openclassroom.PayMyBuddy.entities.IdempotencyRecord} - Represents a money-moving request already applied.</li>
+ *   <li>{@link com.openclassroom.PayMyBuddy.entities.BalanceCheckpoint} - Represents the balance of a user at a point in time.</li>
+ *   <li>{@link com.openclassroom.PayMyBuddy.entities.UserSession} - Represents an authenticated HTTP session of a user.</li>
+ *   <li>{@link com.openclassroom.PayMyBuddy.entities.JobLock} - Represents the lock and progress of a background job.</li>
  * </ul>
  */
 package com.openclassroom.PayMyBuddy.entities;
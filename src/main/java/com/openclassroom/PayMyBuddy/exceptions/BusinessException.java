@@ -0,0 +1,13 @@
+package com.openclassroom.PayMyBuddy.exceptions;
+
+/**
+ * The {@code BusinessException} class is the base of the exceptions rejecting a user request.
+ *
+ * <p>These exceptions only carry a message for the user and are always handled, so they are created
+ * without a stack trace: rejecting an invalid request costs no more than accepting a valid one.</p>
+ */
+public abstract class BusinessException extends RuntimeException {
+    protected BusinessException(String message) {
+        super(message, null, false, false);
+    }
+}
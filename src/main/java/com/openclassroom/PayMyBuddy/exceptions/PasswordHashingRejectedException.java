@@ -0,0 +1,22 @@
+package com.openclassroom.PayMyBuddy.exceptions;
+
+import org.springframework.security.authentication.AuthenticationServiceException;
+
+/**
+ * The {@code PasswordHashingRejectedException} class is thrown when a password cannot be hashed or
+ * verified because the password hashing pool is saturated.
+ *
+ * <p>It is an authentication exception, so that a rejected login reaches the failure handler of the
+ * login form, and it is answered with a 503 wherever it is thrown. Like the business exceptions, it is
+ * created without a stack trace: rejecting a request under load must stay cheap.</p>
+ */
+public class PasswordHashingRejectedException extends AuthenticationServiceException {
+    public PasswordHashingRejectedException(String message) {
+        super(message);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
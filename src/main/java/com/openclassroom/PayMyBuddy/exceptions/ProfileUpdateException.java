@@ -6,7 +6,7 @@ import lombok.Getter;
  * The {@code ProfileUpdateException} class is thrown when there is an error updating a user's profile.
  */
 @Getter
-public class ProfileUpdateException extends RuntimeException {
+public class ProfileUpdateException extends BusinessException {
     public ProfileUpdateException(String message) {
         super(message);
     }
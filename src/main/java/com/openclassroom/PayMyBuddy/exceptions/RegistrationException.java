@@ -7,7 +7,7 @@ import lombok.Getter;
  * The {@code RegistrationException} class is thrown when there is an error during the user registration process.
  */
 @Getter
-public class RegistrationException extends RuntimeException {
+public class RegistrationException extends BusinessException {
     private final RegistrationDto registrationDto;
 
     public RegistrationException(String message, RegistrationDto registrationDto) {
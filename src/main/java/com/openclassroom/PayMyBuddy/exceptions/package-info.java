@@ -8,6 +8,8 @@
  * <p>Common exceptions in this package include:</p>
  * <ul>
  *     <li>{@link com.openclassroom.PayMyBuddy.exceptions.BalanceException} - Thrown when there are issues related to user balances.</li>
+ *     <li>{@link com.openclassroom.PayMyBuddy.exceptions.BusinessException} - Base of the exceptions rejecting a user request, created without a stack trace.</li>
+ *     <li>{@link com.openclassroom.PayMyBuddy.exceptions.PasswordHashingRejectedException} - Thrown when the password hashing pool is saturated.</li>
  *     <li>{@link com.openclassroom.PayMyBuddy.exceptions.ProfileUpdateException} - Thrown when an error occurs while updating a user profile.</li>
  *     <li>{@link com.openclassroom.PayMyBuddy.exceptions.RegistrationException} - Thrown during user registration issues.</li>
  *     <li>{@link com.openclassroom.PayMyBuddy.exceptions.RelationException} - Thrown when there are errors related to user relations.</li>
@@ -0,0 +1,19 @@
+package com.openclassroom.PayMyBuddy.models;
+
+import lombok.Data;
+
+/**
+ * Data Transfer Object (DTO) for the usage metrics of the user cache.
+ */
+@Data
+public class AppUserCacheStatsDto {
+    private int size;
+
+    private long hits;
+
+    private long misses;
+
+    private long evictions;
+
+    private long invalidations;
+}
@@ -0,0 +1,53 @@
+package com.openclassroom.PayMyBuddy.models;
+
+import com.openclassroom.PayMyBuddy.entities.AppUser;
+import com.openclassroom.PayMyBuddy.entities.Role;
+import lombok.Value;
+import org.springframework.security.core.AuthenticatedPrincipal;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Immutable security principal of a logged-in user, kept in the security context of their session.
+ *
+ * <p>It only holds what identifies the user and their rights: the id, the email they logged in with
+ * and the roles bitmask. The password hash, the balance and the rest of the {@link AppUser} are never
+ * stored in the session; the user is loaded by id when a request needs them. The authorities are
+ * derived from the roles and shared between principals, so they are not serialized either.</p>
+ */
+@Value
+public class AuthenticatedUser implements AuthenticatedPrincipal, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    int id;
+
+    String email;
+
+    int roles;
+
+    /**
+     * Creates the principal of a user.
+     *
+     * @param appUser the authenticated user
+     * @return the {@link AuthenticatedUser} of the user
+     */
+    public static AuthenticatedUser of(AppUser appUser) {
+        return new AuthenticatedUser(appUser.getId(), appUser.getEmail(), appUser.getRoles());
+    }
+
+    /**
+     * Retrieves the authorities granted by the roles of the user.
+     *
+     * @return the shared immutable list of the granted authorities
+     */
+    public List<GrantedAuthority> getAuthorities() {
+        return Role.authoritiesOf(roles);
+    }
+
+    @Override
+    public String getName() {
+        return email;
+    }
+}
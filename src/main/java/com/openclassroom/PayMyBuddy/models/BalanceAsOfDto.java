@@ -0,0 +1,16 @@
+package com.openclassroom.PayMyBuddy.models;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Data Transfer Object (DTO) for the balance of a user at a given point in time.
+ */
+@Data
+public class BalanceAsOfDto {
+    private LocalDateTime at;
+
+    private BigDecimal balance;
+}
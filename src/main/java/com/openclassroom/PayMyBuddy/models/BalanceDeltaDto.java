@@ -0,0 +1,23 @@
+package com.openclassroom.PayMyBuddy.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Data Transfer Object (DTO) for the net effect of a range of transactions on a user's balance.
+ *
+ * <p>It is built directly by a query constructor expression, hence the all-arguments constructor.</p>
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BalanceDeltaDto {
+    private BigDecimal amount;
+
+    private Integer lastTransactionId;
+
+    private long count;
+}
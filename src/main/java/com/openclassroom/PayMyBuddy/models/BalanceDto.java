@@ -2,6 +2,7 @@ package com.openclassroom.PayMyBuddy.models;
 
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 import lombok.Data;
 
 import java.math.BigDecimal;
@@ -14,4 +15,7 @@ public class BalanceDto {
     @NotNull
     @DecimalMin(value = "0.01")
     private BigDecimal amount;
+
+    @Size(max = 64)
+    private String idempotencyKey;
 }
@@ -0,0 +1,31 @@
+package com.openclassroom.PayMyBuddy.models;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) for handling several transactions sent at once by the same user.
+ *
+ * <p>The number of transfers is capped at {@link #MAX_TRANSFERS} when the form is validated. The
+ * {@code paymybuddy.transactions.bulk-max-size} property can lower that limit further.</p>
+ */
+@Data
+public class BulkTransactionDto {
+    /**
+     * The maximum number of transfers accepted in a single request, whatever the configured limit.
+     */
+    public static final int MAX_TRANSFERS = 100;
+
+    @Valid
+    @NotEmpty
+    @Size(max = MAX_TRANSFERS)
+    private List<TransactionDto> transfers = new ArrayList<>();
+
+    @Size(max = 64)
+    private String idempotencyKey;
+}
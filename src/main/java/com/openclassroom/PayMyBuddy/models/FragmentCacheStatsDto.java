@@ -0,0 +1,23 @@
+package com.openclassroom.PayMyBuddy.models;
+
+import lombok.Data;
+
+/**
+ * Data Transfer Object (DTO) for the usage metrics of the fragment render cache.
+ */
+@Data
+public class FragmentCacheStatsDto {
+    private int entries;
+
+    private long bytes;
+
+    private long maxBytes;
+
+    private long hits;
+
+    private long misses;
+
+    private double hitRate;
+
+    private long evictions;
+}
@@ -0,0 +1,17 @@
+package com.openclassroom.PayMyBuddy.models;
+
+import java.math.BigDecimal;
+
+/**
+ * Read-only projection of the header of the pages of a user: their username, balance and ledger version.
+ *
+ * <p>It is filled directly by a single query, without loading the {@code AppUser} entity, so that the
+ * balance displayed is exactly the one of the version the page is served for.</p>
+ */
+public interface LedgerSummaryView {
+    String getUsername();
+
+    BigDecimal getBalance();
+
+    long getLedgerVersion();
+}
@@ -0,0 +1,23 @@
+package com.openclassroom.PayMyBuddy.models;
+
+import lombok.Data;
+
+/**
+ * Data Transfer Object (DTO) for the contention metrics of an account lock stripe.
+ */
+@Data
+public class LockStripeStatsDto {
+    private int stripe;
+
+    private long acquisitions;
+
+    private long contendedAcquisitions;
+
+    private long totalWaitNanos;
+
+    private long maxWaitNanos;
+
+    private int queueLength;
+
+    private long maxQueueLength;
+}
@@ -0,0 +1,24 @@
+package com.openclassroom.PayMyBuddy.models;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) for a page of a user's operation history, newest first.
+ *
+ * <p>When more operations are available, {@code nextCreatedAt} and {@code nextId} hold the
+ * position of the last operation of the page, from which the next page starts.</p>
+ */
+@Data
+public class OperationPageDto {
+    private List<OperationView> operations = new ArrayList<>();
+
+    private boolean hasMore;
+
+    private LocalDateTime nextCreatedAt;
+
+    private Integer nextId;
+}
@@ -0,0 +1,23 @@
+package com.openclassroom.PayMyBuddy.models;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Read-only projection of a transaction as displayed in a user's operation lists.
+ *
+ * <p>It is filled directly by a query, without loading the {@code Transaction} entity or its users.
+ * The amount is signed from the point of view of the user: amounts sent to other users are
+ * negative.</p>
+ */
+public interface OperationView {
+    int getId();
+
+    LocalDateTime getCreatedAt();
+
+    String getCounterparty();
+
+    String getDescription();
+
+    BigDecimal getAmount();
+}
@@ -0,0 +1,23 @@
+package com.openclassroom.PayMyBuddy.models;
+
+import lombok.Data;
+
+/**
+ * Data Transfer Object (DTO) for the usage metrics of the password hashing pool.
+ */
+@Data
+public class PasswordHashingStatsDto {
+    private int threads;
+
+    private int queued;
+
+    private long completed;
+
+    private long rejected;
+
+    private long averageQueueWaitMicros;
+
+    private long maxQueueWaitMicros;
+
+    private long averageHashMicros;
+}
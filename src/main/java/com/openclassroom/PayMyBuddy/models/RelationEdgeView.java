@@ -0,0 +1,14 @@
+package com.openclassroom.PayMyBuddy.models;
+
+/**
+ * Read-only projection of a relation as a directed edge between two user identifiers.
+ *
+ * <p>It is filled directly by a query, without loading the {@code Relation} entity or its users.</p>
+ */
+public interface RelationEdgeView {
+    int getId();
+
+    int getUserId();
+
+    int getRelatedUserId();
+}
@@ -4,6 +4,7 @@ import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 import lombok.Data;
 
 import java.math.BigDecimal;
@@ -18,9 +19,13 @@ public class TransactionDto {
     private String receiverEmail;
 
     @NotEmpty
+    @Size(max = 255)
     private String description;
 
     @NotNull
     @DecimalMin(value = "0.01")
     private BigDecimal amount;
+
+    @Size(max = 64)
+    private String idempotencyKey;
 }
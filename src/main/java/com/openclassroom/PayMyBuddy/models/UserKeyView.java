@@ -0,0 +1,14 @@
+package com.openclassroom.PayMyBuddy.models;
+
+/**
+ * Read-only projection of the unique keys of a user: their username and email address.
+ *
+ * <p>It is filled directly by a query, without loading the {@code AppUser} entity.</p>
+ */
+public interface UserKeyView {
+    int getId();
+
+    String getUsername();
+
+    String getEmail();
+}
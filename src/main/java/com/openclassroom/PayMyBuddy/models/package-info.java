@@ -6,13 +6,26 @@
  *
  * <p>Classes included in this package:</p>
  * <ul>
+ *     <li>{@link com.openclassroom.PayMyBuddy.models.AppUserCacheStatsDto} - Represents the usage metrics of the user cache.</li>
+ *     <li>{@link com.openclassroom.PayMyBuddy.models.AuthenticatedUser} - Represents the logged-in user kept in the security context of their session.</li>
+ *     <li>{@link com.openclassroom.PayMyBuddy.models.BalanceAsOfDto} - Represents the balance of a user at a point in time.</li>
+ *     <li>{@link com.openclassroom.PayMyBuddy.models.BalanceDeltaDto} - Represents the net effect of a range of transactions on a balance.</li>
  *     <li>{@link com.openclassroom.PayMyBuddy.models.BalanceDto} - Represents the balance information for transactions.</li>
+ *     <li>{@link com.openclassroom.PayMyBuddy.models.BulkTransactionDto} - Represents the data required for making several transactions at once.</li>
+ *     <li>{@link com.openclassroom.PayMyBuddy.models.FragmentCacheStatsDto} - Represents the usage metrics of the fragment render cache.</li>
+ *     <li>{@link com.openclassroom.PayMyBuddy.models.LedgerSummaryView} - Represents the username, balance and ledger version of a user, read at once.</li>
+ *     <li>{@link com.openclassroom.PayMyBuddy.models.LockStripeStatsDto} - Represents the contention metrics of an account lock stripe.</li>
  *     <li>{@link com.openclassroom.PayMyBuddy.models.LoginDto} - Represents the data required for user login.</li>
+ *     <li>{@link com.openclassroom.PayMyBuddy.models.OperationPageDto} - Represents a page of a user's operation history.</li>
+ *     <li>{@link com.openclassroom.PayMyBuddy.models.OperationView} - Represents a transaction as displayed in operation lists.</li>
+ *     <li>{@link com.openclassroom.PayMyBuddy.models.PasswordHashingStatsDto} - Represents the usage metrics of the password hashing pool.</li>
  *     <li>{@link com.openclassroom.PayMyBuddy.models.RegistrationDto} - Represents the data required for user registration.</li>
  *     <li>{@link com.openclassroom.PayMyBuddy.models.RelationDto} - Represents the data required to manage user relations.</li>
+ *     <li>{@link com.openclassroom.PayMyBuddy.models.RelationEdgeView} - Represents a relation as a pair of user identifiers.</li>
  *     <li>{@link com.openclassroom.PayMyBuddy.models.TransactionDto} - Represents the data required for making transactions.</li>
  *     <li>{@link com.openclassroom.PayMyBuddy.models.UpdatePasswordDto} - Represents the data required for updating user passwords.</li>
  *     <li>{@link com.openclassroom.PayMyBuddy.models.UpdateProfileDto} - Represents the data required for updating user profiles.</li>
+ *     <li>{@link com.openclassroom.PayMyBuddy.models.UserKeyView} - Represents the username and email of a user.</li>
  *     <li>{@link com.openclassroom.PayMyBuddy.models.UserProfileDto} - Represents the user's profile information for display purposes.</li>
  * </ul>
  */
@@ -1,8 +1,19 @@
 package com.openclassroom.PayMyBuddy.repository;
 
 import com.openclassroom.PayMyBuddy.entities.AppUser;
+import com.openclassroom.PayMyBuddy.models.LedgerSummaryView;
+import com.openclassroom.PayMyBuddy.models.UserKeyView;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 
 /**
  * Repository interface for accessing and managing {@link AppUser} entities.
@@ -12,6 +23,21 @@ import org.springframework.stereotype.Repository;
  *     <li>{@link #findById(int)} - Retrieves an {@link AppUser} by their unique identifier.</li>
  *     <li>{@link #findByEmail(String)} - Retrieves an {@link AppUser} by their email address.</li>
  *     <li>{@link #findByUsername(String)} - Retrieves an {@link AppUser} by their username.</li>
+ *     <li>{@link #findAllByEmailIn(Collection)} - Retrieves the {@link AppUser} entities matching a set of email addresses.</li>
+ *     <li>{@link #existsByUsername(String)} - Checks whether a username is used, without loading the user.</li>
+ *     <li>{@link #existsByEmail(String)} - Checks whether an email address is used, without loading the user.</li>
+ *     <li>{@link #findUserKeysAfter(int, Pageable)} - Retrieves usernames and email addresses in ascending id order, page by page.</li>
+ *     <li>{@link #findUserKeysChangedSince(int, LocalDateTime)} - Retrieves the usernames and email addresses of the users created or renamed recently.</li>
+ *     <li>{@link #findLedgerVersion(int)} - Retrieves the ledger version of a user, without loading the user.</li>
+ *     <li>{@link #findLedgerSummary(int)} - Retrieves the username, balance and ledger version of a user at once.</li>
+ *     <li>{@link #incrementLedgerVersion(int)} - Increments the ledger version of a user.</li>
+ *     <li>{@link #findSessionGeneration(int)} - Retrieves the session generation of a user, without loading the user.</li>
+ *     <li>{@link #incrementSessionGeneration(int)} - Increments the session generation of a user.</li>
+ *     <li>{@link #incrementCounterpartyLedgerVersions(int)} - Increments the ledger version of a user and of every user displaying them.</li>
+ *     <li>{@link #updateProfile(int, String, String)} - Updates the username and email address of a user.</li>
+ *     <li>{@link #updatePassword(int, String)} - Updates the password hash of a user.</li>
+ *     <li>{@link #debitBalance(int, BigDecimal)} - Atomically debits a balance if it covers the amount.</li>
+ *     <li>{@link #creditBalance(int, BigDecimal)} - Atomically credits a balance.</li>
  * </ul>
  */
 @Repository
@@ -39,4 +65,181 @@ public interface AppUserRepository extends JpaRepository<AppUser, Integer> {
      * @return the {@link AppUser} entity, or null if not found
      */
     AppUser findByUsername(String username);
+
+    /**
+     * Checks whether a user has the given username.
+     *
+     * @param username the username to check
+     * @return true if a user has this username, false otherwise
+     */
+    boolean existsByUsername(String username);
+
+    /**
+     * Checks whether a user has the given email address.
+     *
+     * @param email the email address to check
+     * @return true if a user has this email address, false otherwise
+     */
+    boolean existsByEmail(String email);
+
+    /**
+     * Finds the {@link AppUser} entities matching any of the given email addresses.
+     *
+     * @param emails the email addresses of the users
+     * @return a list of the {@link AppUser} entities found
+     */
+    List<AppUser> findAllByEmailIn(Collection<String> emails);
+
+    /**
+     * Finds the usernames and email addresses of the users following a given identifier, in ascending id order.
+     *
+     * @param afterId the exclusive lower bound of the identifiers
+     * @param pageable the maximum number of users to return
+     * @return a list of {@link UserKeyView} projections
+     */
+    @Query("SELECT u.id AS id, u.username AS username, u.email AS email FROM AppUser u WHERE u.id > :afterId ORDER BY u.id")
+    List<UserKeyView> findUserKeysAfter(int afterId, Pageable pageable);
+
+    /**
+     * Finds the usernames and email addresses of the users following a given identifier, or whose
+     * username or email changed since a given time.
+     *
+     * @param afterId the exclusive lower bound of the identifiers of the new users
+     * @param since the inclusive lower bound of the time at which the username or email changed
+     * @return a list of {@link UserKeyView} projections
+     */
+    @Query("SELECT u.id AS id, u.username AS username, u.email AS email FROM AppUser u "
+            + "WHERE u.id > :afterId OR u.keysUpdatedAt >= :since")
+    List<UserKeyView> findUserKeysChangedSince(int afterId, LocalDateTime since);
+
+    /**
+     * Finds the ledger version of a user.
+     *
+     * @param id the unique identifier of the user
+     * @return the ledger version, or null if the user does not exist
+     */
+    @Query("SELECT u.ledgerVersion FROM AppUser u WHERE u.id = :id")
+    Long findLedgerVersion(int id);
+
+    /**
+     * Finds the username, balance and ledger version of a user in a single read.
+     *
+     * @param id the unique identifier of the user
+     * @return a {@link LedgerSummaryView} projection, or null if the user does not exist
+     */
+    @Query("SELECT u.username AS username, u.balance AS balance, u.ledgerVersion AS ledgerVersion "
+            + "FROM AppUser u WHERE u.id = :id")
+    LedgerSummaryView findLedgerSummary(int id);
+
+    /**
+     * Increments the ledger version of a user.
+     *
+     * @param id the unique identifier of the user
+     * @return the number of updated rows
+     */
+    @Modifying
+    @Query(value = "UPDATE users SET ledger_version = ledger_version + 1 WHERE id = :id", nativeQuery = true)
+    int incrementLedgerVersion(int id);
+
+    /**
+     * Finds the session generation of a user.
+     *
+     * @param id the unique identifier of the user
+     * @return the session generation, or null if the user does not exist
+     */
+    @Query("SELECT u.sessionGeneration FROM AppUser u WHERE u.id = :id")
+    Integer findSessionGeneration(int id);
+
+    /**
+     * Increments the session generation of a user.
+     *
+     * @param id the unique identifier of the user
+     * @return the number of updated rows
+     */
+    @Modifying
+    @Query(value = "UPDATE users SET session_generation = session_generation + 1 WHERE id = :id", nativeQuery = true)
+    int incrementSessionGeneration(int id);
+
+    /**
+     * Replaces the password hash of a user, provided it still holds the expected hash.
+     *
+     * @param id the unique identifier of the user
+     * @param oldPassword the hash the user is expected to hold
+     * @param newPassword the new hash
+     * @return 1 if the hash was replaced, 0 if it had changed
+     */
+    @Modifying
+    @Query(value = "UPDATE users SET password = :newPassword WHERE id = :id AND password = :oldPassword", nativeQuery = true)
+    int replacePassword(int id, String oldPassword, String newPassword);
+
+    /**
+     * Updates the username and email address of a user, leaving the other columns untouched.
+     *
+     * <p>A null value keeps the current one. Users are written through this statement rather than
+     * by saving an entity, which may have been read from a cache and hold outdated columns.</p>
+     *
+     * @param id the unique identifier of the user
+     * @param username the new username, or null to keep the current one
+     * @param email the new email address, or null to keep the current one
+     * @return the number of updated rows
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE users SET username = COALESCE(:username, username), email = COALESCE(:email, email), "
+            + "keys_updated_at = NOW(), updated_at = NOW() WHERE id = :id", nativeQuery = true)
+    int updateProfile(int id, String username, String email);
+
+    /**
+     * Updates the password hash of a user, leaving the other columns untouched.
+     *
+     * @param id the unique identifier of the user
+     * @param password the new password hash
+     * @return the number of updated rows
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE users SET password = :password, updated_at = NOW() WHERE id = :id", nativeQuery = true)
+    int updatePassword(int id, String password);
+
+    /**
+     * Increments the ledger version of a user and of every user whose pages display them,
+     * that is every user having them as a relation or sharing a transaction with them.
+     *
+     * @param id the unique identifier of the user
+     * @return the number of updated rows
+     */
+    @Modifying
+    @Query(value = "UPDATE users SET ledger_version = ledger_version + 1 WHERE id = :id "
+            + "OR id IN (SELECT r.user_id FROM relations r WHERE r.related_user_id = :id) "
+            + "OR id IN (SELECT t.user_id FROM transactions t WHERE t.receiver_id = :id) "
+            + "OR id IN (SELECT t.receiver_id FROM transactions t WHERE t.user_id = :id)", nativeQuery = true)
+    int incrementCounterpartyLedgerVersions(int id);
+
+    /**
+     * Debits the balance of a user in a single statement, only if the balance covers the amount.
+     *
+     * <p>The persistence context is flushed before and cleared after the update so that
+     * no stale balance is read back afterwards. The ledger version of the user is incremented.</p>
+     *
+     * @param id the unique identifier of the user
+     * @param amount the amount to be subtracted from the balance
+     * @return the number of updated rows, 0 if the balance is insufficient
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE users SET balance = balance - :amount, ledger_version = ledger_version + 1, updated_at = NOW() "
+            + "WHERE id = :id AND balance >= :amount",
+            nativeQuery = true)
+    int debitBalance(int id, BigDecimal amount);
+
+    /**
+     * Credits the balance of a user in a single statement, incrementing their ledger version.
+     *
+     * @param id the unique identifier of the user
+     * @param amount the amount to be added to the balance
+     * @return the number of updated rows
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE users SET balance = balance + :amount, ledger_version = ledger_version + 1, updated_at = NOW() "
+            + "WHERE id = :id", nativeQuery = true)
+    int creditBalance(int id, BigDecimal amount);
 }
@@ -0,0 +1,28 @@
+package com.openclassroom.PayMyBuddy.repository;
+
+import com.openclassroom.PayMyBuddy.entities.BalanceCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Repository interface for accessing and managing {@link BalanceCheckpoint} entities.
+ *
+ * <p>Methods defined in this repository:</p>
+ * <ul>
+ *     <li>{@link #findFirstByUserIdAndAsOfLessThanEqualOrderByAsOfDesc(int, LocalDateTime)} - Retrieves
+ *     the latest checkpoint of a user taken at or before a given point in time.</li>
+ * </ul>
+ */
+@Repository
+public interface BalanceCheckpointRepository extends JpaRepository<BalanceCheckpoint, Integer> {
+    /**
+     * Finds the latest {@link BalanceCheckpoint} of the specified user taken at or before a point in time.
+     *
+     * @param userId the unique identifier of the user
+     * @param at the point in time
+     * @return the nearest {@link BalanceCheckpoint}, or null if the user has none
+     */
+    BalanceCheckpoint findFirstByUserIdAndAsOfLessThanEqualOrderByAsOfDesc(int userId, LocalDateTime at);
+}
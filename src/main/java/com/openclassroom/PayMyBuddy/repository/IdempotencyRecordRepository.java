@@ -0,0 +1,26 @@
+package com.openclassroom.PayMyBuddy.repository;
+
+import com.openclassroom.PayMyBuddy.entities.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repository interface for accessing and managing {@link IdempotencyRecord} entities.
+ *
+ * <p>Methods defined in this repository:</p>
+ * <ul>
+ *     <li>{@link #existsByUserIdAndIdempotencyKey(int, String)} - Checks whether a request
+ *     with the given key has already been applied for a user.</li>
+ * </ul>
+ */
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, Integer> {
+    /**
+     * Checks whether an {@link IdempotencyRecord} exists for the specified user and key.
+     *
+     * @param userId the unique identifier of the user
+     * @param idempotencyKey the key sent with the request
+     * @return true if the request has already been applied, false otherwise
+     */
+    boolean existsByUserIdAndIdempotencyKey(int userId, String idempotencyKey);
+}
@@ -0,0 +1,72 @@
+package com.openclassroom.PayMyBuddy.repository;
+
+import com.openclassroom.PayMyBuddy.entities.JobLock;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+/**
+ * Repository interface for accessing and managing {@link JobLock} entities.
+ *
+ * <p>The scheduled jobs call it outside any service transaction, so its updates carry their own
+ * {@link Transactional} annotation.</p>
+ *
+ * <p>Methods defined in this repository:</p>
+ * <ul>
+ *     <li>{@link #create(String, String, LocalDateTime)} - Inserts the lock of a job, held by a node.</li>
+ *     <li>{@link #acquire(String, String, LocalDateTime, LocalDateTime)} - Takes the lock of a job if it is free.</li>
+ *     <li>{@link #release(String, String, LocalDateTime, LocalDateTime)} - Releases the lock of a job held by a node.</li>
+ * </ul>
+ */
+@Repository
+public interface JobLockRepository extends JpaRepository<JobLock, String> {
+    /**
+     * Inserts the lock of a job, held by a node.
+     *
+     * <p>The insert fails on the primary key if another node created the lock first.</p>
+     *
+     * @param name the name of the job
+     * @param owner the identifier of the node
+     * @param lockedUntil the time until which the lock is held
+     * @return the number of inserted rows
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "INSERT INTO job_locks (name, locked_until, locked_by) VALUES (:name, :lockedUntil, :owner)",
+            nativeQuery = true)
+    int create(String name, String owner, LocalDateTime lockedUntil);
+
+    /**
+     * Takes the lock of a job, only if no node holds it at the given time.
+     *
+     * @param name the name of the job
+     * @param owner the identifier of the node
+     * @param now the current time
+     * @param lockedUntil the time until which the lock is held
+     * @return the number of updated rows, 0 if the lock is held or does not exist
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE job_locks SET locked_until = :lockedUntil, locked_by = :owner "
+            + "WHERE name = :name AND locked_until <= :now", nativeQuery = true)
+    int acquire(String name, String owner, LocalDateTime now, LocalDateTime lockedUntil);
+
+    /**
+     * Releases the lock of a job and records its progress, only if the given node still holds it.
+     *
+     * @param name the name of the job
+     * @param owner the identifier of the node
+     * @param now the current time
+     * @param completedUntil the point in time up to which the job has completed its work
+     * @return the number of updated rows, 0 if the node no longer holds the lock
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE job_locks SET locked_until = :now, completed_until = :completedUntil "
+            + "WHERE name = :name AND locked_by = :owner", nativeQuery = true)
+    int release(String name, String owner, LocalDateTime now, LocalDateTime completedUntil);
+}
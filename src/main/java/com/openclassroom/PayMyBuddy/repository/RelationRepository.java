@@ -1,8 +1,10 @@
 package com.openclassroom.PayMyBuddy.repository;
 
-import com.openclassroom.PayMyBuddy.entities.AppUser;
 import com.openclassroom.PayMyBuddy.entities.Relation;
+import com.openclassroom.PayMyBuddy.models.RelationEdgeView;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -13,7 +15,8 @@ import java.util.List;
  * <p>Methods defined in this repository:</p>
  * <ul>
  *     <li>{@link #findAllByUserId(int)} - Retrieves all {@link Relation} entities associated with a given user ID.</li>
- *     <li>{@link #findByUserAndRelatedUser(AppUser, AppUser)} - Retrieves a specific {@link Relation} between two users.</li>
+ *     <li>{@link #existsByUserIdAndRelatedUserId(int, int)} - Checks whether a user has added another user to their relations.</li>
+ *     <li>{@link #findEdgesAfter(int, Pageable)} - Retrieves relations as pairs of user identifiers in ascending id order, page by page.</li>
  * </ul>
  */
 @Repository
@@ -27,11 +30,21 @@ public interface RelationRepository extends JpaRepository<Relation, Integer> {
     List<Relation> findAllByUserId(int userId);
 
     /**
-     * Finds a specific {@link Relation} between a user and a related user.
+     * Checks whether a user has added another user to their relations, without loading the relation.
      *
-     * @param user the user entity
-     * @param relation the related user entity
-     * @return the {@link Relation} entity, or null if not found
+     * @param userId the unique identifier of the user
+     * @param relatedUserId the unique identifier of the related user
+     * @return true if the relation exists, false otherwise
+     */
+    boolean existsByUserIdAndRelatedUserId(int userId, int relatedUserId);
+
+    /**
+     * Finds the relations following a given identifier as pairs of user identifiers, in ascending id order.
+     *
+     * @param afterId the exclusive lower bound of the identifiers
+     * @param pageable the maximum number of relations to return
+     * @return a list of {@link RelationEdgeView} projections
      */
-    Relation findByUserAndRelatedUser(AppUser user, AppUser relation);
+    @Query("SELECT r.id AS id, r.user.id AS userId, r.relatedUser.id AS relatedUserId FROM Relation r WHERE r.id > :afterId ORDER BY r.id")
+    List<RelationEdgeView> findEdgesAfter(int afterId, Pageable pageable);
 }
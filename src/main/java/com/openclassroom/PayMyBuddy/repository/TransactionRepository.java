@@ -1,11 +1,13 @@
 package com.openclassroom.PayMyBuddy.repository;
 
-import com.openclassroom.PayMyBuddy.entities.AppUser;
 import com.openclassroom.PayMyBuddy.entities.Transaction;
+import com.openclassroom.PayMyBuddy.models.BalanceDeltaDto;
+import com.openclassroom.PayMyBuddy.models.OperationView;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -13,30 +15,130 @@ import java.util.List;
  *
  * <p>Methods defined in this repository:</p>
  * <ul>
- *     <li>{@link #findAllByUserId(int)} - Retrieves all {@link Transaction}
- *     entities associated with a given user ID.</li>
- *     <li>{@link #findDistinctByUserOrReceiver(AppUser)} - Retrieves distinct
- *     {@link Transaction} entities where the user is either the sender or the
- *     receiver.</li>
+ *     <li>{@link #findSentTransactions(int)} - Retrieves the transactions a user sent
+ *     to other users, for display.</li>
+ *     <li>{@link #findUserOperations(int, int)} - Retrieves the first page of a
+ *     user's operation history, newest first.</li>
+ *     <li>{@link #findUserOperationsBefore(int, LocalDateTime, int, int)} - Retrieves
+ *     the page of a user's operation history following a given position.</li>
+ *     <li>{@link #sumBalanceDelta(int, LocalDateTime, LocalDateTime)} - Computes the net effect
+ *     on a user's balance of the transactions created within a time range.</li>
+ *     <li>{@link #findActiveUserIdsAfter(LocalDateTime, LocalDateTime, int, int)} - Retrieves the users
+ *     with transactions created within a time range, page by page.</li>
  * </ul>
  */
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, Integer> {
     /**
-     * Finds all {@link Transaction} entities associated with the specified user ID.
+     * Finds the transactions sent by the specified user to other users, oldest first.
      *
      * @param userId the unique identifier of the user
-     * @return a list of {@link Transaction} entities associated with the user
+     * @return a list of {@link OperationView} holding the receiver's username and the amount sent
      */
-    List<Transaction> findAllByUserId(int userId);
+    @Query(value = "SELECT t.id AS id, t.created_at AS createdAt, u.username AS counterparty, "
+            + "t.description AS description, t.amount AS amount "
+            + "FROM transactions t JOIN users u ON u.id = t.receiver_id "
+            + "WHERE t.user_id = :userId AND t.receiver_id <> :userId "
+            + "ORDER BY t.created_at, t.id", nativeQuery = true)
+    List<OperationView> findSentTransactions(int userId);
 
     /**
-     * Finds distinct {@link Transaction} entities where the specified user is either
-     * the sender or the receiver.
+     * Finds the most recent operations where the specified user is either the sender or the
+     * receiver, newest first.
      *
-     * @param connectedUser the user for whom to retrieve transactions
-     * @return a list of distinct {@link Transaction} entities involving the user
+     * <p>The sent and received transactions are read as two range scans of the
+     * {@code (user_id, created_at, id)} and {@code (receiver_id, created_at, id)} indexes, each
+     * stopping after {@code limit} rows, and merged with {@code UNION ALL}. Transactions to the
+     * user itself are only read from the first range. Each row is returned as a flat
+     * {@link OperationView} with the counterparty's username and the signed amount, in a single
+     * statement.</p>
+     *
+     * @param userId the unique identifier of the user
+     * @param limit the maximum number of operations to return
+     * @return a list of {@link OperationView} ordered by descending creation time and id
+     */
+    @Query(value = "(SELECT t.id AS id, t.created_at AS createdAt, u.username AS counterparty, "
+            + "t.description AS description, "
+            + "CASE WHEN t.receiver_id = :userId THEN t.amount ELSE -t.amount END AS amount "
+            + "FROM transactions t JOIN users u ON u.id = t.receiver_id "
+            + "WHERE t.user_id = :userId "
+            + "ORDER BY t.created_at DESC, t.id DESC LIMIT :limit) "
+            + "UNION ALL "
+            + "(SELECT t.id AS id, t.created_at AS createdAt, u.username AS counterparty, "
+            + "t.description AS description, t.amount AS amount "
+            + "FROM transactions t JOIN users u ON u.id = t.user_id "
+            + "WHERE t.receiver_id = :userId AND t.user_id <> :userId "
+            + "ORDER BY t.created_at DESC, t.id DESC LIMIT :limit) "
+            + "ORDER BY createdAt DESC, id DESC LIMIT :limit", nativeQuery = true)
+    List<OperationView> findUserOperations(int userId, int limit);
+
+    /**
+     * Finds the operations where the specified user is either the sender or the receiver,
+     * positioned strictly before a given creation time and id, newest first.
+     *
+     * <p>This query reads the same index ranges as {@link #findUserOperations(int, int)},
+     * starting from the given position.</p>
+     *
+     * @param userId the unique identifier of the user
+     * @param createdAt the creation time of the last operation already returned
+     * @param id the id of the last operation already returned
+     * @param limit the maximum number of operations to return
+     * @return a list of {@link OperationView} ordered by descending creation time and id
+     */
+    @Query(value = "(SELECT t.id AS id, t.created_at AS createdAt, u.username AS counterparty, "
+            + "t.description AS description, "
+            + "CASE WHEN t.receiver_id = :userId THEN t.amount ELSE -t.amount END AS amount "
+            + "FROM transactions t JOIN users u ON u.id = t.receiver_id "
+            + "WHERE t.user_id = :userId "
+            + "AND (t.created_at < :createdAt OR (t.created_at = :createdAt AND t.id < :id)) "
+            + "ORDER BY t.created_at DESC, t.id DESC LIMIT :limit) "
+            + "UNION ALL "
+            + "(SELECT t.id AS id, t.created_at AS createdAt, u.username AS counterparty, "
+            + "t.description AS description, t.amount AS amount "
+            + "FROM transactions t JOIN users u ON u.id = t.user_id "
+            + "WHERE t.receiver_id = :userId AND t.user_id <> :userId "
+            + "AND (t.created_at < :createdAt OR (t.created_at = :createdAt AND t.id < :id)) "
+            + "ORDER BY t.created_at DESC, t.id DESC LIMIT :limit) "
+            + "ORDER BY createdAt DESC, id DESC LIMIT :limit", nativeQuery = true)
+    List<OperationView> findUserOperationsBefore(int userId, LocalDateTime createdAt, int id, int limit);
+
+    /**
+     * Computes the net effect on a user's balance of the transactions created after {@code from}
+     * and up to {@code to}.
+     *
+     * <p>Amounts received by the user, including its own credits and withdrawals, are added, and
+     * amounts sent to other users are subtracted. The received and sent transactions are read as two
+     * ranges of the {@code (receiver_id, created_at, id)} and {@code (user_id, created_at, id)} indexes,
+     * merged with {@code UNION ALL}, rather than with a single {@code OR} predicate no index serves.</p>
+     *
+     * @param userId the unique identifier of the user
+     * @param from the exclusive lower bound of the creation time
+     * @param to the inclusive upper bound of the creation time
+     * @return a {@link BalanceDeltaDto} holding the net amount, the highest transaction id and the
+     * number of transactions in the range; the amount and id are null if there are none
+     */
+    @Query("SELECT new com.openclassroom.PayMyBuddy.models.BalanceDeltaDto(SUM(d.amount), MAX(d.id), COUNT(d.id)) "
+            + "FROM (SELECT t.id AS id, t.amount AS amount FROM Transaction t "
+            + "WHERE t.receiver.id = :userId AND t.created_at > :from AND t.created_at <= :to "
+            + "UNION ALL SELECT t.id AS id, -t.amount AS amount FROM Transaction t "
+            + "WHERE t.user.id = :userId AND t.receiver.id <> :userId AND t.created_at > :from AND t.created_at <= :to) d")
+    BalanceDeltaDto sumBalanceDelta(int userId, LocalDateTime from, LocalDateTime to);
+
+    /**
+     * Finds the users with transactions created after {@code from} and up to {@code to}, as senders
+     * or receivers, following a given identifier in ascending order.
+     *
+     * <p>Both sides are read from the {@code created_at} index and merged with {@code UNION}.</p>
+     *
+     * @param from the exclusive lower bound of the creation time
+     * @param to the inclusive upper bound of the creation time
+     * @param afterId the exclusive lower bound of the user identifiers
+     * @param limit the maximum number of identifiers to return
+     * @return a list of distinct user identifiers
      */
-    @Query("SELECT DISTINCT t FROM Transaction t WHERE t.user = :connectedUser OR t.receiver = :connectedUser")
-    List<Transaction> findDistinctByUserOrReceiver(AppUser connectedUser);
+    @Query(value = "SELECT a.user_id FROM ("
+            + "SELECT t.user_id AS user_id FROM transactions t WHERE t.created_at > :from AND t.created_at <= :to "
+            + "UNION SELECT t.receiver_id FROM transactions t WHERE t.created_at > :from AND t.created_at <= :to) a "
+            + "WHERE a.user_id > :afterId ORDER BY a.user_id LIMIT :limit", nativeQuery = true)
+    List<Integer> findActiveUserIdsAfter(LocalDateTime from, LocalDateTime to, int afterId, int limit);
 }
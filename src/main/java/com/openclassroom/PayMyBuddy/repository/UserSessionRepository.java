@@ -0,0 +1,115 @@
+package com.openclassroom.PayMyBuddy.repository;
+
+import com.openclassroom.PayMyBuddy.entities.UserSession;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repository interface for accessing and managing {@link UserSession} entities.
+ *
+ * <p>The session registry calls it from the security filters, outside any service transaction, so its
+ * updates carry their own {@link Transactional} annotation.</p>
+ *
+ * <p>Methods defined in this repository:</p>
+ * <ul>
+ *     <li>{@link #findBySessionId(String)} - Retrieves a session by its identifier.</li>
+ *     <li>{@link #findAllByUserId(int)} - Retrieves every session of a user.</li>
+ *     <li>{@link #findAllSessions()} - Retrieves every session, most recent first.</li>
+ *     <li>{@link #expire(String)} - Marks a session as expired.</li>
+ *     <li>{@link #touch(String, LocalDateTime, LocalDateTime)} - Records the last request of a session.</li>
+ *     <li>{@link #changeSessionId(String, String)} - Renames a session whose identifier changed.</li>
+ *     <li>{@link #deleteBySessionId(String)} - Deletes a session.</li>
+ *     <li>{@link #deleteInactiveBefore(LocalDateTime)} - Deletes the sessions inactive since a given time.</li>
+ * </ul>
+ */
+@Repository
+public interface UserSessionRepository extends JpaRepository<UserSession, String> {
+    /**
+     * Finds a {@link UserSession} by its identifier.
+     *
+     * @param sessionId the identifier of the HTTP session
+     * @return the {@link UserSession} entity, or null if not found
+     */
+    UserSession findBySessionId(String sessionId);
+
+    /**
+     * Finds every {@link UserSession} of a user.
+     *
+     * @param userId the unique identifier of the user
+     * @return a list of {@link UserSession} entities
+     */
+    List<UserSession> findAllByUserId(int userId);
+
+    /**
+     * Finds every {@link UserSession}, the most recently active first.
+     *
+     * @return a list of {@link UserSession} entities
+     */
+    @Query("SELECT s FROM UserSession s ORDER BY s.lastRequest DESC")
+    List<UserSession> findAllSessions();
+
+    /**
+     * Marks a session as expired.
+     *
+     * @param sessionId the identifier of the HTTP session
+     * @return the number of updated rows
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE user_sessions SET expired = TRUE WHERE session_id = :sessionId", nativeQuery = true)
+    int expire(String sessionId);
+
+    /**
+     * Records the last request of a session, unless a request has already been recorded since the given time.
+     *
+     * @param sessionId the identifier of the HTTP session
+     * @param lastRequest the time of the request
+     * @param before the time from which a recorded request is recent enough to be kept
+     * @return the number of updated rows
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE user_sessions SET last_request = :lastRequest "
+            + "WHERE session_id = :sessionId AND last_request < :before", nativeQuery = true)
+    int touch(String sessionId, LocalDateTime lastRequest, LocalDateTime before);
+
+    /**
+     * Renames a session whose identifier changed.
+     *
+     * @param oldSessionId the previous identifier of the HTTP session
+     * @param newSessionId the new identifier of the HTTP session
+     * @return the number of updated rows
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE user_sessions SET session_id = :newSessionId WHERE session_id = :oldSessionId", nativeQuery = true)
+    int changeSessionId(String oldSessionId, String newSessionId);
+
+    /**
+     * Deletes a session.
+     *
+     * @param sessionId the identifier of the HTTP session
+     * @return the number of deleted rows
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM user_sessions WHERE session_id = :sessionId", nativeQuery = true)
+    int deleteBySessionId(String sessionId);
+
+    /**
+     * Deletes every session without any request since the given time.
+     *
+     * @param before the time of the oldest request kept
+     * @return the number of deleted rows
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM user_sessions WHERE last_request < :before", nativeQuery = true)
+    int deleteInactiveBefore(LocalDateTime before);
+}
@@ -7,6 +7,10 @@
  *     <li>{@link com.openclassroom.PayMyBuddy.entities.AppUser}</li>
  *     <li>{@link com.openclassroom.PayMyBuddy.entities.Relation}</li>
  *     <li>{@link com.openclassroom.PayMyBuddy.entities.Transaction}</li>
+ *     <li>{@link com.openclassroom.PayMyBuddy.entities.IdempotencyRecord}</li>
+ *     <li>{@link com.openclassroom.PayMyBuddy.entities.BalanceCheckpoint}</li>
+ *     <li>{@link com.openclassroom.PayMyBuddy.entities.UserSession}</li>
+ *     <li>{@link com.openclassroom.PayMyBuddy.entities.JobLock}</li>
  * </ul>
  */
 package com.openclassroom.PayMyBuddy.repository;
@@ -2,12 +2,13 @@ package com.openclassroom.PayMyBuddy.services;
 
 import com.openclassroom.PayMyBuddy.exceptions.*;
 import com.openclassroom.PayMyBuddy.entities.AppUser;
+import com.openclassroom.PayMyBuddy.entities.Role;
 import com.openclassroom.PayMyBuddy.models.RegistrationDto;
 import com.openclassroom.PayMyBuddy.repository.AppUserRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.validation.BindingResult;
 
@@ -20,6 +21,8 @@ public class AccessService {
     AppUserRepository appUserRepository;
     @Autowired
     Validators validators;
+    @Autowired
+    PasswordEncoder passwordEncoder;
 
     private static final Logger logger = LoggerFactory.getLogger(AccessService.class);
 
@@ -32,6 +35,7 @@ public class AccessService {
      * @param registrationDto the registration data transfer object containing user information
      * @param result the BindingResult object to hold validation errors
      * @throws RegistrationException if the registration data is invalid or if an error occurs during registration
+     * @throws PasswordHashingRejectedException if the password hashing pool is saturated
      */
     public void register(RegistrationDto registrationDto, BindingResult result) {
         logger.info("Processing register() method");
@@ -57,15 +61,16 @@ public class AccessService {
 
         try {
             logger.info("Mapping newUser");
-            BCryptPasswordEncoder bCryptEncoder = new BCryptPasswordEncoder();
             AppUser newUser = new AppUser();
             newUser.setUsername(registrationDto.getUsername());
             newUser.setEmail(registrationDto.getEmail());
-            newUser.setPassword(bCryptEncoder.encode(registrationDto.getPassword()));
-            newUser.getRoles().add("ROLE_USER");
+            newUser.setPassword(passwordEncoder.encode(registrationDto.getPassword()));
+            newUser.addRole(Role.USER);
 
             appUserRepository.save(newUser);
             logger.info("New user saved :{}", newUser);
+        } catch (PasswordHashingRejectedException e) {
+            throw e;
         } catch (Exception e) {
             throw new RegistrationException("Une erreur est survenue lors de la création", new RegistrationDto());
         }
@@ -0,0 +1,156 @@
+package com.openclassroom.PayMyBuddy.services;
+
+import com.openclassroom.PayMyBuddy.models.LockStripeStatsDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Component ordering in-process operations on the same user accounts.
+ *
+ * <p>Accounts are mapped by id onto a fixed number of lock stripes, so no global lock is ever taken.
+ * The accounts of an operation are sorted by ascending id and resolved to their stripes, which are
+ * then acquired in ascending stripe order. Every thread therefore locks in the same global order,
+ * which rules out deadlocks even when several accounts share a stripe.</p>
+ *
+ * <p>Contention metrics are kept per stripe to help sizing the number of stripes, and logged at a fixed
+ * interval by the {@link MetricsReporter}.</p>
+ */
+@Component
+public class AccountLockManager {
+    private final ReentrantLock[] stripes;
+    private final LongAdder[] acquisitions;
+    private final LongAdder[] contendedAcquisitions;
+    private final LongAdder[] waitNanos;
+    private final AtomicLong[] maxWaitNanos;
+    private final AtomicLong[] maxQueueLength;
+
+    private static final Logger logger = LoggerFactory.getLogger(AccountLockManager.class);
+
+    /**
+     * Creates a lock manager with the given number of stripes.
+     *
+     * @param stripeCount the number of lock stripes
+     */
+    public AccountLockManager(@Value("${paymybuddy.account-locks.stripes:64}") int stripeCount) {
+        if (stripeCount < 1) {
+            throw new IllegalArgumentException("The number of lock stripes must be positive");
+        }
+        stripes = new ReentrantLock[stripeCount];
+        acquisitions = new LongAdder[stripeCount];
+        contendedAcquisitions = new LongAdder[stripeCount];
+        waitNanos = new LongAdder[stripeCount];
+        maxWaitNanos = new AtomicLong[stripeCount];
+        maxQueueLength = new AtomicLong[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+            acquisitions[i] = new LongAdder();
+            contendedAcquisitions[i] = new LongAdder();
+            waitNanos[i] = new LongAdder();
+            maxWaitNanos[i] = new AtomicLong();
+            maxQueueLength[i] = new AtomicLong();
+        }
+    }
+
+    /**
+     * Locks the given accounts until the returned handle is closed.
+     *
+     * @param accountIds the unique identifiers of the accounts to lock
+     * @return the handle releasing the locks when closed
+     */
+    public Handle lock(int... accountIds) {
+        int[] stripeIndexes = stripesOf(accountIds);
+        for (int stripe : stripeIndexes) {
+            acquire(stripe);
+        }
+        return new Handle(stripeIndexes);
+    }
+
+    /**
+     * Retrieves the contention metrics of every stripe.
+     *
+     * @return a list of {@link LockStripeStatsDto}, one per stripe
+     */
+    public List<LockStripeStatsDto> getStripeStats() {
+        List<LockStripeStatsDto> stats = new ArrayList<>(stripes.length);
+        for (int i = 0; i < stripes.length; i++) {
+            LockStripeStatsDto stripeStats = new LockStripeStatsDto();
+            stripeStats.setStripe(i);
+            stripeStats.setAcquisitions(acquisitions[i].sum());
+            stripeStats.setContendedAcquisitions(contendedAcquisitions[i].sum());
+            stripeStats.setTotalWaitNanos(waitNanos[i].sum());
+            stripeStats.setMaxWaitNanos(maxWaitNanos[i].get());
+            stripeStats.setQueueLength(stripes[i].getQueueLength());
+            stripeStats.setMaxQueueLength(maxQueueLength[i].get());
+            stats.add(stripeStats);
+        }
+        return stats;
+    }
+
+    /**
+     * Retrieves the number of lock stripes.
+     *
+     * @return the number of stripes
+     */
+    public int getStripeCount() {
+        return stripes.length;
+    }
+
+    private int[] stripesOf(int... accountIds) {
+        int[] sortedIds = accountIds.clone();
+        Arrays.sort(sortedIds);
+        return Arrays.stream(sortedIds)
+                .map(id -> Math.floorMod(id, stripes.length))
+                .distinct()
+                .sorted()
+                .toArray();
+    }
+
+    private void acquire(int stripe) {
+        ReentrantLock lock = stripes[stripe];
+        acquisitions[stripe].increment();
+        if (lock.tryLock()) {
+            return;
+        }
+
+        contendedAcquisitions[stripe].increment();
+        maxQueueLength[stripe].accumulateAndGet(lock.getQueueLength() + 1L, Math::max);
+        long start = System.nanoTime();
+        lock.lock();
+        long waited = System.nanoTime() - start;
+        waitNanos[stripe].add(waited);
+        maxWaitNanos[stripe].accumulateAndGet(waited, Math::max);
+        logger.debug("Waited {} ns for account lock stripe {}", waited, stripe);
+    }
+
+    /**
+     * Handle on a set of locked stripes, releasing them in reverse order when closed.
+     */
+    public final class Handle implements AutoCloseable {
+        private final int[] stripeIndexes;
+        private boolean released;
+
+        private Handle(int[] stripeIndexes) {
+            this.stripeIndexes = stripeIndexes;
+        }
+
+        @Override
+        public void close() {
+            if (released) {
+                return;
+            }
+            released = true;
+            for (int i = stripeIndexes.length - 1; i >= 0; i--) {
+                stripes[stripeIndexes[i]].unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package com.openclassroom.PayMyBuddy.services;
+
+import com.openclassroom.PayMyBuddy.entities.AppUser;
+import com.openclassroom.PayMyBuddy.models.AppUserCacheStatsDto;
+import com.openclassroom.PayMyBuddy.repository.AppUserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Component caching {@link AppUser} lookups by id, email and username in front of the {@link AppUserRepository}.
+ *
+ * <p>Users are kept in an access-ordered {@link LinkedHashMap} keyed by id, evicting the least recently used
+ * user once the cache is full, and every entry expires after a fixed time to live. The email and username
+ * lookups go through two indexes pointing to the id, so a user is cached once and invalidated with all
+ * its keys at once. Emails and usernames are compared ignoring case, like the database does.</p>
+ *
+ * <p>Cached users are copies: callers always receive their own instance and cannot alter the cache.
+ * Every write to a user must be followed by {@link #evict(int)}, which drops the user immediately and
+ * again once the current database transaction has committed. A lookup started before an eviction of the
+ * same user never stores its result, so a value read before a write is not cached after it. Evictions
+ * are recorded on a fixed number of stripes keyed by id, so a write only discards the lookups of the
+ * users sharing its stripe, and the other lookups still fill the cache. A user loaded within a
+ * read-write transaction is only stored once that transaction has committed, so that rolled back data
+ * is never cached.</p>
+ *
+ * <p>The eviction only reaches the cache of the node performing the write: the other nodes keep serving
+ * their copy until it expires, so a cached user may be up to one time to live older than the database.
+ * Cached users must therefore never be saved back: users are written through the targeted statements
+ * of the {@link AppUserRepository}, which only set the written columns. Balances read from the cache
+ * are only used for display: the debits check the balance in the database itself. The credential
+ * checks never go through the cache either: they load the password hash from the database.</p>
+ *
+ * <p>The hits, misses, evictions and invalidations are counted since the start of the node and read
+ * through {@link #getStats()}, which the {@link MetricsReporter} logs to size the cache and its time
+ * to live. A cache size of 0 disables the cache.</p>
+ */
+@Component
+public class AppUserCache {
+    @Autowired
+    AppUserRepository appUserRepository;
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final Map<Integer, CachedUser> users;
+    private final Map<String, Integer> idsByEmail = new HashMap<>();
+    private final Map<String, Integer> idsByUsername = new HashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final long[] evictedAt = new long[EVICTION_STRIPES];
+    private long evictionClock;
+
+    private static final int EVICTION_STRIPES = 4096;
+
+    private static final Logger logger = LoggerFactory.getLogger(AppUserCache.class);
+
+    /**
+     * Creates a cache of the given size and time to live.
+     *
+     * @param maxSize the maximum number of users kept in memory, 0 to disable the cache
+     * @param ttl the time after which a cached user is loaded again, bounding how stale a user written
+     *            by another node can be
+     */
+    public AppUserCache(@Value("${paymybuddy.user-cache.size:10000}") int maxSize,
+                        @Value("${paymybuddy.user-cache.ttl:PT1M}") Duration ttl) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("The user cache size must not be negative");
+        }
+        if (ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("The user cache time to live must be positive");
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        users = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, CachedUser> eldest) {
+                if (size() <= AppUserCache.this.maxSize) {
+                    return false;
+                }
+                unindex(eldest.getValue().appUser);
+                evictions.increment();
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Finds a user by their unique identifier.
+     *
+     * @param id the unique identifier of the user
+     * @return the {@link AppUser}, or null if not found
+     */
+    public AppUser findById(int id) {
+        return find(id, () -> appUserRepository.findById(id));
+    }
+
+    /**
+     * Finds a user by their email address.
+     *
+     * @param email the email address of the user
+     * @return the {@link AppUser}, or null if not found
+     */
+    public AppUser findByEmail(String email) {
+        return find(cachedId(idsByEmail, email), () -> appUserRepository.findByEmail(email));
+    }
+
+    /**
+     * Finds a user by their username.
+     *
+     * @param username the username of the user
+     * @return the {@link AppUser}, or null if not found
+     */
+    public AppUser findByUsername(String username) {
+        return find(cachedId(idsByUsername, username), () -> appUserRepository.findByUsername(username));
+    }
+
+    /**
+     * Drops a user from the cache, now and once the current database transaction has committed.
+     *
+     * @param id the unique identifier of the user
+     */
+    public void evict(int id) {
+        remove(id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    remove(id);
+                }
+            });
+        }
+    }
+
+    /**
+     * Retrieves the usage metrics of the cache.
+     *
+     * @return an {@link AppUserCacheStatsDto} holding the metrics
+     */
+    public synchronized AppUserCacheStatsDto getStats() {
+        AppUserCacheStatsDto stats = new AppUserCacheStatsDto();
+        stats.setSize(users.size());
+        stats.setHits(hits.sum());
+        stats.setMisses(misses.sum());
+        stats.setEvictions(evictions.sum());
+        stats.setInvalidations(invalidations.sum());
+        return stats;
+    }
+
+    private AppUser find(Integer id, Supplier<AppUser> loader) {
+        if (maxSize == 0) {
+            return loader.get();
+        }
+        long loadStartedAt;
+        synchronized (this) {
+            CachedUser cachedUser = id == null ? null : users.get(id);
+            if (cachedUser != null && cachedUser.expiresAt - System.nanoTime() > 0) {
+                hits.increment();
+                return copyOf(cachedUser.appUser);
+            }
+            if (cachedUser != null) {
+                users.remove(id);
+                unindex(cachedUser.appUser);
+                evictions.increment();
+            }
+            misses.increment();
+            loadStartedAt = evictionClock;
+        }
+        return load(loader, loadStartedAt);
+    }
+
+    private AppUser load(Supplier<AppUser> loader, long loadStartedAt) {
+        AppUser appUser = loader.get();
+        if (appUser == null || maxSize == 0) {
+            return appUser;
+        }
+        AppUser copy = copyOf(appUser);
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                && TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    store(copy, loadStartedAt);
+                }
+            });
+        } else {
+            store(copy, loadStartedAt);
+        }
+        return appUser;
+    }
+
+    private synchronized Integer cachedId(Map<String, Integer> index, String key) {
+        return key == null || maxSize == 0 ? null : index.get(normalize(key));
+    }
+
+    private synchronized void store(AppUser appUser, long loadStartedAt) {
+        if (evictedAt[stripeOf(appUser.getId())] > loadStartedAt) {
+            logger.debug("User {} changed while loading, not cached", appUser.getId());
+            return;
+        }
+        CachedUser previous = users.remove(appUser.getId());
+        if (previous != null) {
+            unindex(previous.appUser);
+        }
+        users.put(appUser.getId(), new CachedUser(appUser, System.nanoTime() + ttlNanos));
+        idsByEmail.put(normalize(appUser.getEmail()), appUser.getId());
+        idsByUsername.put(normalize(appUser.getUsername()), appUser.getId());
+    }
+
+    private synchronized void remove(int id) {
+        evictedAt[stripeOf(id)] = ++evictionClock;
+        CachedUser cachedUser = users.remove(id);
+        if (cachedUser != null) {
+            unindex(cachedUser.appUser);
+            invalidations.increment();
+        }
+    }
+
+    private void unindex(AppUser appUser) {
+        idsByEmail.remove(normalize(appUser.getEmail()));
+        idsByUsername.remove(normalize(appUser.getUsername()));
+    }
+
+    private static int stripeOf(int id) {
+        return Math.floorMod(id, EVICTION_STRIPES);
+    }
+
+    private static String normalize(String key) {
+        return key.toLowerCase(Locale.ROOT);
+    }
+
+    private static AppUser copyOf(AppUser appUser) {
+        AppUser copy = new AppUser();
+        copy.setId(appUser.getId());
+        copy.setUsername(appUser.getUsername());
+        copy.setEmail(appUser.getEmail());
+        copy.setPassword(appUser.getPassword());
+        copy.setBalance(appUser.getBalance());
+        copy.setCreated_at(appUser.getCreated_at());
+        copy.setUpdated_at(appUser.getUpdated_at());
+        copy.setAccountNonExpired(appUser.isAccountNonExpired());
+        copy.setAccountNonLocked(appUser.isAccountNonLocked());
+        copy.setCredentialsNonExpired(appUser.isCredentialsNonExpired());
+        copy.setEnabled(appUser.isEnabled());
+        copy.setRoles(appUser.getRoles());
+        copy.setLedgerVersion(appUser.getLedgerVersion());
+        copy.setSessionGeneration(appUser.getSessionGeneration());
+        return copy;
+    }
+
+    private record CachedUser(AppUser appUser, long expiresAt) {
+    }
+}
@@ -1,6 +1,7 @@
 package com.openclassroom.PayMyBuddy.services;
 
 import com.openclassroom.PayMyBuddy.entities.AppUser;
+import com.openclassroom.PayMyBuddy.models.AuthenticatedUser;
 import com.openclassroom.PayMyBuddy.repository.AppUserRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -10,42 +11,96 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
-
-import java.math.BigDecimal;
+import org.springframework.web.context.request.RequestContextHolder;
 
 /**
  * Service class for managing application users and user authentication.
  *
- * <p>This class implements {@link UserDetailsService} to provide user details for authentication</p>
+ * <p>This class implements {@link UserDetailsService} to provide user details for authentication,
+ * and {@link UserDetailsPasswordService} to store the password hashes recomputed after a login.</p>
  */
 @Service
-public class AppUserService implements UserDetailsService {
+public class AppUserService implements UserDetailsService, UserDetailsPasswordService {
     @Autowired
     AppUserRepository appUserRepository;
     @Autowired
     PasswordEncoder passwordEncoder;
+    @Autowired
+    ConnectedUserContext connectedUserContext;
+    @Autowired
+    AppUserCache appUserCache;
+    @Autowired
+    LedgerVersionService ledgerVersionService;
 
     private static final Logger logger = LoggerFactory.getLogger(AppUserService.class);
 
     /**
      * Retrieves the currently connected user from the security context.
      *
+     * <p>The user is read through the {@link AppUserCache}. Within an HTTP request, it is read
+     * once and then served from the {@link ConnectedUserContext} until their balance or profile
+     * is written.</p>
+     *
      * @return the currently authenticated {@link AppUser}
      */
     public AppUser getConnectedUser() {
         logger.info("Retrieving connected user");
+        if (!isRequestBound()) {
+            return loadConnectedUser();
+        }
+        AppUser appUser = connectedUserContext.getAppUser();
+        if (appUser == null) {
+            appUser = loadConnectedUser();
+            connectedUserContext.loaded(appUser);
+        }
+        return appUser;
+    }
+
+    /**
+     * Retrieves the unique identifier of the currently connected user, without loading the user.
+     *
+     * <p>The identifier is read from the {@link AuthenticatedUser} principal of the session.</p>
+     *
+     * @return the unique identifier of the authenticated user
+     */
+    public int getConnectedUserId() {
         Authentication authentication = SecurityContextHolder.getContext()
                 .getAuthentication();
-        int id = ((AppUser) authentication.getPrincipal()).getId();
-        return appUserRepository.findById(id);
+        return ((AuthenticatedUser) authentication.getPrincipal()).getId();
+    }
+
+    /**
+     * Drops a user whose balance or profile has been written from every cache.
+     *
+     * @param userId the unique identifier of the updated user
+     */
+    public void invalidateUser(int userId) {
+        appUserCache.evict(userId);
+        invalidateConnectedUser();
+    }
+
+    /**
+     * Drops the connected user kept for the current request, if any.
+     *
+     * <p>This method must be called after writing the balance or the profile of a user,
+     * so that the rest of the request reads the updated user.</p>
+     */
+    public void invalidateConnectedUser() {
+        if (isRequestBound()) {
+            connectedUserContext.invalidate();
+        }
     }
 
     /**
      * Loads a user by their email address.
      *
+     * <p>The user is read from the database rather than from the {@link AppUserCache}, so that a password
+     * changed on another node is checked against its new hash at once.</p>
+     *
      * @param email the email of the user to be loaded
      * @return the {@link UserDetails} of the user
      * @throws UsernameNotFoundException if no user is found with the provided email
@@ -64,14 +119,20 @@ public class AppUserService implements UserDetailsService {
     /**
      * Updates the username of the specified user.
      *
+     * <p>Only the username column is written, so that a user read from the {@link AppUserCache}
+     * never overwrites a newer balance, email or password. The ledger versions of the user and of
+     * every user displaying them are incremented, so that no cached page keeps the former username.</p>
+     *
      * @param appUser the user whose username is to be updated
      * @param newUsername the new username to be set
      */
     @Transactional
     public void updateUsername(AppUser appUser, String newUsername) {
         logger.info("Updating user username");
+        appUserRepository.updateProfile(appUser.getId(), newUsername, null);
         appUser.setUsername(newUsername);
-        appUserRepository.save(appUser);
+        invalidateUser(appUser.getId());
+        ledgerVersionService.incrementWithCounterparties(appUser.getId());
 
         logger.info("User username updated: {}", newUsername);
     }
@@ -79,14 +140,19 @@ public class AppUserService implements UserDetailsService {
     /**
      * Updates the email of the specified user.
      *
+     * <p>Only the email column is written, and the ledger versions of the pages displaying the user
+     * are incremented.</p>
+     *
      * @param appUser the user whose email is to be updated
      * @param newEmail the new email to be set
      */
     @Transactional
     public void updateEmail(AppUser appUser, String newEmail) {
         logger.info("Updating user email");
+        appUserRepository.updateProfile(appUser.getId(), null, newEmail);
         appUser.setEmail(newEmail);
-        appUserRepository.save(appUser);
+        invalidateUser(appUser.getId());
+        ledgerVersionService.incrementWithCounterparties(appUser.getId());
 
         logger.info("User email updated: {}", newEmail);
     }
@@ -94,6 +160,8 @@ public class AppUserService implements UserDetailsService {
     /**
      * Updates the password of the specified user.
      *
+     * <p>Only the password column is written.</p>
+     *
      * @param appUser the user whose password is to be updated
      * @param newPassword the new password to be set
      */
@@ -101,25 +169,44 @@ public class AppUserService implements UserDetailsService {
     public void updatePassword(AppUser appUser, String newPassword) {
         logger.info("Updating user password");
         String encodedPassword = passwordEncoder.encode(newPassword);
+        appUserRepository.updatePassword(appUser.getId(), encodedPassword);
         appUser.setPassword(encodedPassword);
-        appUserRepository.save(appUser);
+        invalidateUser(appUser.getId());
 
         logger.info("User password updated: {}", encodedPassword);
     }
 
     /**
-     * Updates the balance of the specified user.
+     * Replaces the password hash of a user with a hash of the same password recomputed after a login.
+     *
+     * <p>The hash is only replaced if it has not changed since the user logged in, so that a rehash
+     * finishing after a password change never restores the previous password. The given user is
+     * returned unchanged, since the session only holds its {@link AuthenticatedUser}.</p>
      *
-     * @param appUser the user whose balance is to be updated
-     * @param amount the amount to be added to the current balance
+     * @param user the user who logged in, holding the outdated hash
+     * @param newPassword the recomputed hash
+     * @return the given user
      */
+    @Override
     @Transactional
-    public void updateBalance(AppUser appUser, BigDecimal amount) {
-        logger.info("Updating user balance");
-        BigDecimal newAmount = appUser.getBalance().add(amount);
-        appUser.setBalance(newAmount);
-        appUserRepository.save(appUser);
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        if (!(user instanceof AppUser appUser)) {
+            return user;
+        }
+        if (appUserRepository.replacePassword(appUser.getId(), appUser.getPassword(), newPassword) == 1) {
+            appUserCache.evict(appUser.getId());
+            logger.info("User password hash recomputed");
+        } else {
+            logger.info("User password changed since login, recomputed hash dropped");
+        }
+        return user;
+    }
+
+    private AppUser loadConnectedUser() {
+        return appUserCache.findById(getConnectedUserId());
+    }
 
-        logger.info("User balance updated: {}", newAmount);
+    private boolean isRequestBound() {
+        return RequestContextHolder.getRequestAttributes() != null;
     }
 }
@@ -0,0 +1,96 @@
+package com.openclassroom.PayMyBuddy.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Component choosing the BCrypt strength of the password hashes for the machine the application runs on.
+ *
+ * <p>Each additional unit of strength doubles the time of a hash. At startup, a hash is timed at the
+ * minimum strength, and the strength retained is the highest one whose estimated hash time stays within
+ * the target latency, between the minimum and the maximum strengths. A configured strength skips the
+ * measure.</p>
+ *
+ * <p>Hashes created with a lower strength keep working: they are recomputed with the retained strength
+ * the next time their user logs in.</p>
+ */
+@Component
+public class BCryptStrengthCalibrator {
+    private static final int SAMPLES = 3;
+
+    private final int strength;
+    private final Duration targetLatency;
+    private final int minStrength;
+    private final int maxStrength;
+
+    private static final Logger logger = LoggerFactory.getLogger(BCryptStrengthCalibrator.class);
+
+    /**
+     * Creates a calibrator for the given bounds.
+     *
+     * @param strength the strength to use without measuring, 0 to calibrate
+     * @param targetLatency the longest time a single hash should take
+     * @param minStrength the lowest strength retained, whatever the measure
+     * @param maxStrength the highest strength retained, whatever the measure
+     */
+    public BCryptStrengthCalibrator(@Value("${paymybuddy.password-hashing.strength:0}") int strength,
+                                    @Value("${paymybuddy.password-hashing.target-latency:PT0.25S}") Duration targetLatency,
+                                    @Value("${paymybuddy.password-hashing.min-strength:10}") int minStrength,
+                                    @Value("${paymybuddy.password-hashing.max-strength:16}") int maxStrength) {
+        if (strength != 0 && (strength < 4 || strength > 31)) {
+            throw new IllegalArgumentException("The BCrypt strength must be between 4 and 31");
+        }
+        if (minStrength < 4 || maxStrength > 31 || minStrength > maxStrength) {
+            throw new IllegalArgumentException("The BCrypt strength bounds must satisfy 4 <= min <= max <= 31");
+        }
+        this.strength = strength;
+        this.targetLatency = targetLatency;
+        this.minStrength = minStrength;
+        this.maxStrength = maxStrength;
+    }
+
+    /**
+     * Returns the configured strength, or measures the hash time and returns the calibrated strength.
+     *
+     * @return the BCrypt strength of new hashes
+     */
+    public int calibrate() {
+        if (strength != 0) {
+            logger.info("Using configured BCrypt strength {}", strength);
+            return strength;
+        }
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(minStrength);
+        encoder.encode("calibration");
+        long fastest = Long.MAX_VALUE;
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            encoder.encode("calibration");
+            fastest = Math.min(fastest, System.nanoTime() - start);
+        }
+        int calibrated = strengthFor(fastest);
+        logger.info("BCrypt strength {} calibrated from {} µs at strength {}", calibrated, fastest / 1_000, minStrength);
+        return calibrated;
+    }
+
+    /**
+     * Computes the highest strength whose hash time stays within the target latency.
+     *
+     * @param nanosAtMinStrength the time of a hash at the minimum strength, in nanoseconds
+     * @return the strength, between the minimum and the maximum strengths
+     */
+    public int strengthFor(long nanosAtMinStrength) {
+        long budget = targetLatency.toNanos();
+        int calibrated = minStrength;
+        long estimate = nanosAtMinStrength;
+        while (calibrated < maxStrength && estimate * 2 <= budget) {
+            estimate *= 2;
+            calibrated++;
+        }
+        return calibrated;
+    }
+}
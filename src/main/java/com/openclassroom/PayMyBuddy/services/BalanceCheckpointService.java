@@ -0,0 +1,168 @@
+package com.openclassroom.PayMyBuddy.services;
+
+import com.openclassroom.PayMyBuddy.entities.AppUser;
+import com.openclassroom.PayMyBuddy.entities.BalanceCheckpoint;
+import com.openclassroom.PayMyBuddy.models.BalanceAsOfDto;
+import com.openclassroom.PayMyBuddy.models.BalanceDeltaDto;
+import com.openclassroom.PayMyBuddy.repository.BalanceCheckpointRepository;
+import com.openclassroom.PayMyBuddy.repository.TransactionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Service class for writing balance checkpoints and computing past balances.
+ *
+ * <p>A background job periodically records, for every user with new transactions, the sum of
+ * its transactions up to a cutoff. The cutoff lags behind the current time so that transfers
+ * still being committed when the job runs are not missed. A balance at any point in time is then
+ * the nearest earlier checkpoint plus the transactions created after it, which only reads the
+ * recent history of the user.</p>
+ *
+ * <p>Each run only visits the users with transactions created since the cutoff of the previous run,
+ * and only one node runs the job at a time, through the {@link JobLockService}.</p>
+ */
+@Service
+public class BalanceCheckpointService {
+    @Autowired
+    BalanceCheckpointRepository balanceCheckpointRepository;
+    @Autowired
+    TransactionRepository transactionRepository;
+    @Autowired
+    JobLockService jobLockService;
+
+    @Value("${paymybuddy.checkpoints.lag:PT5M}")
+    Duration lag = Duration.ofMinutes(5);
+    @Value("${paymybuddy.checkpoints.page-size:500}")
+    int pageSize = 500;
+    @Value("${paymybuddy.checkpoints.lock-for:PT30M}")
+    Duration lockFor = Duration.ofMinutes(30);
+
+    static final LocalDateTime ORIGIN = LocalDateTime.of(1970, 1, 1, 0, 0);
+    static final String JOB_NAME = "balance-checkpoints";
+
+    private static final Logger logger = LoggerFactory.getLogger(BalanceCheckpointService.class);
+
+    /**
+     * Writes a checkpoint for every user with transactions since the previous run.
+     *
+     * <p>The run is skipped if another node holds the lock of the job. Users are processed page by
+     * page in ascending id order. The cutoff is only recorded as the start of the next run once every
+     * user has been processed, so that a failed run is resumed from its own start.</p>
+     */
+    @Scheduled(initialDelayString = "${paymybuddy.checkpoints.interval-ms:3600000}",
+            fixedDelayString = "${paymybuddy.checkpoints.interval-ms:3600000}")
+    public void writeCheckpoints() {
+        if (!jobLockService.tryLock(JOB_NAME, lockFor)) {
+            logger.info("Balance checkpoints written by another node");
+            return;
+        }
+        LocalDateTime previousCutoff = jobLockService.getCompletedUntil(JOB_NAME);
+        LocalDateTime from = previousCutoff == null ? ORIGIN : previousCutoff;
+        LocalDateTime cutoff = LocalDateTime.now().minus(lag);
+        LocalDateTime completedUntil = previousCutoff;
+
+        try {
+            if (cutoff.isAfter(from)) {
+                logger.info("Writing balance checkpoints as of {}", cutoff);
+                logger.info("Balance checkpoints written: {}", writeCheckpoints(from, cutoff));
+                completedUntil = cutoff;
+            }
+        } finally {
+            jobLockService.unlock(JOB_NAME, completedUntil);
+        }
+    }
+
+    private int writeCheckpoints(LocalDateTime from, LocalDateTime cutoff) {
+        int written = 0;
+        int lastId = 0;
+        List<Integer> userIds;
+
+        do {
+            userIds = transactionRepository.findActiveUserIdsAfter(from, cutoff, lastId, pageSize);
+            for (int userId : userIds) {
+                if (writeCheckpoint(userId, cutoff)) {
+                    written++;
+                }
+            }
+            if (!userIds.isEmpty()) {
+                lastId = userIds.get(userIds.size() - 1);
+            }
+        } while (userIds.size() == pageSize);
+        return written;
+    }
+
+    /**
+     * Writes a checkpoint of a user's balance at a given point in time.
+     *
+     * <p>No checkpoint is written if the user has no transaction since the previous one.</p>
+     *
+     * @param userId the unique identifier of the user
+     * @param asOf the point in time of the checkpoint
+     * @return true if a checkpoint was written, false otherwise
+     */
+    public boolean writeCheckpoint(int userId, LocalDateTime asOf) {
+        BalanceCheckpoint previous = balanceCheckpointRepository
+                .findFirstByUserIdAndAsOfLessThanEqualOrderByAsOfDesc(userId, asOf);
+        LocalDateTime from = previous == null ? ORIGIN : previous.getAsOf();
+        BalanceDeltaDto delta = transactionRepository.sumBalanceDelta(userId, from, asOf);
+
+        if (delta.getCount() == 0) {
+            return false;
+        }
+
+        AppUser appUser = new AppUser();
+        appUser.setId(userId);
+        BalanceCheckpoint checkpoint = new BalanceCheckpoint();
+        checkpoint.setUser(appUser);
+        checkpoint.setBalance(balanceOf(previous).add(delta.getAmount()));
+        checkpoint.setLastTransactionId(lastTransactionId(previous, delta));
+        checkpoint.setAsOf(asOf);
+        balanceCheckpointRepository.save(checkpoint);
+        return true;
+    }
+
+    /**
+     * Computes a user's balance at a given point in time.
+     *
+     * @param userId the unique identifier of the user
+     * @param at the point in time
+     * @return a {@link BalanceAsOfDto} holding the balance of the user at that time
+     */
+    public BalanceAsOfDto getBalanceAsOf(int userId, LocalDateTime at) {
+        logger.info("Computing balance as of {}", at);
+        BalanceCheckpoint checkpoint = balanceCheckpointRepository
+                .findFirstByUserIdAndAsOfLessThanEqualOrderByAsOfDesc(userId, at);
+        LocalDateTime from = checkpoint == null ? ORIGIN : checkpoint.getAsOf();
+        BalanceDeltaDto delta = transactionRepository.sumBalanceDelta(userId, from, at);
+
+        BigDecimal balance = balanceOf(checkpoint);
+        if (delta.getAmount() != null) {
+            balance = balance.add(delta.getAmount());
+        }
+
+        BalanceAsOfDto balanceAsOfDto = new BalanceAsOfDto();
+        balanceAsOfDto.setAt(at);
+        balanceAsOfDto.setBalance(balance);
+        return balanceAsOfDto;
+    }
+
+    private static BigDecimal balanceOf(BalanceCheckpoint checkpoint) {
+        return checkpoint == null ? BigDecimal.ZERO : checkpoint.getBalance();
+    }
+
+    private static Integer lastTransactionId(BalanceCheckpoint previous, BalanceDeltaDto delta) {
+        if (previous == null || previous.getLastTransactionId() == null) {
+            return delta.getLastTransactionId();
+        }
+        return Math.max(previous.getLastTransactionId(), delta.getLastTransactionId());
+    }
+}
@@ -0,0 +1,180 @@
+package com.openclassroom.PayMyBuddy.services;
+
+import com.openclassroom.PayMyBuddy.exceptions.PasswordHashingRejectedException;
+import com.openclassroom.PayMyBuddy.models.PasswordHashingStatsDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link PasswordEncoder} running every hash and verification of a delegate encoder on a dedicated, bounded pool.
+ *
+ * <p>Password hashing is deliberately slow. Run on the request threads, a burst of logins takes every
+ * processor and every request thread, and starves the other pages. Here the hashes run on a fixed
+ * number of threads, so at most that many processors hash at once, and waiting requests are queued up
+ * to a fixed limit. Once the queue is full, a request is rejected at once with a
+ * {@link PasswordHashingRejectedException}, answered with a 503, instead of waiting behind the burst.</p>
+ *
+ * <p>Work that no request waits for, such as recomputing an outdated hash after a login, is submitted with
+ * {@link #encodeAsync(CharSequence)} and shares the same pool and queue limit.</p>
+ *
+ * <p>The time each hash spent in the queue and running is measured and exposed by {@link #getStats()}, which the
+ * {@link MetricsReporter} logs to size the pool and its queue.</p>
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder, DisposableBean {
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder queueWaitNanos = new LongAdder();
+    private final LongAccumulator maxQueueWaitNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder hashNanos = new LongAdder();
+
+    private static final String REJECTED_MESSAGE = "Le service est momentanément surchargé, veuillez réessayer";
+
+    private static final Logger logger = LoggerFactory.getLogger(BoundedPasswordEncoder.class);
+
+    /**
+     * Creates an encoder running the delegate on the given number of threads.
+     *
+     * @param delegate the encoder computing the hashes
+     * @param threads the number of hashes computed at once
+     * @param queueCapacity the number of hashes waiting for a thread before new ones are rejected
+     */
+    public BoundedPasswordEncoder(PasswordEncoder delegate, int threads, int queueCapacity) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("The password hashing pool needs at least one thread");
+        }
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("The password hashing queue capacity must be positive");
+        }
+        this.delegate = delegate;
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return run(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * Encodes a password on the pool without waiting for the result.
+     *
+     * @param rawPassword the password to encode
+     * @return the future hash, failed with a {@link PasswordHashingRejectedException} if the pool is saturated
+     */
+    public CompletableFuture<String> encodeAsync(CharSequence rawPassword) {
+        Callable<String> hash = timed(() -> delegate.encode(rawPassword));
+        CompletableFuture<String> result = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    result.complete(hash.call());
+                } catch (Exception e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(rejected());
+        }
+        return result;
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    /**
+     * Retrieves the usage metrics of the pool.
+     *
+     * @return a {@link PasswordHashingStatsDto} holding the metrics
+     */
+    public PasswordHashingStatsDto getStats() {
+        long count = completed.sum();
+        PasswordHashingStatsDto stats = new PasswordHashingStatsDto();
+        stats.setThreads(executor.getMaximumPoolSize());
+        stats.setQueued(executor.getQueue().size());
+        stats.setCompleted(count);
+        stats.setRejected(rejected.sum());
+        stats.setAverageQueueWaitMicros(count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(queueWaitNanos.sum() / count));
+        stats.setMaxQueueWaitMicros(TimeUnit.NANOSECONDS.toMicros(maxQueueWaitNanos.get()));
+        stats.setAverageHashMicros(count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(hashNanos.sum() / count));
+        return stats;
+    }
+
+    /**
+     * Stops the threads of the pool once the queued hashes are computed.
+     */
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+
+    private <T> T run(Callable<T> hash) {
+        Future<T> result;
+        try {
+            result = executor.submit(timed(hash));
+        } catch (RejectedExecutionException e) {
+            throw rejected();
+        }
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.cancel(true);
+            throw new PasswordHashingRejectedException(REJECTED_MESSAGE);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private <T> Callable<T> timed(Callable<T> hash) {
+        long submittedAt = System.nanoTime();
+        return () -> {
+            long startedAt = System.nanoTime();
+            try {
+                return hash.call();
+            } finally {
+                long waited = startedAt - submittedAt;
+                queueWaitNanos.add(waited);
+                maxQueueWaitNanos.accumulate(waited);
+                hashNanos.add(System.nanoTime() - startedAt);
+                completed.increment();
+            }
+        };
+    }
+
+    private PasswordHashingRejectedException rejected() {
+        rejected.increment();
+        logger.warn("Password hashing pool saturated, request rejected");
+        return new PasswordHashingRejectedException(REJECTED_MESSAGE);
+    }
+}
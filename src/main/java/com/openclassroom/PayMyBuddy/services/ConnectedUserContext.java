@@ -0,0 +1,56 @@
+package com.openclassroom.PayMyBuddy.services;
+
+import com.openclassroom.PayMyBuddy.entities.AppUser;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.annotation.RequestScope;
+
+/**
+ * Component holding the connected user for the duration of an HTTP request.
+ *
+ * <p>A new instance is created for every request, so the user loaded by the first call to
+ * {@link AppUserService#getConnectedUser()} is shared by every service handling that request.
+ * The user is dropped as soon as their balance or profile is written, and the next call loads
+ * it again. The number of loads is kept to check how often the user row is read per request.</p>
+ */
+@Component
+@RequestScope
+public class ConnectedUserContext {
+    private AppUser appUser;
+
+    private int loadCount;
+
+    /**
+     * Retrieves the connected user loaded during the current request.
+     *
+     * @return the connected {@link AppUser}, or null if not loaded yet or invalidated
+     */
+    public AppUser getAppUser() {
+        return appUser;
+    }
+
+    /**
+     * Stores the connected user freshly loaded from the database.
+     *
+     * @param appUser the connected {@link AppUser}
+     */
+    public void loaded(AppUser appUser) {
+        this.appUser = appUser;
+        loadCount++;
+    }
+
+    /**
+     * Drops the stored user, so that the next access loads it again.
+     */
+    public void invalidate() {
+        appUser = null;
+    }
+
+    /**
+     * Retrieves the number of times the connected user was loaded during the current request.
+     *
+     * @return the number of loads
+     */
+    public int getLoadCount() {
+        return loadCount;
+    }
+}
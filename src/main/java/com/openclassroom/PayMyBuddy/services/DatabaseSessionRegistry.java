@@ -0,0 +1,346 @@
+package com.openclassroom.PayMyBuddy.services;
+
+import com.openclassroom.PayMyBuddy.entities.UserSession;
+import com.openclassroom.PayMyBuddy.models.AuthenticatedUser;
+import com.openclassroom.PayMyBuddy.repository.UserSessionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.session.AbstractSessionEvent;
+import org.springframework.security.core.session.SessionDestroyedEvent;
+import org.springframework.security.core.session.SessionIdChangedEvent;
+import org.springframework.security.core.session.SessionInformation;
+import org.springframework.security.core.session.SessionRegistry;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link SessionRegistry} keeping the authenticated sessions in the database shared by every node of the application.
+ *
+ * <p>The in-memory registry of Spring Security only knows the sessions of its own node: behind a load
+ * balancer, a user could open one session per node, and a session superseded on one node kept working
+ * on the others. Here every session is a {@link UserSession} row, so a login on any node sees, and
+ * expires, the sessions opened on the other nodes.</p>
+ *
+ * <p>The security filters look up the session of every request. These lookups go through a local
+ * read-through cache: an access-ordered {@link LinkedHashMap} evicting the least recently used session
+ * once full, whose entries are read again from the database after a short time to live. A session
+ * expired on another node is therefore refused here at most one time to live later. Unknown sessions,
+ * such as the anonymous session of the login page, are cached as well. The time of the last request is
+ * kept in memory, and only written to the database once per touch interval. A session missing from the
+ * cache is only written when the request recorded in the database is older than the touch interval, so
+ * that disabling or overflowing the cache never turns every request into a write. The sessions without
+ * any request for longer than the session timeout are purged by a background job.</p>
+ *
+ * <p>The HTTP sessions themselves must be reachable from every node for requests to be routed without
+ * stickiness; this registry only makes the limit on the number of sessions of a user hold across the
+ * nodes. A cache size of 0 disables the cache.</p>
+ */
+@Component
+public class DatabaseSessionRegistry implements SessionRegistry, ApplicationListener<AbstractSessionEvent> {
+    @Autowired
+    UserSessionRepository userSessionRepository;
+
+    @Value("${server.servlet.session.timeout:30m}")
+    Duration sessionTimeout = Duration.ofMinutes(30);
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final long touchIntervalMillis;
+    private final Map<String, CachedSession> sessions;
+
+    private static final Logger logger = LoggerFactory.getLogger(DatabaseSessionRegistry.class);
+
+    /**
+     * Creates a registry caching the given number of sessions.
+     *
+     * @param maxSize the maximum number of sessions kept in memory, 0 to disable the cache
+     * @param ttl the time after which a cached session is read again from the database
+     * @param touchInterval the minimum time between two writes of the last request of a session
+     */
+    public DatabaseSessionRegistry(@Value("${paymybuddy.session-registry.cache-size:10000}") int maxSize,
+                                   @Value("${paymybuddy.session-registry.cache-ttl:PT5S}") Duration ttl,
+                                   @Value("${paymybuddy.session-registry.touch-interval:PT1M}") Duration touchInterval) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("The session cache size must not be negative");
+        }
+        if (ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("The session cache time to live must be positive");
+        }
+        if (touchInterval.isNegative()) {
+            throw new IllegalArgumentException("The session touch interval must not be negative");
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.touchIntervalMillis = touchInterval.toMillis();
+        sessions = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedSession> eldest) {
+                return size() > DatabaseSessionRegistry.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Retrieves the principals having at least one session, on any node.
+     *
+     * @return the list of {@link AuthenticatedUser} principals
+     */
+    @Override
+    public List<Object> getAllPrincipals() {
+        Map<Integer, Object> principals = new LinkedHashMap<>();
+        for (UserSession userSession : userSessionRepository.findAllSessions()) {
+            principals.putIfAbsent(userSession.getUserId(), principalOf(userSession));
+        }
+        return new ArrayList<>(principals.values());
+    }
+
+    /**
+     * Retrieves the sessions of a principal opened on any node, always read from the database.
+     *
+     * @param principal the {@link AuthenticatedUser} principal
+     * @param includeExpiredSessions whether the expired sessions are included
+     * @return the list of sessions, whose expiration is stored in the database
+     */
+    @Override
+    public List<SessionInformation> getAllSessions(Object principal, boolean includeExpiredSessions) {
+        if (!(principal instanceof AuthenticatedUser authenticatedUser)) {
+            return List.of();
+        }
+        List<SessionInformation> result = new ArrayList<>();
+        for (UserSession userSession : userSessionRepository.findAllByUserId(authenticatedUser.getId())) {
+            if (includeExpiredSessions || !userSession.isExpired()) {
+                CachedSession cachedSession = store(userSession.getSessionId(), loaded(userSession));
+                result.add(new ClusterSessionInformation(this, userSession.getSessionId(), cachedSession));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Retrieves a session, from the local cache when it was read from the database recently.
+     *
+     * @param sessionId the identifier of the HTTP session
+     * @return the session, or null if it is not registered
+     */
+    @Override
+    public SessionInformation getSessionInformation(String sessionId) {
+        CachedSession cachedSession = null;
+        if (maxSize > 0) {
+            synchronized (this) {
+                CachedSession candidate = sessions.get(sessionId);
+                if (candidate != null && candidate.expiresAt - System.nanoTime() > 0) {
+                    cachedSession = candidate;
+                }
+            }
+        }
+        if (cachedSession == null) {
+            UserSession userSession = userSessionRepository.findBySessionId(sessionId);
+            cachedSession = store(sessionId, userSession == null ? unknown() : loaded(userSession));
+        }
+        return cachedSession.principal == null ? null : new ClusterSessionInformation(this, sessionId, cachedSession);
+    }
+
+    /**
+     * Records a request of a session, writing it to the database once per touch interval.
+     *
+     * <p>A cached session is only written when its last recorded request is older than the touch interval.
+     * A session missing from the cache is written by a conditional update, which leaves the row untouched
+     * when the request recorded in the database is younger than the touch interval.</p>
+     *
+     * @param sessionId the identifier of the HTTP session
+     */
+    @Override
+    public void refreshLastRequest(String sessionId) {
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            CachedSession cachedSession = sessions.get(sessionId);
+            if (cachedSession != null) {
+                if (cachedSession.principal == null) {
+                    return;
+                }
+                boolean write = now - cachedSession.recordedLastRequest >= touchIntervalMillis;
+                sessions.put(sessionId, cachedSession.withLastRequest(now, write ? now : cachedSession.recordedLastRequest));
+                if (!write) {
+                    return;
+                }
+            }
+        }
+        userSessionRepository.touch(sessionId, toLocalDateTime(now), toLocalDateTime(now - touchIntervalMillis));
+    }
+
+    /**
+     * Registers the session of a user who just logged in.
+     *
+     * @param sessionId the identifier of the HTTP session
+     * @param principal the {@link AuthenticatedUser} principal of the user
+     */
+    @Override
+    public void registerNewSession(String sessionId, Object principal) {
+        if (!(principal instanceof AuthenticatedUser authenticatedUser)) {
+            throw new IllegalArgumentException("Only authenticated users can be registered");
+        }
+        long now = System.currentTimeMillis();
+        UserSession userSession = new UserSession();
+        userSession.setSessionId(sessionId);
+        userSession.setUserId(authenticatedUser.getId());
+        userSession.setEmail(authenticatedUser.getEmail());
+        userSession.setRoles(authenticatedUser.getRoles());
+        userSession.setLastRequest(toLocalDateTime(now));
+        userSessionRepository.save(userSession);
+        replace(sessionId, new CachedSession(authenticatedUser, now, now, false, System.nanoTime() + ttlNanos));
+        logger.info("Session registered for user {}", authenticatedUser.getId());
+    }
+
+    /**
+     * Removes a session from the database and from the local cache.
+     *
+     * @param sessionId the identifier of the HTTP session
+     */
+    @Override
+    public void removeSessionInformation(String sessionId) {
+        userSessionRepository.deleteBySessionId(sessionId);
+        synchronized (this) {
+            sessions.remove(sessionId);
+        }
+    }
+
+    /**
+     * Removes the destroyed sessions and follows the sessions whose identifier changed.
+     *
+     * @param event the session event
+     */
+    @Override
+    public void onApplicationEvent(AbstractSessionEvent event) {
+        if (event instanceof SessionDestroyedEvent sessionDestroyedEvent) {
+            removeSessionInformation(sessionDestroyedEvent.getId());
+        } else if (event instanceof SessionIdChangedEvent sessionIdChangedEvent) {
+            String oldSessionId = sessionIdChangedEvent.getOldSessionId();
+            String newSessionId = sessionIdChangedEvent.getNewSessionId();
+            if (userSessionRepository.changeSessionId(oldSessionId, newSessionId) > 0) {
+                CachedSession cachedSession;
+                synchronized (this) {
+                    cachedSession = sessions.remove(oldSessionId);
+                }
+                if (cachedSession != null) {
+                    replace(newSessionId, cachedSession);
+                }
+            }
+        }
+    }
+
+    /**
+     * Deletes the sessions without any request for longer than the session timeout.
+     */
+    @Scheduled(initialDelayString = "${paymybuddy.session-registry.purge-interval-ms:600000}",
+            fixedDelayString = "${paymybuddy.session-registry.purge-interval-ms:600000}")
+    public void purgeInactiveSessions() {
+        LocalDateTime before = toLocalDateTime(System.currentTimeMillis()
+                - sessionTimeout.toMillis() - touchIntervalMillis);
+        int purged = userSessionRepository.deleteInactiveBefore(before);
+        logger.info("{} inactive sessions purged", purged);
+    }
+
+    private void expire(String sessionId) {
+        userSessionRepository.expire(sessionId);
+        synchronized (this) {
+            CachedSession cachedSession = sessions.get(sessionId);
+            if (cachedSession != null && cachedSession.principal != null) {
+                sessions.put(sessionId, cachedSession.asExpired());
+            }
+        }
+        logger.info("Session expired by a newer session of its user");
+    }
+
+    private CachedSession loaded(UserSession userSession) {
+        long lastRequest = toMillis(userSession.getLastRequest());
+        return new CachedSession(principalOf(userSession), lastRequest, lastRequest, userSession.isExpired(),
+                System.nanoTime() + ttlNanos);
+    }
+
+    private CachedSession unknown() {
+        return new CachedSession(null, 0, 0, false, System.nanoTime() + ttlNanos);
+    }
+
+    /**
+     * Caches a session read from the database, keeping the requests recorded in memory since, and the
+     * expiration of a session expired while it was read.
+     */
+    private synchronized CachedSession store(String sessionId, CachedSession loaded) {
+        CachedSession previous = sessions.get(sessionId);
+        CachedSession merged = loaded;
+        if (previous != null && previous.principal != null && loaded.principal != null) {
+            merged = new CachedSession(loaded.principal, Math.max(previous.lastRequest, loaded.lastRequest),
+                    Math.max(previous.recordedLastRequest, loaded.recordedLastRequest),
+                    previous.expired || loaded.expired, loaded.expiresAt);
+        }
+        if (maxSize > 0) {
+            sessions.put(sessionId, merged);
+        }
+        return merged;
+    }
+
+    private synchronized void replace(String sessionId, CachedSession cachedSession) {
+        if (maxSize > 0) {
+            sessions.put(sessionId, cachedSession);
+        }
+    }
+
+    private static AuthenticatedUser principalOf(UserSession userSession) {
+        return new AuthenticatedUser(userSession.getUserId(), userSession.getEmail(), userSession.getRoles());
+    }
+
+    private static LocalDateTime toLocalDateTime(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+
+    private static long toMillis(LocalDateTime localDateTime) {
+        return localDateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private record CachedSession(AuthenticatedUser principal, long lastRequest, long recordedLastRequest,
+                                 boolean expired, long expiresAt) {
+        CachedSession withLastRequest(long lastRequest, long recordedLastRequest) {
+            return new CachedSession(principal, lastRequest, recordedLastRequest, expired, expiresAt);
+        }
+
+        CachedSession asExpired() {
+            return new CachedSession(principal, lastRequest, recordedLastRequest, true, expiresAt);
+        }
+    }
+
+    /**
+     * Session whose expiration is written to the database, so that every node refuses it.
+     */
+    private static class ClusterSessionInformation extends SessionInformation {
+        private static final long serialVersionUID = 1L;
+
+        private final transient DatabaseSessionRegistry registry;
+
+        ClusterSessionInformation(DatabaseSessionRegistry registry, String sessionId, CachedSession cachedSession) {
+            super(cachedSession.principal, sessionId, new Date(cachedSession.lastRequest));
+            this.registry = registry;
+            if (cachedSession.expired) {
+                super.expireNow();
+            }
+        }
+
+        @Override
+        public void expireNow() {
+            super.expireNow();
+            registry.expire(getSessionId());
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.openclassroom.PayMyBuddy.services;
+
+import com.openclassroom.PayMyBuddy.models.FragmentCacheStatsDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.context.IContext;
+import org.thymeleaf.context.WebContext;
+import org.thymeleaf.web.servlet.JakartaServletWebApplication;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Component caching the rendered HTML of Thymeleaf fragments, keyed by user, ledger version and page.
+ *
+ * <p>A fragment built from the ledger only changes when the ledger version of its user changes, so its
+ * HTML is rendered once per version and then reused by every page view, without querying its data nor
+ * running the template again. Each user and page holds a single entry: rendering a newer version
+ * replaces the older one, which can never be requested again.</p>
+ *
+ * <p>The ledger version must be read before the data of the fragment: the cached HTML is then at least
+ * as recent as its version, and a write committed in between only makes it newer.</p>
+ *
+ * <p>Entries are kept in an access-ordered {@link LinkedHashMap}, evicting the least recently used ones
+ * once the HTML held exceeds the maximum size. The size of an entry is counted as two bytes per character.
+ * The hits, misses and evictions are counted since the start of the node and read through {@link #getStats()},
+ * which the {@link MetricsReporter} logs with the hit rate and the size held to tune the maximum size.
+ * A maximum size of 0 disables the cache.</p>
+ */
+@Component
+public class FragmentRenderCache {
+    @Autowired
+    ITemplateEngine templateEngine;
+
+    private final long maxBytes;
+    private final Map<Slot, CachedFragment> fragments = new LinkedHashMap<>(16, 0.75f, true);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private long bytes;
+
+    private static final Logger logger = LoggerFactory.getLogger(FragmentRenderCache.class);
+
+    /**
+     * Creates a cache holding at most the given size of HTML.
+     *
+     * @param maxSize the maximum size of the HTML kept in memory, 0 to disable the cache
+     */
+    public FragmentRenderCache(@Value("${paymybuddy.fragment-cache.max-size:16MB}") DataSize maxSize) {
+        if (maxSize.isNegative()) {
+            throw new IllegalArgumentException("The fragment cache size must not be negative");
+        }
+        this.maxBytes = maxSize.toBytes();
+    }
+
+    /**
+     * Returns the HTML of a fragment for a user, rendering it only if the version has not been rendered yet.
+     *
+     * @param userId the unique identifier of the user
+     * @param version the ledger version of the user, read before the data of the fragment
+     * @param page the name of the page displaying the fragment
+     * @param fragment the fragment, as {@code template :: selector}
+     * @param variables the supplier of the variables of the fragment, only called on a miss
+     * @return the rendered HTML of the fragment
+     */
+    public String render(int userId, long version, String page, String fragment, Supplier<Map<String, Object>> variables) {
+        if (maxBytes == 0) {
+            return process(fragment, variables.get());
+        }
+        Slot slot = new Slot(userId, page);
+        synchronized (this) {
+            CachedFragment cachedFragment = fragments.get(slot);
+            if (cachedFragment != null && cachedFragment.version == version) {
+                hits.increment();
+                return cachedFragment.html;
+            }
+            misses.increment();
+        }
+        String html = process(fragment, variables.get());
+        store(slot, new CachedFragment(version, html, 2L * html.length()));
+        return html;
+    }
+
+    /**
+     * Retrieves the usage metrics of the cache.
+     *
+     * @return a {@link FragmentCacheStatsDto} holding the metrics
+     */
+    public synchronized FragmentCacheStatsDto getStats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        FragmentCacheStatsDto stats = new FragmentCacheStatsDto();
+        stats.setEntries(fragments.size());
+        stats.setBytes(bytes);
+        stats.setMaxBytes(maxBytes);
+        stats.setHits(hitCount);
+        stats.setMisses(missCount);
+        stats.setHitRate(hitCount + missCount == 0 ? 0 : (double) hitCount / (hitCount + missCount));
+        stats.setEvictions(evictions.sum());
+        return stats;
+    }
+
+    private synchronized void store(Slot slot, CachedFragment cachedFragment) {
+        if (cachedFragment.bytes > maxBytes) {
+            logger.debug("Fragment of page {} larger than the cache, not cached", slot.page);
+            return;
+        }
+        CachedFragment previous = fragments.get(slot);
+        if (previous != null && previous.version > cachedFragment.version) {
+            return;
+        }
+        if (previous != null) {
+            bytes -= previous.bytes;
+        }
+        fragments.put(slot, cachedFragment);
+        bytes += cachedFragment.bytes;
+        Iterator<CachedFragment> eldest = fragments.values().iterator();
+        while (bytes > maxBytes) {
+            bytes -= eldest.next().bytes;
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    private String process(String fragment, Map<String, Object> variables) {
+        String[] parts = fragment.split(" :: ", 2);
+        return templateEngine.process(parts[0], Set.of(parts[1]), context(variables));
+    }
+
+    private static IContext context(Map<String, Object> variables) {
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes
+                && attributes.getResponse() != null) {
+            return new WebContext(JakartaServletWebApplication.buildApplication(attributes.getRequest().getServletContext())
+                    .buildExchange(attributes.getRequest(), attributes.getResponse()),
+                    LocaleContextHolder.getLocale(), variables);
+        }
+        return new Context(LocaleContextHolder.getLocale(), variables);
+    }
+
+    private record Slot(int userId, String page) {
+    }
+
+    private record CachedFragment(long version, String html, long bytes) {
+    }
+}
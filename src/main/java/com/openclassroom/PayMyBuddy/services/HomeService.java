@@ -1,21 +1,24 @@
 package com.openclassroom.PayMyBuddy.services;
 
 import com.openclassroom.PayMyBuddy.entities.AppUser;
-import com.openclassroom.PayMyBuddy.entities.Transaction;
 import com.openclassroom.PayMyBuddy.exceptions.BalanceException;
+import com.openclassroom.PayMyBuddy.models.BalanceAsOfDto;
 import com.openclassroom.PayMyBuddy.models.BalanceDto;
+import com.openclassroom.PayMyBuddy.models.OperationPageDto;
+import com.openclassroom.PayMyBuddy.models.OperationView;
 import com.openclassroom.PayMyBuddy.repository.TransactionRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.validation.BindingResult;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.util.Collections;
+import java.time.LocalDateTime;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * Service class for handling operations related to user balances and transactions.
@@ -27,39 +30,59 @@ public class HomeService {
     @Autowired
     AppUserService appUserService;
     @Autowired
-    Validators validators;
+    LedgerService ledgerService;
+    @Autowired
+    AccountLockManager accountLockManager;
+    @Autowired
+    IdempotencyService idempotencyService;
+    @Autowired
+    BalanceCheckpointService balanceCheckpointService;
+
+    @Value("${paymybuddy.history.page-size:20}")
+    int pageSize = 20;
 
     private static final Logger logger = LoggerFactory.getLogger(HomeService.class);
 
     /**
-     * Retrieves the list of transactions associated with the currently connected user.
+     * Retrieves a page of the operations associated with the currently connected user.
      *
-     * <p>This method fetches all transactions involving the user, adjusting the amounts to
-     * reflect withdrawals as negative values, and returns them in reverse order.</p>
+     * <p>Operations are read newest first, directly in that order from the database, starting
+     * after the given position or from the most recent one if no position is given. They are read
+     * as flat {@link OperationView} rows in which amounts sent to other users are negative.</p>
      *
-     * @return a list of {@link Transaction} objects representing the user's operations
+     * @param beforeCreatedAt the creation time of the last operation already displayed, or null
+     * @param beforeId the id of the last operation already displayed, or null
+     * @return an {@link OperationPageDto} holding at most one page of operations
      */
-    public List<Transaction> getUserOperation() {
+    public OperationPageDto getUserOperations(LocalDateTime beforeCreatedAt, Integer beforeId) {
         logger.info("Retrieving user operations");
-        AppUser connectedUser = appUserService.getConnectedUser();
-        List<Transaction> operations = transactionRepository.findDistinctByUserOrReceiver(connectedUser);
-        List<Transaction> mappedOperations =
-                operations.stream()
-                        .map(operation -> {
-                            if (!operation.getReceiver().equals(connectedUser)) {
-                                operation.setAmount(operation.getAmount().negate());
-                            }
-                            return operation;
-                        }).collect(Collectors.toList());
-        Collections.reverse(mappedOperations);
-        return mappedOperations;
+        int userId = appUserService.getConnectedUser().getId();
+        List<OperationView> operations = beforeCreatedAt == null || beforeId == null
+                ? transactionRepository.findUserOperations(userId, pageSize + 1)
+                : transactionRepository.findUserOperationsBefore(userId, beforeCreatedAt, beforeId, pageSize + 1);
+
+        OperationPageDto operationPageDto = new OperationPageDto();
+        operationPageDto.setHasMore(operations.size() > pageSize);
+        List<OperationView> page = operations.stream()
+                .limit(pageSize)
+                .toList();
+        operationPageDto.setOperations(page);
+
+        if (operationPageDto.isHasMore()) {
+            OperationView last = page.get(page.size() - 1);
+            operationPageDto.setNextCreatedAt(last.getCreatedAt());
+            operationPageDto.setNextId(last.getId());
+        }
+        return operationPageDto;
     }
 
     /**
      * Credits a specified amount to the connected user's balance.
      *
-     * <p>This method validates the input and creates a new transaction record for the credit.
-     * It updates the user's balance accordingly.</p>
+     * <p>This method validates the input and lets the {@link LedgerService} record the credit
+     * and update the user's balance. A request replayed with an already applied idempotency key
+     * succeeds without crediting the balance again. A constraint violation is only taken for a
+     * concurrent replay if the key is found applied once the failed transaction has rolled back.</p>
      *
      * @param balanceDto the DTO containing the amount to be credited
      * @param result    the BindingResult object containing validation results
@@ -80,17 +103,20 @@ public class HomeService {
 
         AppUser appUser = appUserService.getConnectedUser();
 
-        try {
-            logger.info("Mapping new transaction");
-            Transaction transaction = new Transaction();
-            transaction.setUser(appUser);
-            transaction.setReceiver(appUser);
-            transaction.setAmount(amount);
-            transaction.setDescription("Crédit");
+        if (idempotencyService.isApplied(appUser.getId(), balanceDto.getIdempotencyKey())) {
+            logger.info("Credit already applied");
+            return;
+        }
 
-            transactionRepository.save(transaction);
-            appUserService.updateBalance(appUser, amount);
+        try (AccountLockManager.Handle ignored = accountLockManager.lock(appUser.getId())) {
+            ledgerService.deposit(appUser, amount, "Crédit", balanceDto.getIdempotencyKey());
             logger.info("User balance credited :{}", amount);
+        } catch (DataIntegrityViolationException e) {
+            if (!idempotencyService.isApplied(appUser.getId(), balanceDto.getIdempotencyKey())) {
+                logger.error("Credit rejected by the database: {}", e.getMessage());
+                throw new BalanceException("Une erreur est survenue lors du crédit");
+            }
+            logger.info("Credit applied by a concurrent request");
         } catch (Exception e) {
             throw new BalanceException("Une erreur est survenue lors du crédit");
         }
@@ -99,8 +125,9 @@ public class HomeService {
     /**
      * Withdraws a specified amount from the connected user's balance.
      *
-     * <p>This method validates the input and creates a new transaction record for the withdrawal.
-     * It updates the user's balance accordingly, ensuring the balance does not go negative.</p>
+     * <p>This method validates the input and lets the {@link LedgerService} record the withdrawal.
+     * The balance is only debited if it covers the amount, so it never goes negative. A request
+     * replayed with an already applied idempotency key succeeds without debiting the balance again.</p>
      *
      * @param balanceDto the DTO containing the amount to be withdrawn
      * @param result    the BindingResult object containing validation results
@@ -119,25 +146,42 @@ public class HomeService {
             throw new BalanceException("Le montant doit être différend de 0");
         }
 
-        if (validators.isBalanceNegative(balanceDto.getAmount())) {
-            throw new BalanceException("Votre solde ne peut pas être négatif");
-        }
-
         AppUser appUser = appUserService.getConnectedUser();
 
-        try {
-            logger.info("Mapping new transaction");
-            Transaction transaction = new Transaction();
-            transaction.setUser(appUser);
-            transaction.setReceiver(appUser);
-            transaction.setAmount(amount.negate());
-            transaction.setDescription("Débit");
-
-            transactionRepository.save(transaction);
-            appUserService.updateBalance(appUser, amount.negate());
-            logger.info("User balance withdrawed :{}", amount);
+        if (idempotencyService.isApplied(appUser.getId(), balanceDto.getIdempotencyKey())) {
+            logger.info("Withdrawal already applied");
+            return;
+        }
+        boolean withdrawn;
+
+        try (AccountLockManager.Handle ignored = accountLockManager.lock(appUser.getId())) {
+            withdrawn = ledgerService.withdraw(appUser, amount, "Débit", balanceDto.getIdempotencyKey());
+        } catch (DataIntegrityViolationException e) {
+            if (idempotencyService.isApplied(appUser.getId(), balanceDto.getIdempotencyKey())) {
+                logger.info("Withdrawal applied by a concurrent request");
+                return;
+            }
+            logger.error("Withdrawal rejected by the database: {}", e.getMessage());
+            throw new BalanceException("Une erreur est survenue lors du débit");
         } catch (Exception e) {
             throw new BalanceException("Une erreur est survenue lors du débit");
         }
+
+        if (!withdrawn) {
+            throw new BalanceException("Votre solde ne peut pas être négatif");
+        }
+        logger.info("User balance withdrawed :{}", amount);
+    }
+
+    /**
+     * Retrieves the connected user's balance at a given point in time.
+     *
+     * @param at the point in time
+     * @return a {@link BalanceAsOfDto} holding the balance of the user at that time
+     */
+    public BalanceAsOfDto getBalanceAsOf(LocalDateTime at) {
+        logger.info("Retrieving user balance as of {}", at);
+        AppUser appUser = appUserService.getConnectedUser();
+        return balanceCheckpointService.getBalanceAsOf(appUser.getId(), at);
     }
 }
@@ -0,0 +1,123 @@
+package com.openclassroom.PayMyBuddy.services;
+
+import com.openclassroom.PayMyBuddy.entities.AppUser;
+import com.openclassroom.PayMyBuddy.entities.IdempotencyRecord;
+import com.openclassroom.PayMyBuddy.repository.IdempotencyRecordRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Service class for detecting replayed money-moving requests.
+ *
+ * <p>Applied keys are looked up first in a bounded in-memory LRU cache, then in the
+ * {@code idempotency_records} table. The cache is an access-ordered {@link LinkedHashMap}
+ * evicting its eldest entry once full, so lookups and insertions stay O(1). A key is only
+ * cached once the database transaction recording it has committed.</p>
+ */
+@Service
+public class IdempotencyService {
+    @Autowired
+    IdempotencyRecordRepository idempotencyRecordRepository;
+
+    private final Map<String, Boolean> appliedKeys;
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+
+    /**
+     * Creates the service with an in-memory cache of the given size.
+     *
+     * @param cacheSize the maximum number of keys kept in memory
+     */
+    public IdempotencyService(@Value("${paymybuddy.idempotency.cache-size:10000}") int cacheSize) {
+        if (cacheSize < 1) {
+            throw new IllegalArgumentException("The idempotency cache size must be positive");
+        }
+        appliedKeys = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    /**
+     * Checks whether a request with the given key has already been applied for a user.
+     *
+     * <p>Called again after a unique constraint violation, once the failed transaction has rolled
+     * back, it tells a concurrent replay, whose key was committed by the other request, from any
+     * other failing constraint.</p>
+     *
+     * @param userId the unique identifier of the user
+     * @param idempotencyKey the key sent with the request, may be null
+     * @return true if the request has already been applied, false otherwise
+     */
+    public boolean isApplied(int userId, String idempotencyKey) {
+        if (isBlank(idempotencyKey)) {
+            return false;
+        }
+
+        String cacheKey = cacheKey(userId, idempotencyKey);
+        if (appliedKeys.get(cacheKey) != null) {
+            logger.info("Idempotency key found in cache");
+            return true;
+        }
+
+        if (idempotencyRecordRepository.existsByUserIdAndIdempotencyKey(userId, idempotencyKey)) {
+            logger.info("Idempotency key found in database");
+            appliedKeys.put(cacheKey, Boolean.TRUE);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Records that a request has been applied for a user.
+     *
+     * <p>This method must be called inside the database transaction applying the request: the
+     * unique constraint makes a concurrent replay fail and roll back its own transaction.</p>
+     *
+     * @param appUser the user who sent the request
+     * @param idempotencyKey the key sent with the request, may be null
+     * @param operation the name of the operation applied
+     */
+    public void recordApplied(AppUser appUser, String idempotencyKey, String operation) {
+        if (isBlank(idempotencyKey)) {
+            return;
+        }
+
+        IdempotencyRecord idempotencyRecord = new IdempotencyRecord();
+        idempotencyRecord.setUser(appUser);
+        idempotencyRecord.setIdempotencyKey(idempotencyKey);
+        idempotencyRecord.setOperation(operation);
+        idempotencyRecordRepository.saveAndFlush(idempotencyRecord);
+
+        String cacheKey = cacheKey(appUser.getId(), idempotencyKey);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    appliedKeys.put(cacheKey, Boolean.TRUE);
+                }
+            });
+        } else {
+            appliedKeys.put(cacheKey, Boolean.TRUE);
+        }
+    }
+
+    private static boolean isBlank(String idempotencyKey) {
+        return idempotencyKey == null || idempotencyKey.isBlank();
+    }
+
+    private static String cacheKey(int userId, String idempotencyKey) {
+        return userId + ":" + idempotencyKey;
+    }
+}
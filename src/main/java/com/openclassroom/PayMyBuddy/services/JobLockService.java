@@ -0,0 +1,90 @@
+package com.openclassroom.PayMyBuddy.services;
+
+import com.openclassroom.PayMyBuddy.entities.JobLock;
+import com.openclassroom.PayMyBuddy.repository.JobLockRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Service class electing the single node running a background job or a startup migration.
+ *
+ * <p>Every node schedules the same jobs. Before a run, a node takes the {@link JobLock} of the job
+ * for a bounded time with a conditional update, and skips the run if another node holds it. The lock
+ * also records up to when the job has completed its work, so that the next run, on any node, resumes
+ * from there. The lock times come from the clocks of the nodes, which are expected to be synchronized
+ * well within the lock duration.</p>
+ */
+@Service
+public class JobLockService {
+    @Autowired
+    JobLockRepository jobLockRepository;
+
+    private final String owner = hostName() + ":" + UUID.randomUUID();
+
+    private static final Logger logger = LoggerFactory.getLogger(JobLockService.class);
+
+    /**
+     * Takes the lock of a job if no node holds it.
+     *
+     * @param name the name of the job
+     * @param lockFor the longest time the run may take, after which another node may take the lock
+     * @return true if this node now holds the lock, false otherwise
+     */
+    public boolean tryLock(String name, Duration lockFor) {
+        LocalDateTime now = LocalDateTime.now();
+        if (jobLockRepository.acquire(name, owner, now, now.plus(lockFor)) == 1) {
+            return true;
+        }
+        if (jobLockRepository.existsById(name)) {
+            logger.info("Job {} locked by another node", name);
+            return false;
+        }
+        try {
+            return jobLockRepository.create(name, owner, now.plus(lockFor)) == 1;
+        } catch (DataIntegrityViolationException e) {
+            logger.info("Job {} lock created by another node", name);
+            return false;
+        }
+    }
+
+    /**
+     * Retrieves the point in time up to which a job has completed its work.
+     *
+     * @param name the name of the job
+     * @return the point in time, or null if the job has never completed a run
+     */
+    public LocalDateTime getCompletedUntil(String name) {
+        return jobLockRepository.findById(name)
+                .map(JobLock::getCompletedUntil)
+                .orElse(null);
+    }
+
+    /**
+     * Releases the lock of a job held by this node and records its progress.
+     *
+     * @param name the name of the job
+     * @param completedUntil the point in time up to which the job has completed its work, may be null
+     */
+    public void unlock(String name, LocalDateTime completedUntil) {
+        if (jobLockRepository.release(name, owner, LocalDateTime.now(), completedUntil) == 0) {
+            logger.warn("Job {} lock expired before the end of the run", name);
+        }
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "unknown";
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package com.openclassroom.PayMyBuddy.services;
+
+import com.openclassroom.PayMyBuddy.entities.AppUser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Component committing transfers in groups through the {@link LedgerService}.
+ *
+ * <p>When enabled, validated transfers are queued in a bounded in-memory buffer. A single writer
+ * thread drains it and applies up to {@code batch-size} transfers, or whatever arrived within
+ * {@code max-wait-ms} of the first one, in one database transaction. Each caller's future is
+ * completed once the transaction holding its transfer has committed.</p>
+ *
+ * <p>If a batch fails, its transfers are applied again one by one in their own transactions, so
+ * that a single failing transfer does not fail the others. Should the writer itself fail or stop,
+ * every transfer still waiting is failed instead of being left pending.</p>
+ *
+ * <p>The journal never blocks a caller for long. A transfer is rejected if the buffer stays full
+ * for {@code enqueue-timeout-ms}. The caller stops waiting for its result after
+ * {@code commit-timeout-ms}. A transfer not written yet at that point is dropped. One already being
+ * written may still commit. The request then fails, and retrying it with the same idempotency key
+ * cannot move the money twice. Once shutdown has started, new transfers are refused.</p>
+ *
+ * <p>The writer does not take the {@link AccountLockManager} locks. The balances stay correct
+ * without them, because every debit is a single conditional UPDATE applied by the database, and a
+ * concurrent credit or withdrawal only waits for the row. The locks merely keep in-process requests
+ * from piling up on the same rows. Taking them inside a batch transaction, which already holds the
+ * rows of its earlier transfers, could deadlock with a request thread that holds a stripe and
+ * waits for one of those rows.</p>
+ */
+@Component
+public class LedgerJournal implements InitializingBean, DisposableBean {
+    @Autowired
+    LedgerService ledgerService;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    @Autowired
+    AppUserService appUserService;
+
+    private final boolean enabled;
+    private final int batchSize;
+    private final long maxWaitNanos;
+    private final long enqueueTimeoutMs;
+    private final long commitTimeoutMs;
+    private final BlockingQueue<JournalEntry> queue;
+    private TransactionTemplate transactionTemplate;
+    private Thread writer;
+    private volatile boolean running;
+
+    private static final Logger logger = LoggerFactory.getLogger(LedgerJournal.class);
+
+    /**
+     * Creates the journal with the given settings.
+     *
+     * @param enabled whether transfers go through the journal
+     * @param capacity the maximum number of transfers waiting to be written
+     * @param batchSize the maximum number of transfers committed together
+     * @param maxWaitMs the maximum time to wait for a batch to fill, in milliseconds
+     * @param enqueueTimeoutMs the maximum time to wait for room in the buffer, in milliseconds
+     * @param commitTimeoutMs the maximum time to wait for a queued transfer to be committed, in milliseconds
+     */
+    public LedgerJournal(@Value("${paymybuddy.ledger.journal.enabled:false}") boolean enabled,
+                         @Value("${paymybuddy.ledger.journal.capacity:1024}") int capacity,
+                         @Value("${paymybuddy.ledger.journal.batch-size:16}") int batchSize,
+                         @Value("${paymybuddy.ledger.journal.max-wait-ms:5}") long maxWaitMs,
+                         @Value("${paymybuddy.ledger.journal.enqueue-timeout-ms:100}") long enqueueTimeoutMs,
+                         @Value("${paymybuddy.ledger.journal.commit-timeout-ms:5000}") long commitTimeoutMs) {
+        if (capacity < 1 || batchSize < 1 || maxWaitMs < 0 || enqueueTimeoutMs < 0 || commitTimeoutMs < 1) {
+            throw new IllegalArgumentException("Invalid ledger journal settings");
+        }
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+        this.enqueueTimeoutMs = enqueueTimeoutMs;
+        this.commitTimeoutMs = commitTimeoutMs;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    /**
+     * Starts the writer thread when the journal is enabled.
+     */
+    @Override
+    public void afterPropertiesSet() {
+        if (!enabled) {
+            return;
+        }
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        running = true;
+        writer = new Thread(this::drain, "ledger-journal");
+        writer.setDaemon(true);
+        writer.start();
+        logger.info("Ledger journal started with batches of {}", batchSize);
+    }
+
+    /**
+     * Refuses new transfers and stops the writer thread once the transfers already queued have been written.
+     *
+     * <p>Transfers still queued once the writer is given up on are failed.</p>
+     *
+     * @throws InterruptedException if interrupted while waiting for the writer
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+        failQueued(new IllegalStateException("The ledger journal is stopped"));
+        logger.info("Ledger journal stopped");
+    }
+
+    /**
+     * Indicates whether transfers go through the journal.
+     *
+     * @return true if the journal is enabled, false otherwise
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queues a transfer, waiting up to the enqueue timeout for room in the buffer if it is full.
+     *
+     * @param sender the user whose balance is debited
+     * @param receiver the user whose balance is credited
+     * @param amount the amount to be transferred
+     * @param description the description of the transaction
+     * @param idempotencyKey the idempotency key of the request, may be null
+     * @return a future completed with the result of {@link LedgerService#transfer} once committed, failed
+     *         with a {@link RejectedExecutionException} if the buffer stays full or the journal is stopping
+     */
+    public CompletableFuture<Boolean> submit(AppUser sender, AppUser receiver, BigDecimal amount,
+                                             String description, String idempotencyKey) {
+        if (!running) {
+            return CompletableFuture.failedFuture(new RejectedExecutionException("The ledger journal is not running"));
+        }
+
+        JournalEntry entry = new JournalEntry(sender, receiver, amount, description, idempotencyKey);
+        try {
+            if (!queue.offer(entry, enqueueTimeoutMs, TimeUnit.MILLISECONDS)) {
+                logger.warn("Ledger journal full, transfer rejected");
+                return CompletableFuture.failedFuture(new RejectedExecutionException("The ledger journal is full"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        }
+        if (!running && queue.remove(entry)) {
+            return CompletableFuture.failedFuture(new RejectedExecutionException("The ledger journal is not running"));
+        }
+        return entry.result;
+    }
+
+    /**
+     * Queues a transfer and waits until it has been committed.
+     *
+     * @param sender the user whose balance is debited
+     * @param receiver the user whose balance is credited
+     * @param amount the amount to be transferred
+     * @param description the description of the transaction
+     * @param idempotencyKey the idempotency key of the request, may be null
+     * @return true if the transfer was applied, false if the sender's balance is insufficient
+     * @throws IllegalStateException if the transfer was not confirmed within the commit timeout
+     */
+    public boolean transfer(AppUser sender, AppUser receiver, BigDecimal amount, String description,
+                            String idempotencyKey) {
+        CompletableFuture<Boolean> result = submit(sender, receiver, amount, description, idempotencyKey);
+        boolean transferred;
+        try {
+            transferred = result.get(commitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            result.completeExceptionally(e);
+            logger.warn("Ledger journal transfer not confirmed within {} ms", commitTimeoutMs);
+            throw new IllegalStateException("The ledger journal transfer was not confirmed in time", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.completeExceptionally(e);
+            throw new IllegalStateException("Interrupted while waiting for the ledger journal", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+        if (transferred) {
+            appUserService.invalidateConnectedUser();
+        }
+        return transferred;
+    }
+
+    private void drain() {
+        List<JournalEntry> batch = new ArrayList<>(batchSize);
+        try {
+            while (running || !queue.isEmpty()) {
+                try {
+                    JournalEntry first = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    long deadline = System.nanoTime() + maxWaitNanos;
+                    while (batch.size() < batchSize) {
+                        JournalEntry next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                        if (next == null) {
+                            break;
+                        }
+                        batch.add(next);
+                    }
+                    batch.removeIf(entry -> entry.result.isDone());
+                    if (!batch.isEmpty()) {
+                        write(batch);
+                    }
+                } catch (InterruptedException e) {
+                    logger.warn("Ledger journal writer interrupted");
+                    batch.forEach(entry -> entry.result.completeExceptionally(e));
+                    return;
+                } catch (Throwable e) {
+                    logger.error("Ledger journal batch could not be written", e);
+                    batch.forEach(entry -> entry.result.completeExceptionally(e));
+                } finally {
+                    batch.clear();
+                }
+            }
+        } finally {
+            running = false;
+            failQueued(new IllegalStateException("The ledger journal writer stopped"));
+        }
+    }
+
+    private void failQueued(Throwable cause) {
+        List<JournalEntry> pending = new ArrayList<>();
+        queue.drainTo(pending);
+        pending.forEach(entry -> entry.result.completeExceptionally(cause));
+    }
+
+    private void write(List<JournalEntry> batch) {
+        List<Boolean> results;
+        try {
+            results = transactionTemplate.execute(status -> batch.stream()
+                    .map(this::apply)
+                    .toList());
+        } catch (RuntimeException e) {
+            logger.info("Ledger journal batch failed, writing {} transfers one by one", batch.size());
+            batch.forEach(this::writeAlone);
+            return;
+        }
+
+        logger.debug("Ledger journal batch committed: {}", batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).result.complete(results.get(i));
+        }
+    }
+
+    private void writeAlone(JournalEntry entry) {
+        try {
+            entry.result.complete(transactionTemplate.execute(status -> apply(entry)));
+        } catch (RuntimeException e) {
+            entry.result.completeExceptionally(e);
+        }
+    }
+
+    private boolean apply(JournalEntry entry) {
+        return ledgerService.transfer(entry.sender, entry.receiver, entry.amount, entry.description,
+                entry.idempotencyKey);
+    }
+
+    private record JournalEntry(AppUser sender, AppUser receiver, BigDecimal amount, String description,
+                                String idempotencyKey, CompletableFuture<Boolean> result) {
+        private JournalEntry(AppUser sender, AppUser receiver, BigDecimal amount, String description,
+                             String idempotencyKey) {
+            this(sender, receiver, amount, description, idempotencyKey, new CompletableFuture<>());
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.openclassroom.PayMyBuddy.services;
+
+import com.openclassroom.PayMyBuddy.entities.AppUser;
+import com.openclassroom.PayMyBuddy.entities.Transaction;
+import com.openclassroom.PayMyBuddy.repository.AppUserRepository;
+import com.openclassroom.PayMyBuddy.repository.TransactionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Service class for moving money between user balances.
+ *
+ * <p>Balances are never computed in Java: every debit and credit is a single conditional
+ * {@code UPDATE} statement, so concurrent operations on the same account cannot overwrite
+ * each other. The insufficient-funds check is part of the debit itself, and each operation
+ * writes its balances and its {@link Transaction} row in one database transaction.</p>
+ *
+ * <p>The idempotency key of the request, if any, is recorded in the same database transaction
+ * through the {@link IdempotencyService}, once the operation is known to succeed.</p>
+ *
+ * <p>Every applied operation invalidates the cached copies of the users whose balance changed.</p>
+ */
+@Service
+public class LedgerService {
+    @Autowired
+    AppUserRepository appUserRepository;
+    @Autowired
+    TransactionRepository transactionRepository;
+    @Autowired
+    IdempotencyService idempotencyService;
+    @Autowired
+    AppUserService appUserService;
+
+    private static final Logger logger = LoggerFactory.getLogger(LedgerService.class);
+
+    /**
+     * Transfers an amount from a sender to a receiver and records the transaction.
+     *
+     * @param sender the user whose balance is debited
+     * @param receiver the user whose balance is credited
+     * @param amount the amount to be transferred
+     * @param description the description of the transaction
+     * @param idempotencyKey the idempotency key of the request, may be null
+     * @return true if the transfer was applied, false if the sender's balance is insufficient
+     */
+    @Transactional
+    public boolean transfer(AppUser sender, AppUser receiver, BigDecimal amount, String description,
+                            String idempotencyKey) {
+        logger.info("Processing ledger transfer");
+        if (appUserRepository.debitBalance(sender.getId(), amount) == 0) {
+            logger.info("Sender balance is insufficient");
+            return false;
+        }
+        idempotencyService.recordApplied(sender, idempotencyKey, "transaction");
+        appUserRepository.creditBalance(receiver.getId(), amount);
+        saveTransaction(sender, receiver, amount, description);
+        appUserService.invalidateUser(sender.getId());
+        appUserService.invalidateUser(receiver.getId());
+
+        logger.info("Ledger transfer applied: {}", amount);
+        return true;
+    }
+
+    /**
+     * Transfers several amounts from the same sender and records all the transactions.
+     *
+     * <p>The sender is debited once with the total amount and each distinct receiver is credited
+     * once with the sum of its amounts. The transactions are then saved together so that they are
+     * inserted in a single batch.</p>
+     *
+     * @param sender the user whose balance is debited
+     * @param transactions the transactions to be recorded, all sent by the sender
+     * @param idempotencyKey the idempotency key of the request, may be null
+     * @return true if the transfers were applied, false if the sender's balance is insufficient
+     */
+    @Transactional
+    public boolean transferAll(AppUser sender, List<Transaction> transactions, String idempotencyKey) {
+        logger.info("Processing ledger bulk transfer");
+        BigDecimal total = transactions.stream()
+                .map(Transaction::getAmount)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        if (appUserRepository.debitBalance(sender.getId(), total) == 0) {
+            logger.info("Sender balance is insufficient");
+            return false;
+        }
+        idempotencyService.recordApplied(sender, idempotencyKey, "bulk-transaction");
+
+        Map<Integer, BigDecimal> credits = new TreeMap<>();
+        transactions.forEach(transaction -> credits.merge(transaction.getReceiver().getId(),
+                transaction.getAmount(), BigDecimal::add));
+        credits.forEach(appUserRepository::creditBalance);
+        transactionRepository.saveAll(transactions);
+        appUserService.invalidateUser(sender.getId());
+        credits.keySet().forEach(appUserService::invalidateUser);
+
+        logger.info("Ledger bulk transfer applied: {}", total);
+        return true;
+    }
+
+    /**
+     * Credits an amount to a user's balance and records the operation.
+     *
+     * @param appUser the user whose balance is credited
+     * @param amount the amount to be credited
+     * @param description the description of the operation
+     * @param idempotencyKey the idempotency key of the request, may be null
+     */
+    @Transactional
+    public void deposit(AppUser appUser, BigDecimal amount, String description, String idempotencyKey) {
+        logger.info("Processing ledger deposit");
+        idempotencyService.recordApplied(appUser, idempotencyKey, "credit");
+        appUserRepository.creditBalance(appUser.getId(), amount);
+        saveTransaction(appUser, appUser, amount, description);
+        appUserService.invalidateUser(appUser.getId());
+
+        logger.info("Ledger deposit applied: {}", amount);
+    }
+
+    /**
+     * Debits an amount from a user's balance and records the operation.
+     *
+     * @param appUser the user whose balance is debited
+     * @param amount the amount to be debited
+     * @param description the description of the operation
+     * @param idempotencyKey the idempotency key of the request, may be null
+     * @return true if the withdrawal was applied, false if the balance is insufficient
+     */
+    @Transactional
+    public boolean withdraw(AppUser appUser, BigDecimal amount, String description, String idempotencyKey) {
+        logger.info("Processing ledger withdrawal");
+        if (appUserRepository.debitBalance(appUser.getId(), amount) == 0) {
+            logger.info("User balance is insufficient");
+            return false;
+        }
+        idempotencyService.recordApplied(appUser, idempotencyKey, "withdraw");
+        saveTransaction(appUser, appUser, amount.negate(), description);
+        appUserService.invalidateUser(appUser.getId());
+
+        logger.info("Ledger withdrawal applied: {}", amount);
+        return true;
+    }
+
+    private void saveTransaction(AppUser user, AppUser receiver, BigDecimal amount, String description) {
+        Transaction transaction = new Transaction();
+        transaction.setUser(user);
+        transaction.setReceiver(receiver);
+        transaction.setAmount(amount);
+        transaction.setDescription(description);
+        transactionRepository.save(transaction);
+    }
+}
@@ -0,0 +1,140 @@
+package com.openclassroom.PayMyBuddy.services;
+
+import com.openclassroom.PayMyBuddy.models.LedgerSummaryView;
+import com.openclassroom.PayMyBuddy.repository.AppUserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Service class for the ledger version of users, a counter incremented by every change to their pages.
+ *
+ * <p>The version is stored in the {@code ledger_version} column of the {@code users} table. Debits and
+ * credits increment it in the same statement as the balance, so every transfer, credit and withdrawal
+ * changes the version of each user it touches. Relation and profile changes increment it through this
+ * service. The version is never written through the {@code AppUser} entity, so a stale entity cannot
+ * move it back.</p>
+ *
+ * <p>The GET pages built from the ledger are served with a weak ETag derived from the version: a page
+ * whose version has not changed is answered with a 304 without being queried or rendered again.</p>
+ */
+@Service
+public class LedgerVersionService {
+    @Autowired
+    AppUserRepository appUserRepository;
+
+    private final String epoch = epoch("classpath*:/templates/**/*.*", "classpath*:/static/**/*.*");
+
+    private static final Logger logger = LoggerFactory.getLogger(LedgerVersionService.class);
+
+    /**
+     * Retrieves the ledger version of a user.
+     *
+     * @param userId the unique identifier of the user
+     * @return the ledger version, 0 if the user does not exist
+     */
+    public long getVersion(int userId) {
+        Long version = appUserRepository.findLedgerVersion(userId);
+        return version == null ? 0 : version;
+    }
+
+    /**
+     * Retrieves the username, balance and ledger version of a user, read together from the database.
+     *
+     * <p>A page displaying the balance next to a fragment cached by version must read both here: the
+     * balance then always belongs to the version, whereas a balance taken from the {@link AppUserCache}
+     * may be older than the version read from the database.</p>
+     *
+     * @param userId the unique identifier of the user
+     * @return a {@link LedgerSummaryView} projection, or null if the user does not exist
+     */
+    public LedgerSummaryView getSummary(int userId) {
+        return appUserRepository.findLedgerSummary(userId);
+    }
+
+    /**
+     * Builds the weak ETag of the pages of a user for a session.
+     *
+     * <p>The ETag covers the ledger version, the session, whose CSRF token is embedded in the forms,
+     * and a digest of the deployed templates and static assets. Every node running the same build
+     * therefore produces the same ETag, while a deployment changing the pages never reuses a page
+     * rendered by the previous version.</p>
+     *
+     * @param userId the unique identifier of the user
+     * @param sessionId the identifier of the HTTP session, or the session token in token mode, may be null
+     * @return the weak ETag
+     */
+    public String getETag(int userId, String sessionId) {
+        String session = sessionId == null ? "0" : Integer.toHexString(sessionId.hashCode());
+        return "W/\"" + epoch + "-" + userId + "-" + getVersion(userId) + "-" + session + "\"";
+    }
+
+    /**
+     * Computes a digest of the content of the resources matching the given patterns.
+     *
+     * @param patterns the location patterns of the resources
+     * @return the digest, in base 36
+     */
+    public static String epoch(String... patterns) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+            for (String pattern : patterns) {
+                Resource[] resources = resolver.getResources(pattern);
+                Arrays.sort(resources, Comparator.comparing(LedgerVersionService::pathOf));
+                for (Resource resource : resources) {
+                    if (resource.isReadable()) {
+                        digest.update(pathOf(resource).getBytes(StandardCharsets.UTF_8));
+                        digest.update(resource.getContentAsByteArray());
+                    }
+                }
+            }
+            return new BigInteger(1, Arrays.copyOf(digest.digest(), 8)).toString(36);
+        } catch (IOException e) {
+            throw new UncheckedIOException("The page resources could not be read", e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String pathOf(Resource resource) {
+        String description = resource.getDescription();
+        int start = Math.max(description.lastIndexOf("/templates/"), description.lastIndexOf("/static/"));
+        return start < 0 ? String.valueOf(resource.getFilename()) : description.substring(start);
+    }
+
+    /**
+     * Increments the ledger version of a user.
+     *
+     * @param userId the unique identifier of the user
+     */
+    @Transactional
+    public void increment(int userId) {
+        logger.info("Incrementing ledger version");
+        appUserRepository.incrementLedgerVersion(userId);
+    }
+
+    /**
+     * Increments the ledger version of a user and of every user whose pages display their profile.
+     *
+     * @param userId the unique identifier of the user
+     */
+    @Transactional
+    public void incrementWithCounterparties(int userId) {
+        logger.info("Incrementing ledger versions of the user and their counterparties");
+        appUserRepository.incrementCounterpartyLedgerVersions(userId);
+    }
+}
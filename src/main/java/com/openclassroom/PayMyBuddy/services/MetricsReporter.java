@@ -0,0 +1,94 @@
+package com.openclassroom.PayMyBuddy.services;
+
+import com.openclassroom.PayMyBuddy.models.AppUserCacheStatsDto;
+import com.openclassroom.PayMyBuddy.models.FragmentCacheStatsDto;
+import com.openclassroom.PayMyBuddy.models.LockStripeStatsDto;
+import com.openclassroom.PayMyBuddy.models.PasswordHashingStatsDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Component logging the usage metrics of the in-memory structures of the application at a fixed interval.
+ *
+ * <p>The application has no metrics registry: the log is where the metrics are read from to size the
+ * lock stripes, the caches and the password hashing pool. The counters are cumulative since the start
+ * of the node, so that two reports give the activity between them.</p>
+ */
+@Component
+public class MetricsReporter {
+    @Autowired
+    AccountLockManager accountLockManager;
+    @Autowired
+    AppUserCache appUserCache;
+    @Autowired
+    FragmentRenderCache fragmentRenderCache;
+    @Autowired
+    BoundedPasswordEncoder passwordEncoder;
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricsReporter.class);
+
+    /**
+     * Logs the usage metrics of every reported component.
+     */
+    @Scheduled(initialDelayString = "${paymybuddy.metrics.report-interval-ms:60000}",
+            fixedDelayString = "${paymybuddy.metrics.report-interval-ms:60000}")
+    public void report() {
+        reportLockStripes();
+        reportUserCache();
+        reportFragmentCache();
+        reportPasswordHashing();
+    }
+
+    private void reportLockStripes() {
+        List<LockStripeStatsDto> stripes = accountLockManager.getStripeStats();
+        long acquisitions = 0;
+        long contendedAcquisitions = 0;
+        for (LockStripeStatsDto stripe : stripes) {
+            acquisitions += stripe.getAcquisitions();
+            contendedAcquisitions += stripe.getContendedAcquisitions();
+            if (stripe.getContendedAcquisitions() > 0) {
+                logger.info("Account lock stripe {}: {} contended of {} acquisitions, average wait {} µs, "
+                                + "max wait {} µs, queue {} (max {})",
+                        stripe.getStripe(), stripe.getContendedAcquisitions(), stripe.getAcquisitions(),
+                        TimeUnit.NANOSECONDS.toMicros(stripe.getTotalWaitNanos() / stripe.getContendedAcquisitions()),
+                        TimeUnit.NANOSECONDS.toMicros(stripe.getMaxWaitNanos()),
+                        stripe.getQueueLength(), stripe.getMaxQueueLength());
+            }
+        }
+        logger.info("Account locks: {} contended of {} acquisitions over {} stripes",
+                contendedAcquisitions, acquisitions, stripes.size());
+    }
+
+    private void reportUserCache() {
+        AppUserCacheStatsDto stats = appUserCache.getStats();
+        logger.info("User cache: {} users, {} hits, {} misses ({}% hit rate), {} evictions, {} invalidations",
+                stats.getSize(), stats.getHits(), stats.getMisses(),
+                hitRatePercent(stats.getHits(), stats.getMisses()), stats.getEvictions(), stats.getInvalidations());
+    }
+
+    private void reportFragmentCache() {
+        FragmentCacheStatsDto stats = fragmentRenderCache.getStats();
+        logger.info("Fragment cache: {} fragments, {} of {} bytes, {} hits, {} misses ({}% hit rate), {} evictions",
+                stats.getEntries(), stats.getBytes(), stats.getMaxBytes(), stats.getHits(), stats.getMisses(),
+                Math.round(stats.getHitRate() * 100), stats.getEvictions());
+    }
+
+    private void reportPasswordHashing() {
+        PasswordHashingStatsDto stats = passwordEncoder.getStats();
+        logger.info("Password hashing: {} threads, {} queued, {} completed, {} rejected, average queue wait {} µs "
+                        + "(max {} µs), average hash {} µs",
+                stats.getThreads(), stats.getQueued(), stats.getCompleted(), stats.getRejected(),
+                stats.getAverageQueueWaitMicros(), stats.getMaxQueueWaitMicros(), stats.getAverageHashMicros());
+    }
+
+    private static long hitRatePercent(long hits, long misses) {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : hits * 100 / lookups;
+    }
+}
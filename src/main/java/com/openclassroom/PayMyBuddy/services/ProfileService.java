@@ -1,6 +1,7 @@
 package com.openclassroom.PayMyBuddy.services;
 
 import com.openclassroom.PayMyBuddy.entities.AppUser;
+import com.openclassroom.PayMyBuddy.exceptions.PasswordHashingRejectedException;
 import com.openclassroom.PayMyBuddy.exceptions.ProfileUpdateException;
 import com.openclassroom.PayMyBuddy.models.*;
 import com.openclassroom.PayMyBuddy.repository.AppUserRepository;
@@ -9,6 +10,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.validation.BindingResult;
 
 import java.util.Objects;
@@ -26,6 +28,10 @@ public class ProfileService {
     AppUserRepository appUserRepository;
     @Autowired
     PasswordEncoder passwordEncoder;
+    @Autowired
+    LedgerVersionService ledgerVersionService;
+    @Autowired
+    UserKeyFilter userKeyFilter;
 
     private static final Logger logger = LoggerFactory.getLogger(ProfileService.class);
 
@@ -50,15 +56,23 @@ public class ProfileService {
      * Updates the user's profile information based on the provided data.
      *
      * <p>This method validates the input, checks for existing usernames and emails,
-     * and updates the user's profile accordingly.</p>
+     * and updates the user's profile accordingly. Only the username and email columns are
+     * written, since the connected user may have been read from the {@link AppUserCache}.</p>
+     *
+     * <p>The profile and the ledger versions of every user displaying it are written in a single
+     * transaction: a page rendered under a version never shows a username from another one, and
+     * a failed increment also rolls the new username back.</p>
      *
      * @param updateProfileDto the DTO containing updated profile information
      * @param result          the BindingResult object containing validation results
      * @throws ProfileUpdateException if there are validation errors or if an error occurs during the update process
      */
+    @Transactional
     public void updateProfile(UpdateProfileDto updateProfileDto, BindingResult result) {
         logger.info("Processing updateProfile() method");
-        AppUser appUser = appUserService.getConnectedUser();
+        int userId = appUserService.getConnectedUserId();
+        String username = null;
+        String email = null;
 
         if (result.hasErrors()) {
             throw new ProfileUpdateException("Le formulaire n'est pas renseigné correctement");
@@ -68,18 +82,21 @@ public class ProfileService {
             if (validators.usernameExists(updateProfileDto.getUsername())) {
                 throw new ProfileUpdateException("Le username existe déjà");
             }
-            appUser.setUsername(updateProfileDto.getUsername());
+            username = updateProfileDto.getUsername();
         }
 
         if (!Objects.equals(updateProfileDto.getEmail(), "")) {
             if (validators.emailExists(updateProfileDto.getEmail())) {
                 throw new ProfileUpdateException("L'email existe déjà");
             }
-            appUser.setEmail(updateProfileDto.getEmail());
+            email = updateProfileDto.getEmail();
         }
 
         try {
-            appUserRepository.save(appUser);
+            appUserRepository.updateProfile(userId, username, email);
+            userKeyFilter.add(username, email);
+            appUserService.invalidateUser(userId);
+            ledgerVersionService.incrementWithCounterparties(userId);
             logger.info("User profile updated");
         } catch (Exception e) {
             throw new ProfileUpdateException("Une erreur s'est produite lors de la modification du profile");
@@ -95,6 +112,7 @@ public class ProfileService {
      * @param updatePasswordDto the DTO containing the old and new password information
      * @param result           the BindingResult object containing validation results
      * @throws ProfileUpdateException if there are validation errors or if an error occurs during the update process
+     * @throws PasswordHashingRejectedException if the password hashing pool is saturated
      */
     public void updatePassword(UpdatePasswordDto updatePasswordDto, BindingResult result) {
         logger.info("Processing updatePassword() method");
@@ -116,10 +134,12 @@ public class ProfileService {
 
         try {
             String hashedPassword = passwordEncoder.encode(updatePasswordDto.getNewPassword());
-            AppUser appUser = appUserService.getConnectedUser();
-            appUser.setPassword(hashedPassword);
-            appUserRepository.save(appUser);
+            int userId = appUserService.getConnectedUserId();
+            appUserRepository.updatePassword(userId, hashedPassword);
+            appUserService.invalidateUser(userId);
             logger.info("User password updated");
+        } catch (PasswordHashingRejectedException e) {
+            throw e;
         } catch (Exception e) {
             throw new ProfileUpdateException("Une erreur s'est produite lors de la modification du profile");
         }
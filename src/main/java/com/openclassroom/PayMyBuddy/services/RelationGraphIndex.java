@@ -0,0 +1,286 @@
+package com.openclassroom.PayMyBuddy.services;
+
+import com.openclassroom.PayMyBuddy.entities.Relation;
+import com.openclassroom.PayMyBuddy.models.RelationEdgeView;
+import com.openclassroom.PayMyBuddy.repository.RelationRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PersistContext;
+import org.hibernate.event.spi.PersistEvent;
+import org.hibernate.event.spi.PersistEventListener;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Component holding every relation of the {@code relations} table in memory, as a directed graph of user identifiers.
+ *
+ * <p>The related users of each user are kept in a sorted {@code int[]}, stored at the index of the user id,
+ * so a relation check is a binary search with no database round trip and no boxed integer. Rows are never
+ * modified in place: a new relation replaces the row of its user with a copy, so readers never lock.</p>
+ *
+ * <p>The index is built at startup by reading the relations table page by page. A relation persisted
+ * through Hibernate on this node is added once its transaction has committed, and a deleted relation is
+ * removed once its transaction has committed. Relations added by another node never reach the listeners
+ * of this node: a relation missing from the index is therefore looked up in the {@link RelationRepository}
+ * and added to the index if found, so a hit costs no query and a miss costs one. Relations deleted by
+ * another node are only dropped at the next startup; the application itself never deletes relations.</p>
+ *
+ * <p>Each relation costs 4 bytes, and each user with relations an array header of 16 bytes plus a 4-byte
+ * slot. A million relations spread over 100,000 users therefore take about 6 MB.</p>
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class RelationGraphIndex implements InitializingBean, PersistEventListener, PostCommitDeleteEventListener {
+    @Autowired
+    RelationRepository relationRepository;
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Value("${paymybuddy.relation-index.page-size:1000}")
+    int pageSize = 1000;
+
+    private static final int[] NO_RELATIONS = new int[0];
+
+    private volatile AtomicReferenceArray<int[]> adjacency = new AtomicReferenceArray<>(0);
+
+    private static final Logger logger = LoggerFactory.getLogger(RelationGraphIndex.class);
+
+    /**
+     * Registers the index on relation writes, then builds it from the relations table.
+     */
+    @Override
+    public void afterPropertiesSet() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.PERSIST, this);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, this);
+        load();
+    }
+
+    /**
+     * Replaces the content of the index with the relations of the relations table.
+     */
+    public void load() {
+        logger.info("Building relation index");
+        int[] userIds = new int[1024];
+        int[] relatedUserIds = new int[1024];
+        int count = 0;
+        int lastId = 0;
+        List<RelationEdgeView> page;
+        do {
+            page = relationRepository.findEdgesAfter(lastId, PageRequest.of(0, pageSize));
+            for (RelationEdgeView edge : page) {
+                if (count == userIds.length) {
+                    userIds = Arrays.copyOf(userIds, count * 2);
+                    relatedUserIds = Arrays.copyOf(relatedUserIds, count * 2);
+                }
+                userIds[count] = edge.getUserId();
+                relatedUserIds[count] = edge.getRelatedUserId();
+                count++;
+                lastId = edge.getId();
+            }
+        } while (page.size() == pageSize);
+        publish(userIds, relatedUserIds, count);
+    }
+
+    /**
+     * Checks whether a user has added another user to their relations.
+     *
+     * <p>A relation missing from the index is looked up in the database, and added to the index
+     * once the current transaction, if any, has committed.</p>
+     *
+     * @param userId the unique identifier of the user
+     * @param relatedUserId the unique identifier of the related user
+     * @return true if the relation exists, false otherwise
+     */
+    public boolean contains(int userId, int relatedUserId) {
+        if (indexed(userId, relatedUserId)) {
+            return true;
+        }
+        if (!relationRepository.existsByUserIdAndRelatedUserId(userId, relatedUserId)) {
+            return false;
+        }
+        logger.debug("Relation {} -> {} added by another node", userId, relatedUserId);
+        addAfterCommit(userId, relatedUserId);
+        return true;
+    }
+
+    /**
+     * Retrieves the users a user has added to their relations, as known by this node.
+     *
+     * @param userId the unique identifier of the user
+     * @return the unique identifiers of the related users, in ascending order
+     */
+    public int[] relatedUserIds(int userId) {
+        AtomicReferenceArray<int[]> rows = adjacency;
+        if (userId < 0 || userId >= rows.length()) {
+            return NO_RELATIONS;
+        }
+        int[] row = rows.get(userId);
+        return row == null ? NO_RELATIONS : row.clone();
+    }
+
+    /**
+     * Adds a relation to the index.
+     *
+     * @param userId the unique identifier of the user
+     * @param relatedUserId the unique identifier of the related user
+     * @return true if the relation was added, false if it was already present
+     */
+    public synchronized boolean add(int userId, int relatedUserId) {
+        AtomicReferenceArray<int[]> rows = ensureCapacity(userId);
+        int[] row = rows.get(userId);
+        if (row == null) {
+            row = NO_RELATIONS;
+        }
+        int position = Arrays.binarySearch(row, relatedUserId);
+        if (position >= 0) {
+            return false;
+        }
+        int insertion = -position - 1;
+        int[] grown = new int[row.length + 1];
+        System.arraycopy(row, 0, grown, 0, insertion);
+        grown[insertion] = relatedUserId;
+        System.arraycopy(row, insertion, grown, insertion + 1, row.length - insertion);
+        rows.set(userId, grown);
+        return true;
+    }
+
+    /**
+     * Removes a relation from the index.
+     *
+     * @param userId the unique identifier of the user
+     * @param relatedUserId the unique identifier of the related user
+     * @return true if the relation was removed, false if it was not present
+     */
+    public synchronized boolean remove(int userId, int relatedUserId) {
+        AtomicReferenceArray<int[]> rows = adjacency;
+        if (userId < 0 || userId >= rows.length() || rows.get(userId) == null) {
+            return false;
+        }
+        int[] row = rows.get(userId);
+        int position = Arrays.binarySearch(row, relatedUserId);
+        if (position < 0) {
+            return false;
+        }
+        int[] shrunk = new int[row.length - 1];
+        System.arraycopy(row, 0, shrunk, 0, position);
+        System.arraycopy(row, position + 1, shrunk, position, row.length - position - 1);
+        rows.set(userId, shrunk.length == 0 ? null : shrunk);
+        return true;
+    }
+
+    @Override
+    public void onPersist(PersistEvent event) {
+        if (!(event.getObject() instanceof Relation relation)) {
+            return;
+        }
+        addAfterCommit(relation.getUser().getId(), relation.getRelatedUser().getId());
+    }
+
+    @Override
+    public void onPersist(PersistEvent event, PersistContext createdAlready) {
+        onPersist(event);
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Relation relation) {
+            remove(relation.getUser().getId(), relation.getRelatedUser().getId());
+        }
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+        logger.debug("Relation delete not committed, index unchanged");
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return persister.getMappedClass() == Relation.class;
+    }
+
+    private boolean indexed(int userId, int relatedUserId) {
+        AtomicReferenceArray<int[]> rows = adjacency;
+        if (userId < 0 || userId >= rows.length()) {
+            return false;
+        }
+        int[] row = rows.get(userId);
+        return row != null && Arrays.binarySearch(row, relatedUserId) >= 0;
+    }
+
+    private void addAfterCommit(int userId, int relatedUserId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            add(userId, relatedUserId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                add(userId, relatedUserId);
+            }
+        });
+    }
+
+    private AtomicReferenceArray<int[]> ensureCapacity(int userId) {
+        AtomicReferenceArray<int[]> rows = adjacency;
+        if (userId < rows.length()) {
+            return rows;
+        }
+        AtomicReferenceArray<int[]> grown = new AtomicReferenceArray<>(Math.max(userId + 1, rows.length() * 3 / 2));
+        for (int i = 0; i < rows.length(); i++) {
+            grown.set(i, rows.get(i));
+        }
+        adjacency = grown;
+        return grown;
+    }
+
+    private synchronized void publish(int[] userIds, int[] relatedUserIds, int count) {
+        int maxUserId = -1;
+        for (int i = 0; i < count; i++) {
+            maxUserId = Math.max(maxUserId, userIds[i]);
+        }
+        int[] degrees = new int[maxUserId + 1];
+        for (int i = 0; i < count; i++) {
+            degrees[userIds[i]]++;
+        }
+        int[][] rows = new int[maxUserId + 1][];
+        for (int i = 0; i < count; i++) {
+            int userId = userIds[i];
+            if (rows[userId] == null) {
+                rows[userId] = new int[degrees[userId]];
+                degrees[userId] = 0;
+            }
+            rows[userId][degrees[userId]++] = relatedUserIds[i];
+        }
+        long edgeCount = 0;
+        for (int userId = 0; userId < rows.length; userId++) {
+            if (rows[userId] != null) {
+                int[] row = rows[userId];
+                Arrays.sort(row);
+                rows[userId] = Arrays.stream(row).distinct().toArray();
+                edgeCount += rows[userId].length;
+            }
+        }
+        adjacency = new AtomicReferenceArray<>(rows);
+        logger.info("Relation index built with {} relations", edgeCount);
+    }
+}
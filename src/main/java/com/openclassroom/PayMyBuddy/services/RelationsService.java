@@ -5,7 +5,6 @@ import com.openclassroom.PayMyBuddy.entities.AppUser;
 import com.openclassroom.PayMyBuddy.entities.Relation;
 import com.openclassroom.PayMyBuddy.models.UserProfileDto;
 import com.openclassroom.PayMyBuddy.models.RelationDto;
-import com.openclassroom.PayMyBuddy.repository.AppUserRepository;
 import com.openclassroom.PayMyBuddy.repository.RelationRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,9 +27,11 @@ public class RelationsService {
     @Autowired
     ProfileService profileService;
     @Autowired
-    AppUserRepository appUserRepository;
+    AppUserCache appUserCache;
     @Autowired
     RelationRepository relationRepository;
+    @Autowired
+    LedgerVersionService ledgerVersionService;
 
     private static final Logger logger = LoggerFactory.getLogger(RelationsService.class);
 
@@ -77,7 +78,7 @@ public class RelationsService {
         }
 
         AppUser appUser = appUserService.getConnectedUser();
-        AppUser relationUser = appUserRepository.findByEmail(relationDto.getEmail());
+        AppUser relationUser = appUserCache.findByEmail(relationDto.getEmail());
 
         if (validators.relationExists(appUser, relationUser)) {
             throw new RelationException("L'utilisateur a déjà été ajouté");
@@ -93,6 +94,7 @@ public class RelationsService {
             relation.setUser(appUser);
             relation.setRelatedUser(relationUser);
             relationRepository.save(relation);
+            ledgerVersionService.increment(appUser.getId());
             logger.info("User relation saved: {}", relation);
         } catch (Exception e) {
             throw new RelationException("Une erreur s'est produite lors de la création de la relation");
@@ -0,0 +1,118 @@
+package com.openclassroom.PayMyBuddy.services;
+
+import com.openclassroom.PayMyBuddy.repository.AppUserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Service class for the session generation of users, a counter incremented by every login and logout.
+ *
+ * <p>The generation is stored in the {@code session_generation} column of the {@code users} table and
+ * written into every session token. A token is only accepted while it carries the current generation
+ * of its user: a new login or a logout, on any node, ends every token issued before it. The generation
+ * is never written through the {@code AppUser} entity, so a stale entity cannot move it back.</p>
+ *
+ * <p>Every authenticated request checks the generation, so it is read through a local cache: an
+ * access-ordered {@link LinkedHashMap} evicting the least recently used user once full, whose entries
+ * are read again from the database after a short time to live. A token ended on another node is
+ * therefore refused here at most one time to live later. A cache size of 0 disables the cache.</p>
+ */
+@Service
+public class SessionGenerationService {
+    @Autowired
+    AppUserRepository appUserRepository;
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final Map<Integer, CachedGeneration> generations;
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionGenerationService.class);
+
+    /**
+     * Creates a service caching the generations of the given number of users.
+     *
+     * @param maxSize the maximum number of generations kept in memory, 0 to disable the cache
+     * @param ttl the time after which a cached generation is read again from the database
+     */
+    public SessionGenerationService(@Value("${paymybuddy.token-session.generation-cache-size:10000}") int maxSize,
+                                    @Value("${paymybuddy.token-session.generation-cache-ttl:PT5S}") Duration ttl) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("The session generation cache size must not be negative");
+        }
+        if (ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("The session generation cache time to live must be positive");
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        generations = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, CachedGeneration> eldest) {
+                return size() > SessionGenerationService.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Retrieves the session generation of a user, from the local cache when it was read recently.
+     *
+     * @param userId the unique identifier of the user
+     * @return the session generation, -1 if the user does not exist
+     */
+    public int getGeneration(int userId) {
+        if (maxSize > 0) {
+            synchronized (this) {
+                CachedGeneration cachedGeneration = generations.get(userId);
+                if (cachedGeneration != null && cachedGeneration.expiresAt - System.nanoTime() > 0) {
+                    return cachedGeneration.generation;
+                }
+            }
+        }
+        Integer generation = appUserRepository.findSessionGeneration(userId);
+        int current = generation == null ? -1 : generation;
+        store(userId, current);
+        return current;
+    }
+
+    /**
+     * Increments the session generation of a user, ending every token issued before.
+     *
+     * @param userId the unique identifier of the user
+     * @return the new session generation, -1 if the user does not exist
+     */
+    @Transactional
+    public int increment(int userId) {
+        logger.info("Incrementing session generation");
+        appUserRepository.incrementSessionGeneration(userId);
+        Integer generation = appUserRepository.findSessionGeneration(userId);
+        int current = generation == null ? -1 : generation;
+        store(userId, current);
+        return current;
+    }
+
+    /**
+     * Caches a generation, unless a higher one is cached: generations only grow, so a higher value was
+     * read after this one, or written by an increment on this node.
+     */
+    private synchronized void store(int userId, int generation) {
+        if (maxSize == 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        CachedGeneration previous = generations.get(userId);
+        if (previous != null && previous.expiresAt - now > 0 && previous.generation > generation) {
+            return;
+        }
+        generations.put(userId, new CachedGeneration(generation, now + ttlNanos));
+    }
+
+    private record CachedGeneration(int generation, long expiresAt) {
+    }
+}
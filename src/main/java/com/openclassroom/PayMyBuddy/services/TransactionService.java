@@ -3,18 +3,26 @@ package com.openclassroom.PayMyBuddy.services;
 import com.openclassroom.PayMyBuddy.entities.AppUser;
 import com.openclassroom.PayMyBuddy.entities.Transaction;
 import com.openclassroom.PayMyBuddy.exceptions.TransactionException;
+import com.openclassroom.PayMyBuddy.models.BulkTransactionDto;
+import com.openclassroom.PayMyBuddy.models.OperationView;
 import com.openclassroom.PayMyBuddy.models.TransactionDto;
 import com.openclassroom.PayMyBuddy.repository.AppUserRepository;
 import com.openclassroom.PayMyBuddy.repository.TransactionRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.validation.BindingResult;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 /**
@@ -27,35 +35,53 @@ public class TransactionService {
     @Autowired
     AppUserRepository appUserRepository;
     @Autowired
+    RelationGraphIndex relationGraphIndex;
+    @Autowired
     AppUserService appUserService;
     @Autowired
     Validators validators;
+    @Autowired
+    LedgerService ledgerService;
+    @Autowired
+    AccountLockManager accountLockManager;
+    @Autowired
+    IdempotencyService idempotencyService;
+    @Autowired
+    LedgerJournal ledgerJournal;
+    @Autowired
+    AppUserCache appUserCache;
+    @Value("${paymybuddy.transactions.bulk-max-size:" + BulkTransactionDto.MAX_TRANSFERS + "}")
+    int bulkMaxSize = BulkTransactionDto.MAX_TRANSFERS;
 
     private static final Logger logger = LoggerFactory.getLogger(TransactionService.class);
 
     /**
      * Retrieves the list of transactions for the connected user.
      *
-     * <p>This method fetches all transactions for the current user and filters out transactions
-     * where the user is the receiver, returning only the transactions they initiated.</p>
+     * <p>This method returns only the transactions the user sent to other users, oldest first,
+     * as flat {@link OperationView} rows read in a single query.</p>
      *
-     * @return a list of {@link Transaction} objects representing the user's transactions
+     * @return a list of {@link OperationView} representing the user's transactions
      */
-    public List<Transaction> getUserTransactions() {
+    public List<OperationView> getUserTransactions() {
         logger.info("Retrieving user transactions");
         int userId = appUserService.getConnectedUser().getId();
-        List<Transaction> transactions = transactionRepository.findAllByUserId(userId);
-
-        return transactions.stream()
-                .filter(transaction -> transaction.getReceiver().getId() != userId)
-                .collect(Collectors.toList());
+        return transactionRepository.findSentTransactions(userId);
     }
 
     /**
      * Adds a new transaction based on the provided transaction data.
      *
-     * <p>This method validates the input to ensure the receiver exists, checks that the user's
-     * balance is not negative, and verifies that a relationship exists between the user and the receiver.</p>
+     * <p>This method validates the input to ensure the receiver exists and verifies that a relationship
+     * exists between the user and the receiver. The {@link LedgerService} then debits the user only if
+     * the balance covers the amount, so the balance never goes negative. A request replayed with an
+     * already applied idempotency key succeeds without moving money again.</p>
+     *
+     * <p>A constraint violation is only taken for a concurrent replay if the key is found applied once
+     * the failed transaction has rolled back. Any other violation fails the transaction.</p>
+     *
+     * <p>When the {@link LedgerJournal} is enabled, the transfer is committed in a group with other
+     * transfers and this method returns once that group is durable.</p>
      *
      * @param transactionDto the DTO containing information about the transaction to be added
      * @param result         the BindingResult object containing validation results
@@ -71,32 +97,128 @@ public class TransactionService {
             throw new TransactionException("L'utilisateur n'existe pas");
         }
 
-        if (validators.isBalanceNegative(transactionDto.getAmount())) {
+        AppUser appUser = appUserService.getConnectedUser();
+
+        if (idempotencyService.isApplied(appUser.getId(), transactionDto.getIdempotencyKey())) {
+            logger.info("Transaction already applied");
+            return;
+        }
+        AppUser receiver = appUserCache.findByEmail(transactionDto.getReceiverEmail());
+
+        if (!validators.relationExists(appUser, receiver)) {
+            throw new TransactionException("La relation n'existe pas");
+        }
+
+        BigDecimal amount = transactionDto.getAmount().setScale(2, RoundingMode.HALF_UP);
+        boolean transferred;
+
+        try {
+            if (ledgerJournal.isEnabled()) {
+                transferred = ledgerJournal.transfer(appUser, receiver, amount, transactionDto.getDescription(),
+                        transactionDto.getIdempotencyKey());
+            } else {
+                try (AccountLockManager.Handle ignored = accountLockManager.lock(appUser.getId(), receiver.getId())) {
+                    transferred = ledgerService.transfer(appUser, receiver, amount, transactionDto.getDescription(),
+                            transactionDto.getIdempotencyKey());
+                }
+            }
+        } catch (DataIntegrityViolationException e) {
+            if (idempotencyService.isApplied(appUser.getId(), transactionDto.getIdempotencyKey())) {
+                logger.info("Transaction applied by a concurrent request");
+                return;
+            }
+            logger.error("Transaction rejected by the database: {}", e.getMessage());
+            throw new TransactionException("Une erreur est survenue lors de la transaction");
+        } catch (Exception e) {
+            throw new TransactionException("Une erreur est survenue lors de la transaction");
+        }
+
+        if (!transferred) {
             throw new TransactionException("Votre solde ne peut pas être négatif");
         }
+        logger.info("User transaction saved: {}", amount);
+    }
+
+    /**
+     * Adds several transactions sent by the connected user at once.
+     *
+     * <p>All the receivers and their relations with the user are resolved with one query each,
+     * and the total amount is checked against the balance once. The {@link LedgerService} then
+     * debits the user once, credits each distinct receiver once and inserts all the transactions
+     * in a single batch. Either all the transactions are applied or none is, and a request replayed
+     * with an already applied idempotency key is not applied again.</p>
+     *
+     * <p>A request holding more transfers than the configured limit is rejected before any of them
+     * is resolved, so a single request cannot lock and debit an unbounded number of accounts.</p>
+     *
+     * @param bulkTransactionDto the DTO containing the transactions to be added
+     * @param result             the BindingResult object containing validation results
+     * @throws TransactionException if there are validation errors or if an error occurs during the transaction process
+     */
+    public void addTransactions(BulkTransactionDto bulkTransactionDto, BindingResult result) {
+        logger.info("Processing addTransactions method");
+        if (result.hasErrors()) {
+            throw new TransactionException("Le formulaire contient une erreur");
+        }
+
+        List<TransactionDto> transfers = bulkTransactionDto.getTransfers();
+        if (transfers.size() > bulkMaxSize) {
+            throw new TransactionException("Vous ne pouvez pas envoyer plus de " + bulkMaxSize + " transactions à la fois");
+        }
+        Set<String> emails = transfers.stream()
+                .map(TransactionDto::getReceiverEmail)
+                .collect(Collectors.toSet());
+        Map<String, AppUser> receivers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        appUserRepository.findAllByEmailIn(emails)
+                .forEach(receiver -> receivers.put(receiver.getEmail(), receiver));
+
+        if (!receivers.keySet().containsAll(emails)) {
+            throw new TransactionException("L'utilisateur n'existe pas");
+        }
 
         AppUser appUser = appUserService.getConnectedUser();
-        AppUser receiver = appUserRepository.findByEmail(transactionDto.getReceiverEmail());
 
-        if (!validators.relationExists(appUser, receiver)) {
+        if (idempotencyService.isApplied(appUser.getId(), bulkTransactionDto.getIdempotencyKey())) {
+            logger.info("Transactions already applied");
+            return;
+        }
+        Set<Integer> receiverIds = receivers.values().stream()
+                .map(AppUser::getId)
+                .collect(Collectors.toSet());
+        if (!receiverIds.stream().allMatch(receiverId -> relationGraphIndex.contains(appUser.getId(), receiverId))) {
             throw new TransactionException("La relation n'existe pas");
         }
 
-        try {
-            logger.info("Mapping new user transaction");
-            BigDecimal amount = transactionDto.getAmount().setScale(2, RoundingMode.HALF_UP);
-            Transaction transaction = new Transaction();
-            transaction.setUser(appUser);
-            transaction.setReceiver(receiver);
-            transaction.setAmount(amount);
-            transaction.setDescription(transactionDto.getDescription());
-
-            transactionRepository.save(transaction);
-            appUserService.updateBalance(appUser, amount.negate());
-            appUserService.updateBalance(receiver, amount);
-            logger.info("User transaction saved: {}", transaction);
+        List<Transaction> transactions = transfers.stream()
+                .map(transfer -> {
+                    Transaction transaction = new Transaction();
+                    transaction.setUser(appUser);
+                    transaction.setReceiver(receivers.get(transfer.getReceiverEmail()));
+                    transaction.setAmount(transfer.getAmount().setScale(2, RoundingMode.HALF_UP));
+                    transaction.setDescription(transfer.getDescription());
+                    return transaction;
+                }).toList();
+        int[] accountIds = receiverIds.stream().mapToInt(Integer::intValue).toArray();
+        int[] lockedIds = Arrays.copyOf(accountIds, accountIds.length + 1);
+        lockedIds[accountIds.length] = appUser.getId();
+        boolean transferred;
+
+        try (AccountLockManager.Handle ignored = accountLockManager.lock(lockedIds)) {
+            transferred = ledgerService.transferAll(appUser, transactions, bulkTransactionDto.getIdempotencyKey());
+        } catch (DataIntegrityViolationException e) {
+            if (idempotencyService.isApplied(appUser.getId(), bulkTransactionDto.getIdempotencyKey())) {
+                logger.info("Transactions applied by a concurrent request");
+                return;
+            }
+            logger.error("Transactions rejected by the database: {}", e.getMessage());
+            throw new TransactionException("Une erreur est survenue lors de la transaction");
         } catch (Exception e) {
             throw new TransactionException("Une erreur est survenue lors de la transaction");
         }
+
+        if (!transferred) {
+            throw new TransactionException("Votre solde ne peut pas être négatif");
+        }
+        logger.info("User transactions saved: {}", transactions.size());
     }
 }
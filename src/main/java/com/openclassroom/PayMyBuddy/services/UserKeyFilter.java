@@ -0,0 +1,250 @@
+package com.openclassroom.PayMyBuddy.services;
+
+import com.openclassroom.PayMyBuddy.entities.AppUser;
+import com.openclassroom.PayMyBuddy.models.UserKeyView;
+import com.openclassroom.PayMyBuddy.repository.AppUserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PreInsertEvent;
+import org.hibernate.event.spi.PreInsertEventListener;
+import org.hibernate.event.spi.PreUpdateEvent;
+import org.hibernate.event.spi.PreUpdateEventListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Component holding a Bloom filter over every username and email address of the users table.
+ *
+ * <p>The filter answers whether a username or an email may exist: a negative answer is definite and
+ * saves a database query, a positive answer must be confirmed by the database. It is built at startup
+ * by reading the users table page by page. Every user inserted or updated through Hibernate on this
+ * node adds its keys before the statement is executed, and the profile updates add theirs explicitly.
+ * Keys are never removed: a former username only costs a database query. Until the filter is built,
+ * every key may exist.</p>
+ *
+ * <p>Users written by another node never reach this node directly. A background job refreshes the
+ * filter at a fixed interval with the users created since the previous refresh, by identifier, and the
+ * users whose username or email changed since then, by their {@code keys_updated_at} column, with an
+ * overlap covering the transactions still running at that time and the clock skew between the nodes.
+ * A lookup never queries the database: a key written on another node since the last refresh is reported
+ * absent, and the unique constraints of the users table reject it.</p>
+ *
+ * <p>Keys are compared ignoring case and accents, like the database does. The filter is sized from the
+ * expected number of users and the target false-positive rate. For 10 million users, that is 20 million
+ * keys, at 1%, it uses about 191.7 million bits (22.9 MiB) and 7 hash functions.</p>
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class UserKeyFilter implements InitializingBean, PreInsertEventListener, PreUpdateEventListener {
+    @Autowired
+    AppUserRepository appUserRepository;
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Value("${paymybuddy.user-filter.page-size:1000}")
+    int pageSize = 1000;
+    @Value("${paymybuddy.user-filter.refresh-overlap:PT1M}")
+    Duration refreshOverlap = Duration.ofMinutes(1);
+
+    private final AtomicLongArray bits;
+    private final long bitSize;
+    private final int hashCount;
+    private final LongAdder keys = new LongAdder();
+    private final Object refreshLock = new Object();
+    private volatile boolean ready;
+    private LocalDateTime refreshedSince;
+    private int lastId;
+
+    private static final Logger logger = LoggerFactory.getLogger(UserKeyFilter.class);
+
+    /**
+     * Creates an empty filter sized for the given number of users.
+     *
+     * @param expectedUsers the number of users the filter is sized for
+     * @param falsePositiveRate the target false-positive rate once the expected users are added
+     */
+    public UserKeyFilter(@Value("${paymybuddy.user-filter.expected-users:1000000}") long expectedUsers,
+                         @Value("${paymybuddy.user-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        if (expectedUsers < 1) {
+            throw new IllegalArgumentException("The expected number of users must be positive");
+        }
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("The false-positive rate must be between 0 and 1");
+        }
+        long expectedKeys = 2 * expectedUsers;
+        long words = (long) Math.ceil(-expectedKeys * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)) / 64);
+        bits = new AtomicLongArray(Math.toIntExact(words));
+        bitSize = words * 64;
+        hashCount = Math.max(1, (int) Math.round((double) bitSize / expectedKeys * Math.log(2)));
+    }
+
+    /**
+     * Registers the filter on user writes, then builds it from the users table.
+     */
+    @Override
+    public void afterPropertiesSet() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.PRE_INSERT, this);
+        registry.appendListeners(EventType.PRE_UPDATE, this);
+        load();
+    }
+
+    /**
+     * Adds the username and the email of every user of the users table to the filter.
+     */
+    public void load() {
+        logger.info("Building user key filter");
+        synchronized (refreshLock) {
+            refreshedSince = LocalDateTime.now().minus(refreshOverlap);
+            List<UserKeyView> userKeys;
+            do {
+                userKeys = appUserRepository.findUserKeysAfter(lastId, PageRequest.of(0, pageSize));
+                addAll(userKeys);
+            } while (userKeys.size() == pageSize);
+        }
+        ready = true;
+        logger.info("User key filter built with {} keys", keys.sum());
+    }
+
+    /**
+     * Adds the keys of the users created, or whose username or email changed, since the previous refresh.
+     */
+    @Scheduled(initialDelayString = "${paymybuddy.user-filter.refresh-interval-ms:10000}",
+            fixedDelayString = "${paymybuddy.user-filter.refresh-interval-ms:10000}")
+    public void refresh() {
+        if (!ready) {
+            return;
+        }
+        synchronized (refreshLock) {
+            LocalDateTime since = LocalDateTime.now().minus(refreshOverlap);
+            addAll(appUserRepository.findUserKeysChangedSince(lastId, refreshedSince));
+            refreshedSince = since;
+        }
+    }
+
+    /**
+     * Adds the username and the email of a user to the filter.
+     *
+     * @param username the username of the user
+     * @param email the email address of the user
+     */
+    public void add(String username, String email) {
+        if (username != null) {
+            put("u:" + normalize(username));
+        }
+        if (email != null) {
+            put("e:" + normalize(email));
+        }
+    }
+
+    /**
+     * Checks whether a username may belong to a user.
+     *
+     * @param username the username to check
+     * @return false if no user has this username, true if one may have it
+     */
+    public boolean mightContainUsername(String username) {
+        return username == null || mightContain("u:" + normalize(username));
+    }
+
+    /**
+     * Checks whether an email address may belong to a user.
+     *
+     * @param email the email address to check
+     * @return false if no user has this email address, true if one may have it
+     */
+    public boolean mightContainEmail(String email) {
+        return email == null || mightContain("e:" + normalize(email));
+    }
+
+    @Override
+    public boolean onPreInsert(PreInsertEvent event) {
+        if (event.getEntity() instanceof AppUser appUser) {
+            add(appUser.getUsername(), appUser.getEmail());
+        }
+        return false;
+    }
+
+    @Override
+    public boolean onPreUpdate(PreUpdateEvent event) {
+        if (event.getEntity() instanceof AppUser appUser) {
+            add(appUser.getUsername(), appUser.getEmail());
+        }
+        return false;
+    }
+
+    private void addAll(List<UserKeyView> userKeys) {
+        for (UserKeyView userKey : userKeys) {
+            add(userKey.getUsername(), userKey.getEmail());
+            lastId = Math.max(lastId, userKey.getId());
+        }
+    }
+
+    private void put(String key) {
+        long hash = hash(key);
+        int hash1 = (int) hash;
+        int hash2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(hash1 + (long) i * hash2, bitSize);
+            long mask = 1L << bit;
+            bits.getAndAccumulate((int) (bit >>> 6), mask, (word, value) -> word | value);
+        }
+        keys.increment();
+    }
+
+    private boolean mightContain(String key) {
+        if (!ready) {
+            return true;
+        }
+        long hash = hash(key);
+        int hash1 = (int) hash;
+        int hash2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(hash1 + (long) i * hash2, bitSize);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb93fe1a85ec3L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static String normalize(String key) {
+        return Normalizer.normalize(key, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .toLowerCase(Locale.ROOT);
+    }
+}
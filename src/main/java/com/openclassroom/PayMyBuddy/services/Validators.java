@@ -2,15 +2,12 @@ package com.openclassroom.PayMyBuddy.services;
 
 import com.openclassroom.PayMyBuddy.entities.AppUser;
 import com.openclassroom.PayMyBuddy.repository.AppUserRepository;
-import com.openclassroom.PayMyBuddy.repository.RelationRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
-import java.math.BigDecimal;
-
 /**
  * Service class for validating user inputs and conditions.
  *
@@ -21,7 +18,9 @@ public class Validators {
     @Autowired
     AppUserRepository appUserRepository;
     @Autowired
-    RelationRepository relationRepository;
+    UserKeyFilter userKeyFilter;
+    @Autowired
+    RelationGraphIndex relationGraphIndex;
     @Autowired
     AppUserService appUserService;
     @Autowired
@@ -32,23 +31,27 @@ public class Validators {
     /**
      * Checks if a username already exists in the system.
      *
+     * <p>The {@link UserKeyFilter} rejects most unknown usernames without querying the database.</p>
+     *
      * @param username the username to check
      * @return true if the username exists, false otherwise
      */
     public boolean usernameExists(String username) {
         logger.info("Checking if username exists");
-        return appUserRepository.findByUsername(username) != null;
+        return userKeyFilter.mightContainUsername(username) && appUserRepository.existsByUsername(username);
     }
 
     /**
      * Checks if an email already exists in the system.
      *
+     * <p>The {@link UserKeyFilter} rejects most unknown emails without querying the database.</p>
+     *
      * @param email the email to check
      * @return true if the email exists, false otherwise
      */
     public boolean emailExists(String email) {
         logger.info("Checking if email exists");
-        return appUserRepository.findByEmail(email) != null;
+        return userKeyFilter.mightContainEmail(email) && appUserRepository.existsByEmail(email);
     }
 
     /**
@@ -81,38 +84,30 @@ public class Validators {
     /**
      * Checks if the provided password matches the current user's password.
      *
+     * <p>The password hash is read from the database rather than from the {@link AppUserCache}, so that
+     * a password changed on another node is checked against its new hash at once.</p>
+     *
      * @param password the password to check
      * @return true if the password is correct, false otherwise
      */
     public boolean checkPassword(String password) {
         logger.info("Checking if password is correct");
-        AppUser appUser = appUserService.getConnectedUser();
-        return passwordEncoder.matches(password, appUser.getPassword());
+        AppUser appUser = appUserRepository.findById(appUserService.getConnectedUserId());
+        return appUser != null && passwordEncoder.matches(password, appUser.getPassword());
     }
 
     /**
      * Checks if a relation exists between two users.
      *
+     * <p>The relation is looked up in the {@link RelationGraphIndex}, which only queries the database
+     * for a relation this node does not know.</p>
+     *
      * @param user the user initiating the check
      * @param relation the user to check the relation against
      * @return true if the relation exists, false otherwise
      */
     public boolean relationExists(AppUser user, AppUser relation) {
         logger.info("Checking if relation exists");
-        return relationRepository.findByUserAndRelatedUser(user, relation) != null;
-    }
-
-    /**
-     * Checks if the resulting balance after a transaction would be negative.
-     *
-     * @param amount the amount to be checked against the user's balance
-     * @return true if the balance would be negative, false otherwise
-     */
-    public boolean isBalanceNegative(BigDecimal amount) {
-        logger.info("Checking if balance is negative");
-        AppUser appUser = appUserService.getConnectedUser();
-        return appUser.getBalance()
-                .subtract(amount)
-                .compareTo(BigDecimal.ZERO) < 0;
+        return relationGraphIndex.contains(user.getId(), relation.getId());
     }
 }
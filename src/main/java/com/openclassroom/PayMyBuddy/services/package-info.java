@@ -12,6 +12,23 @@
  *     <li>{@link com.openclassroom.PayMyBuddy.services.RelationsService} - Manages user relationships and interactions.</li>
  *     <li>{@link com.openclassroom.PayMyBuddy.services.Validators} - Provides validation methods for user input and conditions.</li>
  *     <li>{@link com.openclassroom.PayMyBuddy.services.HomeService} - Manages user operations and balance updates.</li>
+ *     <li>{@link com.openclassroom.PayMyBuddy.services.LedgerService} - Applies atomic debits and credits to user balances.</li>
+ *     <li>{@link com.openclassroom.PayMyBuddy.services.AccountLockManager} - Orders concurrent operations on the same accounts.</li>
+ *     <li>{@link com.openclassroom.PayMyBuddy.services.IdempotencyService} - Detects replayed money-moving requests.</li>
+ *     <li>{@link com.openclassroom.PayMyBuddy.services.LedgerJournal} - Commits transfers in groups from a single writer.</li>
+ *     <li>{@link com.openclassroom.PayMyBuddy.services.BalanceCheckpointService} - Writes balance checkpoints and computes past balances.</li>
+ *     <li>{@link com.openclassroom.PayMyBuddy.services.ConnectedUserContext} - Keeps the connected user for the duration of a request.</li>
+ *     <li>{@link com.openclassroom.PayMyBuddy.services.AppUserCache} - Caches user lookups by id, email and username.</li>
+ *     <li>{@link com.openclassroom.PayMyBuddy.services.UserKeyFilter} - Rejects unknown usernames and emails without querying the database.</li>
+ *     <li>{@link com.openclassroom.PayMyBuddy.services.RelationGraphIndex} - Checks relations in memory without querying the database.</li>
+ *     <li>{@link com.openclassroom.PayMyBuddy.services.LedgerVersionService} - Tracks the changes to the pages of each user.</li>
+ *     <li>{@link com.openclassroom.PayMyBuddy.services.FragmentRenderCache} - Caches the rendered HTML of page fragments.</li>
+ *     <li>{@link com.openclassroom.PayMyBuddy.services.BoundedPasswordEncoder} - Hashes passwords on a bounded pool, rejecting requests when saturated.</li>
+ *     <li>{@link com.openclassroom.PayMyBuddy.services.BCryptStrengthCalibrator} - Chooses the BCrypt strength from the hash time measured at startup.</li>
+ *     <li>{@link com.openclassroom.PayMyBuddy.services.DatabaseSessionRegistry} - Registers the sessions of the users in the database shared by every node.</li>
+ *     <li>{@link com.openclassroom.PayMyBuddy.services.JobLockService} - Elects the single node running a background job.</li>
+ *     <li>{@link com.openclassroom.PayMyBuddy.services.SessionGenerationService} - Tracks the session generation ending the previous session tokens of each user.</li>
+ *     <li>{@link com.openclassroom.PayMyBuddy.services.MetricsReporter} - Logs the usage metrics of the locks, caches and pools at a fixed interval.</li>
  * </ul>
  */
 package com.openclassroom.PayMyBuddy.services;
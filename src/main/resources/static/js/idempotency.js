@@ -0,0 +1,16 @@
+function newIdempotencyKey() {
+    if (window.crypto.randomUUID) {
+        return window.crypto.randomUUID();
+    }
+    const bytes = window.crypto.getRandomValues(new Uint8Array(16));
+    return Array.from(bytes, byte => byte.toString(16).padStart(2, "0")).join("");
+}
+
+function fillIdempotencyKey(event) {
+    const input = event.target.querySelector("input[name='idempotencyKey']");
+    if (input !== null && input.value === "") {
+        input.value = newIdempotencyKey();
+    }
+}
+
+document.addEventListener("submit", fillIdempotencyKey);
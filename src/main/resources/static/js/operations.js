@@ -0,0 +1,18 @@
+function loadMoreOperations(button) {
+    button.disabled = true;
+    fetch(button.dataset.url)
+        .then(response => {
+            if (!response.ok) {
+                throw new Error(response.statusText);
+            }
+            return response.text();
+        })
+        .then(html => {
+            const item = button.closest("li");
+            item.insertAdjacentHTML("beforebegin", html);
+            item.remove();
+        })
+        .catch(() => {
+            button.disabled = false;
+        });
+}
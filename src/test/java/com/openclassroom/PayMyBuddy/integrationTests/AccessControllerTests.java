@@ -1,20 +1,33 @@
 package com.openclassroom.PayMyBuddy.integrationTests;
 
+import com.openclassroom.PayMyBuddy.config.UserRolesMigration;
 import com.openclassroom.PayMyBuddy.entities.AppUser;
+import com.openclassroom.PayMyBuddy.entities.Role;
+import com.openclassroom.PayMyBuddy.models.AuthenticatedUser;
 import com.openclassroom.PayMyBuddy.models.RegistrationDto;
 import com.openclassroom.PayMyBuddy.repository.AppUserRepository;
+import com.openclassroom.PayMyBuddy.services.UserKeyFilter;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -35,6 +48,15 @@ public class AccessControllerTests {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private UserRolesMigration userRolesMigration;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserKeyFilter userKeyFilter;
+
     @AfterEach
     void cleanUp() {
         appUserRepository.deleteAll();
@@ -54,6 +76,30 @@ public class AccessControllerTests {
                 .andExpect(view().name("login"));
     }
 
+    @Test
+    void testGetLoginPage_FingerprintedAssets() throws Exception {
+        String html = mockMvc.perform(get("/login"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        Matcher stylesheet = Pattern.compile("/styles/access-[0-9a-f]{32}\\.css").matcher(html);
+        assertTrue(stylesheet.find());
+        assertTrue(Pattern.compile("/js/access-[0-9a-f]{32}\\.js").matcher(html).find());
+
+        mockMvc.perform(get(stylesheet.group()).header("Accept-Encoding", "gzip"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "max-age=31536000, public, immutable"))
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(header().doesNotExist("Set-Cookie"));
+    }
+
+    @Test
+    void testGetAsset_Anonymous() throws Exception {
+        mockMvc.perform(get("/styles/home.css"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andExpect(content().string(containsString("{")));
+    }
+
     @Test
     void testRegister_Success() throws Exception {
         RegistrationDto registrationDto = new RegistrationDto();
@@ -80,6 +126,48 @@ public class AccessControllerTests {
         assert passwordEncoder.matches("Password1", user.getPassword());
     }
 
+    @Test
+    void testRegister_Failure_UsernameInsertedByAnotherNode() throws Exception {
+        jdbcTemplate.update("INSERT INTO users (username, email, password, balance, account_non_expired, "
+                + "account_non_locked, credentials_non_expired, enabled, roles, ledger_version, session_generation, "
+                + "created_at, updated_at) VALUES ('othernodeuser', 'othernodeuser@email.com', 'hash', 0, "
+                + "TRUE, TRUE, TRUE, TRUE, 1, 0, 0, NOW(), NOW())");
+        userKeyFilter.refresh();
+
+        mockMvc.perform(post("/registration")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                        .param("username", "othernodeuser")
+                        .param("email", "newuser@email.com")
+                        .param("password", "Password1")
+                        .param("confirmPassword", "Password1"))
+                .andExpect(view().name("registration"))
+                .andExpect(model().attribute("success", false))
+                .andExpect(model().attribute("message", "Ce nom d'utilisateur est déjà utilisé"));
+    }
+
+    @Test
+    void testRegister_Failure_UsernameRenamedByAnotherNode() throws Exception {
+        AppUser user = new AppUser();
+        user.setUsername("beforerename");
+        user.setEmail("beforerename@email.com");
+        user.setPassword("hash");
+        appUserRepository.save(user);
+        jdbcTemplate.update("UPDATE users SET username = 'afterrename', keys_updated_at = NOW() WHERE id = ?", user.getId());
+        userKeyFilter.refresh();
+
+        mockMvc.perform(post("/registration")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                        .param("username", "afterrename")
+                        .param("email", "newuser@email.com")
+                        .param("password", "Password1")
+                        .param("confirmPassword", "Password1"))
+                .andExpect(view().name("registration"))
+                .andExpect(model().attribute("success", false))
+                .andExpect(model().attribute("message", "Ce nom d'utilisateur est déjà utilisé"));
+    }
+
     @Test
     void testRegister_Failure() throws Exception {
         RegistrationDto registrationDto = new RegistrationDto();
@@ -118,6 +206,32 @@ public class AccessControllerTests {
                 .andExpect(redirectedUrl("/home"));
     }
 
+    @Test
+    void testLogin_SlimPrincipalInSession() throws Exception {
+        AppUser user = new AppUser();
+        user.setUsername("testuser");
+        user.setEmail("testuser@email.com");
+        user.setPassword(passwordEncoder.encode("Password1"));
+        appUserRepository.save(user);
+        MockHttpSession session = new MockHttpSession();
+
+        mockMvc.perform(post("/login")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                        .param("email", "testuser@email.com")
+                        .param("password", "Password1")
+                        .session(session))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/home"));
+
+        SecurityContext securityContext = (SecurityContext) session.getAttribute("SPRING_SECURITY_CONTEXT");
+        AppUser savedUser = appUserRepository.findByEmail("testuser@email.com");
+        assertEquals(AuthenticatedUser.of(savedUser), securityContext.getAuthentication().getPrincipal());
+        mockMvc.perform(get("/home").session(session))
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("username", "testuser"));
+    }
+
     @Test
     void testLogin_Failure() throws Exception {
         mockMvc.perform(post("/login")
@@ -129,6 +243,31 @@ public class AccessControllerTests {
                 .andExpect(redirectedUrl("/login?error=true"));
     }
 
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void testLogin_MigratedRoles() throws Exception {
+        AppUser user = new AppUser();
+        user.setUsername("legacyuser");
+        user.setEmail("legacyuser@email.com");
+        user.setPassword(passwordEncoder.encode("Password1"));
+        appUserRepository.save(user);
+        int userId = appUserRepository.findByEmail("legacyuser@email.com").getId();
+        jdbcTemplate.update("UPDATE users SET roles = 0 WHERE id = ?", userId);
+        jdbcTemplate.execute("CREATE TABLE user_roles (user_id INT NOT NULL, role VARCHAR(255))");
+        jdbcTemplate.update("INSERT INTO user_roles (user_id, role) VALUES (?, 'ROLE_USER')", userId);
+
+        userRolesMigration.afterPropertiesSet();
+        userRolesMigration.afterPropertiesSet();
+
+        assertTrue(appUserRepository.findByEmail("legacyuser@email.com").hasRole(Role.USER));
+        mockMvc.perform(post("/login").with(csrf())
+                        .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                        .param("email", "legacyuser@email.com")
+                        .param("password", "Password1"))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/home"));
+    }
+
     @Test
     void testRedirection() throws Exception {
         mockMvc.perform(get("/home")
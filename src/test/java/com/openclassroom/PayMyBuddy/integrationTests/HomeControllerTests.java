@@ -2,8 +2,18 @@ package com.openclassroom.PayMyBuddy.integrationTests;
 
 import com.openclassroom.PayMyBuddy.entities.AppUser;
 import com.openclassroom.PayMyBuddy.entities.Transaction;
+import com.openclassroom.PayMyBuddy.models.OperationView;
 import com.openclassroom.PayMyBuddy.repository.AppUserRepository;
+import com.openclassroom.PayMyBuddy.repository.BalanceCheckpointRepository;
 import com.openclassroom.PayMyBuddy.repository.TransactionRepository;
+import com.openclassroom.PayMyBuddy.services.BalanceCheckpointService;
+import com.openclassroom.PayMyBuddy.services.JobLockService;
+import com.openclassroom.PayMyBuddy.services.LedgerService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -15,12 +25,17 @@ import org.springframework.mock.web.MockHttpSession;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.regex.Pattern;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
@@ -47,8 +62,30 @@ public class HomeControllerTests {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private BalanceCheckpointService balanceCheckpointService;
+    @Autowired
+    private BalanceCheckpointRepository balanceCheckpointRepository;
+    @Autowired
+    private JobLockService jobLockService;
+
+    @Autowired
+    private LedgerService ledgerService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
     private MockHttpSession session;
 
+    private static final Pattern AMOUNT = Pattern.compile("class=\"operation-amount\">\\s*<span>([^<]*)</span>");
+
+    private static List<BigDecimal> renderedAmounts(MvcResult result) {
+        String html = (String) result.getModelAndView().getModel().get("operationsHtml");
+        return AMOUNT.matcher(html).results().map(match -> new BigDecimal(match.group(1))).toList();
+    }
 
     @BeforeEach
     void setUp() throws Exception {
@@ -59,8 +96,7 @@ public class HomeControllerTests {
         appUserRepository.save(user);
 
         user = appUserRepository.findByEmail("testuser@email.com");
-        user.setBalance(BigDecimal.valueOf(100).setScale(2, RoundingMode.HALF_UP));
-        appUserRepository.save(user);
+        appUserRepository.creditBalance(user.getId(), BigDecimal.valueOf(100).setScale(2, RoundingMode.HALF_UP));
 
         AppUser relation = new AppUser();
         relation.setUsername("testrelation");
@@ -69,8 +105,7 @@ public class HomeControllerTests {
         appUserRepository.save(relation);
 
         relation = appUserRepository.findByEmail("testrelation@email.com");
-        relation.setBalance(BigDecimal.valueOf(10).setScale(2, RoundingMode.HALF_UP));
-        appUserRepository.save(relation);
+        appUserRepository.creditBalance(relation.getId(), BigDecimal.valueOf(10).setScale(2, RoundingMode.HALF_UP));
 
         Transaction transaction1 = new Transaction();
         transaction1.setUser(user);
@@ -126,34 +161,202 @@ public class HomeControllerTests {
                 .andExpect(status().isOk())
                 .andExpect(model().attribute("username", "testuser"))
                 .andExpect(model().attribute("balance", BigDecimal.valueOf(100).setScale(2, RoundingMode.HALF_UP)))
-                .andExpect(model().attribute("operations", hasSize(3)))
-                .andDo(result -> {
-                    List<Transaction> operations = (List<Transaction>) result.getModelAndView().getModel().get("operations");
-                    assertThat(operations.get(0).getAmount(), is(BigDecimal.valueOf(20).setScale(2, RoundingMode.HALF_UP)));
-                    assertThat(operations.get(1).getAmount(), is(BigDecimal.valueOf(10).setScale(2, RoundingMode.HALF_UP).negate()));
-                    assertThat(operations.get(2).getAmount(), is(BigDecimal.valueOf(100).setScale(2, RoundingMode.HALF_UP)));
-                });
+                .andExpect(model().attribute("operationsHtml", containsString("<span>testrelation</span>")))
+                .andDo(result -> assertThat(renderedAmounts(result),
+                        contains(new BigDecimal("20.00"), new BigDecimal("-10.00"), new BigDecimal("100.00"))));
     }
 
     @Test
-    void testCreditBalance_Success() throws Exception {
+    void testAccessingHomePage_OperationsRenderedOnce() throws Exception {
+        String html = (String) mockMvc.perform(get("/home").session(session))
+                .andExpect(status().isOk())
+                .andReturn().getModelAndView().getModel().get("operationsHtml");
+
+        mockMvc.perform(get("/home").session(session))
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("operationsHtml", sameInstance(html)))
+                .andExpect(content().string(containsString("transaction user to relation")));
+    }
+
+    @Test
+    void testAccessingHomePage_BalanceMatchesLedgerVersion() throws Exception {
+        mockMvc.perform(get("/home").session(session))
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("balance", new BigDecimal("100.00")));
+        int userId = appUserRepository.findByEmail("testuser@email.com").getId();
+        appUserRepository.creditBalance(userId, new BigDecimal("5.00"));
+
+        mockMvc.perform(get("/home").session(session))
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("balance", new BigDecimal("105.00")));
+    }
+
+    @Test
+    void testAccessingHomePage_NotModified() throws Exception {
+        String eTag = mockMvc.perform(get("/home").session(session))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "no-cache, private"))
+                .andExpect(content().string(stringContainsInOrder(
+                        "name=\"idempotencyKey\" value=\"\"", "name=\"idempotencyKey\" value=\"\"")))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/home").session(session).header("If-None-Match", eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
         mockMvc.perform(post("/home/credit")
                         .with(csrf())
                         .session(session)
                         .contentType(MediaType.APPLICATION_FORM_URLENCODED)
                         .param("amount", "10"))
+                .andExpect(status().is3xxRedirection());
+
+        mockMvc.perform(get("/home").session(session).header("If-None-Match", eTag))
                 .andExpect(status().isOk())
+                .andExpect(header().string("ETag", not(eTag)))
+                .andExpect(model().attribute("balance", BigDecimal.valueOf(110).setScale(2, RoundingMode.HALF_UP)));
+    }
+
+    @Test
+    void testFindUserOperations_SingleStatement() {
+        AppUser user = appUserRepository.findByEmail("testuser@email.com");
+        AppUser relation = appUserRepository.findByEmail("testrelation@email.com");
+        for (int i = 0; i < 100; i++) {
+            Transaction transaction = new Transaction();
+            transaction.setUser(i % 2 == 0 ? user : relation);
+            transaction.setReceiver(i % 2 == 0 ? relation : user);
+            transaction.setDescription("transaction " + i);
+            transaction.setAmount(BigDecimal.ONE);
+            transactionRepository.save(transaction);
+        }
+        transactionRepository.flush();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<OperationView> operations = transactionRepository.findUserOperations(user.getId(), 100);
+
+        assertThat(operations, hasSize(100));
+        assertThat(statistics.getPrepareStatementCount(), is(1L));
+    }
+
+    @Test
+    void testFindTransactions_NoRoleFetch() {
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<Transaction> transactions = transactionRepository.findAll();
+
+        assertThat(transactions, hasSize(4));
+        assertThat(transactions.get(0).getUser().getAuthorities(), hasSize(1));
+        assertThat(statistics.getCollectionLoadCount(), is(0L));
+        assertThat(statistics.getPrepareStatementCount(), is(3L));
+    }
+
+    @Test
+    void testGetOperations_NextPage() throws Exception {
+        List<OperationView> operations = transactionRepository.findUserOperations(
+                appUserRepository.findByEmail("testuser@email.com").getId(), 1);
+
+        mockMvc.perform(get("/home/operations")
+                        .session(session)
+                        .param("beforeCreatedAt", operations.get(0).getCreatedAt().toString())
+                        .param("beforeId", String.valueOf(operations.get(0).getId())))
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("operations", hasSize(2)))
+                .andExpect(model().attribute("operationPage", hasProperty("hasMore", is(false))))
+                .andExpect(content().string(containsString("operation-item")));
+    }
+
+    @Test
+    void testGetBalanceAsOf() throws Exception {
+        AppUser user = appUserRepository.findByEmail("testuser@email.com");
+        LocalDateTime checkpointAt = LocalDateTime.now();
+        balanceCheckpointService.writeCheckpoint(user.getId(), checkpointAt);
+        ledgerService.deposit(user, BigDecimal.valueOf(5).setScale(2, RoundingMode.HALF_UP), "Crédit", null);
+
+        mockMvc.perform(get("/home/balance")
+                        .session(session)
+                        .param("at", checkpointAt.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.balance").value(110));
+
+        mockMvc.perform(get("/home/balance")
+                        .session(session)
+                        .param("at", LocalDateTime.now().plusMinutes(1).toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.balance").value(115));
+    }
+
+    @Test
+    void testWriteCheckpoints_OnlyActiveUsersSincePreviousRun() {
+        AppUser user = appUserRepository.findByEmail("testuser@email.com");
+        Duration lag = (Duration) ReflectionTestUtils.getField(balanceCheckpointService, "lag");
+        ReflectionTestUtils.setField(balanceCheckpointService, "lag", Duration.ZERO);
+        try {
+            balanceCheckpointService.writeCheckpoints();
+            assertThat(balanceCheckpointRepository
+                    .findFirstByUserIdAndAsOfLessThanEqualOrderByAsOfDesc(user.getId(), LocalDateTime.now())
+                    .getBalance(), comparesEqualTo(BigDecimal.valueOf(110)));
+            LocalDateTime completedUntil = jobLockService.getCompletedUntil("balance-checkpoints");
+            assertThat(completedUntil, notNullValue());
+
+            long checkpoints = balanceCheckpointRepository.count();
+            balanceCheckpointService.writeCheckpoints();
+            assertThat(balanceCheckpointRepository.count(), is(checkpoints));
+        } finally {
+            ReflectionTestUtils.setField(balanceCheckpointService, "lag", lag);
+        }
+    }
+
+    @Test
+    void testCreditBalance_Success() throws Exception {
+        MvcResult result = mockMvc.perform(post("/home/credit")
+                        .with(csrf())
+                        .session(session)
+                        .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                        .param("amount", "10"))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/home"))
+                .andExpect(flash().attribute("success", true))
+                .andExpect(flash().attribute("message", "Votre compte a bien été crédité"))
+                .andReturn();
+
+        mockMvc.perform(get("/home").session(session).flashAttrs(result.getFlashMap()))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("ETag"))
                 .andExpect(model().attribute("username", "testuser"))
                 .andExpect(model().attribute("balance", BigDecimal.valueOf(110).setScale(2, RoundingMode.HALF_UP)))
                 .andExpect(model().attribute("success", true))
                 .andExpect(model().attribute("message", "Votre compte a bien été crédité"))
-                .andExpect(model().attribute("operations", hasSize(4)))
-                .andDo(result -> {
-                    List<Transaction> operations = (List<Transaction>) result.getModelAndView().getModel().get("operations");
-                    assertThat(operations.get(0).getAmount(), is(BigDecimal.valueOf(10).setScale(2, RoundingMode.HALF_UP)));
+                .andDo(page -> {
+                    assertThat(renderedAmounts(page), hasSize(4));
+                    assertThat(renderedAmounts(page).get(0), is(new BigDecimal("10.00")));
                 });
     }
 
+    @Test
+    void testCreditBalance_Replay() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(post("/home/credit")
+                            .with(csrf())
+                            .session(session)
+                            .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                            .param("amount", "10")
+                            .param("idempotencyKey", "credit-key"))
+                    .andExpect(status().is3xxRedirection())
+                    .andExpect(redirectedUrl("/home"))
+                    .andExpect(flash().attribute("success", true))
+                    .andExpect(flash().attribute("message", "Votre compte a bien été crédité"));
+        }
+
+        mockMvc.perform(get("/home").session(session))
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("balance", BigDecimal.valueOf(110).setScale(2, RoundingMode.HALF_UP)))
+                .andDo(page -> assertThat(renderedAmounts(page), hasSize(4)));
+    }
+
     @Test
     void testCreditBalance_Failure() throws Exception {
         mockMvc.perform(post("/home/credit")
@@ -161,45 +364,55 @@ public class HomeControllerTests {
                         .session(session)
                         .contentType(MediaType.APPLICATION_FORM_URLENCODED)
                         .param("amount", "0"))
-                .andExpect(status().isBadRequest())
-                .andExpect(model().attribute("username", "testuser"))
-                .andExpect(model().attribute("balance", BigDecimal.valueOf(100).setScale(2, RoundingMode.HALF_UP)))
-                .andExpect(model().attribute("success", false))
-                .andExpect(model().attribute("message", "Vous devez renseigner un montant"))
-                .andExpect(model().attribute("operations", hasSize(3)));
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/home"))
+                .andExpect(flash().attribute("success", false))
+                .andExpect(flash().attribute("message", "Vous devez renseigner un montant"));
     }
 
     @Test
     void testWithdrawBalance_Success() throws Exception {
-        mockMvc.perform(post("/home/withdraw")
+        MvcResult result = mockMvc.perform(post("/home/withdraw")
                         .with(csrf())
                         .session(session)
                         .contentType(MediaType.APPLICATION_FORM_URLENCODED)
                         .param("amount", "30"))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/home"))
+                .andExpect(flash().attribute("success", true))
+                .andExpect(flash().attribute("message", "Votre compte a bien été débité"))
+                .andReturn();
+
+        mockMvc.perform(get("/home").session(session).flashAttrs(result.getFlashMap()))
                 .andExpect(status().isOk())
                 .andExpect(model().attribute("username", "testuser"))
                 .andExpect(model().attribute("balance", BigDecimal.valueOf(70).setScale(2, RoundingMode.HALF_UP)))
                 .andExpect(model().attribute("success", true))
                 .andExpect(model().attribute("message", "Votre compte a bien été débité"))
-                .andExpect(model().attribute("operations", hasSize(4)))
-                .andDo(result -> {
-                    List<Transaction> operations = (List<Transaction>) result.getModelAndView().getModel().get("operations");
-                    assertThat(operations.get(0).getAmount(), is(BigDecimal.valueOf(30).setScale(2, RoundingMode.HALF_UP).negate()));
+                .andDo(page -> {
+                    assertThat(renderedAmounts(page), hasSize(4));
+                    assertThat(renderedAmounts(page).get(0), is(new BigDecimal("-30.00")));
                 });
     }
 
     @Test
     void testWithdrawBalance_Failure() throws Exception {
-        mockMvc.perform(post("/home/withdraw")
+        MvcResult result = mockMvc.perform(post("/home/withdraw")
                         .with(csrf())
                         .session(session)
                         .contentType(MediaType.APPLICATION_FORM_URLENCODED)
                         .param("amount", "130"))
-                .andExpect(status().isBadRequest())
-                .andExpect(model().attribute("username", "testuser"))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/home"))
+                .andExpect(flash().attribute("success", false))
+                .andExpect(flash().attribute("message", "Votre solde ne peut pas être négatif"))
+                .andReturn();
+
+        mockMvc.perform(get("/home").session(session).flashAttrs(result.getFlashMap()))
+                .andExpect(status().isOk())
                 .andExpect(model().attribute("balance", BigDecimal.valueOf(100).setScale(2, RoundingMode.HALF_UP)))
-                .andExpect(model().attribute("operations", hasSize(3)))
                 .andExpect(model().attribute("success", false))
-                .andExpect(model().attribute("message", "Votre solde ne peut pas être négatif"));
+                .andExpect(model().attribute("message", "Votre solde ne peut pas être négatif"))
+                .andDo(page -> assertThat(renderedAmounts(page), hasSize(3)));
     }
 }
@@ -15,6 +15,11 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.comparesEqualTo;
+import static org.hamcrest.Matchers.is;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -72,6 +77,32 @@ public class ProfileControllerTests {
                 .andExpect(model().attribute("email", "testuser@email.com"));
     }
 
+    @Test
+    void testUpdateProfile_AfterCreditKeepsCreditedBalance() throws Exception {
+        mockMvc.perform(get("/home").session(session))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/home/credit")
+                        .with(csrf())
+                        .session(session)
+                        .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                        .param("amount", "10"))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(flash().attribute("success", true));
+
+        mockMvc.perform(post("/profile")
+                        .with(csrf())
+                        .session(session)
+                        .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                        .param("username", "newusername")
+                        .param("email", ""))
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("success", true));
+
+        AppUser user = appUserRepository.findByEmail("testuser@email.com");
+        assertThat(user.getBalance(), comparesEqualTo(BigDecimal.TEN));
+        assertThat(user.getUsername(), is("newusername"));
+    }
+
     @Test
     void testUpdateProfile_Success() throws Exception {
         mockMvc.perform(post("/profile")
@@ -111,12 +142,10 @@ public class ProfileControllerTests {
                         .contentType(MediaType.APPLICATION_FORM_URLENCODED)
                         .param("username", "testuser")
                         .param("email", "newemail@email.com"))
-                .andExpect(status().isBadRequest())
-                .andExpect(view().name("profile"))
-                .andExpect(model().attribute("username", "testuser"))
-                .andExpect(model().attribute("email", "testuser@email.com"))
-                .andExpect(model().attribute("success", false))
-                .andExpect(model().attribute("message", "Le username existe déjà"));
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/profile"))
+                .andExpect(flash().attribute("success", false))
+                .andExpect(flash().attribute("message", "Le username existe déjà"));
     }
 
     @Test
@@ -160,11 +189,9 @@ public class ProfileControllerTests {
                         .param("oldPassword", "Password1")
                         .param("newPassword", "Password2")
                         .param("confirmPassword", "Password3"))
-                .andExpect(status().isBadRequest())
-                .andExpect(view().name("profile"))
-                .andExpect(model().attribute("username", "testuser"))
-                .andExpect(model().attribute("email", "testuser@email.com"))
-                .andExpect(model().attribute("success", false))
-                .andExpect(model().attribute("message", "Les mots de passe ne correspondent pas"));
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/profile"))
+                .andExpect(flash().attribute("success", false))
+                .andExpect(flash().attribute("message", "Les mots de passe ne correspondent pas"));
     }
 }
@@ -26,7 +26,9 @@ import static org.hamcrest.Matchers.is;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.flash;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.redirectedUrl;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -129,9 +131,9 @@ public class RelationsControllerTests {
                         .session(session)
                         .contentType(MediaType.APPLICATION_FORM_URLENCODED)
                         .param("email", "unknown@email.com"))
-                .andExpect(status().isBadRequest())
-                .andExpect(model().attribute("success", false))
-                .andExpect(model().attribute("message", "L'utilisateur n'existe pas"))
-                .andExpect(model().attribute("relations", hasSize(1)));
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/relations"))
+                .andExpect(flash().attribute("success", false))
+                .andExpect(flash().attribute("message", "L'utilisateur n'existe pas"));
     }
 }
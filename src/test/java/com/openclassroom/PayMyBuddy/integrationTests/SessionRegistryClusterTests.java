@@ -0,0 +1,191 @@
+package com.openclassroom.PayMyBuddy.integrationTests;
+
+import com.openclassroom.PayMyBuddy.PayMyBuddyApplication;
+import com.openclassroom.PayMyBuddy.entities.AppUser;
+import com.openclassroom.PayMyBuddy.repository.AppUserRepository;
+import com.openclassroom.PayMyBuddy.repository.TransactionRepository;
+import com.openclassroom.PayMyBuddy.repository.UserSessionRepository;
+import com.openclassroom.PayMyBuddy.services.AppUserCache;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.comparesEqualTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Runs several instances of the application against the same database, without sticky sessions:
+ * every request of a session may reach any node. Each node keeps its own user cache.
+ */
+public class SessionRegistryClusterTests {
+    private static final int NODES = 2;
+    private static final long CACHE_TTL_MILLIS = 200;
+
+    private static final List<ConfigurableApplicationContext> nodes = new ArrayList<>();
+    private static final List<MockMvc> mockMvcs = new ArrayList<>();
+
+    @BeforeAll
+    static void startNodes() {
+        for (int i = 0; i < NODES; i++) {
+            ConfigurableApplicationContext node = new SpringApplicationBuilder(PayMyBuddyApplication.class)
+                    .profiles("test")
+                    .run("--server.port=0", "--paymybuddy.session-registry.cache-ttl=PT" + CACHE_TTL_MILLIS / 1000.0 + "S");
+            nodes.add(node);
+            mockMvcs.add(MockMvcBuilders.webAppContextSetup((WebApplicationContext) node).apply(springSecurity()).build());
+        }
+    }
+
+    @AfterAll
+    static void stopNodes() {
+        nodes.forEach(ConfigurableApplicationContext::close);
+        nodes.clear();
+        mockMvcs.clear();
+    }
+
+    @BeforeEach
+    void setUp() {
+        AppUser user = new AppUser();
+        user.setUsername("clusteruser");
+        user.setEmail("clusteruser@email.com");
+        user.setPassword(nodes.get(0).getBean(PasswordEncoder.class).encode("Password1"));
+        nodes.get(0).getBean(AppUserRepository.class).save(user);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        nodes.get(0).getBean(UserSessionRepository.class).deleteAll();
+        nodes.get(0).getBean(TransactionRepository.class).deleteAll();
+        AppUserRepository appUserRepository = nodes.get(0).getBean(AppUserRepository.class);
+        AppUser user = appUserRepository.findByEmail("clusteruser@email.com");
+        appUserRepository.delete(user);
+        nodes.forEach(node -> node.getBean(AppUserCache.class).evict(user.getId()));
+    }
+
+    private MockHttpSession login(int node) throws Exception {
+        MockHttpSession session = new MockHttpSession();
+        mockMvcs.get(node).perform(post("/login").with(csrf())
+                        .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                        .param("email", "clusteruser@email.com")
+                        .param("password", "Password1")
+                        .session(session))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/home"));
+        return session;
+    }
+
+    @Test
+    void testSession_ServedByEveryNode() throws Exception {
+        MockHttpSession session = login(0);
+
+        for (int node = 0; node < NODES; node++) {
+            mockMvcs.get(node).perform(get("/home").session(session))
+                    .andExpect(status().isOk())
+                    .andExpect(model().attribute("username", "clusteruser"));
+        }
+    }
+
+    @Test
+    void testLogin_ExpiresSessionOfOtherNode() throws Exception {
+        MockHttpSession firstSession = login(0);
+        mockMvcs.get(0).perform(get("/home").session(firstSession))
+                .andExpect(status().isOk());
+
+        MockHttpSession secondSession = login(1);
+        Thread.sleep(CACHE_TTL_MILLIS * 2);
+
+        for (int node = 0; node < NODES; node++) {
+            mockMvcs.get(node).perform(get("/home").session(secondSession))
+                    .andExpect(status().isOk());
+        }
+        mockMvcs.get(0).perform(get("/home").session(firstSession))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/login?sessionExpired=true"));
+        assertTrue(nodes.get(0).getBean(UserSessionRepository.class).findBySessionId(firstSession.getId()).isExpired());
+    }
+
+    @Test
+    void testUpdateProfile_AfterCreditOnOtherNodeKeepsCreditedBalance() throws Exception {
+        MockHttpSession session = login(1);
+        mockMvcs.get(1).perform(get("/home").session(session))
+                .andExpect(status().isOk());
+
+        mockMvcs.get(0).perform(post("/home/credit").with(csrf())
+                        .session(session)
+                        .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                        .param("amount", "10"))
+                .andExpect(flash().attribute("success", true));
+        mockMvcs.get(1).perform(post("/profile").with(csrf())
+                        .session(session)
+                        .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                        .param("username", "clusterrenamed")
+                        .param("email", ""))
+                .andExpect(model().attribute("success", true));
+
+        AppUser user = nodes.get(0).getBean(AppUserRepository.class).findByEmail("clusteruser@email.com");
+        assertThat(user.getBalance(), comparesEqualTo(BigDecimal.TEN));
+        assertEquals("clusterrenamed", user.getUsername());
+    }
+
+    @Test
+    void testUpdateProfile_AfterPasswordChangeOnOtherNodeKeepsPassword() throws Exception {
+        MockHttpSession session = login(1);
+        mockMvcs.get(1).perform(get("/home").session(session))
+                .andExpect(status().isOk());
+
+        mockMvcs.get(0).perform(post("/profile/password").with(csrf())
+                        .session(session)
+                        .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                        .param("oldPassword", "Password1")
+                        .param("newPassword", "Password2")
+                        .param("confirmPassword", "Password2"))
+                .andExpect(model().attribute("success", true));
+        mockMvcs.get(1).perform(post("/profile").with(csrf())
+                        .session(session)
+                        .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                        .param("username", "clusterrenamed")
+                        .param("email", ""))
+                .andExpect(model().attribute("success", true));
+
+        AppUser user = nodes.get(0).getBean(AppUserRepository.class).findByEmail("clusteruser@email.com");
+        assertTrue(nodes.get(0).getBean(PasswordEncoder.class).matches("Password2", user.getPassword()));
+    }
+
+    @Test
+    void testRequests_LastRequestWrittenOncePerTouchInterval() throws Exception {
+        MockHttpSession session = login(1);
+        UserSessionRepository userSessionRepository = nodes.get(0).getBean(UserSessionRepository.class);
+        LocalDateTime loggedInAt = userSessionRepository.findBySessionId(session.getId()).getLastRequest();
+
+        for (int i = 0; i < 6; i++) {
+            mockMvcs.get(i % NODES).perform(get("/home").session(session))
+                    .andExpect(status().isOk());
+        }
+
+        assertEquals(loggedInAt, userSessionRepository.findBySessionId(session.getId()).getLastRequest());
+        assertEquals(0, userSessionRepository.touch(session.getId(), LocalDateTime.now(),
+                LocalDateTime.now().minusMinutes(1)));
+        assertEquals(1, userSessionRepository.touch(session.getId(), LocalDateTime.now(), LocalDateTime.now()));
+    }
+}
@@ -0,0 +1,151 @@
+package com.openclassroom.PayMyBuddy.integrationTests;
+
+import com.openclassroom.PayMyBuddy.config.CookieFlashMapManager;
+import com.openclassroom.PayMyBuddy.config.SignedTokenSecurityContextRepository;
+import com.openclassroom.PayMyBuddy.entities.AppUser;
+import com.openclassroom.PayMyBuddy.repository.AppUserRepository;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = "paymybuddy.token-session.enabled=true")
+@AutoConfigureMockMvc
+@Transactional
+@ActiveProfiles("test")
+public class TokenSessionTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private AppUserRepository appUserRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    private static final Pattern CSRF_FIELD = Pattern.compile("name=\"_csrf\" value=\"([^\"]+)\"");
+
+    private Cookie csrfCookie;
+    private String csrfToken;
+
+    @BeforeEach
+    void setUp() {
+        AppUser user = new AppUser();
+        user.setUsername("tokenuser");
+        user.setEmail("tokenuser@email.com");
+        user.setPassword(passwordEncoder.encode("Password1"));
+        appUserRepository.save(user);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        appUserRepository.deleteAll();
+    }
+
+    private void fetchCsrf(MockHttpServletRequestBuilder page) throws Exception {
+        MvcResult result = mockMvc.perform(page)
+                .andExpect(status().isOk())
+                .andReturn();
+        csrfCookie = result.getResponse().getCookie("XSRF-TOKEN");
+        Matcher field = CSRF_FIELD.matcher(result.getResponse().getContentAsString());
+        assertNotNull(csrfCookie);
+        assertTrue(field.find());
+        csrfToken = field.group(1);
+    }
+
+    private Cookie login() throws Exception {
+        fetchCsrf(get("/login"));
+        MvcResult result = mockMvc.perform(post("/login")
+                        .cookie(csrfCookie)
+                        .param("_csrf", csrfToken)
+                        .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                        .param("email", "tokenuser@email.com")
+                        .param("password", "Password1"))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/home"))
+                .andReturn();
+        assertNull(result.getRequest().getSession(false));
+        Cookie token = result.getResponse().getCookie(SignedTokenSecurityContextRepository.COOKIE_NAME);
+        assertNotNull(token);
+        return token;
+    }
+
+    @Test
+    void testLogin_NoHttpSession() throws Exception {
+        Cookie token = login();
+
+        MvcResult result = mockMvc.perform(get("/home").cookie(token))
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("username", "tokenuser"))
+                .andReturn();
+        assertNull(result.getRequest().getSession(false));
+    }
+
+    @Test
+    void testLogin_EndsPreviousToken() throws Exception {
+        Cookie firstToken = login();
+        Cookie secondToken = login();
+
+        mockMvc.perform(get("/home").cookie(firstToken))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("http://localhost/login"));
+        mockMvc.perform(get("/home").cookie(secondToken))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void testLogout_EndsToken() throws Exception {
+        Cookie token = login();
+
+        mockMvc.perform(get("/logout").cookie(token))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/login?logout=true"))
+                .andExpect(cookie().maxAge(SignedTokenSecurityContextRepository.COOKIE_NAME, 0));
+        mockMvc.perform(get("/home").cookie(token))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("http://localhost/login"));
+    }
+
+    @Test
+    void testCredit_FlashMessageInCookie() throws Exception {
+        Cookie token = login();
+        fetchCsrf(get("/home").cookie(token));
+
+        MvcResult result = mockMvc.perform(post("/home/credit")
+                        .cookie(token, csrfCookie)
+                        .param("_csrf", csrfToken)
+                        .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                        .param("amount", "10"))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/home"))
+                .andReturn();
+        assertNull(result.getRequest().getSession(false));
+        Cookie flash = result.getResponse().getCookie(CookieFlashMapManager.COOKIE_NAME);
+        assertNotNull(flash);
+
+        mockMvc.perform(get("/home").cookie(token, flash))
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("success", true))
+                .andExpect(model().attribute("message", "Votre compte a bien été crédité"))
+                .andExpect(cookie().maxAge(CookieFlashMapManager.COOKIE_NAME, 0));
+    }
+}
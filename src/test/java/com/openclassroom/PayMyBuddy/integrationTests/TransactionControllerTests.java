@@ -3,9 +3,11 @@ package com.openclassroom.PayMyBuddy.integrationTests;
 import com.openclassroom.PayMyBuddy.entities.AppUser;
 import com.openclassroom.PayMyBuddy.entities.Relation;
 import com.openclassroom.PayMyBuddy.entities.Transaction;
+import com.openclassroom.PayMyBuddy.models.BulkTransactionDto;
 import com.openclassroom.PayMyBuddy.repository.AppUserRepository;
 import com.openclassroom.PayMyBuddy.repository.RelationRepository;
 import com.openclassroom.PayMyBuddy.repository.TransactionRepository;
+import com.openclassroom.PayMyBuddy.services.ConnectedUserContext;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -13,19 +15,28 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.mock.web.MockHttpSession;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.List;
+import java.util.regex.Pattern;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasProperty;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -51,9 +62,17 @@ public class TransactionControllerTests {
     private TransactionRepository transactionRepository;
     @Autowired
     private PasswordEncoder passwordEncoder;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
 
     private MockHttpSession session;
 
+    private static final Pattern AMOUNT = Pattern.compile("class=\"operation-amount\">\\s*<span>([^<]*)</span>");
+
+    private static List<BigDecimal> renderedAmounts(MvcResult result) {
+        String html = (String) result.getModelAndView().getModel().get("transactionsHtml");
+        return AMOUNT.matcher(html).results().map(match -> new BigDecimal(match.group(1))).toList();
+    }
     @BeforeEach
     void setUp() throws Exception {
         AppUser user = new AppUser();
@@ -62,8 +81,7 @@ public class TransactionControllerTests {
         user.setPassword(passwordEncoder.encode("Password1"));
         appUserRepository.save(user);
         user = appUserRepository.findByEmail("testuser@email.com");
-        user.setBalance(BigDecimal.valueOf(100).setScale(2, RoundingMode.HALF_UP));
-        appUserRepository.save(user);
+        appUserRepository.creditBalance(user.getId(), BigDecimal.valueOf(100).setScale(2, RoundingMode.HALF_UP));
 
         AppUser relationUser = new AppUser();
         relationUser.setUsername("testrelation");
@@ -71,8 +89,7 @@ public class TransactionControllerTests {
         relationUser.setPassword(passwordEncoder.encode("Password2"));
         appUserRepository.save(relationUser);
         relationUser = appUserRepository.findByEmail("testrelation@email.com");
-        relationUser.setBalance(BigDecimal.valueOf(10).setScale(2, RoundingMode.HALF_UP));
-        appUserRepository.save(relationUser);
+        appUserRepository.creditBalance(relationUser.getId(), BigDecimal.valueOf(10).setScale(2, RoundingMode.HALF_UP));
 
         Relation relation = new Relation();
         relation.setUser(user);
@@ -112,15 +129,22 @@ public class TransactionControllerTests {
                         .contentType(MediaType.APPLICATION_FORM_URLENCODED))
                 .andExpect(status().isOk())
                 .andExpect(model().attribute("relations", hasSize(1)))
-                .andExpect(model().attribute("transactions", hasSize(1)))
                 .andDo(result -> {
-                    List<Transaction> transactions = (List<Transaction>) result.getModelAndView().getModel().get("transactions");
-                    assertThat(transactions.get(0).getAmount(), is(BigDecimal.valueOf(20).setScale(2, RoundingMode.HALF_UP)));
+                    assertThat(renderedAmounts(result), contains(new BigDecimal("20.00")));
+                    assertThat(connectedUserLoads(result), is(1));
                 });
     }
 
     @Test
-    void testPostTransaction_Success() throws Exception {
+    void testAccessingTransactionPage_NotModified() throws Exception {
+        String eTag = mockMvc.perform(get("/transaction").session(session))
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("transactionDto", hasProperty("idempotencyKey", nullValue())))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/transaction").session(session).header("If-None-Match", eTag))
+                .andExpect(status().isNotModified());
+
         mockMvc.perform(post("/transaction")
                         .with(csrf())
                         .session(session)
@@ -128,14 +152,58 @@ public class TransactionControllerTests {
                         .param("receiverEmail", "testrelation@email.com")
                         .param("description", "transaction2")
                         .param("amount", "50"))
+                .andExpect(status().is3xxRedirection());
+
+        mockMvc.perform(get("/transaction").session(session).header("If-None-Match", eTag))
+                .andExpect(status().isOk())
+                .andDo(page -> assertThat(renderedAmounts(page), hasSize(2)));
+    }
+
+    @Test
+    void testPostTransaction_RelationAddedByAnotherNode() throws Exception {
+        AppUser receiver = new AppUser();
+        receiver.setUsername("othernoderelation");
+        receiver.setEmail("othernoderelation@email.com");
+        receiver.setPassword(passwordEncoder.encode("Password3"));
+        appUserRepository.save(receiver);
+        jdbcTemplate.update("INSERT INTO relations (id, user_id, related_user_id, created_at) VALUES (?, ?, ?, NOW())",
+                Integer.MAX_VALUE, appUserRepository.findByEmail("testuser@email.com").getId(),
+                appUserRepository.findByEmail("othernoderelation@email.com").getId());
+
+        mockMvc.perform(post("/transaction")
+                        .with(csrf())
+                        .session(session)
+                        .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                        .param("receiverEmail", "othernoderelation@email.com")
+                        .param("description", "transaction2")
+                        .param("amount", "50"))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(flash().attribute("success", true))
+                .andExpect(flash().attribute("message", "La transaction a bien été effectuée"));
+    }
+
+    @Test
+    void testPostTransaction_Success() throws Exception {
+        MvcResult result = mockMvc.perform(post("/transaction")
+                        .with(csrf())
+                        .session(session)
+                        .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                        .param("receiverEmail", "testrelation@email.com")
+                        .param("description", "transaction2")
+                        .param("amount", "50"))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/transaction"))
+                .andExpect(flash().attribute("success", true))
+                .andExpect(flash().attribute("message", "La transaction a bien été effectuée"))
+                .andReturn();
+        assertThat(connectedUserLoads(result), is(1));
+
+        mockMvc.perform(get("/transaction").session(session).flashAttrs(result.getFlashMap()))
                 .andExpect(status().isOk())
                 .andExpect(model().attribute("success", true))
                 .andExpect(model().attribute("message", "La transaction a bien été effectuée"))
-                .andExpect(model().attribute("transactions", hasSize(2)))
-                .andDo(result -> {
-                    List<Transaction> transactions = (List<Transaction>) result.getModelAndView().getModel().get("transactions");
-                    assertThat(transactions.get(1).getAmount(), is(BigDecimal.valueOf(50).setScale(2, RoundingMode.HALF_UP)));
-                });
+                .andDo(page -> assertThat(renderedAmounts(page),
+                        contains(new BigDecimal("20.00"), new BigDecimal("50.00"))));
 
         AppUser user = appUserRepository.findByEmail("testuser@email.com");
         assert user != null;
@@ -155,13 +223,143 @@ public class TransactionControllerTests {
                         .param("receiverEmail", "testrelation1@email.com")
                         .param("description", "transaction2")
                         .param("amount", "50"))
-                .andExpect(status().isBadRequest())
-                .andExpect(model().attribute("success", false))
-                .andExpect(model().attribute("message", "L'utilisateur n'existe pas"))
-                .andExpect(model().attribute("transactions", hasSize(1)));
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/transaction"))
+                .andExpect(flash().attribute("success", false))
+                .andExpect(flash().attribute("message", "L'utilisateur n'existe pas"))
+                .andDo(result -> assertThat(connectedUserLoads(result), is(0)));
+
+        AppUser user = appUserRepository.findByEmail("testuser@email.com");
+        assert user != null;
+        assert user.getBalance().equals(BigDecimal.valueOf(100).setScale(2, RoundingMode.HALF_UP));
+    }
+
+    @Test
+    void testPostTransaction_Failure_DescriptionTooLong() throws Exception {
+        mockMvc.perform(post("/transaction")
+                        .with(csrf())
+                        .session(session)
+                        .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                        .param("receiverEmail", "testrelation@email.com")
+                        .param("description", "a".repeat(256))
+                        .param("amount", "50"))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/transaction"))
+                .andExpect(flash().attribute("success", false))
+                .andExpect(flash().attribute("message", "Le formulaire contient une erreur"));
 
         AppUser user = appUserRepository.findByEmail("testuser@email.com");
         assert user != null;
         assert user.getBalance().equals(BigDecimal.valueOf(100).setScale(2, RoundingMode.HALF_UP));
+        assertThat(transactionRepository.findSentTransactions(user.getId()), hasSize(1));
+    }
+
+    @Test
+    void testPostTransactions_Success() throws Exception {
+        mockMvc.perform(post("/transaction/bulk")
+                        .with(csrf())
+                        .session(session)
+                        .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                        .param("transfers[0].receiverEmail", "testrelation@email.com")
+                        .param("transfers[0].description", "transaction2")
+                        .param("transfers[0].amount", "30")
+                        .param("transfers[1].receiverEmail", "testrelation@email.com")
+                        .param("transfers[1].description", "transaction3")
+                        .param("transfers[1].amount", "20"))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/transaction"))
+                .andExpect(flash().attribute("success", true))
+                .andExpect(flash().attribute("message", "Les transactions ont bien été effectuées"));
+
+        mockMvc.perform(get("/transaction").session(session))
+                .andExpect(status().isOk())
+                .andDo(page -> assertThat(renderedAmounts(page), hasSize(3)));
+
+        AppUser user = appUserRepository.findByEmail("testuser@email.com");
+        assert user != null;
+        assert user.getBalance().equals(BigDecimal.valueOf(50).setScale(2, RoundingMode.HALF_UP));
+
+        AppUser relationUser = appUserRepository.findByEmail("testrelation@email.com");
+        assert relationUser != null;
+        assert relationUser.getBalance().equals(BigDecimal.valueOf(60).setScale(2, RoundingMode.HALF_UP));
+    }
+
+    @Test
+    void testPostTransactions_Failure() throws Exception {
+        mockMvc.perform(post("/transaction/bulk")
+                        .with(csrf())
+                        .session(session)
+                        .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                        .param("transfers[0].receiverEmail", "testrelation@email.com")
+                        .param("transfers[0].description", "transaction2")
+                        .param("transfers[0].amount", "30")
+                        .param("transfers[1].receiverEmail", "testrelation1@email.com")
+                        .param("transfers[1].description", "transaction3")
+                        .param("transfers[1].amount", "20"))
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/transaction"))
+                .andExpect(flash().attribute("success", false))
+                .andExpect(flash().attribute("message", "L'utilisateur n'existe pas"));
+
+        AppUser user = appUserRepository.findByEmail("testuser@email.com");
+        assert user != null;
+        assert user.getBalance().equals(BigDecimal.valueOf(100).setScale(2, RoundingMode.HALF_UP));
+    }
+
+    @Test
+    void testAccessingTransactionPage_CounterpartyRenamed() throws Exception {
+        String eTag = mockMvc.perform(get("/transaction").session(session))
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("transactionsHtml", containsString("<span>testrelation</span>")))
+                .andReturn().getResponse().getHeader("ETag");
+
+        MockHttpSession relationSession = new MockHttpSession();
+        mockMvc.perform(post("/login").with(csrf())
+                        .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                        .param("email", "testrelation@email.com")
+                        .param("password", "Password2")
+                        .session(relationSession))
+                .andExpect(status().is3xxRedirection());
+        mockMvc.perform(post("/profile")
+                        .with(csrf())
+                        .session(relationSession)
+                        .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                        .param("username", "renamedrelation")
+                        .param("email", ""))
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("success", true));
+
+        mockMvc.perform(get("/transaction").session(session).header("If-None-Match", eTag))
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("transactionsHtml", containsString("<span>renamedrelation</span>")))
+                .andExpect(model().attribute("transactionsHtml", not(containsString("<span>testrelation</span>"))));
+    }
+
+    @Test
+    void testPostTransactions_TooManyTransfers() throws Exception {
+        MockHttpServletRequestBuilder request = post("/transaction/bulk")
+                .with(csrf())
+                .session(session)
+                .contentType(MediaType.APPLICATION_FORM_URLENCODED);
+        for (int i = 0; i <= BulkTransactionDto.MAX_TRANSFERS; i++) {
+            request.param("transfers[" + i + "].receiverEmail", "testrelation@email.com")
+                    .param("transfers[" + i + "].description", "transaction" + i)
+                    .param("transfers[" + i + "].amount", "0.5");
+        }
+
+        mockMvc.perform(request)
+                .andExpect(status().is3xxRedirection())
+                .andExpect(redirectedUrl("/transaction"))
+                .andExpect(flash().attribute("success", false))
+                .andExpect(flash().attribute("message", "Le formulaire contient une erreur"));
+
+        AppUser user = appUserRepository.findByEmail("testuser@email.com");
+        assert user.getBalance().equals(BigDecimal.valueOf(100).setScale(2, RoundingMode.HALF_UP));
+    }
+
+    private int connectedUserLoads(MvcResult result) {
+        ConnectedUserContext context = (ConnectedUserContext) result.getRequest()
+                .getAttribute("scopedTarget.connectedUserContext");
+        return context == null ? 0 : context.getLoadCount();
     }
 }
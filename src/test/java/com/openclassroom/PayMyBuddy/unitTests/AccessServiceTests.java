@@ -4,6 +4,7 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 import com.openclassroom.PayMyBuddy.entities.AppUser;
+import com.openclassroom.PayMyBuddy.exceptions.PasswordHashingRejectedException;
 import com.openclassroom.PayMyBuddy.exceptions.RegistrationException;
 import com.openclassroom.PayMyBuddy.models.RegistrationDto;
 import com.openclassroom.PayMyBuddy.repository.AppUserRepository;
@@ -15,6 +16,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.validation.BindingResult;
 
 @ExtendWith(MockitoExtension.class)
@@ -24,6 +26,8 @@ class AccessServiceTests {
     @Mock
     private Validators validators;
     @Mock
+    private PasswordEncoder passwordEncoder;
+    @Mock
     private BindingResult result;
     @InjectMocks
     private AccessService accessService;
@@ -47,10 +51,27 @@ class AccessServiceTests {
         when(validators.passwordMatches(registrationDto.getPassword(),
                 registrationDto.getConfirmPassword())).thenReturn(true);
 
+        when(passwordEncoder.encode("Password1")).thenReturn("hashedPassword");
+
         accessService.register(registrationDto, result);
 
         verify(appUserRepository, times(1)).save(
-                argThat(user -> "testUser".equals(user.getUsername()) && "test@example.com".equals(user.getEmail())));
+                argThat(user -> "testUser".equals(user.getUsername()) && "test@example.com".equals(user.getEmail())
+                        && "hashedPassword".equals(user.getPassword())));
+    }
+
+    @Test
+    void testRegister_Failure_HashingRejected() {
+        when(result.hasErrors()).thenReturn(false);
+        when(validators.usernameExists(anyString())).thenReturn(false);
+        when(validators.emailExists(anyString())).thenReturn(false);
+        when(validators.isValidPassword(anyString())).thenReturn(true);
+        when(validators.passwordMatches(anyString(), anyString())).thenReturn(true);
+        when(passwordEncoder.encode(anyString())).thenThrow(new PasswordHashingRejectedException("Surchargé"));
+
+        assertThrows(PasswordHashingRejectedException.class, () -> accessService.register(registrationDto, result));
+
+        verify(appUserRepository, never()).save(any(AppUser.class));
     }
 
     @Test
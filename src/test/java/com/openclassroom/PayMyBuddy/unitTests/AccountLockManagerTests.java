@@ -0,0 +1,120 @@
+package com.openclassroom.PayMyBuddy.unitTests;
+
+import com.openclassroom.PayMyBuddy.models.LockStripeStatsDto;
+import com.openclassroom.PayMyBuddy.services.AccountLockManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AccountLockManagerTests {
+    private AccountLockManager accountLockManager;
+
+    @BeforeEach
+    void setUp() {
+        accountLockManager = new AccountLockManager(4);
+    }
+
+    @Test
+    void testLock_SameStripeAccounts() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> otherStripe;
+            Future<?> sameStripe;
+            try (AccountLockManager.Handle ignored = accountLockManager.lock(1, 5)) {
+                otherStripe = executor.submit(() -> accountLockManager.lock(2).close());
+                otherStripe.get(1, TimeUnit.SECONDS);
+                sameStripe = executor.submit(() -> accountLockManager.lock(9).close());
+                assertThrows(TimeoutException.class, () -> sameStripe.get(100, TimeUnit.MILLISECONDS));
+            }
+            sameStripe.get(1, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testLock_ReleasedOnClose() throws Exception {
+        accountLockManager.lock(1, 2).close();
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            boolean acquired = executor.submit(() -> {
+                accountLockManager.lock(2, 1).close();
+                return true;
+            }).get(1, TimeUnit.SECONDS);
+
+            assertTrue(acquired);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testLock_NoDeadlockWithOppositeOrders() throws Exception {
+        int iterations = 10_000;
+        CountDownLatch done = new CountDownLatch(2);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            executor.submit(() -> {
+                for (int i = 0; i < iterations; i++) {
+                    accountLockManager.lock(1, 6).close();
+                }
+                done.countDown();
+            });
+            executor.submit(() -> {
+                for (int i = 0; i < iterations; i++) {
+                    accountLockManager.lock(6, 1).close();
+                }
+                done.countDown();
+            });
+
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testLock_WaitsForRelease() throws Exception {
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            executor.submit(() -> {
+                try (AccountLockManager.Handle ignored = accountLockManager.lock(3)) {
+                    locked.countDown();
+                    release.await();
+                }
+                return null;
+            });
+            locked.await();
+            Future<?> waiter = executor.submit(() -> accountLockManager.lock(3).close());
+
+            assertThrows(TimeoutException.class, () -> waiter.get(100, TimeUnit.MILLISECONDS));
+            release.countDown();
+            waiter.get(1, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        LockStripeStatsDto stats = accountLockManager.getStripeStats().get(3);
+        assertEquals(2, stats.getAcquisitions());
+        assertEquals(1, stats.getContendedAcquisitions());
+        assertTrue(stats.getMaxWaitNanos() > 0);
+        assertEquals(1, stats.getMaxQueueLength());
+        assertEquals(0, stats.getQueueLength());
+    }
+
+    @Test
+    void testConstructor_InvalidStripeCount() {
+        assertThrows(IllegalArgumentException.class, () -> new AccountLockManager(0));
+    }
+}
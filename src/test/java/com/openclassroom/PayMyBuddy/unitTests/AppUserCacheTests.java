@@ -0,0 +1,217 @@
+package com.openclassroom.PayMyBuddy.unitTests;
+
+import com.openclassroom.PayMyBuddy.entities.AppUser;
+import com.openclassroom.PayMyBuddy.models.AppUserCacheStatsDto;
+import com.openclassroom.PayMyBuddy.repository.AppUserRepository;
+import com.openclassroom.PayMyBuddy.services.AppUserCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class AppUserCacheTests {
+    @Mock
+    private AppUserRepository appUserRepository;
+    private AppUser appUser;
+
+    @BeforeEach
+    void setUp() {
+        appUser = userWithId(1);
+    }
+
+    private AppUser userWithId(int id) {
+        AppUser user = new AppUser();
+        user.setId(id);
+        user.setEmail("user" + id + "@email.com");
+        user.setUsername("user" + id);
+        user.setBalance(BigDecimal.valueOf(100));
+        return user;
+    }
+
+    private AppUserCache createCache(int maxSize, Duration ttl) {
+        AppUserCache appUserCache = new AppUserCache(maxSize, ttl);
+        ReflectionTestUtils.setField(appUserCache, "appUserRepository", appUserRepository);
+        return appUserCache;
+    }
+
+    @Test
+    void testFind_SharedAcrossKeys() {
+        AppUserCache appUserCache = createCache(10, Duration.ofMinutes(1));
+        when(appUserRepository.findByEmail("user1@email.com")).thenReturn(appUser);
+
+        appUserCache.findByEmail("user1@email.com");
+        AppUser byId = appUserCache.findById(1);
+        AppUser byUsername = appUserCache.findByUsername("USER1");
+
+        assertEquals(appUser, byId);
+        assertEquals(appUser, byUsername);
+        assertNotSame(byId, byUsername);
+        verify(appUserRepository, never()).findById(anyInt());
+        verify(appUserRepository, never()).findByUsername(anyString());
+        verify(appUserRepository, times(1)).findByEmail("user1@email.com");
+    }
+
+    @Test
+    void testFind_NotFoundNotCached() {
+        AppUserCache appUserCache = createCache(10, Duration.ofMinutes(1));
+        when(appUserRepository.findByEmail(anyString())).thenReturn(null);
+
+        assertNull(appUserCache.findByEmail("unknown@email.com"));
+        assertNull(appUserCache.findByEmail("unknown@email.com"));
+
+        verify(appUserRepository, times(2)).findByEmail("unknown@email.com");
+    }
+
+    @Test
+    void testEvict_DropsEveryKey() {
+        AppUserCache appUserCache = createCache(10, Duration.ofMinutes(1));
+        when(appUserRepository.findById(1)).thenReturn(appUser);
+        appUserCache.findById(1);
+
+        appUserCache.evict(1);
+        appUser.setEmail("new@email.com");
+        when(appUserRepository.findByEmail("user1@email.com")).thenReturn(null);
+
+        assertNull(appUserCache.findByEmail("user1@email.com"));
+        appUserCache.findById(1);
+        verify(appUserRepository, times(2)).findById(1);
+    }
+
+    @Test
+    void testFind_LeastRecentlyUsedEvicted() {
+        AppUserCache appUserCache = createCache(2, Duration.ofMinutes(1));
+        when(appUserRepository.findById(anyInt())).thenAnswer(invocation -> userWithId(invocation.getArgument(0)));
+
+        appUserCache.findById(1);
+        appUserCache.findById(2);
+        appUserCache.findById(1);
+        appUserCache.findById(3);
+        appUserCache.findById(1);
+        appUserCache.findById(2);
+
+        verify(appUserRepository, times(1)).findById(1);
+        verify(appUserRepository, times(2)).findById(2);
+    }
+
+    @Test
+    void testFind_ExpiredEntryReloaded() throws InterruptedException {
+        AppUserCache appUserCache = createCache(10, Duration.ofMillis(20));
+        when(appUserRepository.findById(1)).thenReturn(appUser);
+
+        appUserCache.findById(1);
+        Thread.sleep(50);
+        appUserCache.findById(1);
+
+        verify(appUserRepository, times(2)).findById(1);
+    }
+
+    @Test
+    void testFind_EvictedWhileLoadingNotCached() {
+        AppUserCache appUserCache = createCache(10, Duration.ofMinutes(1));
+        when(appUserRepository.findById(1)).thenAnswer(invocation -> {
+            appUserCache.evict(1);
+            return appUser;
+        }).thenReturn(appUser);
+
+        appUserCache.findById(1);
+        appUserCache.findById(1);
+        appUserCache.findById(1);
+
+        verify(appUserRepository, times(2)).findById(1);
+    }
+
+    @Test
+    void testFind_OtherUserEvictedWhileLoadingStillCached() {
+        AppUserCache appUserCache = createCache(10, Duration.ofMinutes(1));
+        when(appUserRepository.findById(1)).thenAnswer(invocation -> {
+            appUserCache.evict(2);
+            return appUser;
+        });
+
+        appUserCache.findById(1);
+        appUserCache.findById(1);
+
+        verify(appUserRepository, times(1)).findById(1);
+    }
+
+    @Test
+    void testFind_Disabled() {
+        AppUserCache appUserCache = createCache(0, Duration.ofMinutes(1));
+        when(appUserRepository.findById(1)).thenReturn(appUser);
+
+        appUserCache.findById(1);
+        appUserCache.findById(1);
+
+        verify(appUserRepository, times(2)).findById(1);
+    }
+
+    @Test
+    void testFind_StoredOnlyOnceTransactionCommitted() {
+        AppUserCache appUserCache = createCache(10, Duration.ofMinutes(1));
+        when(appUserRepository.findById(1)).thenReturn(appUser);
+
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            appUserCache.findById(1);
+            appUserCache.findById(1);
+            verify(appUserRepository, times(2)).findById(1);
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        appUserCache.findById(1);
+        verify(appUserRepository, times(2)).findById(1);
+    }
+
+    @Test
+    void testFind_NotStoredWhenTransactionRolledBack() {
+        AppUserCache appUserCache = createCache(10, Duration.ofMinutes(1));
+        when(appUserRepository.findById(1)).thenReturn(appUser);
+
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            appUserCache.findById(1);
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        appUserCache.findById(1);
+        verify(appUserRepository, times(2)).findById(1);
+    }
+
+    @Test
+    void testGetStats_CountsHitsMissesEvictionsAndInvalidations() {
+        AppUserCache appUserCache = createCache(1, Duration.ofMinutes(1));
+        when(appUserRepository.findById(1)).thenReturn(appUser);
+        when(appUserRepository.findById(2)).thenReturn(userWithId(2));
+
+        appUserCache.findById(1);
+        appUserCache.findById(1);
+        appUserCache.findById(2);
+        appUserCache.evict(2);
+
+        AppUserCacheStatsDto stats = appUserCache.getStats();
+        assertEquals(0, stats.getSize());
+        assertEquals(1, stats.getHits());
+        assertEquals(2, stats.getMisses());
+        assertEquals(1, stats.getEvictions());
+        assertEquals(1, stats.getInvalidations());
+    }
+}
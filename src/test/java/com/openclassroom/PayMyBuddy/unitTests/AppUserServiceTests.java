@@ -4,13 +4,19 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 import com.openclassroom.PayMyBuddy.entities.AppUser;
+import com.openclassroom.PayMyBuddy.models.AuthenticatedUser;
+import com.openclassroom.PayMyBuddy.services.AppUserCache;
 import com.openclassroom.PayMyBuddy.services.AppUserService;
+import com.openclassroom.PayMyBuddy.services.ConnectedUserContext;
+import com.openclassroom.PayMyBuddy.services.LedgerVersionService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -18,6 +24,8 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import com.openclassroom.PayMyBuddy.repository.AppUserRepository;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
 
 import java.math.BigDecimal;
 
@@ -27,6 +35,12 @@ class AppUserServiceTests {
     private AppUserRepository appUserRepository;
     @Mock
     private PasswordEncoder passwordEncoder;
+    @Mock
+    private AppUserCache appUserCache;
+    @Mock
+    private LedgerVersionService ledgerVersionService;
+    @Spy
+    private ConnectedUserContext connectedUserContext = new ConnectedUserContext();
     @InjectMocks
     private AppUserService appUserService;
     private AppUser appUser;
@@ -47,14 +61,60 @@ class AppUserServiceTests {
         SecurityContext securityContext = mock(SecurityContext.class);
         SecurityContextHolder.setContext(securityContext);
 
-        when(authentication.getPrincipal()).thenReturn(appUser);
+        when(authentication.getPrincipal()).thenReturn(AuthenticatedUser.of(appUser));
         when(securityContext.getAuthentication()).thenReturn(authentication);
-        when(appUserRepository.findById(anyInt())).thenReturn(appUser);
+        when(appUserCache.findById(anyInt())).thenReturn(appUser);
 
         AppUser result = appUserService.getConnectedUser();
         assertEquals(appUser, result);
     }
 
+    @Test
+    void testGetConnectedUser_LoadedOncePerRequest() {
+        Authentication authentication = mock(Authentication.class);
+        SecurityContext securityContext = mock(SecurityContext.class);
+        SecurityContextHolder.setContext(securityContext);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+
+        when(authentication.getPrincipal()).thenReturn(AuthenticatedUser.of(appUser));
+        when(securityContext.getAuthentication()).thenReturn(authentication);
+        when(appUserCache.findById(anyInt())).thenReturn(appUser);
+
+        try {
+            appUserService.getConnectedUser();
+            AppUser result = appUserService.getConnectedUser();
+
+            assertEquals(appUser, result);
+            assertEquals(1, connectedUserContext.getLoadCount());
+            verify(appUserCache, times(1)).findById(1);
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+        }
+    }
+
+    @Test
+    void testGetConnectedUser_ReloadedAfterWrite() {
+        Authentication authentication = mock(Authentication.class);
+        SecurityContext securityContext = mock(SecurityContext.class);
+        SecurityContextHolder.setContext(securityContext);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+
+        when(authentication.getPrincipal()).thenReturn(AuthenticatedUser.of(appUser));
+        when(securityContext.getAuthentication()).thenReturn(authentication);
+        when(appUserCache.findById(anyInt())).thenReturn(appUser);
+
+        try {
+            AppUser connectedUser = appUserService.getConnectedUser();
+            appUserService.updateUsername(connectedUser, "newUsername");
+            appUserService.getConnectedUser();
+
+            assertEquals(2, connectedUserContext.getLoadCount());
+            verify(appUserCache, times(2)).findById(1);
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+        }
+    }
+
     @Test
     void testLoadUserByUsername_Success() {
         when(appUserRepository.findByEmail(anyString())).thenReturn(appUser);
@@ -64,6 +124,7 @@ class AppUserServiceTests {
         assertNotNull(userDetails);
         assertEquals(appUser.getUsername(), userDetails.getUsername());
         verify(appUserRepository, times(1)).findByEmail(appUser.getEmail());
+        verifyNoInteractions(appUserCache);
     }
 
     @Test
@@ -83,7 +144,10 @@ class AppUserServiceTests {
         appUserService.updateUsername(appUser, "New");
 
         assertEquals("New", appUser.getUsername());
-        verify(appUserRepository, times(1)).save(appUser);
+        verify(appUserRepository, times(1)).updateProfile(1, "New", null);
+        verify(appUserRepository, never()).save(any());
+        verify(appUserCache, times(1)).evict(1);
+        verify(ledgerVersionService, times(1)).incrementWithCounterparties(1);
     }
 
     @Test
@@ -91,7 +155,9 @@ class AppUserServiceTests {
         appUserService.updateEmail(appUser, "newEmail@test.com");
 
         assertEquals("newEmail@test.com", appUser.getEmail());
-        verify(appUserRepository, times(1)).save(appUser);
+        verify(appUserRepository, times(1)).updateProfile(1, null, "newEmail@test.com");
+        verify(appUserRepository, never()).save(any());
+        verify(ledgerVersionService, times(1)).incrementWithCounterparties(1);
     }
 
     @Test
@@ -101,15 +167,27 @@ class AppUserServiceTests {
         appUserService.updatePassword(appUser, "password");
 
         assertEquals("encodedPassword", appUser.getPassword());
-        verify(appUserRepository, times(1)).save(appUser);
+        verify(appUserRepository, times(1)).updatePassword(1, "encodedPassword");
+        verify(appUserRepository, never()).save(any());
     }
 
     @Test
-    void testUpdateBalance() {
-        appUserService.updateBalance(appUser, BigDecimal.valueOf(50.00));
+    void testUpdatePassword_Rehash() {
+        when(appUserRepository.replacePassword(1, "encodedPassword", "rehashedPassword")).thenReturn(1);
+
+        UserDetails updated = appUserService.updatePassword((UserDetails) appUser, "rehashedPassword");
 
-        assertEquals(BigDecimal.valueOf(150.00), appUser.getBalance());
-        verify(appUserRepository, times(1)).save(appUser);
+        assertSame(appUser, updated);
+        assertEquals("encodedPassword", appUser.getPassword());
+        verify(appUserCache, times(1)).evict(1);
     }
-}
 
+    @Test
+    void testUpdatePassword_RehashAfterPasswordChange() {
+        when(appUserRepository.replacePassword(1, "encodedPassword", "rehashedPassword")).thenReturn(0);
+
+        appUserService.updatePassword((UserDetails) appUser, "rehashedPassword");
+
+        verify(appUserCache, never()).evict(anyInt());
+    }
+}
@@ -0,0 +1,48 @@
+package com.openclassroom.PayMyBuddy.unitTests;
+
+import com.openclassroom.PayMyBuddy.services.BCryptStrengthCalibrator;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BCryptStrengthCalibratorTests {
+    private final BCryptStrengthCalibrator calibrator =
+            new BCryptStrengthCalibrator(0, Duration.ofMillis(250), 10, 14);
+
+    @Test
+    void testStrengthFor_WithinBudget() {
+        assertEquals(12, calibrator.strengthFor(Duration.ofMillis(60).toNanos()));
+        assertEquals(11, calibrator.strengthFor(Duration.ofMillis(100).toNanos()));
+    }
+
+    @Test
+    void testStrengthFor_SlowMachineKeepsMinimum() {
+        assertEquals(10, calibrator.strengthFor(Duration.ofMillis(400).toNanos()));
+    }
+
+    @Test
+    void testStrengthFor_FastMachineCappedAtMaximum() {
+        assertEquals(14, calibrator.strengthFor(Duration.ofMillis(1).toNanos()));
+    }
+
+    @Test
+    void testCalibrate_ConfiguredStrength() {
+        assertEquals(5, new BCryptStrengthCalibrator(5, Duration.ofMillis(250), 10, 14).calibrate());
+    }
+
+    @Test
+    void testCalibrate_MeasuresWithinBounds() {
+        int strength = new BCryptStrengthCalibrator(0, Duration.ofMillis(1), 4, 6).calibrate();
+
+        assertTrue(strength >= 4 && strength <= 6);
+    }
+
+    @Test
+    void testConstructor_InvalidBounds() {
+        assertThrows(IllegalArgumentException.class, () -> new BCryptStrengthCalibrator(3, Duration.ofMillis(250), 10, 14));
+        assertThrows(IllegalArgumentException.class, () -> new BCryptStrengthCalibrator(0, Duration.ofMillis(250), 12, 10));
+        assertThrows(IllegalArgumentException.class, () -> new BCryptStrengthCalibrator(0, Duration.ofMillis(250), 10, 32));
+    }
+}
@@ -0,0 +1,141 @@
+package com.openclassroom.PayMyBuddy.unitTests;
+
+import com.openclassroom.PayMyBuddy.entities.BalanceCheckpoint;
+import com.openclassroom.PayMyBuddy.models.BalanceAsOfDto;
+import com.openclassroom.PayMyBuddy.models.BalanceDeltaDto;
+import com.openclassroom.PayMyBuddy.repository.BalanceCheckpointRepository;
+import com.openclassroom.PayMyBuddy.repository.TransactionRepository;
+import com.openclassroom.PayMyBuddy.services.BalanceCheckpointService;
+import com.openclassroom.PayMyBuddy.services.JobLockService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class BalanceCheckpointServiceTests {
+    @Mock
+    private BalanceCheckpointRepository balanceCheckpointRepository;
+    @Mock
+    private TransactionRepository transactionRepository;
+    @Mock
+    private JobLockService jobLockService;
+    @InjectMocks
+    private BalanceCheckpointService balanceCheckpointService;
+    private BalanceCheckpoint checkpoint;
+    private LocalDateTime at;
+
+    @BeforeEach
+    void setUp() {
+        at = LocalDateTime.of(2024, 6, 1, 12, 0);
+
+        checkpoint = new BalanceCheckpoint();
+        checkpoint.setBalance(BigDecimal.valueOf(100));
+        checkpoint.setLastTransactionId(10);
+        checkpoint.setAsOf(at.minusDays(1));
+    }
+
+    @Test
+    void testGetBalanceAsOf_FromCheckpoint() {
+        when(balanceCheckpointRepository.findFirstByUserIdAndAsOfLessThanEqualOrderByAsOfDesc(1, at)).thenReturn(checkpoint);
+        when(transactionRepository.sumBalanceDelta(1, checkpoint.getAsOf(), at))
+                .thenReturn(new BalanceDeltaDto(BigDecimal.valueOf(-30), 12, 2));
+
+        BalanceAsOfDto result = balanceCheckpointService.getBalanceAsOf(1, at);
+
+        assertEquals(BigDecimal.valueOf(70), result.getBalance());
+        assertEquals(at, result.getAt());
+    }
+
+    @Test
+    void testGetBalanceAsOf_NoCheckpointNoTransaction() {
+        when(balanceCheckpointRepository.findFirstByUserIdAndAsOfLessThanEqualOrderByAsOfDesc(1, at)).thenReturn(null);
+        when(transactionRepository.sumBalanceDelta(eq(1), any(LocalDateTime.class), eq(at)))
+                .thenReturn(new BalanceDeltaDto(null, null, 0));
+
+        BalanceAsOfDto result = balanceCheckpointService.getBalanceAsOf(1, at);
+
+        assertEquals(BigDecimal.ZERO, result.getBalance());
+    }
+
+    @Test
+    void testWriteCheckpoint_NewTransactions() {
+        when(balanceCheckpointRepository.findFirstByUserIdAndAsOfLessThanEqualOrderByAsOfDesc(1, at)).thenReturn(checkpoint);
+        when(transactionRepository.sumBalanceDelta(1, checkpoint.getAsOf(), at))
+                .thenReturn(new BalanceDeltaDto(BigDecimal.valueOf(25), 15, 3));
+
+        assertTrue(balanceCheckpointService.writeCheckpoint(1, at));
+
+        ArgumentCaptor<BalanceCheckpoint> captor = ArgumentCaptor.forClass(BalanceCheckpoint.class);
+        verify(balanceCheckpointRepository, times(1)).save(captor.capture());
+        assertEquals(BigDecimal.valueOf(125), captor.getValue().getBalance());
+        assertEquals(15, captor.getValue().getLastTransactionId());
+        assertEquals(at, captor.getValue().getAsOf());
+        assertEquals(1, captor.getValue().getUser().getId());
+    }
+
+    @Test
+    void testWriteCheckpoint_NoNewTransaction() {
+        when(balanceCheckpointRepository.findFirstByUserIdAndAsOfLessThanEqualOrderByAsOfDesc(1, at)).thenReturn(checkpoint);
+        when(transactionRepository.sumBalanceDelta(1, checkpoint.getAsOf(), at))
+                .thenReturn(new BalanceDeltaDto(null, null, 0));
+
+        assertFalse(balanceCheckpointService.writeCheckpoint(1, at));
+
+        verify(balanceCheckpointRepository, never()).save(any());
+    }
+
+    @Test
+    void testWriteCheckpoints_ActiveUsersSincePreviousRun() {
+        LocalDateTime previousCutoff = LocalDateTime.now().minusHours(2);
+        when(jobLockService.tryLock(eq("balance-checkpoints"), any())).thenReturn(true);
+        when(jobLockService.getCompletedUntil("balance-checkpoints")).thenReturn(previousCutoff);
+        when(transactionRepository.findActiveUserIdsAfter(eq(previousCutoff), any(), eq(0), anyInt()))
+                .thenReturn(List.of(1, 2));
+        when(balanceCheckpointRepository.findFirstByUserIdAndAsOfLessThanEqualOrderByAsOfDesc(anyInt(), any()))
+                .thenReturn(null);
+        when(transactionRepository.sumBalanceDelta(anyInt(), any(), any()))
+                .thenReturn(new BalanceDeltaDto(BigDecimal.TEN, 1, 1));
+
+        balanceCheckpointService.writeCheckpoints();
+
+        verify(balanceCheckpointRepository, times(2)).save(any(BalanceCheckpoint.class));
+        ArgumentCaptor<LocalDateTime> completedUntil = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(jobLockService).unlock(eq("balance-checkpoints"), completedUntil.capture());
+        assertTrue(completedUntil.getValue().isAfter(previousCutoff));
+    }
+
+    @Test
+    void testWriteCheckpoints_LockedByAnotherNode() {
+        when(jobLockService.tryLock(eq("balance-checkpoints"), any())).thenReturn(false);
+
+        balanceCheckpointService.writeCheckpoints();
+
+        verifyNoInteractions(transactionRepository);
+        verifyNoInteractions(balanceCheckpointRepository);
+        verify(jobLockService, never()).unlock(anyString(), any());
+    }
+
+    @Test
+    void testWriteCheckpoints_FailureKeepsPreviousCutoff() {
+        LocalDateTime previousCutoff = LocalDateTime.now().minusHours(2);
+        when(jobLockService.tryLock(eq("balance-checkpoints"), any())).thenReturn(true);
+        when(jobLockService.getCompletedUntil("balance-checkpoints")).thenReturn(previousCutoff);
+        when(transactionRepository.findActiveUserIdsAfter(any(), any(), anyInt(), anyInt()))
+                .thenThrow(new IllegalStateException("Database error"));
+
+        assertThrows(IllegalStateException.class, () -> balanceCheckpointService.writeCheckpoints());
+
+        verify(jobLockService).unlock("balance-checkpoints", previousCutoff);
+    }
+}
@@ -0,0 +1,145 @@
+package com.openclassroom.PayMyBuddy.unitTests;
+
+import com.openclassroom.PayMyBuddy.exceptions.PasswordHashingRejectedException;
+import com.openclassroom.PayMyBuddy.models.PasswordHashingStatsDto;
+import com.openclassroom.PayMyBuddy.services.BoundedPasswordEncoder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class BoundedPasswordEncoderTests {
+    @Mock
+    private PasswordEncoder delegate;
+    private BoundedPasswordEncoder boundedPasswordEncoder;
+
+    @AfterEach
+    void tearDown() {
+        if (boundedPasswordEncoder != null) {
+            boundedPasswordEncoder.destroy();
+        }
+    }
+
+    @Test
+    void testEncodeAndMatches_RunOnPool() {
+        boundedPasswordEncoder = new BoundedPasswordEncoder(delegate, 2, 4);
+        when(delegate.encode("Password1")).thenAnswer(invocation -> Thread.currentThread().getName());
+        when(delegate.matches("Password1", "hash")).thenReturn(true);
+
+        assertTrue(boundedPasswordEncoder.encode("Password1").startsWith("password-hashing-"));
+        assertTrue(boundedPasswordEncoder.matches("Password1", "hash"));
+
+        PasswordHashingStatsDto stats = boundedPasswordEncoder.getStats();
+        assertEquals(2, stats.getThreads());
+        assertEquals(2, stats.getCompleted());
+        assertEquals(0, stats.getRejected());
+        assertEquals(0, stats.getQueued());
+    }
+
+    @Test
+    void testEncode_RejectedWhenSaturated() throws Exception {
+        boundedPasswordEncoder = new BoundedPasswordEncoder(delegate, 1, 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(delegate.encode(anyString())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return "hash";
+        });
+        ExecutorService callers = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> running = callers.submit(() -> boundedPasswordEncoder.encode("running"));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            CompletableFuture<String> queued = boundedPasswordEncoder.encodeAsync("queued");
+
+            PasswordHashingRejectedException thrown = assertThrows(PasswordHashingRejectedException.class,
+                    () -> boundedPasswordEncoder.encode("rejected"));
+
+            assertEquals("Le service est momentanément surchargé, veuillez réessayer", thrown.getMessage());
+            assertEquals(0, thrown.getStackTrace().length);
+            release.countDown();
+            assertEquals("hash", running.get(5, TimeUnit.SECONDS));
+            assertEquals("hash", queued.get(5, TimeUnit.SECONDS));
+            verify(delegate, never()).encode("rejected");
+            PasswordHashingStatsDto stats = boundedPasswordEncoder.getStats();
+            assertEquals(2, stats.getCompleted());
+            assertEquals(1, stats.getRejected());
+            assertTrue(stats.getMaxQueueWaitMicros() > 0);
+        } finally {
+            release.countDown();
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    void testEncodeAsync_RunsOnPool() throws Exception {
+        boundedPasswordEncoder = new BoundedPasswordEncoder(delegate, 1, 1);
+        when(delegate.encode("Password1")).thenAnswer(invocation -> Thread.currentThread().getName());
+
+        assertTrue(boundedPasswordEncoder.encodeAsync("Password1").get(5, TimeUnit.SECONDS).startsWith("password-hashing-"));
+    }
+
+    @Test
+    void testEncodeAsync_FailsWhenSaturated() throws Exception {
+        boundedPasswordEncoder = new BoundedPasswordEncoder(delegate, 1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(delegate.encode(anyString())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return "hash";
+        });
+        try {
+            CompletableFuture<String> running = boundedPasswordEncoder.encodeAsync("running");
+            CompletableFuture<String> queued = boundedPasswordEncoder.encodeAsync("queued");
+
+            CompletableFuture<String> rejected = boundedPasswordEncoder.encodeAsync("rejected");
+
+            ExecutionException thrown = assertThrows(ExecutionException.class, rejected::get);
+            assertInstanceOf(PasswordHashingRejectedException.class, thrown.getCause());
+            release.countDown();
+            assertEquals("hash", running.get(5, TimeUnit.SECONDS));
+            assertEquals("hash", queued.get(5, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void testMatches_DelegateExceptionPropagated() {
+        boundedPasswordEncoder = new BoundedPasswordEncoder(delegate, 1, 1);
+        when(delegate.matches(anyString(), anyString())).thenThrow(new IllegalArgumentException("Invalid hash"));
+
+        IllegalArgumentException thrown = assertThrows(IllegalArgumentException.class,
+                () -> boundedPasswordEncoder.matches("Password1", "hash"));
+
+        assertEquals("Invalid hash", thrown.getMessage());
+    }
+
+    @Test
+    void testUpgradeEncoding_RunsOnCaller() {
+        boundedPasswordEncoder = new BoundedPasswordEncoder(delegate, 1, 1);
+        Thread caller = Thread.currentThread();
+        when(delegate.upgradeEncoding("hash")).thenAnswer(invocation -> Thread.currentThread() == caller);
+
+        assertTrue(boundedPasswordEncoder.upgradeEncoding("hash"));
+    }
+
+    @Test
+    void testConstructor_InvalidSizes() {
+        assertThrows(IllegalArgumentException.class, () -> new BoundedPasswordEncoder(delegate, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new BoundedPasswordEncoder(delegate, 1, 0));
+    }
+}
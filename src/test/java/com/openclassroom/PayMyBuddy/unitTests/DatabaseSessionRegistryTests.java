@@ -0,0 +1,179 @@
+package com.openclassroom.PayMyBuddy.unitTests;
+
+import com.openclassroom.PayMyBuddy.entities.Role;
+import com.openclassroom.PayMyBuddy.entities.UserSession;
+import com.openclassroom.PayMyBuddy.models.AuthenticatedUser;
+import com.openclassroom.PayMyBuddy.repository.UserSessionRepository;
+import com.openclassroom.PayMyBuddy.services.DatabaseSessionRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.security.core.session.SessionInformation;
+import org.springframework.security.web.session.HttpSessionDestroyedEvent;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class DatabaseSessionRegistryTests {
+    @Mock
+    private UserSessionRepository userSessionRepository;
+
+    private final AuthenticatedUser principal = new AuthenticatedUser(1, "test@email.com", Role.USER.mask());
+
+    private DatabaseSessionRegistry registry(int maxSize, Duration ttl, Duration touchInterval) {
+        DatabaseSessionRegistry registry = new DatabaseSessionRegistry(maxSize, ttl, touchInterval);
+        ReflectionTestUtils.setField(registry, "userSessionRepository", userSessionRepository);
+        return registry;
+    }
+
+    private UserSession userSession(String sessionId, boolean expired) {
+        UserSession userSession = new UserSession();
+        userSession.setSessionId(sessionId);
+        userSession.setUserId(1);
+        userSession.setEmail("test@email.com");
+        userSession.setRoles(Role.USER.mask());
+        userSession.setLastRequest(LocalDateTime.now());
+        userSession.setExpired(expired);
+        return userSession;
+    }
+
+    @Test
+    void testRegisterNewSession_ServedFromCache() {
+        DatabaseSessionRegistry registry = registry(10, Duration.ofMinutes(1), Duration.ofMinutes(1));
+
+        registry.registerNewSession("session", principal);
+        SessionInformation sessionInformation = registry.getSessionInformation("session");
+
+        assertEquals(principal, sessionInformation.getPrincipal());
+        assertFalse(sessionInformation.isExpired());
+        verify(userSessionRepository).save(argThat(userSession -> userSession.getSessionId().equals("session")
+                && userSession.getUserId() == 1 && !userSession.isExpired()));
+        verify(userSessionRepository, never()).findBySessionId(anyString());
+    }
+
+    @Test
+    void testGetSessionInformation_UnknownSessionCached() {
+        DatabaseSessionRegistry registry = registry(10, Duration.ofMinutes(1), Duration.ofMinutes(1));
+
+        assertNull(registry.getSessionInformation("anonymous"));
+        assertNull(registry.getSessionInformation("anonymous"));
+
+        verify(userSessionRepository, times(1)).findBySessionId("anonymous");
+    }
+
+    @Test
+    void testGetSessionInformation_ExpiredOnOtherNodeSeenAfterTtl() {
+        DatabaseSessionRegistry registry = registry(10, Duration.ofNanos(1), Duration.ofMinutes(1));
+        registry.registerNewSession("session", principal);
+        when(userSessionRepository.findBySessionId("session")).thenReturn(userSession("session", true));
+
+        assertTrue(registry.getSessionInformation("session").isExpired());
+    }
+
+    @Test
+    void testExpireNow_WrittenToDatabase() {
+        DatabaseSessionRegistry registry = registry(10, Duration.ofMinutes(1), Duration.ofMinutes(1));
+        when(userSessionRepository.findAllByUserId(1))
+                .thenReturn(List.of(userSession("old", false), userSession("expired", true)));
+
+        List<SessionInformation> sessions = registry.getAllSessions(principal, false);
+        assertEquals(1, sessions.size());
+        sessions.get(0).expireNow();
+
+        verify(userSessionRepository).expire("old");
+        assertTrue(registry.getSessionInformation("old").isExpired());
+        verify(userSessionRepository, never()).findBySessionId(anyString());
+    }
+
+    @Test
+    void testRefreshLastRequest_WrittenOncePerTouchInterval() {
+        DatabaseSessionRegistry registry = registry(10, Duration.ofMinutes(1), Duration.ofMinutes(1));
+        registry.registerNewSession("session", principal);
+
+        registry.refreshLastRequest("session");
+        registry.refreshLastRequest("session");
+
+        verify(userSessionRepository, never()).touch(anyString(), any(), any());
+    }
+
+    @Test
+    void testRefreshLastRequest_UncachedWrittenOnlyWhenOlderThanTouchInterval() {
+        DatabaseSessionRegistry registry = registry(0, Duration.ofMinutes(1), Duration.ofMinutes(1));
+        ArgumentCaptor<LocalDateTime> lastRequest = ArgumentCaptor.forClass(LocalDateTime.class);
+        ArgumentCaptor<LocalDateTime> before = ArgumentCaptor.forClass(LocalDateTime.class);
+
+        registry.refreshLastRequest("session");
+
+        verify(userSessionRepository).touch(eq("session"), lastRequest.capture(), before.capture());
+        assertEquals(Duration.ofMinutes(1), Duration.between(before.getValue(), lastRequest.getValue()));
+    }
+
+    @Test
+    void testRefreshLastRequest_UnknownSessionNotWritten() {
+        DatabaseSessionRegistry registry = registry(10, Duration.ofMinutes(1), Duration.ofMinutes(1));
+        registry.getSessionInformation("anonymous");
+
+        registry.refreshLastRequest("anonymous");
+
+        verify(userSessionRepository, never()).touch(anyString(), any(), any());
+    }
+
+    @Test
+    void testRefreshLastRequest_WrittenWithoutTouchInterval() {
+        DatabaseSessionRegistry registry = registry(10, Duration.ofMinutes(1), Duration.ZERO);
+        registry.registerNewSession("session", principal);
+
+        registry.refreshLastRequest("session");
+        registry.refreshLastRequest("session");
+
+        verify(userSessionRepository, times(2)).touch(eq("session"), any(), any());
+    }
+
+    @Test
+    void testSessionDestroyed_Removed() {
+        DatabaseSessionRegistry registry = registry(10, Duration.ofMinutes(1), Duration.ofMinutes(1));
+        MockHttpSession session = new MockHttpSession();
+        registry.registerNewSession(session.getId(), principal);
+
+        registry.onApplicationEvent(new HttpSessionDestroyedEvent(session));
+
+        verify(userSessionRepository).deleteBySessionId(session.getId());
+        assertNull(registry.getSessionInformation(session.getId()));
+    }
+
+    @Test
+    void testCacheDisabled() {
+        DatabaseSessionRegistry registry = registry(0, Duration.ofMinutes(1), Duration.ofMinutes(1));
+        when(userSessionRepository.findBySessionId("session")).thenReturn(userSession("session", false));
+
+        registry.getSessionInformation("session");
+        registry.getSessionInformation("session");
+
+        verify(userSessionRepository, times(2)).findBySessionId("session");
+    }
+
+    @Test
+    void testRegisterNewSession_UnknownPrincipal() {
+        DatabaseSessionRegistry registry = registry(10, Duration.ofMinutes(1), Duration.ofMinutes(1));
+
+        assertThrows(IllegalArgumentException.class, () -> registry.registerNewSession("session", "user"));
+        verifyNoInteractions(userSessionRepository);
+    }
+
+    @Test
+    void testConstructor_InvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new DatabaseSessionRegistry(-1, Duration.ofMinutes(1), Duration.ZERO));
+        assertThrows(IllegalArgumentException.class, () -> new DatabaseSessionRegistry(10, Duration.ZERO, Duration.ZERO));
+        assertThrows(IllegalArgumentException.class, () -> new DatabaseSessionRegistry(10, Duration.ofMinutes(1), Duration.ofSeconds(-1)));
+    }
+}
@@ -0,0 +1,145 @@
+package com.openclassroom.PayMyBuddy.unitTests;
+
+import com.openclassroom.PayMyBuddy.models.FragmentCacheStatsDto;
+import com.openclassroom.PayMyBuddy.services.FragmentRenderCache;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.IContext;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class FragmentRenderCacheTests {
+    @Mock
+    private ITemplateEngine templateEngine;
+
+    private static final String FRAGMENT = "fragments/operations :: operations";
+
+    private FragmentRenderCache cache(long maxBytes) {
+        FragmentRenderCache fragmentRenderCache = new FragmentRenderCache(DataSize.ofBytes(maxBytes));
+        ReflectionTestUtils.setField(fragmentRenderCache, "templateEngine", templateEngine);
+        return fragmentRenderCache;
+    }
+
+    private String render(FragmentRenderCache fragmentRenderCache, int userId, long version, String page) {
+        return fragmentRenderCache.render(userId, version, page, FRAGMENT, () -> Map.of("title", page));
+    }
+
+    @Test
+    void testRender_SameVersionRenderedOnce() {
+        FragmentRenderCache fragmentRenderCache = cache(1_000);
+        when(templateEngine.process(eq("fragments/operations"), eq(Set.of("operations")), any(IContext.class)))
+                .thenReturn("<div>1</div>");
+
+        assertEquals("<div>1</div>", render(fragmentRenderCache, 1, 3, "home"));
+        assertEquals("<div>1</div>", render(fragmentRenderCache, 1, 3, "home"));
+
+        verify(templateEngine, times(1)).process(anyString(), anySet(), any(IContext.class));
+        FragmentCacheStatsDto stats = fragmentRenderCache.getStats();
+        assertEquals(1, stats.getHits());
+        assertEquals(1, stats.getMisses());
+        assertEquals(0.5, stats.getHitRate());
+        assertEquals(24, stats.getBytes());
+    }
+
+    @Test
+    void testRender_NewVersionReplacesEntry() {
+        FragmentRenderCache fragmentRenderCache = cache(1_000);
+        when(templateEngine.process(anyString(), anySet(), any(IContext.class)))
+                .thenReturn("<div>1</div>", "<div>22</div>");
+
+        render(fragmentRenderCache, 1, 3, "home");
+        assertEquals("<div>22</div>", render(fragmentRenderCache, 1, 4, "home"));
+        assertEquals("<div>22</div>", render(fragmentRenderCache, 1, 4, "home"));
+
+        verify(templateEngine, times(2)).process(anyString(), anySet(), any(IContext.class));
+    }
+
+    @Test
+    void testRender_OlderVersionNotStored() {
+        FragmentRenderCache fragmentRenderCache = cache(1_000);
+        when(templateEngine.process(anyString(), anySet(), any(IContext.class)))
+                .thenReturn("<div>new</div>", "<div>old</div>");
+
+        render(fragmentRenderCache, 1, 4, "home");
+        assertEquals("<div>old</div>", render(fragmentRenderCache, 1, 3, "home"));
+
+        assertEquals("<div>new</div>", render(fragmentRenderCache, 1, 4, "home"));
+    }
+
+    @Test
+    void testRender_PagesCachedSeparately() {
+        FragmentRenderCache fragmentRenderCache = cache(1_000);
+        when(templateEngine.process(anyString(), anySet(), any(IContext.class)))
+                .thenReturn("<div>home</div>", "<div>transaction</div>");
+
+        assertEquals("<div>home</div>", render(fragmentRenderCache, 1, 3, "home"));
+        assertEquals("<div>transaction</div>", render(fragmentRenderCache, 1, 3, "transaction"));
+        assertEquals("<div>home</div>", render(fragmentRenderCache, 1, 3, "home"));
+        assertEquals("<div>transaction</div>", render(fragmentRenderCache, 1, 3, "transaction"));
+
+        verify(templateEngine, times(2)).process(anyString(), anySet(), any(IContext.class));
+    }
+
+    @Test
+    void testRender_EvictsLeastRecentlyUsedOverMaxBytes() {
+        FragmentRenderCache fragmentRenderCache = cache(60);
+        when(templateEngine.process(anyString(), anySet(), any(IContext.class)))
+                .thenReturn("<div>1</div>", "<div>2</div>", "<div>3</div>", "<div>2</div>");
+
+        render(fragmentRenderCache, 1, 0, "home");
+        render(fragmentRenderCache, 2, 0, "home");
+        render(fragmentRenderCache, 1, 0, "home");
+        render(fragmentRenderCache, 3, 0, "home");
+        verify(templateEngine, times(3)).process(anyString(), anySet(), any(IContext.class));
+        FragmentCacheStatsDto stats = fragmentRenderCache.getStats();
+        assertEquals(2, stats.getEntries());
+        assertEquals(48, stats.getBytes());
+        assertEquals(60, stats.getMaxBytes());
+        assertEquals(1, stats.getEvictions());
+
+        assertEquals("<div>1</div>", render(fragmentRenderCache, 1, 0, "home"));
+        assertEquals("<div>3</div>", render(fragmentRenderCache, 3, 0, "home"));
+        verify(templateEngine, times(3)).process(anyString(), anySet(), any(IContext.class));
+        assertEquals("<div>2</div>", render(fragmentRenderCache, 2, 0, "home"));
+        verify(templateEngine, times(4)).process(anyString(), anySet(), any(IContext.class));
+    }
+
+    @Test
+    void testRender_LargerThanCacheNotStored() {
+        FragmentRenderCache fragmentRenderCache = cache(10);
+        when(templateEngine.process(anyString(), anySet(), any(IContext.class))).thenReturn("<div>1</div>");
+
+        render(fragmentRenderCache, 1, 0, "home");
+        render(fragmentRenderCache, 1, 0, "home");
+
+        verify(templateEngine, times(2)).process(anyString(), anySet(), any(IContext.class));
+    }
+
+    @Test
+    void testRender_Disabled() {
+        FragmentRenderCache fragmentRenderCache = cache(0);
+        when(templateEngine.process(anyString(), anySet(), any(IContext.class))).thenReturn("<div>1</div>");
+
+        render(fragmentRenderCache, 1, 0, "home");
+        render(fragmentRenderCache, 1, 0, "home");
+
+        verify(templateEngine, times(2)).process(anyString(), anySet(), any(IContext.class));
+    }
+
+    @Test
+    void testConstructor_NegativeSize() {
+        assertThrows(IllegalArgumentException.class, () -> new FragmentRenderCache(DataSize.ofBytes(-1)));
+    }
+}
@@ -1,25 +1,33 @@
 package com.openclassroom.PayMyBuddy.unitTests;
 
 import com.openclassroom.PayMyBuddy.entities.AppUser;
-import com.openclassroom.PayMyBuddy.entities.Transaction;
 import com.openclassroom.PayMyBuddy.exceptions.BalanceException;
 import com.openclassroom.PayMyBuddy.models.BalanceDto;
+import com.openclassroom.PayMyBuddy.models.OperationPageDto;
+import com.openclassroom.PayMyBuddy.models.OperationView;
 import com.openclassroom.PayMyBuddy.repository.TransactionRepository;
+import com.openclassroom.PayMyBuddy.services.AccountLockManager;
 import com.openclassroom.PayMyBuddy.services.AppUserService;
 import com.openclassroom.PayMyBuddy.services.HomeService;
-import com.openclassroom.PayMyBuddy.services.Validators;
+import com.openclassroom.PayMyBuddy.services.IdempotencyService;
+import com.openclassroom.PayMyBuddy.services.LedgerService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.validation.BindingResult;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.util.ArrayList;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -31,14 +39,18 @@ public class HomeServiceTests {
     @Mock
     private AppUserService appUserService;
     @Mock
-    private Validators validators;
+    private LedgerService ledgerService;
+    @Mock
+    private IdempotencyService idempotencyService;
+    @Mock
+    private AccountLockManager accountLockManager;
     @Mock
     private BindingResult bindingResult;
     @InjectMocks
     private HomeService homeService;
     private BalanceDto balanceDto;
     private AppUser appUser;
-    private List<Transaction> transactions;
+    private List<OperationView> operations;
 
     @BeforeEach
     void setUp() {
@@ -49,39 +61,43 @@ public class HomeServiceTests {
         appUser = new AppUser();
         appUser.setId(1);
 
-        AppUser receiver = new AppUser();
-        receiver.setId(2);
+        ProjectionFactory projectionFactory = new SpelAwareProxyProjectionFactory();
+        operations = List.of(
+                projectionFactory.createProjection(OperationView.class, Map.of("id", 7,
+                        "createdAt", LocalDateTime.of(2024, 6, 1, 12, 0), "amount", BigDecimal.valueOf(10))),
+                projectionFactory.createProjection(OperationView.class, Map.of("id", 6,
+                        "createdAt", LocalDateTime.of(2024, 5, 1, 12, 0), "amount", BigDecimal.valueOf(-20))));
+    }
 
-        Transaction transaction1 = new Transaction();
-        transaction1.setUser(appUser);
-        transaction1.setReceiver(appUser);
-        transaction1.setAmount(BigDecimal.valueOf(10));
+    @Test
+    void testGetUserOperations_FirstPage() {
+        when(appUserService.getConnectedUser()).thenReturn(appUser);
+        when(transactionRepository.findUserOperations(1, 21)).thenReturn(operations);
 
-        Transaction transaction2 = new Transaction();
-        transaction2.setUser(appUser);
-        transaction2.setReceiver(receiver);
-        transaction2.setAmount(BigDecimal.valueOf(20));
+        OperationPageDto result = homeService.getUserOperations(null, null);
 
-        transactions = new ArrayList<>();
-        transactions.add(transaction1);
-        transactions.add(transaction2);
+        assertEquals(operations, result.getOperations());
+        assertFalse(result.isHasMore());
+        assertNull(result.getNextId());
+        verify(transactionRepository, times(1)).findUserOperations(1, 21);
     }
 
     @Test
-    void testGetUserOperation() {
+    void testGetUserOperations_NextPage() {
+        ReflectionTestUtils.setField(homeService, "pageSize", 1);
+        LocalDateTime createdAt = LocalDateTime.of(2024, 6, 1, 12, 0);
+
         when(appUserService.getConnectedUser()).thenReturn(appUser);
-        when(transactionRepository.findDistinctByUserOrReceiver(appUser)).thenReturn(transactions);
+        when(transactionRepository.findUserOperationsBefore(1, createdAt.plusDays(1), 9, 2))
+                .thenReturn(operations);
 
-        List<Transaction> result = homeService.getUserOperation();
+        OperationPageDto result = homeService.getUserOperations(createdAt.plusDays(1), 9);
 
-        assertNotNull(result);
-        assertEquals(2, result.size());
-        assertEquals(BigDecimal.valueOf(10), result.get(1)
-                .getAmount());
-        assertEquals(BigDecimal.valueOf(20)
-                .negate(), result.get(0)
-                .getAmount());
-        verify(transactionRepository, times(1)).findDistinctByUserOrReceiver(appUser);
+        assertEquals(1, result.getOperations().size());
+        assertTrue(result.isHasMore());
+        assertEquals(createdAt, result.getNextCreatedAt());
+        assertEquals(7, result.getNextId());
+        verify(transactionRepository, times(1)).findUserOperationsBefore(1, createdAt.plusDays(1), 9, 2);
     }
 
     @Test
@@ -91,9 +107,66 @@ public class HomeServiceTests {
 
         homeService.creditBalance(balanceDto, bindingResult);
 
-        verify(transactionRepository, times(1)).save(any(Transaction.class));
-        verify(appUserService, times(1)).updateBalance(appUser, BigDecimal.valueOf(100)
-                .setScale(2, RoundingMode.HALF_UP));
+        verify(accountLockManager, times(1)).lock(1);
+        verify(ledgerService, times(1)).deposit(appUser, BigDecimal.valueOf(100)
+                .setScale(2, RoundingMode.HALF_UP), "Crédit", null);
+    }
+
+    @Test
+    void testCreditBalance_Replay() {
+        balanceDto.setIdempotencyKey("key");
+
+        when(bindingResult.hasErrors()).thenReturn(false);
+        when(appUserService.getConnectedUser()).thenReturn(appUser);
+        when(idempotencyService.isApplied(1, "key")).thenReturn(true);
+
+        homeService.creditBalance(balanceDto, bindingResult);
+
+        verifyNoInteractions(ledgerService);
+        verifyNoInteractions(accountLockManager);
+    }
+
+    @Test
+    void testCreditBalance_ConcurrentReplay() {
+        balanceDto.setIdempotencyKey("key");
+        when(bindingResult.hasErrors()).thenReturn(false);
+        when(appUserService.getConnectedUser()).thenReturn(appUser);
+        when(idempotencyService.isApplied(1, "key")).thenReturn(false, true);
+
+        doThrow(new DataIntegrityViolationException("Duplicate key")).when(ledgerService)
+                .deposit(any(AppUser.class), any(), anyString(), any());
+
+        assertDoesNotThrow(() -> homeService.creditBalance(balanceDto, bindingResult));
+    }
+
+    @Test
+    void testCreditBalance_Failure_ConstraintViolation() {
+        balanceDto.setIdempotencyKey("key");
+        when(bindingResult.hasErrors()).thenReturn(false);
+        when(appUserService.getConnectedUser()).thenReturn(appUser);
+        when(idempotencyService.isApplied(1, "key")).thenReturn(false);
+
+        doThrow(new DataIntegrityViolationException("Column 'description' cannot be null")).when(ledgerService)
+                .deposit(any(AppUser.class), any(), anyString(), any());
+
+        BalanceException exception = assertThrows(BalanceException.class,
+                () -> homeService.creditBalance(balanceDto, bindingResult));
+
+        assertEquals("Une erreur est survenue lors du crédit", exception.getMessage());
+    }
+
+    @Test
+    void testWithdrawBalance_Failure_ConstraintViolationWithoutKey() {
+        when(bindingResult.hasErrors()).thenReturn(false);
+        when(appUserService.getConnectedUser()).thenReturn(appUser);
+
+        doThrow(new DataIntegrityViolationException("Duplicate key")).when(ledgerService)
+                .withdraw(any(AppUser.class), any(), anyString(), any());
+
+        BalanceException exception = assertThrows(BalanceException.class,
+                () -> homeService.withdrawBalance(balanceDto, bindingResult));
+
+        assertEquals("Une erreur est survenue lors du débit", exception.getMessage());
     }
 
     @Test
@@ -105,8 +178,7 @@ public class HomeServiceTests {
         });
 
         assertEquals("Vous devez renseigner un montant", exception.getMessage());
-        verify(transactionRepository, never()).save(any(Transaction.class));
-        verify(appUserService, never()).updateBalance(any(AppUser.class), any());
+        verifyNoInteractions(ledgerService);
     }
 
     @Test
@@ -120,8 +192,7 @@ public class HomeServiceTests {
         });
 
         assertEquals("Le montant doit être différend de 0", exception.getMessage());
-        verify(transactionRepository, never()).save(any(Transaction.class));
-        verify(appUserService, never()).updateBalance(any(AppUser.class), any());
+        verifyNoInteractions(ledgerService);
     }
 
     @Test
@@ -129,8 +200,8 @@ public class HomeServiceTests {
         when(bindingResult.hasErrors()).thenReturn(false);
         when(appUserService.getConnectedUser()).thenReturn(appUser);
 
-        doThrow(new RuntimeException("Database error")).when(transactionRepository)
-                .save(any(Transaction.class));
+        doThrow(new RuntimeException("Database error")).when(ledgerService)
+                .deposit(any(AppUser.class), any(), anyString(), any());
 
         BalanceException exception = assertThrows(BalanceException.class, () -> {
             homeService.creditBalance(balanceDto, bindingResult);
@@ -144,11 +215,26 @@ public class HomeServiceTests {
         when(bindingResult.hasErrors()).thenReturn(false);
         when(appUserService.getConnectedUser()).thenReturn(appUser);
 
+        when(ledgerService.withdraw(any(AppUser.class), any(), anyString(), any())).thenReturn(true);
+
         homeService.withdrawBalance(balanceDto, bindingResult);
 
-        verify(transactionRepository, times(1)).save(any(Transaction.class));
-        verify(appUserService, times(1)).updateBalance(appUser, BigDecimal.valueOf(-100)
-                .setScale(2, RoundingMode.HALF_UP));
+        verify(accountLockManager, times(1)).lock(1);
+        verify(ledgerService, times(1)).withdraw(appUser, BigDecimal.valueOf(100)
+                .setScale(2, RoundingMode.HALF_UP), "Débit", null);
+    }
+
+    @Test
+    void testWithdrawBalance_Replay() {
+        balanceDto.setIdempotencyKey("key");
+
+        when(bindingResult.hasErrors()).thenReturn(false);
+        when(appUserService.getConnectedUser()).thenReturn(appUser);
+        when(idempotencyService.isApplied(1, "key")).thenReturn(true);
+
+        homeService.withdrawBalance(balanceDto, bindingResult);
+
+        verifyNoInteractions(ledgerService);
     }
 
     @Test
@@ -160,8 +246,7 @@ public class HomeServiceTests {
         });
 
         assertEquals("Vous devez renseigner un montant", exception.getMessage());
-        verify(transactionRepository, never()).save(any(Transaction.class));
-        verify(appUserService, never()).updateBalance(any(AppUser.class), any());
+        verifyNoInteractions(ledgerService);
     }
 
     @Test
@@ -175,22 +260,20 @@ public class HomeServiceTests {
         });
 
         assertEquals("Le montant doit être différend de 0", exception.getMessage());
-        verify(transactionRepository, never()).save(any(Transaction.class));
-        verify(appUserService, never()).updateBalance(any(AppUser.class), any());
+        verifyNoInteractions(ledgerService);
     }
 
     @Test
     void testWithdrawBalance_Failure_NegativeBalance() {
         when(bindingResult.hasErrors()).thenReturn(false);
-        when(validators.isBalanceNegative(any())).thenReturn(true);
+        when(appUserService.getConnectedUser()).thenReturn(appUser);
+        when(ledgerService.withdraw(any(AppUser.class), any(), anyString(), any())).thenReturn(false);
 
         BalanceException exception = assertThrows(BalanceException.class, () -> {
             homeService.withdrawBalance(balanceDto, bindingResult);
         });
 
         assertEquals("Votre solde ne peut pas être négatif", exception.getMessage());
-        verify(transactionRepository, never()).save(any(Transaction.class));
-        verify(appUserService, never()).updateBalance(any(AppUser.class), any());
     }
 
     @Test
@@ -198,8 +281,8 @@ public class HomeServiceTests {
         when(bindingResult.hasErrors()).thenReturn(false);
         when(appUserService.getConnectedUser()).thenReturn(appUser);
 
-        doThrow(new RuntimeException("Database error")).when(transactionRepository)
-                .save(any(Transaction.class));
+        doThrow(new RuntimeException("Database error")).when(ledgerService)
+                .withdraw(any(AppUser.class), any(), anyString(), any());
 
         BalanceException exception = assertThrows(BalanceException.class, () -> {
             homeService.withdrawBalance(balanceDto, bindingResult);
@@ -0,0 +1,83 @@
+package com.openclassroom.PayMyBuddy.unitTests;
+
+import com.openclassroom.PayMyBuddy.entities.AppUser;
+import com.openclassroom.PayMyBuddy.entities.IdempotencyRecord;
+import com.openclassroom.PayMyBuddy.repository.IdempotencyRecordRepository;
+import com.openclassroom.PayMyBuddy.services.IdempotencyService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class IdempotencyServiceTests {
+    @Mock
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+    private IdempotencyService idempotencyService;
+    private AppUser appUser;
+
+    @BeforeEach
+    void setUp() {
+        idempotencyService = new IdempotencyService(2);
+        ReflectionTestUtils.setField(idempotencyService, "idempotencyRecordRepository", idempotencyRecordRepository);
+
+        appUser = new AppUser();
+        appUser.setId(1);
+    }
+
+    @Test
+    void testIsApplied_NoKey() {
+        assertFalse(idempotencyService.isApplied(1, null));
+        assertFalse(idempotencyService.isApplied(1, " "));
+        verifyNoInteractions(idempotencyRecordRepository);
+    }
+
+    @Test
+    void testIsApplied_UnknownKey() {
+        when(idempotencyRecordRepository.existsByUserIdAndIdempotencyKey(1, "key")).thenReturn(false);
+
+        assertFalse(idempotencyService.isApplied(1, "key"));
+    }
+
+    @Test
+    void testIsApplied_FoundInDatabaseThenCached() {
+        when(idempotencyRecordRepository.existsByUserIdAndIdempotencyKey(1, "key")).thenReturn(true);
+
+        assertTrue(idempotencyService.isApplied(1, "key"));
+        assertTrue(idempotencyService.isApplied(1, "key"));
+        verify(idempotencyRecordRepository, times(1)).existsByUserIdAndIdempotencyKey(1, "key");
+    }
+
+    @Test
+    void testRecordApplied() {
+        idempotencyService.recordApplied(appUser, "key", "credit");
+
+        ArgumentCaptor<IdempotencyRecord> captor = ArgumentCaptor.forClass(IdempotencyRecord.class);
+        verify(idempotencyRecordRepository, times(1)).saveAndFlush(captor.capture());
+        assertEquals("key", captor.getValue().getIdempotencyKey());
+        assertEquals("credit", captor.getValue().getOperation());
+        assertTrue(idempotencyService.isApplied(1, "key"));
+        verify(idempotencyRecordRepository, never()).existsByUserIdAndIdempotencyKey(anyInt(), anyString());
+    }
+
+    @Test
+    void testRecordApplied_EldestKeyEvicted() {
+        idempotencyService.recordApplied(appUser, "key1", "credit");
+        idempotencyService.recordApplied(appUser, "key2", "credit");
+        idempotencyService.recordApplied(appUser, "key3", "credit");
+
+        assertFalse(idempotencyService.isApplied(1, "key1"));
+        verify(idempotencyRecordRepository, times(1)).existsByUserIdAndIdempotencyKey(1, "key1");
+    }
+
+    @Test
+    void testConstructor_InvalidCacheSize() {
+        assertThrows(IllegalArgumentException.class, () -> new IdempotencyService(0));
+    }
+}
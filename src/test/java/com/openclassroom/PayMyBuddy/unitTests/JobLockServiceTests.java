@@ -0,0 +1,58 @@
+package com.openclassroom.PayMyBuddy.unitTests;
+
+import com.openclassroom.PayMyBuddy.repository.JobLockRepository;
+import com.openclassroom.PayMyBuddy.services.JobLockService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class JobLockServiceTests {
+    @Mock
+    private JobLockRepository jobLockRepository;
+    @InjectMocks
+    private JobLockService jobLockService;
+
+    @Test
+    void testTryLock_Free() {
+        when(jobLockRepository.acquire(eq("job"), anyString(), any(), any())).thenReturn(1);
+
+        assertTrue(jobLockService.tryLock("job", Duration.ofMinutes(1)));
+        verify(jobLockRepository, never()).create(anyString(), anyString(), any());
+    }
+
+    @Test
+    void testTryLock_HeldByAnotherNode() {
+        when(jobLockRepository.acquire(eq("job"), anyString(), any(), any())).thenReturn(0);
+        when(jobLockRepository.existsById("job")).thenReturn(true);
+
+        assertFalse(jobLockService.tryLock("job", Duration.ofMinutes(1)));
+    }
+
+    @Test
+    void testTryLock_CreatesLock() {
+        when(jobLockRepository.acquire(eq("job"), anyString(), any(), any())).thenReturn(0);
+        when(jobLockRepository.existsById("job")).thenReturn(false);
+        when(jobLockRepository.create(eq("job"), anyString(), any())).thenReturn(1);
+
+        assertTrue(jobLockService.tryLock("job", Duration.ofMinutes(1)));
+    }
+
+    @Test
+    void testTryLock_CreatedConcurrently() {
+        when(jobLockRepository.acquire(eq("job"), anyString(), any(), any())).thenReturn(0);
+        when(jobLockRepository.existsById("job")).thenReturn(false);
+        when(jobLockRepository.create(eq("job"), anyString(), any()))
+                .thenThrow(new DataIntegrityViolationException("Duplicate key"));
+
+        assertFalse(jobLockService.tryLock("job", Duration.ofMinutes(1)));
+    }
+}
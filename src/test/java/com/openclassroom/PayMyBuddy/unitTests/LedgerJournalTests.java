@@ -0,0 +1,193 @@
+package com.openclassroom.PayMyBuddy.unitTests;
+
+import com.openclassroom.PayMyBuddy.entities.AppUser;
+import com.openclassroom.PayMyBuddy.services.AppUserService;
+import com.openclassroom.PayMyBuddy.services.LedgerJournal;
+import com.openclassroom.PayMyBuddy.services.LedgerService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class LedgerJournalTests {
+    @Mock
+    private LedgerService ledgerService;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    @Mock
+    private AppUserService appUserService;
+    private LedgerJournal ledgerJournal;
+    private AppUser sender;
+    private AppUser receiver;
+
+    @BeforeEach
+    void setUp() {
+        sender = new AppUser();
+        sender.setId(1);
+
+        receiver = new AppUser();
+        receiver.setId(2);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        ledgerJournal.destroy();
+    }
+
+    private void startJournal(boolean enabled) {
+        startJournal(enabled, 16, 3, 5000);
+    }
+
+    private void startJournal(boolean enabled, int capacity, int batchSize, long commitTimeoutMs) {
+        ledgerJournal = new LedgerJournal(enabled, capacity, batchSize, 1000, 50, commitTimeoutMs);
+        ReflectionTestUtils.setField(ledgerJournal, "ledgerService", ledgerService);
+        ReflectionTestUtils.setField(ledgerJournal, "transactionManager", transactionManager);
+        ReflectionTestUtils.setField(ledgerJournal, "appUserService", appUserService);
+        ledgerJournal.afterPropertiesSet();
+    }
+
+    @Test
+    void testSubmit_BatchCommittedTogether() throws Exception {
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(ledgerService.transfer(eq(sender), eq(receiver), any(), anyString(), any())).thenReturn(true, false, true);
+        startJournal(true);
+
+        List<CompletableFuture<Boolean>> results = List.of(
+                ledgerJournal.submit(sender, receiver, BigDecimal.ONE, "1", null),
+                ledgerJournal.submit(sender, receiver, BigDecimal.ONE, "2", null),
+                ledgerJournal.submit(sender, receiver, BigDecimal.ONE, "3", null));
+
+        assertTrue(results.get(0).get(5, TimeUnit.SECONDS));
+        assertFalse(results.get(1).get(5, TimeUnit.SECONDS));
+        assertTrue(results.get(2).get(5, TimeUnit.SECONDS));
+        verify(transactionManager, times(1)).getTransaction(any());
+        verify(transactionManager, times(1)).commit(any());
+    }
+
+    @Test
+    void testSubmit_FailedBatchWrittenOneByOne() throws Exception {
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(ledgerService.transfer(eq(sender), eq(receiver), any(), eq("1"), any())).thenReturn(true);
+        when(ledgerService.transfer(eq(sender), eq(receiver), any(), eq("2"), any()))
+                .thenThrow(new IllegalStateException("Database error"));
+        when(ledgerService.transfer(eq(sender), eq(receiver), any(), eq("3"), any())).thenReturn(true);
+        startJournal(true);
+
+        CompletableFuture<Boolean> first = ledgerJournal.submit(sender, receiver, BigDecimal.ONE, "1", null);
+        CompletableFuture<Boolean> second = ledgerJournal.submit(sender, receiver, BigDecimal.ONE, "2", null);
+        CompletableFuture<Boolean> third = ledgerJournal.submit(sender, receiver, BigDecimal.ONE, "3", null);
+
+        assertTrue(first.get(5, TimeUnit.SECONDS));
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> second.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, exception.getCause());
+        assertTrue(third.get(5, TimeUnit.SECONDS));
+        verify(transactionManager, times(4)).getTransaction(any());
+    }
+
+    @Test
+    void testTransfer_RethrowsCause() {
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(ledgerService.transfer(eq(sender), eq(receiver), any(), anyString(), any()))
+                .thenThrow(new IllegalStateException("Database error"));
+        startJournal(true);
+
+        assertThrows(IllegalStateException.class,
+                () -> ledgerJournal.transfer(sender, receiver, BigDecimal.ONE, "1", null));
+    }
+
+    @Test
+    void testSubmit_RejectedWhenFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch writing = new CountDownLatch(1);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(ledgerService.transfer(eq(sender), eq(receiver), any(), anyString(), any())).thenAnswer(invocation -> {
+            writing.countDown();
+            release.await();
+            return true;
+        });
+        startJournal(true, 1, 1, 5000);
+
+        CompletableFuture<Boolean> first = ledgerJournal.submit(sender, receiver, BigDecimal.ONE, "1", null);
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Boolean> second = ledgerJournal.submit(sender, receiver, BigDecimal.ONE, "2", null);
+        CompletableFuture<Boolean> third = ledgerJournal.submit(sender, receiver, BigDecimal.ONE, "3", null);
+
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> third.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(RejectedExecutionException.class, exception.getCause());
+        release.countDown();
+        assertTrue(first.get(5, TimeUnit.SECONDS));
+        assertTrue(second.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testTransfer_TimesOut() {
+        CountDownLatch release = new CountDownLatch(1);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(ledgerService.transfer(eq(sender), eq(receiver), any(), anyString(), any())).thenAnswer(invocation -> {
+            release.await();
+            return true;
+        });
+        startJournal(true, 16, 1, 100);
+
+        try {
+            assertThrows(IllegalStateException.class,
+                    () -> ledgerJournal.transfer(sender, receiver, BigDecimal.ONE, "1", null));
+        } finally {
+            release.countDown();
+        }
+        verify(appUserService, never()).invalidateConnectedUser();
+    }
+
+    @Test
+    void testSubmit_ErrorFailsBatchAndWriterSurvives() throws Exception {
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(ledgerService.transfer(eq(sender), eq(receiver), any(), eq("1"), any()))
+                .thenThrow(new AssertionError("Writer error"));
+        when(ledgerService.transfer(eq(sender), eq(receiver), any(), eq("2"), any())).thenReturn(true);
+        startJournal(true, 16, 1, 5000);
+
+        CompletableFuture<Boolean> failed = ledgerJournal.submit(sender, receiver, BigDecimal.ONE, "1", null);
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> failed.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(AssertionError.class, exception.getCause());
+
+        assertTrue(ledgerJournal.submit(sender, receiver, BigDecimal.ONE, "2", null).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testSubmit_RefusedAfterDestroy() throws Exception {
+        startJournal(true);
+        ledgerJournal.destroy();
+
+        CompletableFuture<Boolean> result = ledgerJournal.submit(sender, receiver, BigDecimal.ONE, "1", null);
+
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> result.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(RejectedExecutionException.class, exception.getCause());
+        verifyNoInteractions(ledgerService);
+    }
+
+    @Test
+    void testSubmit_Disabled() {
+        startJournal(false);
+
+        assertFalse(ledgerJournal.isEnabled());
+        assertTrue(ledgerJournal.submit(sender, receiver, BigDecimal.ONE, "1", null).isCompletedExceptionally());
+        verifyNoInteractions(ledgerService);
+    }
+}
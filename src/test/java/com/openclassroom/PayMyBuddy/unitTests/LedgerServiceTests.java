@@ -0,0 +1,146 @@
+package com.openclassroom.PayMyBuddy.unitTests;
+
+import com.openclassroom.PayMyBuddy.entities.AppUser;
+import com.openclassroom.PayMyBuddy.entities.Transaction;
+import com.openclassroom.PayMyBuddy.repository.AppUserRepository;
+import com.openclassroom.PayMyBuddy.repository.TransactionRepository;
+import com.openclassroom.PayMyBuddy.services.AppUserService;
+import com.openclassroom.PayMyBuddy.services.IdempotencyService;
+import com.openclassroom.PayMyBuddy.services.LedgerService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class LedgerServiceTests {
+    @Mock
+    private AppUserRepository appUserRepository;
+    @Mock
+    private TransactionRepository transactionRepository;
+    @Mock
+    private IdempotencyService idempotencyService;
+    @Mock
+    private AppUserService appUserService;
+    @InjectMocks
+    private LedgerService ledgerService;
+    private AppUser sender;
+    private AppUser receiver;
+    private BigDecimal amount;
+
+    @BeforeEach
+    void setUp() {
+        sender = new AppUser();
+        sender.setId(1);
+
+        receiver = new AppUser();
+        receiver.setId(2);
+
+        amount = BigDecimal.valueOf(20);
+    }
+
+    @Test
+    void testTransfer_Success() {
+        when(appUserRepository.debitBalance(1, amount)).thenReturn(1);
+
+        boolean result = ledgerService.transfer(sender, receiver, amount, "Test", "key");
+
+        assertTrue(result);
+        verify(idempotencyService, times(1)).recordApplied(sender, "key", "transaction");
+        verify(appUserRepository, times(1)).creditBalance(2, amount);
+        verify(appUserService, times(1)).invalidateUser(1);
+        verify(appUserService, times(1)).invalidateUser(2);
+        ArgumentCaptor<Transaction> captor = ArgumentCaptor.forClass(Transaction.class);
+        verify(transactionRepository, times(1)).save(captor.capture());
+        assertEquals(sender, captor.getValue().getUser());
+        assertEquals(receiver, captor.getValue().getReceiver());
+        assertEquals(amount, captor.getValue().getAmount());
+    }
+
+    @Test
+    void testTransfer_Failure_InsufficientBalance() {
+        when(appUserRepository.debitBalance(1, amount)).thenReturn(0);
+
+        boolean result = ledgerService.transfer(sender, receiver, amount, "Test", "key");
+
+        assertFalse(result);
+        verify(idempotencyService, never()).recordApplied(any(), any(), any());
+        verify(appUserRepository, never()).creditBalance(anyInt(), any());
+        verify(transactionRepository, never()).save(any(Transaction.class));
+    }
+
+    @Test
+    void testDeposit() {
+        ledgerService.deposit(sender, amount, "Crédit", "key");
+
+        verify(appUserRepository, times(1)).creditBalance(1, amount);
+        verify(transactionRepository, times(1)).save(any(Transaction.class));
+    }
+
+    @Test
+    void testWithdraw_Success() {
+        when(appUserRepository.debitBalance(1, amount)).thenReturn(1);
+
+        boolean result = ledgerService.withdraw(sender, amount, "Débit", "key");
+
+        assertTrue(result);
+        ArgumentCaptor<Transaction> captor = ArgumentCaptor.forClass(Transaction.class);
+        verify(transactionRepository, times(1)).save(captor.capture());
+        assertEquals(amount.negate(), captor.getValue().getAmount());
+    }
+
+    @Test
+    void testWithdraw_Failure_InsufficientBalance() {
+        when(appUserRepository.debitBalance(1, amount)).thenReturn(0);
+
+        boolean result = ledgerService.withdraw(sender, amount, "Débit", "key");
+
+        assertFalse(result);
+        verify(transactionRepository, never()).save(any(Transaction.class));
+    }
+
+    @Test
+    void testTransferAll_Success() {
+        AppUser otherReceiver = new AppUser();
+        otherReceiver.setId(3);
+        List<Transaction> transactions = List.of(newTransaction(receiver, amount),
+                newTransaction(otherReceiver, BigDecimal.valueOf(5)), newTransaction(receiver, amount));
+        when(appUserRepository.debitBalance(1, BigDecimal.valueOf(45))).thenReturn(1);
+
+        boolean result = ledgerService.transferAll(sender, transactions, "key");
+
+        assertTrue(result);
+        verify(appUserRepository, times(1)).creditBalance(2, BigDecimal.valueOf(40));
+        verify(appUserRepository, times(1)).creditBalance(3, BigDecimal.valueOf(5));
+        verify(transactionRepository, times(1)).saveAll(transactions);
+    }
+
+    @Test
+    void testTransferAll_Failure_InsufficientBalance() {
+        List<Transaction> transactions = List.of(newTransaction(receiver, amount));
+        when(appUserRepository.debitBalance(1, amount)).thenReturn(0);
+
+        boolean result = ledgerService.transferAll(sender, transactions, "key");
+
+        assertFalse(result);
+        verify(appUserRepository, never()).creditBalance(anyInt(), any());
+        verify(transactionRepository, never()).saveAll(anyList());
+    }
+
+    private Transaction newTransaction(AppUser transactionReceiver, BigDecimal transactionAmount) {
+        Transaction transaction = new Transaction();
+        transaction.setUser(sender);
+        transaction.setReceiver(transactionReceiver);
+        transaction.setAmount(transactionAmount);
+        return transaction;
+    }
+}
@@ -0,0 +1,87 @@
+package com.openclassroom.PayMyBuddy.unitTests;
+
+import com.openclassroom.PayMyBuddy.models.LedgerSummaryView;
+import com.openclassroom.PayMyBuddy.repository.AppUserRepository;
+import com.openclassroom.PayMyBuddy.services.LedgerVersionService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class LedgerVersionServiceTests {
+    @Mock
+    private AppUserRepository appUserRepository;
+    @InjectMocks
+    private LedgerVersionService ledgerVersionService;
+
+    @Test
+    void testGetVersion() {
+        when(appUserRepository.findLedgerVersion(1)).thenReturn(7L);
+
+        assertEquals(7, ledgerVersionService.getVersion(1));
+    }
+
+    @Test
+    void testGetVersion_UnknownUser() {
+        when(appUserRepository.findLedgerVersion(1)).thenReturn(null);
+
+        assertEquals(0, ledgerVersionService.getVersion(1));
+    }
+
+    @Test
+    void testGetSummary() {
+        LedgerSummaryView summary = mock(LedgerSummaryView.class);
+        when(appUserRepository.findLedgerSummary(1)).thenReturn(summary);
+
+        assertSame(summary, ledgerVersionService.getSummary(1));
+    }
+
+    @Test
+    void testGetETag_ChangesWithVersionAndSession() {
+        when(appUserRepository.findLedgerVersion(1)).thenReturn(7L, 7L, 8L, 7L);
+
+        String eTag = ledgerVersionService.getETag(1, "session");
+
+        assertTrue(eTag.startsWith("W/\""));
+        assertEquals(eTag, ledgerVersionService.getETag(1, "session"));
+        assertNotEquals(eTag, ledgerVersionService.getETag(1, "session"));
+        assertNotEquals(eTag, ledgerVersionService.getETag(1, "otherSession"));
+    }
+
+    @Test
+    void testGetETag_SameOnEveryNode() {
+        LedgerVersionService otherNode = new LedgerVersionService();
+        ReflectionTestUtils.setField(otherNode, "appUserRepository", appUserRepository);
+        when(appUserRepository.findLedgerVersion(1)).thenReturn(7L);
+
+        assertEquals(ledgerVersionService.getETag(1, "session"), otherNode.getETag(1, "session"));
+    }
+
+    @Test
+    void testEpoch_ChangesWithResources() {
+        String epoch = LedgerVersionService.epoch("classpath*:/templates/**/*.*");
+
+        assertEquals(epoch, LedgerVersionService.epoch("classpath*:/templates/**/*.*"));
+        assertNotEquals(epoch, LedgerVersionService.epoch("classpath*:/templates/home.html"));
+    }
+
+    @Test
+    void testIncrement() {
+        ledgerVersionService.increment(1);
+
+        verify(appUserRepository, times(1)).incrementLedgerVersion(1);
+    }
+
+    @Test
+    void testIncrementWithCounterparties() {
+        ledgerVersionService.incrementWithCounterparties(1);
+
+        verify(appUserRepository, times(1)).incrementCounterpartyLedgerVersions(1);
+    }
+}
@@ -0,0 +1,58 @@
+package com.openclassroom.PayMyBuddy.unitTests;
+
+import com.openclassroom.PayMyBuddy.models.AppUserCacheStatsDto;
+import com.openclassroom.PayMyBuddy.models.FragmentCacheStatsDto;
+import com.openclassroom.PayMyBuddy.models.LockStripeStatsDto;
+import com.openclassroom.PayMyBuddy.models.PasswordHashingStatsDto;
+import com.openclassroom.PayMyBuddy.services.AccountLockManager;
+import com.openclassroom.PayMyBuddy.services.AppUserCache;
+import com.openclassroom.PayMyBuddy.services.BoundedPasswordEncoder;
+import com.openclassroom.PayMyBuddy.services.FragmentRenderCache;
+import com.openclassroom.PayMyBuddy.services.MetricsReporter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class MetricsReporterTests {
+    @Mock
+    private AccountLockManager accountLockManager;
+    @Mock
+    private AppUserCache appUserCache;
+    @Mock
+    private FragmentRenderCache fragmentRenderCache;
+    @Mock
+    private BoundedPasswordEncoder passwordEncoder;
+    @InjectMocks
+    private MetricsReporter metricsReporter;
+
+    private LockStripeStatsDto stripeStats(int stripe, long contendedAcquisitions) {
+        LockStripeStatsDto stats = new LockStripeStatsDto();
+        stats.setStripe(stripe);
+        stats.setAcquisitions(10);
+        stats.setContendedAcquisitions(contendedAcquisitions);
+        stats.setTotalWaitNanos(contendedAcquisitions * 1_000);
+        return stats;
+    }
+
+    @Test
+    void testReport_ReadsEveryMetric() {
+        when(accountLockManager.getStripeStats()).thenReturn(List.of(stripeStats(0, 0), stripeStats(1, 2)));
+        when(appUserCache.getStats()).thenReturn(new AppUserCacheStatsDto());
+        when(fragmentRenderCache.getStats()).thenReturn(new FragmentCacheStatsDto());
+        when(passwordEncoder.getStats()).thenReturn(new PasswordHashingStatsDto());
+
+        metricsReporter.report();
+
+        verify(accountLockManager, times(1)).getStripeStats();
+        verify(appUserCache, times(1)).getStats();
+        verify(fragmentRenderCache, times(1)).getStats();
+        verify(passwordEncoder, times(1)).getStats();
+    }
+}
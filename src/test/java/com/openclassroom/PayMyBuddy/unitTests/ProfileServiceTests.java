@@ -1,13 +1,16 @@
 package com.openclassroom.PayMyBuddy.unitTests;
 
 import com.openclassroom.PayMyBuddy.entities.AppUser;
+import com.openclassroom.PayMyBuddy.exceptions.PasswordHashingRejectedException;
 import com.openclassroom.PayMyBuddy.exceptions.ProfileUpdateException;
 import com.openclassroom.PayMyBuddy.models.UpdatePasswordDto;
 import com.openclassroom.PayMyBuddy.models.UpdateProfileDto;
 import com.openclassroom.PayMyBuddy.models.UserProfileDto;
 import com.openclassroom.PayMyBuddy.repository.AppUserRepository;
 import com.openclassroom.PayMyBuddy.services.AppUserService;
+import com.openclassroom.PayMyBuddy.services.LedgerVersionService;
 import com.openclassroom.PayMyBuddy.services.ProfileService;
+import com.openclassroom.PayMyBuddy.services.UserKeyFilter;
 import com.openclassroom.PayMyBuddy.services.Validators;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -32,6 +35,10 @@ class ProfileServiceTests {
     @Mock
     private PasswordEncoder passwordEncoder;
     @Mock
+    private LedgerVersionService ledgerVersionService;
+    @Mock
+    private UserKeyFilter userKeyFilter;
+    @Mock
     private BindingResult bindingResult;
     @InjectMocks
     private ProfileService profileService;
@@ -67,15 +74,17 @@ class ProfileServiceTests {
     @Test
     void testUpdateProfile_Success() {
         when(bindingResult.hasErrors()).thenReturn(false);
-        when(appUserService.getConnectedUser()).thenReturn(appUser);
+        when(appUserService.getConnectedUserId()).thenReturn(1);
         when(validators.usernameExists(anyString())).thenReturn(false);
         when(validators.emailExists(anyString())).thenReturn(false);
 
         profileService.updateProfile(profileDto, bindingResult);
 
-        verify(appUserRepository, times(1)).save(any(AppUser.class));
-        assertEquals("newTest", appUser.getUsername());
-        assertEquals("newEmail@test.com", appUser.getEmail());
+        verify(appUserRepository, times(1)).updateProfile(1, "newTest", "newEmail@test.com");
+        verify(userKeyFilter, times(1)).add("newTest", "newEmail@test.com");
+        verify(appUserRepository, never()).save(any(AppUser.class));
+        verify(appUserService, times(1)).invalidateUser(1);
+        verify(ledgerVersionService, times(1)).incrementWithCounterparties(1);
     }
 
     @Test
@@ -87,7 +96,7 @@ class ProfileServiceTests {
         });
 
         assertEquals("Le formulaire n'est pas renseigné correctement", exception.getMessage());
-        verify(appUserRepository, never()).save(any(AppUser.class));
+        verify(appUserRepository, never()).updateProfile(anyInt(), any(), any());
     }
 
     @Test
@@ -95,7 +104,7 @@ class ProfileServiceTests {
         profileDto.setEmail("");
 
         when(bindingResult.hasErrors()).thenReturn(false);
-        when(appUserService.getConnectedUser()).thenReturn(appUser);
+        when(appUserService.getConnectedUserId()).thenReturn(1);
         when(validators.usernameExists(anyString())).thenReturn(true);
 
         ProfileUpdateException exception = assertThrows(ProfileUpdateException.class, () -> {
@@ -103,7 +112,7 @@ class ProfileServiceTests {
         });
 
         assertEquals("Le username existe déjà", exception.getMessage());
-        verify(appUserRepository, never()).save(any(AppUser.class));
+        verify(appUserRepository, never()).updateProfile(anyInt(), any(), any());
     }
 
     @Test
@@ -111,7 +120,7 @@ class ProfileServiceTests {
         profileDto.setUsername("");
 
         when(bindingResult.hasErrors()).thenReturn(false);
-        when(appUserService.getConnectedUser()).thenReturn(appUser);
+        when(appUserService.getConnectedUserId()).thenReturn(1);
         when(validators.emailExists(anyString())).thenReturn(true);
 
         ProfileUpdateException exception = assertThrows(ProfileUpdateException.class, () -> {
@@ -119,18 +128,18 @@ class ProfileServiceTests {
         });
 
         assertEquals("L'email existe déjà", exception.getMessage());
-        verify(appUserRepository, never()).save(any(AppUser.class));
+        verify(appUserRepository, never()).updateProfile(anyInt(), any(), any());
     }
 
     @Test
     void testUpdateProfile_Failure_CatchBlock() {
         when(bindingResult.hasErrors()).thenReturn(false);
-        when(appUserService.getConnectedUser()).thenReturn(appUser);
+        when(appUserService.getConnectedUserId()).thenReturn(1);
         when(validators.usernameExists(anyString())).thenReturn(false);
         when(validators.emailExists(anyString())).thenReturn(false);
 
         doThrow(new RuntimeException("Database error")).when(appUserRepository)
-                .save(any());
+                .updateProfile(anyInt(), any(), any());
 
         ProfileUpdateException exception = assertThrows(ProfileUpdateException.class, () -> {
             profileService.updateProfile(profileDto, bindingResult);
@@ -146,12 +155,12 @@ class ProfileServiceTests {
         when(validators.isValidPassword(anyString())).thenReturn(true);
         when(validators.passwordMatches(anyString(), anyString())).thenReturn(true);
         when(passwordEncoder.encode(anyString())).thenReturn("hashedPassword1");
-        when(appUserService.getConnectedUser()).thenReturn(appUser);
+        when(appUserService.getConnectedUserId()).thenReturn(1);
 
         assertDoesNotThrow(() -> profileService.updatePassword(passwordDto, bindingResult));
 
-        verify(appUserRepository, times(1)).save(appUser);
-        assertEquals("hashedPassword1", appUser.getPassword());
+        verify(appUserRepository, times(1)).updatePassword(1, "hashedPassword1");
+        verify(appUserRepository, never()).save(any(AppUser.class));
     }
 
     @Test
@@ -163,7 +172,7 @@ class ProfileServiceTests {
         });
 
         assertEquals("Le formulaire n'est pas renseigné correctement", exception.getMessage());
-        verify(appUserRepository, never()).save(any(AppUser.class));
+        verify(appUserRepository, never()).updatePassword(anyInt(), anyString());
     }
 
     @Test
@@ -176,7 +185,7 @@ class ProfileServiceTests {
         });
 
         assertEquals("le mot de passe n'est pas correct", exception.getMessage());
-        verify(appUserRepository, never()).save(any(AppUser.class));
+        verify(appUserRepository, never()).updatePassword(anyInt(), anyString());
     }
 
     @Test
@@ -190,7 +199,7 @@ class ProfileServiceTests {
         });
 
         assertEquals("MDP : 6 char minimum : 1 MAJ, 1 min, 1 chiffre", exception.getMessage());
-        verify(appUserRepository, never()).save(any(AppUser.class));
+        verify(appUserRepository, never()).updatePassword(anyInt(), anyString());
     }
 
     @Test
@@ -205,7 +214,7 @@ class ProfileServiceTests {
         });
 
         assertEquals("Les mots de passe ne correspondent pas", exception.getMessage());
-        verify(appUserRepository, never()).save(any(AppUser.class));
+        verify(appUserRepository, never()).updatePassword(anyInt(), anyString());
     }
 
     @Test
@@ -224,4 +233,17 @@ class ProfileServiceTests {
 
         assertEquals("Une erreur s'est produite lors de la modification du profile", exception.getMessage());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testUpdatePassword_Failure_HashingRejected() {
+        when(bindingResult.hasErrors()).thenReturn(false);
+        when(validators.checkPassword(anyString())).thenReturn(true);
+        when(validators.isValidPassword(anyString())).thenReturn(true);
+        when(validators.passwordMatches(anyString(), anyString())).thenReturn(true);
+        when(passwordEncoder.encode(any())).thenThrow(new PasswordHashingRejectedException("Surchargé"));
+
+        assertThrows(PasswordHashingRejectedException.class, () -> profileService.updatePassword(passwordDto, bindingResult));
+
+        verify(appUserRepository, never()).updatePassword(anyInt(), anyString());
+    }
+}
@@ -0,0 +1,125 @@
+package com.openclassroom.PayMyBuddy.unitTests;
+
+import com.openclassroom.PayMyBuddy.config.RehashingAuthenticationProvider;
+import com.openclassroom.PayMyBuddy.entities.AppUser;
+import com.openclassroom.PayMyBuddy.entities.Role;
+import com.openclassroom.PayMyBuddy.models.AuthenticatedUser;
+import com.openclassroom.PayMyBuddy.services.BoundedPasswordEncoder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class RehashingAuthenticationProviderTests {
+    @Mock
+    private UserDetailsService userDetailsService;
+    @Mock
+    private UserDetailsPasswordService userDetailsPasswordService;
+    private BoundedPasswordEncoder passwordEncoder;
+    private RehashingAuthenticationProvider provider;
+
+    @BeforeEach
+    void setUp() {
+        passwordEncoder = new BoundedPasswordEncoder(new BCryptPasswordEncoder(5), 1, 4);
+        provider = new RehashingAuthenticationProvider(userDetailsService, passwordEncoder, userDetailsPasswordService);
+    }
+
+    @AfterEach
+    void tearDown() {
+        passwordEncoder.destroy();
+    }
+
+    private AppUser user(String password) {
+        AppUser appUser = new AppUser();
+        appUser.setId(1);
+        appUser.setEmail("test@email.com");
+        appUser.setPassword(password);
+        appUser.setAccountNonExpired(true);
+        appUser.setAccountNonLocked(true);
+        appUser.setCredentialsNonExpired(true);
+        appUser.setEnabled(true);
+        return appUser;
+    }
+
+    @Test
+    void testAuthenticate_OutdatedHashRecomputed() {
+        AppUser appUser = user(new BCryptPasswordEncoder(4).encode("Password1"));
+        when(userDetailsService.loadUserByUsername("test@email.com")).thenReturn(appUser);
+
+        Authentication authentication = provider.authenticate(
+                new UsernamePasswordAuthenticationToken("test@email.com", "Password1"));
+
+        assertTrue(authentication.isAuthenticated());
+        verify(userDetailsPasswordService, timeout(5_000)).updatePassword(same(appUser),
+                argThat(hash -> hash.startsWith("$2a$05$") && new BCryptPasswordEncoder().matches("Password1", hash)));
+    }
+
+    @Test
+    void testAuthenticate_SlimPrincipal() throws Exception {
+        AppUser appUser = user(new BCryptPasswordEncoder(5).encode("Password1"));
+        appUser.setUsername("testuser");
+        appUser.setBalance(BigDecimal.valueOf(100.00));
+        appUser.setCreated_at(LocalDateTime.now());
+        appUser.setUpdated_at(LocalDateTime.now());
+        appUser.setRoles(Role.USER.mask());
+        when(userDetailsService.loadUserByUsername("test@email.com")).thenReturn(appUser);
+
+        Authentication authentication = provider.authenticate(
+                new UsernamePasswordAuthenticationToken("test@email.com", "Password1"));
+
+        AuthenticatedUser principal = assertInstanceOf(AuthenticatedUser.class, authentication.getPrincipal());
+        assertEquals(new AuthenticatedUser(1, "test@email.com", Role.USER.mask()), principal);
+        assertEquals(appUser.getAuthorities(), authentication.getAuthorities());
+        assertTrue(serializedSize(principal) * 2 < serializedSize(appUser));
+    }
+
+    private static int serializedSize(Object object) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+            output.writeObject(object);
+        }
+        return bytes.size();
+    }
+
+    @Test
+    void testAuthenticate_CurrentHashKept() throws Exception {
+        AppUser appUser = user(new BCryptPasswordEncoder(5).encode("Password1"));
+        when(userDetailsService.loadUserByUsername("test@email.com")).thenReturn(appUser);
+
+        provider.authenticate(new UsernamePasswordAuthenticationToken("test@email.com", "Password1"));
+
+        Thread.sleep(100);
+        verifyNoInteractions(userDetailsPasswordService);
+    }
+
+    @Test
+    void testAuthenticate_WrongPasswordNotRecomputed() throws Exception {
+        AppUser appUser = user(new BCryptPasswordEncoder(4).encode("Password1"));
+        when(userDetailsService.loadUserByUsername("test@email.com")).thenReturn(appUser);
+
+        assertThrows(BadCredentialsException.class, () -> provider.authenticate(
+                new UsernamePasswordAuthenticationToken("test@email.com", "Password2")));
+
+        Thread.sleep(100);
+        verifyNoInteractions(userDetailsPasswordService);
+    }
+}
@@ -0,0 +1,197 @@
+package com.openclassroom.PayMyBuddy.unitTests;
+
+import com.openclassroom.PayMyBuddy.entities.AppUser;
+import com.openclassroom.PayMyBuddy.entities.Relation;
+import com.openclassroom.PayMyBuddy.models.RelationEdgeView;
+import com.openclassroom.PayMyBuddy.repository.RelationRepository;
+import com.openclassroom.PayMyBuddy.services.RelationGraphIndex;
+import org.hibernate.event.spi.PersistEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class RelationGraphIndexTests {
+    @Mock
+    private RelationRepository relationRepository;
+    private RelationGraphIndex relationGraphIndex;
+
+    @BeforeEach
+    void setUp() {
+        relationGraphIndex = new RelationGraphIndex();
+        ReflectionTestUtils.setField(relationGraphIndex, "relationRepository", relationRepository);
+        ReflectionTestUtils.setField(relationGraphIndex, "pageSize", 2);
+    }
+
+    private RelationEdgeView edge(int id, int userId, int relatedUserId) {
+        return new SpelAwareProxyProjectionFactory().createProjection(RelationEdgeView.class,
+                Map.of("id", id, "userId", userId, "relatedUserId", relatedUserId));
+    }
+
+    private Relation relation(int userId, int relatedUserId) {
+        AppUser user = new AppUser();
+        user.setId(userId);
+        AppUser relatedUser = new AppUser();
+        relatedUser.setId(relatedUserId);
+        Relation relation = new Relation();
+        relation.setUser(user);
+        relation.setRelatedUser(relatedUser);
+        return relation;
+    }
+
+    @Test
+    void testLoad_ReadsEveryPage() {
+        when(relationRepository.findEdgesAfter(0, PageRequest.of(0, 2)))
+                .thenReturn(List.of(edge(1, 1, 5), edge(2, 1, 3)));
+        when(relationRepository.findEdgesAfter(2, PageRequest.of(0, 2)))
+                .thenReturn(List.of(edge(4, 2, 1)));
+
+        relationGraphIndex.load();
+
+        assertTrue(relationGraphIndex.contains(1, 3));
+        assertTrue(relationGraphIndex.contains(1, 5));
+        assertTrue(relationGraphIndex.contains(2, 1));
+        assertFalse(relationGraphIndex.contains(3, 1));
+        assertArrayEquals(new int[]{3, 5}, relationGraphIndex.relatedUserIds(1));
+        verify(relationRepository, never()).existsByUserIdAndRelatedUserId(1, 3);
+    }
+
+    @Test
+    void testLoad_IgnoresDuplicates() {
+        when(relationRepository.findEdgesAfter(0, PageRequest.of(0, 2)))
+                .thenReturn(List.of(edge(1, 1, 2), edge(2, 1, 2)));
+        when(relationRepository.findEdgesAfter(2, PageRequest.of(0, 2))).thenReturn(List.of());
+
+        relationGraphIndex.load();
+
+        assertArrayEquals(new int[]{2}, relationGraphIndex.relatedUserIds(1));
+    }
+
+    @Test
+    void testContains_UnknownUser() {
+        assertFalse(relationGraphIndex.contains(-1, 2));
+        assertFalse(relationGraphIndex.contains(1_000, 2));
+        assertEquals(0, relationGraphIndex.relatedUserIds(1_000).length);
+    }
+
+    @Test
+    void testContains_MissAddedByAnotherNode() {
+        when(relationRepository.existsByUserIdAndRelatedUserId(1, 2)).thenReturn(true);
+
+        assertTrue(relationGraphIndex.contains(1, 2));
+        assertTrue(relationGraphIndex.contains(1, 2));
+
+        verify(relationRepository, times(1)).existsByUserIdAndRelatedUserId(1, 2);
+        assertArrayEquals(new int[]{2}, relationGraphIndex.relatedUserIds(1));
+    }
+
+    @Test
+    void testContains_MissNotInDatabase() {
+        when(relationRepository.existsByUserIdAndRelatedUserId(1, 2)).thenReturn(false);
+
+        assertFalse(relationGraphIndex.contains(1, 2));
+        assertFalse(relationGraphIndex.contains(1, 2));
+
+        verify(relationRepository, times(2)).existsByUserIdAndRelatedUserId(1, 2);
+    }
+
+    @Test
+    void testAdd_KeepsRowsSorted() {
+        assertTrue(relationGraphIndex.add(7, 9));
+        assertTrue(relationGraphIndex.add(7, 2));
+        assertTrue(relationGraphIndex.add(7, 5));
+        assertFalse(relationGraphIndex.add(7, 5));
+
+        assertArrayEquals(new int[]{2, 5, 9}, relationGraphIndex.relatedUserIds(7));
+        assertFalse(relationGraphIndex.contains(9, 7));
+    }
+
+    @Test
+    void testRelatedUserIds_ReturnsCopy() {
+        relationGraphIndex.add(1, 2);
+
+        relationGraphIndex.relatedUserIds(1)[0] = 3;
+
+        assertTrue(relationGraphIndex.contains(1, 2));
+        assertFalse(relationGraphIndex.contains(1, 3));
+    }
+
+    @Test
+    void testRemove() {
+        relationGraphIndex.add(1, 2);
+        relationGraphIndex.add(1, 3);
+
+        assertTrue(relationGraphIndex.remove(1, 2));
+        assertFalse(relationGraphIndex.remove(1, 2));
+        assertFalse(relationGraphIndex.remove(4, 2));
+
+        assertArrayEquals(new int[]{3}, relationGraphIndex.relatedUserIds(1));
+    }
+
+    @Test
+    void testOnPersist_AddsRelation() {
+        PersistEvent event = mock(PersistEvent.class);
+        when(event.getObject()).thenReturn(relation(1, 2));
+
+        relationGraphIndex.onPersist(event);
+
+        assertArrayEquals(new int[]{2}, relationGraphIndex.relatedUserIds(1));
+    }
+
+    @Test
+    void testOnPersist_AddedOnceCommitted() {
+        PersistEvent event = mock(PersistEvent.class);
+        when(event.getObject()).thenReturn(relation(1, 2));
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            relationGraphIndex.onPersist(event);
+            assertEquals(0, relationGraphIndex.relatedUserIds(1).length);
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertArrayEquals(new int[]{2}, relationGraphIndex.relatedUserIds(1));
+    }
+
+    @Test
+    void testOnPersist_NotAddedOnRollback() {
+        PersistEvent event = mock(PersistEvent.class);
+        when(event.getObject()).thenReturn(relation(1, 2));
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            relationGraphIndex.onPersist(event);
+
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(0, relationGraphIndex.relatedUserIds(1).length);
+    }
+
+    @Test
+    void testOnPersist_IgnoresOtherEntities() {
+        PersistEvent event = mock(PersistEvent.class);
+        when(event.getObject()).thenReturn(new AppUser());
+
+        relationGraphIndex.onPersist(event);
+
+        assertEquals(0, relationGraphIndex.relatedUserIds(0).length);
+    }
+}
@@ -5,9 +5,10 @@ import com.openclassroom.PayMyBuddy.entities.Relation;
 import com.openclassroom.PayMyBuddy.exceptions.RelationException;
 import com.openclassroom.PayMyBuddy.models.RelationDto;
 import com.openclassroom.PayMyBuddy.models.UserProfileDto;
-import com.openclassroom.PayMyBuddy.repository.AppUserRepository;
 import com.openclassroom.PayMyBuddy.repository.RelationRepository;
+import com.openclassroom.PayMyBuddy.services.AppUserCache;
 import com.openclassroom.PayMyBuddy.services.AppUserService;
+import com.openclassroom.PayMyBuddy.services.LedgerVersionService;
 import com.openclassroom.PayMyBuddy.services.ProfileService;
 import com.openclassroom.PayMyBuddy.services.RelationsService;
 import com.openclassroom.PayMyBuddy.services.Validators;
@@ -34,10 +35,12 @@ public class RelationsServiceTests {
     @Mock
     private ProfileService profileService;
     @Mock
-    private AppUserRepository appUserRepository;
+    private AppUserCache appUserCache;
     @Mock
     private RelationRepository relationRepository;
     @Mock
+    private LedgerVersionService ledgerVersionService;
+    @Mock
     private BindingResult bindingResult;
     @InjectMocks
     private RelationsService relationsService;
@@ -111,11 +114,12 @@ public class RelationsServiceTests {
         when(bindingResult.hasErrors()).thenReturn(false);
         when(validators.emailExists(anyString())).thenReturn(true);
         when(appUserService.getConnectedUser()).thenReturn(appUser);
-        when(appUserRepository.findByEmail(anyString())).thenReturn(relationUser1);
+        when(appUserCache.findByEmail(anyString())).thenReturn(relationUser1);
         when(validators.relationExists(any(AppUser.class), any(AppUser.class))).thenReturn(false);
 
         relationsService.addRelation(relationDto, bindingResult);
         verify(relationRepository, times(1)).save(relation1);
+        verify(ledgerVersionService, times(1)).increment(appUser.getId());
     }
 
     @Test
@@ -148,7 +152,7 @@ public class RelationsServiceTests {
         when(bindingResult.hasErrors()).thenReturn(false);
         when(validators.emailExists(anyString())).thenReturn(true);
         when(appUserService.getConnectedUser()).thenReturn(appUser);
-        when(appUserRepository.findByEmail(anyString())).thenReturn(relationUser1);
+        when(appUserCache.findByEmail(anyString())).thenReturn(relationUser1);
         when(validators.relationExists(any(AppUser.class), any(AppUser.class))).thenReturn(true);
 
         RelationException exception = assertThrows(RelationException.class, () -> {
@@ -164,7 +168,7 @@ public class RelationsServiceTests {
         when(bindingResult.hasErrors()).thenReturn(false);
         when(validators.emailExists(anyString())).thenReturn(true);
         when(appUserService.getConnectedUser()).thenReturn(appUser);
-        when(appUserRepository.findByEmail(anyString())).thenReturn(appUser);
+        when(appUserCache.findByEmail(anyString())).thenReturn(appUser);
         when(validators.relationExists(any(AppUser.class), any(AppUser.class))).thenReturn(false);
 
         RelationException exception = assertThrows(RelationException.class, () -> {
@@ -180,7 +184,7 @@ public class RelationsServiceTests {
         when(bindingResult.hasErrors()).thenReturn(false);
         when(validators.emailExists(anyString())).thenReturn(true);
         when(appUserService.getConnectedUser()).thenReturn(appUser);
-        when(appUserRepository.findByEmail(anyString())).thenReturn(relationUser1);
+        when(appUserCache.findByEmail(anyString())).thenReturn(relationUser1);
         when(validators.relationExists(any(AppUser.class), any(AppUser.class))).thenReturn(false);
 
         doThrow(new RuntimeException()).when(relationRepository)
@@ -0,0 +1,72 @@
+package com.openclassroom.PayMyBuddy.unitTests;
+
+import com.openclassroom.PayMyBuddy.repository.AppUserRepository;
+import com.openclassroom.PayMyBuddy.services.SessionGenerationService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class SessionGenerationServiceTests {
+    @Mock
+    private AppUserRepository appUserRepository;
+
+    private SessionGenerationService service(int maxSize, Duration ttl) {
+        SessionGenerationService sessionGenerationService = new SessionGenerationService(maxSize, ttl);
+        ReflectionTestUtils.setField(sessionGenerationService, "appUserRepository", appUserRepository);
+        return sessionGenerationService;
+    }
+
+    @Test
+    void testGetGeneration_Cached() {
+        SessionGenerationService sessionGenerationService = service(10, Duration.ofMinutes(1));
+        when(appUserRepository.findSessionGeneration(1)).thenReturn(2);
+
+        assertEquals(2, sessionGenerationService.getGeneration(1));
+        assertEquals(2, sessionGenerationService.getGeneration(1));
+
+        verify(appUserRepository, times(1)).findSessionGeneration(1);
+    }
+
+    @Test
+    void testGetGeneration_ReadAgainAfterTtl() {
+        SessionGenerationService sessionGenerationService = service(10, Duration.ofNanos(1));
+        when(appUserRepository.findSessionGeneration(1)).thenReturn(2, 5);
+
+        assertEquals(2, sessionGenerationService.getGeneration(1));
+        assertEquals(5, sessionGenerationService.getGeneration(1));
+    }
+
+    @Test
+    void testGetGeneration_UnknownUser() {
+        SessionGenerationService sessionGenerationService = service(10, Duration.ofMinutes(1));
+        when(appUserRepository.findSessionGeneration(1)).thenReturn(null);
+
+        assertEquals(-1, sessionGenerationService.getGeneration(1));
+    }
+
+    @Test
+    void testIncrement_CachesNewGeneration() {
+        SessionGenerationService sessionGenerationService = service(10, Duration.ofMinutes(1));
+        when(appUserRepository.findSessionGeneration(1)).thenReturn(3);
+
+        assertEquals(3, sessionGenerationService.increment(1));
+        assertEquals(3, sessionGenerationService.getGeneration(1));
+
+        verify(appUserRepository).incrementSessionGeneration(1);
+        verify(appUserRepository, times(1)).findSessionGeneration(1);
+    }
+
+    @Test
+    void testConstructor_InvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new SessionGenerationService(-1, Duration.ofMinutes(1)));
+        assertThrows(IllegalArgumentException.class, () -> new SessionGenerationService(10, Duration.ZERO));
+    }
+}
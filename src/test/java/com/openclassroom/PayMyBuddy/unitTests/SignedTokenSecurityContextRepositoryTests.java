@@ -0,0 +1,196 @@
+package com.openclassroom.PayMyBuddy.unitTests;
+
+import com.openclassroom.PayMyBuddy.config.SignedTokenSecurityContextRepository;
+import com.openclassroom.PayMyBuddy.config.TokenSigner;
+import com.openclassroom.PayMyBuddy.entities.Role;
+import com.openclassroom.PayMyBuddy.models.AuthenticatedUser;
+import com.openclassroom.PayMyBuddy.services.SessionGenerationService;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.web.context.HttpRequestResponseHolder;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class SignedTokenSecurityContextRepositoryTests {
+    @Mock
+    private SessionGenerationService sessionGenerationService;
+
+    private final TokenSigner tokenSigner = new TokenSigner("0123456789abcdef0123456789abcdef".getBytes(StandardCharsets.UTF_8));
+    private final AuthenticatedUser principal = new AuthenticatedUser(1, "test@email.com", Role.USER.mask());
+    private SignedTokenSecurityContextRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        repository = new SignedTokenSecurityContextRepository(tokenSigner, sessionGenerationService, Duration.ofMinutes(30));
+    }
+
+    private Cookie login() {
+        when(sessionGenerationService.increment(1)).thenReturn(3);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        Authentication authentication = UsernamePasswordAuthenticationToken.authenticated(principal, null,
+                principal.getAuthorities());
+        repository.saveContext(new SecurityContextImpl(authentication), new MockHttpServletRequest(), response);
+        return response.getCookie(SignedTokenSecurityContextRepository.COOKIE_NAME);
+    }
+
+    @SuppressWarnings("deprecation")
+    private SecurityContext load(Cookie... cookies) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setCookies(cookies);
+        return repository.loadContext(new HttpRequestResponseHolder(request, new MockHttpServletResponse()));
+    }
+
+    @Test
+    void testSaveContext_IssuesToken() {
+        Cookie cookie = login();
+
+        assertNotNull(cookie);
+        assertTrue(cookie.isHttpOnly());
+        assertEquals(-1, cookie.getMaxAge());
+        assertEquals("Lax", cookie.getAttribute("SameSite"));
+        assertTrue(cookie.getValue().length() < 150);
+        verify(sessionGenerationService).increment(1);
+    }
+
+    @Test
+    void testLoadContext_CurrentGeneration() {
+        Cookie cookie = login();
+        when(sessionGenerationService.getGeneration(1)).thenReturn(3);
+
+        Authentication authentication = load(cookie).getAuthentication();
+
+        assertEquals(principal, authentication.getPrincipal());
+        assertEquals(principal.getAuthorities(), authentication.getAuthorities());
+        assertTrue(authentication.isAuthenticated());
+    }
+
+    @Test
+    void testLoadContext_LaterGenerationRefused() {
+        Cookie cookie = login();
+        when(sessionGenerationService.getGeneration(1)).thenReturn(4);
+
+        assertNull(load(cookie).getAuthentication());
+    }
+
+    @Test
+    void testLoadContext_TamperedTokenRefused() {
+        Cookie cookie = login();
+        String[] parts = cookie.getValue().split("\\.");
+        String payload = new String(Base64.getUrlDecoder().decode(parts[0]), StandardCharsets.UTF_8);
+        String forged = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(payload.replaceFirst("^1:", "2:").getBytes(StandardCharsets.UTF_8));
+
+        assertNull(load(new Cookie(cookie.getName(), forged + "." + parts[1])).getAuthentication());
+        assertNull(load(new Cookie(cookie.getName(), "garbage")).getAuthentication());
+        verify(sessionGenerationService, never()).getGeneration(anyInt());
+    }
+
+    @Test
+    void testLoadContext_ExpiredTokenRefused() {
+        String token = tokenSigner.sign("1:" + Role.USER.mask() + ":" + (System.currentTimeMillis() / 1000 - 1)
+                + ":3:test@email.com");
+
+        assertNull(load(new Cookie(SignedTokenSecurityContextRepository.COOKIE_NAME, token)).getAuthentication());
+    }
+
+    @Test
+    void testRenew_HalfLifetimePassed() {
+        long expiresAt = System.currentTimeMillis() / 1000 + 60;
+        String token = tokenSigner.sign("1:" + Role.USER.mask() + ":" + expiresAt + ":3:test@email.com");
+        when(sessionGenerationService.getGeneration(1)).thenReturn(3);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setCookies(new Cookie(SignedTokenSecurityContextRepository.COOKIE_NAME, token));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        repository.renew(request, response);
+
+        String renewed = tokenSigner.verify(response.getCookie(SignedTokenSecurityContextRepository.COOKIE_NAME).getValue());
+        String[] fields = renewed.split(":");
+        assertTrue(Long.parseLong(fields[2]) > expiresAt);
+        assertEquals("3", fields[3]);
+        verify(sessionGenerationService, never()).increment(anyInt());
+    }
+
+    @Test
+    void testRenew_FreshTokenKept() {
+        Cookie cookie = login();
+        when(sessionGenerationService.getGeneration(1)).thenReturn(3);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setCookies(cookie);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        repository.renew(request, response);
+
+        assertNull(response.getCookie(SignedTokenSecurityContextRepository.COOKIE_NAME));
+    }
+
+    @Test
+    void testSaveContext_EmptyContextClearsToken() {
+        Cookie cookie = login();
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setCookies(cookie);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        repository.saveContext(new SecurityContextImpl(), request, response);
+
+        assertEquals(0, response.getCookie(SignedTokenSecurityContextRepository.COOKIE_NAME).getMaxAge());
+    }
+
+    @Test
+    void testLogout_EndsEveryToken() {
+        Authentication authentication = UsernamePasswordAuthenticationToken.authenticated(principal, null,
+                principal.getAuthorities());
+
+        repository.logout(new MockHttpServletRequest(), new MockHttpServletResponse(), authentication);
+
+        verify(sessionGenerationService).increment(1);
+    }
+
+    @Test
+    void testTokenSigner_ShortSecretRejected() {
+        byte[] secret = new byte[16];
+        Arrays.fill(secret, (byte) 1);
+
+        assertThrows(IllegalArgumentException.class, () -> new TokenSigner(secret));
+        assertThrows(IllegalArgumentException.class,
+                () -> TokenSigner.of(Base64.getEncoder().encodeToString(secret), false));
+    }
+
+    @Test
+    void testTokenSigner_MissingSecretRejected() {
+        assertThrows(IllegalStateException.class, () -> TokenSigner.of("", false));
+        assertThrows(IllegalStateException.class, () -> TokenSigner.of(null, false));
+    }
+
+    @Test
+    void testTokenSigner_RandomSecretWhenAllowed() {
+        TokenSigner signer = TokenSigner.of("", true);
+
+        assertEquals("payload", signer.verify(signer.sign("payload")));
+        assertNull(TokenSigner.of("", true).verify(signer.sign("payload")));
+    }
+
+    @Test
+    void testTokenSigner_ConfiguredSecretSharedByNodes() {
+        String secret = Base64.getEncoder().encodeToString("0123456789abcdef0123456789abcdef".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals("payload", TokenSigner.of(secret, false).verify(TokenSigner.of(secret, false).sign("payload")));
+    }
+}
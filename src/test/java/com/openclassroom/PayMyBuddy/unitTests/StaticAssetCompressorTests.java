@@ -0,0 +1,53 @@
+package com.openclassroom.PayMyBuddy.unitTests;
+
+import com.openclassroom.PayMyBuddy.config.StaticAssetCompressor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StaticAssetCompressorTests {
+    @TempDir
+    private Path parent;
+
+    @Test
+    void testAfterPropertiesSet_WritesAssetsAndGzipVariants() throws IOException {
+        StaticAssetCompressor compressor = new StaticAssetCompressor(parent.toString());
+
+        compressor.afterPropertiesSet();
+
+        Path scripts = Path.of(URI.create(compressor.getLocation("js")));
+        assertTrue(scripts.startsWith(parent));
+        assertTrue(Files.isRegularFile(scripts.resolve("home.js")));
+        assertTrue(Files.isRegularFile(scripts.resolve("home.js.gz")));
+        try (Stream<Path> files = Files.walk(scripts)) {
+            assertTrue(files.noneMatch(file -> file.toString().endsWith(".tmp")));
+        }
+    }
+
+    @Test
+    void testConstructor_OwnDirectoryPerInstance() throws IOException {
+        StaticAssetCompressor compressor = new StaticAssetCompressor(parent.toString());
+        StaticAssetCompressor otherCompressor = new StaticAssetCompressor(parent.toString());
+
+        assertNotEquals(compressor.getLocation("js"), otherCompressor.getLocation("js"));
+    }
+
+    @Test
+    void testDestroy_DeletesDirectory() throws IOException {
+        StaticAssetCompressor compressor = new StaticAssetCompressor(parent.toString());
+        compressor.afterPropertiesSet();
+
+        compressor.destroy();
+
+        try (Stream<Path> files = Files.list(parent)) {
+            assertEquals(0, files.count());
+        }
+    }
+}
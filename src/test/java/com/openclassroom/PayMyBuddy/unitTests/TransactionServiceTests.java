@@ -1,15 +1,21 @@
 package com.openclassroom.PayMyBuddy.unitTests;
 
 import com.openclassroom.PayMyBuddy.entities.AppUser;
-import com.openclassroom.PayMyBuddy.entities.Transaction;
 import com.openclassroom.PayMyBuddy.exceptions.TransactionException;
+import com.openclassroom.PayMyBuddy.models.BulkTransactionDto;
+import com.openclassroom.PayMyBuddy.models.OperationView;
 import com.openclassroom.PayMyBuddy.models.TransactionDto;
 import com.openclassroom.PayMyBuddy.repository.AppUserRepository;
 import com.openclassroom.PayMyBuddy.repository.TransactionRepository;
+import com.openclassroom.PayMyBuddy.services.AccountLockManager;
+import com.openclassroom.PayMyBuddy.services.AppUserCache;
 import com.openclassroom.PayMyBuddy.services.AppUserService;
+import com.openclassroom.PayMyBuddy.services.IdempotencyService;
+import com.openclassroom.PayMyBuddy.services.LedgerJournal;
+import com.openclassroom.PayMyBuddy.services.LedgerService;
+import com.openclassroom.PayMyBuddy.services.RelationGraphIndex;
 import com.openclassroom.PayMyBuddy.services.TransactionService;
 import com.openclassroom.PayMyBuddy.services.Validators;
-import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -17,12 +23,17 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.validation.BindingResult;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.List;
+import java.util.Map;
 
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.*;
@@ -38,15 +49,26 @@ public class TransactionServiceTests {
     @Mock
     private AppUserRepository appUserRepository;
     @Mock
+    private AppUserCache appUserCache;
+    @Mock
+    private RelationGraphIndex relationGraphIndex;
+    @Mock
+    private LedgerService ledgerService;
+    @Mock
+    private IdempotencyService idempotencyService;
+    @Mock
+    private LedgerJournal ledgerJournal;
+    @Mock
+    private AccountLockManager accountLockManager;
+    @Mock
     private BindingResult bindingResult;
     @InjectMocks
     private TransactionService transactionService;
     private AppUser appUser;
     private AppUser receiver;
     private TransactionDto transactionDto;
-    private Transaction transaction1;
-    private Transaction transaction2;
-    private List<Transaction> transactions;
+    private List<OperationView> transactions;
+    private BulkTransactionDto bulkTransactionDto;
 
     @BeforeEach
     void setUp() {
@@ -63,41 +85,75 @@ public class TransactionServiceTests {
         transactionDto.setReceiverEmail("receiver@email.com");
         transactionDto.setDescription("Test");
 
-        transaction1 = new Transaction();
-        transaction1.setReceiver(appUser);
-        transaction2 = new Transaction();
-        transaction2.setReceiver(receiver);
-        transactions = List.of(transaction1, transaction2);
+        transactions = List.of(new SpelAwareProxyProjectionFactory().createProjection(OperationView.class,
+                Map.of("counterparty", "receiver", "amount", BigDecimal.valueOf(20))));
+
+        receiver.setEmail("receiver@email.com");
+        TransactionDto secondTransactionDto = new TransactionDto();
+        secondTransactionDto.setAmount(BigDecimal.valueOf(30));
+        secondTransactionDto.setReceiverEmail("Receiver@email.com");
+        secondTransactionDto.setDescription("Test 2");
+        bulkTransactionDto = new BulkTransactionDto();
+        bulkTransactionDto.setTransfers(List.of(transactionDto, secondTransactionDto));
     }
 
     @Test
     void testGetUserTransactions() {
         when(appUserService.getConnectedUser()).thenReturn(appUser);
-        when(transactionRepository.findAllByUserId(1)).thenReturn(transactions);
+        when(transactionRepository.findSentTransactions(1)).thenReturn(transactions);
 
-        List<Transaction> result = transactionService.getUserTransactions();
+        List<OperationView> result = transactionService.getUserTransactions();
 
-        assertEquals(1, result.size());
-        Assertions.assertTrue(result.contains(transaction2));
-        Assertions.assertFalse(result.contains(transaction1));
+        assertEquals(transactions, result);
     }
 
     @Test
     void testProcessTransaction_Success() {
         when(bindingResult.hasErrors()).thenReturn(false);
         when(appUserService.getConnectedUser()).thenReturn(appUser);
-        when(appUserRepository.findByEmail(anyString())).thenReturn(receiver);
+        when(appUserCache.findByEmail(anyString())).thenReturn(receiver);
+        when(validators.emailExists(anyString())).thenReturn(true);
+        when(validators.relationExists(any(AppUser.class), any(AppUser.class))).thenReturn(true);
+        when(ledgerService.transfer(any(AppUser.class), any(AppUser.class), any(), anyString(), any())).thenReturn(true);
+
+        transactionService.addTransaction(transactionDto, bindingResult);
+
+        verify(accountLockManager, times(1)).lock(1, 2);
+        verify(ledgerService, Mockito.times(1)).transfer(appUser, receiver, BigDecimal.valueOf(20)
+                .setScale(2, RoundingMode.HALF_UP), "Test", null);
+    }
+
+    @Test
+    void testProcessTransaction_Success_Journal() {
+        when(bindingResult.hasErrors()).thenReturn(false);
+        when(appUserService.getConnectedUser()).thenReturn(appUser);
+        when(appUserCache.findByEmail(anyString())).thenReturn(receiver);
         when(validators.emailExists(anyString())).thenReturn(true);
         when(validators.relationExists(any(AppUser.class), any(AppUser.class))).thenReturn(true);
+        when(ledgerJournal.isEnabled()).thenReturn(true);
+        when(ledgerJournal.transfer(any(AppUser.class), any(AppUser.class), any(), anyString(), any())).thenReturn(true);
 
         transactionService.addTransaction(transactionDto, bindingResult);
 
-        verify(transactionRepository, Mockito.times(1)).save(Mockito.any(Transaction.class));
-        verify(appUserService, times(1)).updateBalance(appUser, BigDecimal.valueOf(20)
-                .negate()
-                .setScale(2, RoundingMode.HALF_UP));
-        verify(appUserService, times(1)).updateBalance(receiver, BigDecimal.valueOf(20)
-                .setScale(2, RoundingMode.HALF_UP));
+        verify(ledgerJournal, times(1)).transfer(appUser, receiver, BigDecimal.valueOf(20)
+                .setScale(2, RoundingMode.HALF_UP), "Test", null);
+        verifyNoInteractions(accountLockManager);
+        verifyNoInteractions(ledgerService);
+    }
+
+    @Test
+    void testProcessTransaction_Replay() {
+        transactionDto.setIdempotencyKey("key");
+
+        when(bindingResult.hasErrors()).thenReturn(false);
+        when(validators.emailExists(anyString())).thenReturn(true);
+        when(appUserService.getConnectedUser()).thenReturn(appUser);
+        when(idempotencyService.isApplied(1, "key")).thenReturn(true);
+
+        transactionService.addTransaction(transactionDto, bindingResult);
+
+        verifyNoInteractions(ledgerService);
+        verifyNoInteractions(accountLockManager);
     }
 
     @Test
@@ -127,7 +183,10 @@ public class TransactionServiceTests {
     void testProcessTransaction_Failure_NegativeBalance() {
         when(bindingResult.hasErrors()).thenReturn(false);
         when(validators.emailExists(anyString())).thenReturn(true);
-        when(validators.isBalanceNegative(any())).thenReturn(true);
+        when(appUserService.getConnectedUser()).thenReturn(appUser);
+        when(appUserCache.findByEmail(anyString())).thenReturn(receiver);
+        when(validators.relationExists(any(AppUser.class), any(AppUser.class))).thenReturn(true);
+        when(ledgerService.transfer(any(AppUser.class), any(AppUser.class), any(), anyString(), any())).thenReturn(false);
 
         TransactionException exception = assertThrows(TransactionException.class, () -> {
             transactionService.addTransaction(transactionDto, bindingResult);
@@ -140,9 +199,8 @@ public class TransactionServiceTests {
     void testProcessTransaction_relationDoesNotExist() {
         when(bindingResult.hasErrors()).thenReturn(false);
         when(validators.emailExists(anyString())).thenReturn(true);
-        when(validators.isBalanceNegative(any())).thenReturn(false);
         when(appUserService.getConnectedUser()).thenReturn(appUser);
-        when(appUserRepository.findByEmail(anyString())).thenReturn(receiver);
+        when(appUserCache.findByEmail(anyString())).thenReturn(receiver);
         when(validators.relationExists(any(AppUser.class), any(AppUser.class))).thenReturn(false);
 
         TransactionException exception = assertThrows(TransactionException.class, () -> {
@@ -157,13 +215,12 @@ public class TransactionServiceTests {
     void testProcessTransaction_Failure_CatchBlock() {
         when(bindingResult.hasErrors()).thenReturn(false);
         when(validators.emailExists(anyString())).thenReturn(true);
-        when(validators.isBalanceNegative(any())).thenReturn(false);
         when(appUserService.getConnectedUser()).thenReturn(appUser);
-        when(appUserRepository.findByEmail(anyString())).thenReturn(receiver);
+        when(appUserCache.findByEmail(anyString())).thenReturn(receiver);
         when(validators.relationExists(any(AppUser.class), any(AppUser.class))).thenReturn(true);
 
-        doThrow(new RuntimeException("Database error")).when(transactionRepository)
-                .save(any());
+        doThrow(new RuntimeException("Database error")).when(ledgerService)
+                .transfer(any(AppUser.class), any(AppUser.class), any(), anyString(), any());
 
         TransactionException exception = assertThrows(TransactionException.class, () -> {
             transactionService.addTransaction(transactionDto, bindingResult);
@@ -171,4 +228,123 @@ public class TransactionServiceTests {
 
         assertEquals("Une erreur est survenue lors de la transaction", exception.getMessage());
     }
+
+    @Test
+    void testProcessTransaction_ConcurrentReplay() {
+        transactionDto.setIdempotencyKey("key");
+        when(bindingResult.hasErrors()).thenReturn(false);
+        when(validators.emailExists(anyString())).thenReturn(true);
+        when(appUserService.getConnectedUser()).thenReturn(appUser);
+        when(appUserCache.findByEmail(anyString())).thenReturn(receiver);
+        when(validators.relationExists(any(AppUser.class), any(AppUser.class))).thenReturn(true);
+        when(idempotencyService.isApplied(1, "key")).thenReturn(false, true);
+
+        doThrow(new DataIntegrityViolationException("Duplicate key")).when(ledgerService)
+                .transfer(any(AppUser.class), any(AppUser.class), any(), anyString(), any());
+
+        assertDoesNotThrow(() -> transactionService.addTransaction(transactionDto, bindingResult));
+    }
+
+    @Test
+    void testProcessTransaction_Failure_ConstraintViolation() {
+        transactionDto.setIdempotencyKey("key");
+        when(bindingResult.hasErrors()).thenReturn(false);
+        when(validators.emailExists(anyString())).thenReturn(true);
+        when(appUserService.getConnectedUser()).thenReturn(appUser);
+        when(appUserCache.findByEmail(anyString())).thenReturn(receiver);
+        when(validators.relationExists(any(AppUser.class), any(AppUser.class))).thenReturn(true);
+        when(idempotencyService.isApplied(1, "key")).thenReturn(false);
+
+        doThrow(new DataIntegrityViolationException("Data too long for column 'description'")).when(ledgerService)
+                .transfer(any(AppUser.class), any(AppUser.class), any(), anyString(), any());
+
+        TransactionException exception = assertThrows(TransactionException.class,
+                () -> transactionService.addTransaction(transactionDto, bindingResult));
+
+        assertEquals("Une erreur est survenue lors de la transaction", exception.getMessage());
+    }
+
+    @Test
+    void testAddTransactions_Success() {
+        when(bindingResult.hasErrors()).thenReturn(false);
+        when(appUserRepository.findAllByEmailIn(anyCollection())).thenReturn(List.of(receiver));
+        when(appUserService.getConnectedUser()).thenReturn(appUser);
+        when(relationGraphIndex.contains(1, 2)).thenReturn(true);
+        when(ledgerService.transferAll(eq(appUser), anyList(), any())).thenReturn(true);
+
+        transactionService.addTransactions(bulkTransactionDto, bindingResult);
+
+        verify(accountLockManager, times(1)).lock(2, 1);
+        verify(ledgerService, times(1)).transferAll(eq(appUser), argThat(saved -> saved.size() == 2
+                && saved.stream().allMatch(transaction -> transaction.getReceiver() == receiver)
+                && saved.get(1).getAmount().equals(BigDecimal.valueOf(30).setScale(2, RoundingMode.HALF_UP))), isNull());
+    }
+
+    @Test
+    void testAddTransactions_Failure_FormHasErrors() {
+        when(bindingResult.hasErrors()).thenReturn(true);
+
+        TransactionException exception = assertThrows(TransactionException.class, () -> {
+            transactionService.addTransactions(bulkTransactionDto, bindingResult);
+        });
+
+        assertEquals("Le formulaire contient une erreur", exception.getMessage());
+    }
+
+    @Test
+    void testAddTransactions_Failure_TooManyTransfers() {
+        ReflectionTestUtils.setField(transactionService, "bulkMaxSize", 1);
+        when(bindingResult.hasErrors()).thenReturn(false);
+
+        TransactionException exception = assertThrows(TransactionException.class, () -> {
+            transactionService.addTransactions(bulkTransactionDto, bindingResult);
+        });
+
+        assertEquals("Vous ne pouvez pas envoyer plus de 1 transactions à la fois", exception.getMessage());
+        verifyNoInteractions(appUserRepository, ledgerService);
+    }
+
+    @Test
+    void testAddTransactions_Failure_UserDoesNotExist() {
+        when(bindingResult.hasErrors()).thenReturn(false);
+        when(appUserRepository.findAllByEmailIn(anyCollection())).thenReturn(List.of());
+
+        TransactionException exception = assertThrows(TransactionException.class, () -> {
+            transactionService.addTransactions(bulkTransactionDto, bindingResult);
+        });
+
+        assertEquals("L'utilisateur n'existe pas", exception.getMessage());
+        verifyNoInteractions(ledgerService);
+    }
+
+    @Test
+    void testAddTransactions_Failure_RelationDoesNotExist() {
+        when(bindingResult.hasErrors()).thenReturn(false);
+        when(appUserRepository.findAllByEmailIn(anyCollection())).thenReturn(List.of(receiver));
+        when(appUserService.getConnectedUser()).thenReturn(appUser);
+        when(relationGraphIndex.contains(1, 2)).thenReturn(false);
+
+        TransactionException exception = assertThrows(TransactionException.class, () -> {
+            transactionService.addTransactions(bulkTransactionDto, bindingResult);
+        });
+
+        assertEquals("La relation n'existe pas", exception.getMessage());
+        assertEquals(0, exception.getStackTrace().length);
+        verifyNoInteractions(ledgerService);
+    }
+
+    @Test
+    void testAddTransactions_Failure_NegativeBalance() {
+        when(bindingResult.hasErrors()).thenReturn(false);
+        when(appUserRepository.findAllByEmailIn(anyCollection())).thenReturn(List.of(receiver));
+        when(appUserService.getConnectedUser()).thenReturn(appUser);
+        when(relationGraphIndex.contains(1, 2)).thenReturn(true);
+        when(ledgerService.transferAll(eq(appUser), anyList(), any())).thenReturn(false);
+
+        TransactionException exception = assertThrows(TransactionException.class, () -> {
+            transactionService.addTransactions(bulkTransactionDto, bindingResult);
+        });
+
+        assertEquals("Votre solde ne peut pas être négatif", exception.getMessage());
+    }
 }
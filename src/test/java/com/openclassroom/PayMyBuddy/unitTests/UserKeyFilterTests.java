@@ -0,0 +1,128 @@
+package com.openclassroom.PayMyBuddy.unitTests;
+
+import com.openclassroom.PayMyBuddy.models.UserKeyView;
+import com.openclassroom.PayMyBuddy.repository.AppUserRepository;
+import com.openclassroom.PayMyBuddy.services.UserKeyFilter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class UserKeyFilterTests {
+    @Mock
+    private AppUserRepository appUserRepository;
+    private UserKeyFilter userKeyFilter;
+
+    @BeforeEach
+    void setUp() {
+        userKeyFilter = new UserKeyFilter(10_000, 0.01);
+        ReflectionTestUtils.setField(userKeyFilter, "appUserRepository", appUserRepository);
+        ReflectionTestUtils.setField(userKeyFilter, "pageSize", 2);
+    }
+
+    private UserKeyView userKey(int id) {
+        return new SpelAwareProxyProjectionFactory().createProjection(UserKeyView.class,
+                Map.of("id", id, "username", "user" + id, "email", "user" + id + "@email.com"));
+    }
+
+    @Test
+    void testLoad_ReadsEveryPage() {
+        when(appUserRepository.findUserKeysAfter(0, PageRequest.of(0, 2))).thenReturn(List.of(userKey(1), userKey(2)));
+        when(appUserRepository.findUserKeysAfter(2, PageRequest.of(0, 2))).thenReturn(List.of(userKey(3)));
+
+        userKeyFilter.load();
+
+        assertTrue(userKeyFilter.mightContainUsername("user1"));
+        assertTrue(userKeyFilter.mightContainEmail("user3@email.com"));
+        verify(appUserRepository, never()).findUserKeysChangedSince(anyInt(), any());
+    }
+
+    @Test
+    void testMightContain_MissAnsweredWithoutDatabase() {
+        when(appUserRepository.findUserKeysAfter(anyInt(), any())).thenReturn(List.of());
+        userKeyFilter.load();
+
+        assertFalse(userKeyFilter.mightContainUsername("unknown"));
+        assertFalse(userKeyFilter.mightContainEmail("unknown@email.com"));
+
+        verify(appUserRepository, never()).findUserKeysChangedSince(anyInt(), any());
+    }
+
+    @Test
+    void testRefresh_AddsUsersWrittenByOtherNodes() {
+        when(appUserRepository.findUserKeysAfter(0, PageRequest.of(0, 2))).thenReturn(List.of(userKey(1)));
+        userKeyFilter.load();
+        when(appUserRepository.findUserKeysChangedSince(eq(1), any())).thenReturn(List.of(userKey(5)));
+        when(appUserRepository.findUserKeysChangedSince(eq(5), any())).thenReturn(List.of());
+
+        userKeyFilter.refresh();
+        userKeyFilter.refresh();
+
+        assertTrue(userKeyFilter.mightContainUsername("user5"));
+        assertTrue(userKeyFilter.mightContainEmail("user5@email.com"));
+        verify(appUserRepository, times(1)).findUserKeysChangedSince(eq(5), any());
+    }
+
+    @Test
+    void testRefresh_SkippedUntilLoaded() {
+        userKeyFilter.refresh();
+
+        verifyNoInteractions(appUserRepository);
+    }
+
+    @Test
+    void testMightContain_NotReady() {
+        assertTrue(userKeyFilter.mightContainUsername("unknown"));
+        assertTrue(userKeyFilter.mightContainEmail("unknown@email.com"));
+    }
+
+    @Test
+    void testMightContain_IgnoresCaseAndAccents() {
+        when(appUserRepository.findUserKeysAfter(anyInt(), any())).thenReturn(List.of());
+        userKeyFilter.load();
+
+        userKeyFilter.add("Hélène", "Helene@Email.com");
+
+        assertTrue(userKeyFilter.mightContainUsername("helene"));
+        assertTrue(userKeyFilter.mightContainEmail("helene@email.com"));
+    }
+
+    @Test
+    void testMightContain_FalsePositiveRate() {
+        when(appUserRepository.findUserKeysAfter(anyInt(), any())).thenReturn(List.of());
+        userKeyFilter.load();
+        for (int i = 0; i < 10_000; i++) {
+            userKeyFilter.add("user" + i, "user" + i + "@email.com");
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(userKeyFilter.mightContainUsername("user" + i));
+            assertTrue(userKeyFilter.mightContainEmail("user" + i + "@email.com"));
+            if (userKeyFilter.mightContainEmail("other" + i + "@email.com")) {
+                falsePositives++;
+            }
+        }
+
+        assertTrue(falsePositives < 200);
+    }
+
+    @Test
+    void testConstructor_SizedForTenMillionUsers() {
+        UserKeyFilter filter = new UserKeyFilter(10_000_000, 0.01);
+
+        assertEquals(191_701_184L, ReflectionTestUtils.getField(filter, "bitSize"));
+        assertEquals(7, ReflectionTestUtils.getField(filter, "hashCount"));
+    }
+}
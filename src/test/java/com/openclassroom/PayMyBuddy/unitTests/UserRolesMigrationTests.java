@@ -0,0 +1,97 @@
+package com.openclassroom.PayMyBuddy.unitTests;
+
+import com.openclassroom.PayMyBuddy.config.UserRolesMigration;
+import com.openclassroom.PayMyBuddy.entities.Role;
+import com.openclassroom.PayMyBuddy.services.JobLockService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class UserRolesMigrationTests {
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Mock
+    private JobLockService jobLockService;
+    @InjectMocks
+    private UserRolesMigration userRolesMigration;
+
+    @Test
+    void testMigrate_NoLegacyTable() throws InterruptedException {
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn(false);
+
+        userRolesMigration.afterPropertiesSet();
+
+        verifyNoInteractions(jobLockService);
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+
+    @Test
+    void testMigrate_LegacyTableDroppedOnce() throws InterruptedException {
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn(true);
+        when(jobLockService.tryLock(eq("user-roles-migration"), any())).thenReturn(true);
+
+        userRolesMigration.afterPropertiesSet();
+
+        verify(jdbcTemplate, times(1)).execute("DROP TABLE IF EXISTS user_roles");
+        verify(jobLockService, times(1)).unlock(eq("user-roles-migration"), any());
+    }
+
+    @Test
+    void testMigrate_UnmappedRolesKeepLegacyTable() throws InterruptedException {
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn(true);
+        when(jobLockService.tryLock(eq("user-roles-migration"), any())).thenReturn(true);
+        when(jdbcTemplate.query(contains("NOT IN (?)"), any(RowMapper.class), eq("ROLE_USER")))
+                .thenReturn(List.of("ROLE_ADMIN (2 rows)"));
+
+        userRolesMigration.afterPropertiesSet();
+
+        verify(jdbcTemplate, times(1)).update(anyString(), eq(Role.USER.mask()), eq(Role.USER.mask()), eq("ROLE_USER"));
+        verify(jdbcTemplate, never()).execute(anyString());
+        verify(jobLockService, times(1)).unlock(eq("user-roles-migration"), any());
+    }
+
+    @Test
+    void testMigrate_MigratedByAnotherNode() throws InterruptedException {
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn(true, false);
+        when(jobLockService.tryLock(eq("user-roles-migration"), any())).thenReturn(false);
+
+        userRolesMigration.afterPropertiesSet();
+
+        verify(jdbcTemplate, never()).update(anyString(), any(Object[].class));
+        verify(jdbcTemplate, never()).execute(anyString());
+        verify(jobLockService, never()).unlock(anyString(), any());
+    }
+
+    @Test
+    void testMigrate_DroppedWhileWaitingForLock() throws InterruptedException {
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn(true, false);
+        when(jobLockService.tryLock(eq("user-roles-migration"), any())).thenReturn(true);
+
+        userRolesMigration.afterPropertiesSet();
+
+        verify(jdbcTemplate, never()).execute(anyString());
+        verify(jobLockService, times(1)).unlock(eq("user-roles-migration"), any());
+    }
+
+    @Test
+    void testMigrate_LockHeldTooLong() {
+        ReflectionTestUtils.setField(userRolesMigration, "lockFor", Duration.ZERO);
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn(true);
+        when(jobLockService.tryLock(eq("user-roles-migration"), any())).thenReturn(false);
+
+        assertThrows(IllegalStateException.class, () -> userRolesMigration.afterPropertiesSet());
+    }
+}
@@ -4,10 +4,10 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 import com.openclassroom.PayMyBuddy.entities.AppUser;
-import com.openclassroom.PayMyBuddy.entities.Relation;
 import com.openclassroom.PayMyBuddy.repository.AppUserRepository;
-import com.openclassroom.PayMyBuddy.repository.RelationRepository;
 import com.openclassroom.PayMyBuddy.services.AppUserService;
+import com.openclassroom.PayMyBuddy.services.RelationGraphIndex;
+import com.openclassroom.PayMyBuddy.services.UserKeyFilter;
 import com.openclassroom.PayMyBuddy.services.Validators;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
@@ -16,14 +16,14 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
-import java.math.BigDecimal;
-
 @ExtendWith(MockitoExtension.class)
 public class ValidatorsTests {
     @Mock
     private AppUserRepository appUserRepository;
     @Mock
-    private RelationRepository relationRepository;
+    private UserKeyFilter userKeyFilter;
+    @Mock
+    private RelationGraphIndex relationGraphIndex;
     @Mock
     private AppUserService appUserService;
     @Mock
@@ -33,42 +33,66 @@ public class ValidatorsTests {
 
     @Test
     void testUsernameExists_Success() {
-        when(appUserRepository.findByUsername(anyString())).thenReturn(new AppUser());
+        when(userKeyFilter.mightContainUsername(anyString())).thenReturn(true);
+        when(appUserRepository.existsByUsername(anyString())).thenReturn(true);
 
         boolean result = validators.usernameExists("test");
 
         assertTrue(result);
-        verify(appUserRepository, times(1)).findByUsername("test");
+        verify(appUserRepository, times(1)).existsByUsername("test");
     }
 
     @Test
     void testUsernameExists_Failure() {
-        when(appUserRepository.findByUsername(anyString())).thenReturn(null);
+        when(userKeyFilter.mightContainUsername(anyString())).thenReturn(true);
+        when(appUserRepository.existsByUsername(anyString())).thenReturn(false);
 
         boolean result = validators.usernameExists("test");
 
         assertFalse(result);
-        verify(appUserRepository, times(1)).findByUsername("test");
+        verify(appUserRepository, times(1)).existsByUsername("test");
+    }
+
+    @Test
+    void testUsernameExists_RejectedByFilter() {
+        when(userKeyFilter.mightContainUsername(anyString())).thenReturn(false);
+
+        boolean result = validators.usernameExists("test");
+
+        assertFalse(result);
+        verify(appUserRepository, never()).existsByUsername(anyString());
     }
 
     @Test
     void testEmailExists_Success() {
-        when(appUserRepository.findByEmail(anyString())).thenReturn(new AppUser());
+        when(userKeyFilter.mightContainEmail(anyString())).thenReturn(true);
+        when(appUserRepository.existsByEmail(anyString())).thenReturn(true);
 
         boolean result = validators.emailExists("email@test.com");
 
         assertTrue(result);
-        verify(appUserRepository, times(1)).findByEmail("email@test.com");
+        verify(appUserRepository, times(1)).existsByEmail("email@test.com");
     }
 
     @Test
     void testEmailExists_Failure() {
-        when(appUserRepository.findByEmail(anyString())).thenReturn(null);
+        when(userKeyFilter.mightContainEmail(anyString())).thenReturn(true);
+        when(appUserRepository.existsByEmail(anyString())).thenReturn(false);
+
+        boolean result = validators.emailExists("email@test.com");
+
+        assertFalse(result);
+        verify(appUserRepository, times(1)).existsByEmail("email@test.com");
+    }
+
+    @Test
+    void testEmailExists_RejectedByFilter() {
+        when(userKeyFilter.mightContainEmail(anyString())).thenReturn(false);
 
         boolean result = validators.emailExists("email@test.com");
 
         assertFalse(result);
-        verify(appUserRepository, times(1)).findByEmail("email@test.com");
+        verify(appUserRepository, never()).existsByEmail(anyString());
     }
 
     @Test
@@ -125,7 +149,8 @@ public class ValidatorsTests {
         AppUser appUser = new AppUser();
         appUser.setPassword("encodedPassword1");
 
-        when(appUserService.getConnectedUser()).thenReturn(appUser);
+        when(appUserService.getConnectedUserId()).thenReturn(1);
+        when(appUserRepository.findById(1)).thenReturn(appUser);
         when(passwordEncoder.matches(anyString(), anyString())).thenReturn(true);
 
         boolean result = validators.checkPassword("Password1");
@@ -138,7 +163,8 @@ public class ValidatorsTests {
         AppUser appUser = new AppUser();
         appUser.setPassword("encodedPassword1");
 
-        when(appUserService.getConnectedUser()).thenReturn(appUser);
+        when(appUserService.getConnectedUserId()).thenReturn(1);
+        when(appUserRepository.findById(1)).thenReturn(appUser);
         when(passwordEncoder.matches(anyString(), anyString())).thenReturn(false);
 
         boolean result = validators.checkPassword("Password0");
@@ -148,8 +174,7 @@ public class ValidatorsTests {
 
     @Test
     void testRelationExists_Success() {
-        when(relationRepository.findByUserAndRelatedUser(any(AppUser.class), any(AppUser.class))).thenReturn(
-                new Relation());
+        when(relationGraphIndex.contains(anyInt(), anyInt())).thenReturn(true);
 
         boolean result = validators.relationExists(new AppUser(), new AppUser());
 
@@ -158,34 +183,10 @@ public class ValidatorsTests {
 
     @Test
     void testRelationExists_Failure() {
-        when(relationRepository.findByUserAndRelatedUser(any(AppUser.class), any(AppUser.class))).thenReturn(null);
+        when(relationGraphIndex.contains(anyInt(), anyInt())).thenReturn(false);
 
         boolean result = validators.relationExists(new AppUser(), new AppUser());
 
         assertFalse(result);
     }
-
-    @Test
-    void testIsBalanceNegative_success() {
-        AppUser user = new AppUser();
-        user.setBalance(BigDecimal.valueOf(20));
-
-        when(appUserService.getConnectedUser()).thenReturn(user);
-
-        boolean result = validators.isBalanceNegative(BigDecimal.valueOf(10));
-
-        assertFalse(result);
-    }
-
-    @Test
-    void testIsBalanceNegative_failure() {
-        AppUser user = new AppUser();
-        user.setBalance(BigDecimal.valueOf(20));
-
-        when(appUserService.getConnectedUser()).thenReturn(user);
-
-        boolean result = validators.isBalanceNegative(BigDecimal.valueOf(30));
-
-        assertTrue(result);
-    }
 }